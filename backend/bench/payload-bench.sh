@@ -0,0 +1,43 @@
+#!/usr/bin/env bash
+# 响应格式压测：对比虚拟机列表等接口在 JSON / JSON+gzip / CBOR / CBOR+gzip 下的响应大小与耗时。
+# 耗时取自curl的time_starttransfer（首字节时间，包含服务端查询和序列化），多次请求取中位数。
+#
+# 用法：
+#   bench/payload-bench.sh [虚拟机数量] [每种格式请求次数]
+#
+# 环境变量：
+#   BASE_URL      默认 http://localhost:8080
+#   LIBVIRT_URI   须与后端一致；为 test:// 时先通过API创建指定数量的测试虚拟机
+#                 （后端需以 --rate-limit.enabled=false 启动，否则批量创建会被限流）
+set -euo pipefail
+
+VMS=${1:-1000}
+RUNS=${2:-20}
+BASE_URL=${BASE_URL:-http://localhost:8080}
+LIBVIRT_URI=${LIBVIRT_URI:-test:///default}
+ENDPOINTS=(/v1/vms /v1/host /v1/balloon/events)
+
+if [[ "$LIBVIRT_URI" == test://* ]]; then
+    # test驱动的状态只存在于后端进程内，这里通过API批量创建
+    for i in $(seq 1 "$VMS"); do
+        curl -sf -o /dev/null -H 'Content-Type: application/json' -X POST "$BASE_URL/v1/vms" \
+            -d "{\"name\":\"bench-$i\",\"memoryMB\":512,\"cpuCount\":1,\"diskImagePath\":\"/var/lib/libvirt/images/bench-$i.qcow2\"}" || true
+    done
+fi
+
+measure() {
+    local url=$1 accept=$2 encoding=$3
+    local args=(-s -o /dev/null -H "Accept: $accept" -w '%{size_download} %{time_starttransfer}\n')
+    [[ -n "$encoding" ]] && args+=(-H "Accept-Encoding: $encoding")
+    for _ in $(seq 1 "$RUNS"); do
+        curl "${args[@]}" "$url"
+    done | sort -k2 -n | awk -v n="$RUNS" 'NR == int((n + 1) / 2) { printf "%10d 字节  %8.2fms\n", $1, $2 * 1000 }'
+}
+
+for endpoint in "${ENDPOINTS[@]}"; do
+    echo "== $endpoint"
+    printf '  %-12s' "json";      measure "$BASE_URL$endpoint" application/json ""
+    printf '  %-12s' "json+gzip"; measure "$BASE_URL$endpoint" application/json gzip
+    printf '  %-12s' "cbor";      measure "$BASE_URL$endpoint" application/cbor ""
+    printf '  %-12s' "cbor+gzip"; measure "$BASE_URL$endpoint" application/cbor gzip
+done
@@ -0,0 +1,48 @@
+#!/usr/bin/env bash
+# 声明式调和压测：提交N台虚拟机的期望状态，统计首次调和（全部define+start）
+# 和重复提交同一期望状态（全部按规格哈希跳过）的耗时。
+#
+# 使用libvirt测试驱动启动后端（内存中的假hypervisor，不需要KVM）：
+#   LIBVIRT_URI=test:///default LIBVIRT_DOMAIN_TYPE=test \
+#   RECONCILER_STATE_DIR=/tmp/vm-manager-reconciler mvn spring-boot:run
+# 然后执行：
+#   bench/reconcile-bench.sh [数量，默认1000] [后端地址，默认http://localhost:8080]
+set -euo pipefail
+
+COUNT=${1:-1000}
+BASE=${2:-http://localhost:8080}
+PAYLOAD=$(mktemp)
+trap 'rm -f "$PAYLOAD"' EXIT
+
+{
+    printf '{"prune":true,"vms":['
+    for i in $(seq 1 "$COUNT"); do
+        [ "$i" -gt 1 ] && printf ','
+        printf '{"state":"RUNNING","spec":{"name":"bench-%04d","memoryMB":512,"cpuCount":1,' "$i"
+        printf '"diskImagePath":"/var/lib/libvirt/images/bench-%04d.qcow2","numaPlacement":false}}' "$i"
+    done
+    printf ']}'
+} > "$PAYLOAD"
+
+run() {
+    local label=$1
+    local generation
+    generation=$(curl -sf -X PUT -H 'Content-Type: application/json' --data-binary "@$PAYLOAD" \
+        "$BASE/v1/desired-state" | jq -r '.data.generation')
+    # 等待该版本的调和报告
+    while true; do
+        local status
+        status=$(curl -sf "$BASE/v1/desired-state/status")
+        if [ "$(jq -r '.data.lastReport.generation // 0' <<<"$status")" = "$generation" ] \
+            && [ "$(jq -r '.data.reconciling' <<<"$status")" = "false" ]; then
+            jq -r --arg label "$label" '.data.lastReport
+                | "\($label): total=\(.total) unchanged=\(.unchanged) changed=\(.changed) failed=\(.failed) actions=\(.actionCounts|tostring) duration=\(.durationMs)ms"' \
+                <<<"$status"
+            break
+        fi
+        sleep 0.2
+    done
+}
+
+run "首次调和"
+run "重复调和"
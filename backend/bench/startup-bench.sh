@@ -0,0 +1,65 @@
+#!/usr/bin/env bash
+# 启动耗时压测：反复启动后端，测量从进程启动到首个请求成功返回的时间（毫秒）。
+#
+# 用法：
+#   bench/startup-bench.sh jar    [次数]   # java -jar target/*.jar
+#   bench/startup-bench.sh cds    [次数]   # 解压布局 + AppCDS归档（首次运行自动生成归档）
+#   bench/startup-bench.sh native [次数]   # mvn -Pnative native:compile 生成的原生镜像
+#
+# 环境变量：
+#   LIBVIRT_URI   默认 test:///default，避免压测依赖真实宿主机
+#   WARMUP        是否开启启动预热（STARTUP_WARMUP），默认 true
+#   URL           首个请求地址，默认 http://localhost:8080/v1/vms
+set -euo pipefail
+
+MODE=${1:-jar}
+RUNS=${2:-10}
+URL=${URL:-http://localhost:8080/v1/vms}
+export LIBVIRT_URI=${LIBVIRT_URI:-test:///default}
+export LIBVIRT_DOMAIN_TYPE=${LIBVIRT_DOMAIN_TYPE:-test}
+export STARTUP_WARMUP=${WARMUP:-true}
+WORK=$(mktemp -d)
+trap 'rm -rf "$WORK"' EXIT
+
+cd "$(dirname "$0")/.."
+JAR=$(ls target/vm-manager-backend-*.jar | grep -v plain | head -n 1)
+# 状态目录放到临时目录，避免写入 /var/lib
+APP_ARGS=(--journal.dir="$WORK/journal" --reconciler.state-dir="$WORK/reconciler"
+          --idempotency.store-dir="$WORK/idempotency" --console-log.ring-dir="$WORK/console"
+          --logging.level.root=WARN --logging.level.com.pengchengyin.vmmanagerbackend=WARN
+          --logging.level.org.springframework.web=WARN)
+
+case "$MODE" in
+    jar)
+        CMD=(java -jar "$JAR") ;;
+    cds)
+        java -Djarmode=tools -jar "$JAR" extract --force --destination "$WORK/app" >/dev/null
+        java -XX:ArchiveClassesAtExit="$WORK/app/app.jsa" -Dspring.context.exit=onRefresh \
+            -jar "$WORK/app/app.jar" "${APP_ARGS[@]}" --journal.enabled=false >/dev/null 2>&1
+        CMD=(java -XX:SharedArchiveFile="$WORK/app/app.jsa" -jar "$WORK/app/app.jar") ;;
+    native)
+        CMD=(target/vm-manager-backend) ;;
+    *)
+        echo "未知模式: $MODE" >&2; exit 1 ;;
+esac
+
+RESULTS=()
+for i in $(seq 1 "$RUNS"); do
+    start=$(date +%s%N)
+    "${CMD[@]}" "${APP_ARGS[@]}" >"$WORK/run.log" 2>&1 &
+    pid=$!
+    until curl -sf -o /dev/null "$URL"; do
+        if ! kill -0 "$pid" 2>/dev/null; then
+            echo "后端启动失败，日志：" >&2; cat "$WORK/run.log" >&2; exit 1
+        fi
+        sleep 0.01
+    done
+    elapsed=$(( ($(date +%s%N) - start) / 1000000 ))
+    RESULTS+=("$elapsed")
+    echo "第 $i 次: ${elapsed}ms"
+    kill "$pid"; wait "$pid" 2>/dev/null || true
+done
+
+printf '%s\n' "${RESULTS[@]}" | sort -n | awk -v mode="$MODE" '
+    { v[NR] = $1 }
+    END { printf "%s: 次数=%d 最小=%dms 中位数=%dms 最大=%dms\n", mode, NR, v[1], v[int((NR + 1) / 2)], v[NR] }'
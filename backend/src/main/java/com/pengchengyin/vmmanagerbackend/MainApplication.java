@@ -2,11 +2,13 @@ package com.pengchengyin.vmmanagerbackend;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 /**
  * Libvirt KVM管理应用入口
  */
 @SpringBootApplication
+@EnableScheduling
 public class MainApplication {
 
     public static void main(String[] args) {
@@ -0,0 +1,89 @@
+package com.pengchengyin.vmmanagerbackend.config;
+
+import com.pengchengyin.vmmanagerbackend.model.BalloonPolicy;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 内存气球控制器配置类
+ */
+@Configuration
+@ConfigurationProperties(prefix = "balloon")
+@Data
+public class BalloonConfig {
+    /**
+     * 是否启用自动内存气球调整
+     */
+    private boolean enabled = false;
+
+    /**
+     * 控制周期（毫秒）
+     */
+    private long intervalMs = 10000;
+
+    /**
+     * 来宾空闲内存比例高于该值时回收内存
+     */
+    private double reclaimAboveRatio = 0.35;
+
+    /**
+     * 来宾空闲内存比例低于该值时归还内存
+     */
+    private double growBelowRatio = 0.10;
+
+    /**
+     * 调整后期望保留的空闲内存比例
+     */
+    private double targetFreeRatio = 0.20;
+
+    /**
+     * 宿主机内存压力模式下的回收阈值与目标空闲比例
+     */
+    private double pressureReclaimAboveRatio = 0.20;
+    private double pressureTargetFreeRatio = 0.10;
+
+    /**
+     * 宿主机空闲内存比例低于该值时进入压力模式
+     */
+    private double hostPressureFreeRatio = 0.10;
+
+    /**
+     * 单次调整的最大幅度（MB）
+     */
+    private long maxStepMb = 512;
+
+    /**
+     * 小于该幅度（MB）的调整忽略，避免频繁抖动
+     */
+    private long minStepMb = 64;
+
+    /**
+     * 同一虚拟机两次回收之间的最小间隔（秒），归还内存不受限制
+     */
+    private long cooldownSeconds = 60;
+
+    /**
+     * 每个控制周期最多执行的回收次数
+     */
+    private int maxReclaimsPerCycle = 10;
+
+    /**
+     * 默认保证的最小内存（MB）与最小比例（相对虚拟机最大内存），取两者较大值
+     */
+    private long minMb = 512;
+    private double minRatio = 0.25;
+
+    /**
+     * 保留的调整记录条数
+     */
+    private int eventHistory = 500;
+
+    /**
+     * 按虚拟机名称配置的策略
+     */
+    private Map<String, BalloonPolicy> vms = new HashMap<>();
+}
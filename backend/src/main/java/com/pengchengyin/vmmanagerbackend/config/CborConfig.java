@@ -0,0 +1,30 @@
+package com.pengchengyin.vmmanagerbackend.config;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+/**
+ * CBOR响应格式
+ * 请求头 Accept: application/cbor 时按CBOR二进制格式返回，其余情况仍为JSON。
+ * 使用Spring Boot配置好的Jackson2ObjectMapperBuilder，与JSON共享模块和序列化配置。
+ */
+@Configuration
+public class CborConfig implements WebMvcConfigurer {
+
+    @Autowired
+    private Jackson2ObjectMapperBuilder objectMapperBuilder;
+
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        // 放在JSON之后：未指定Accept或Accept为*/*时仍优先返回JSON
+        converters.add(new MappingJackson2CborHttpMessageConverter(
+                objectMapperBuilder.factory(new CBORFactory()).build()));
+    }
+}
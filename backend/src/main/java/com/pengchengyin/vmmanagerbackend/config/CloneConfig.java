@@ -0,0 +1,48 @@
+package com.pengchengyin.vmmanagerbackend.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 虚拟机克隆配置类
+ */
+@Configuration
+@ConfigurationProperties(prefix = "clone")
+@Data
+public class CloneConfig {
+    /**
+     * 同时进行的克隆数量（链接克隆只写元数据，主要受libvirt调用并发限制）
+     */
+    private int threads = 16;
+
+    /**
+     * 每个存储池同时进行的完整复制数量
+     */
+    private int fullCopiesPerPool = 2;
+
+    /**
+     * 宿主机磁盘平均延迟高于该值（毫秒）时暂缓开始新的完整复制；延迟取自常驻运行的 HostDiskLatencyService，不依赖自适应限速，宿主机无法提供磁盘统计时不限制
+     */
+    private double maxHostLatencyMs = 50.0;
+
+    /**
+     * 因磁盘延迟暂缓完整复制的最长时间（秒），超时后仍然开始复制
+     */
+    private int latencyWaitSeconds = 300;
+
+    /**
+     * 单次请求最多克隆的数量
+     */
+    private int maxCount = 100;
+
+    /**
+     * 完整复制进度刷新间隔（毫秒）
+     */
+    private long progressIntervalMs = 1000;
+
+    /**
+     * 保留的已完成克隆任务数量
+     */
+    private int jobHistory = 50;
+}
@@ -0,0 +1,53 @@
+package com.pengchengyin.vmmanagerbackend.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 串口控制台日志采集配置类
+ */
+@Configuration
+@ConfigurationProperties(prefix = "console-log")
+@Data
+public class ConsoleLogConfig {
+    /**
+     * 是否启用串口日志采集
+     */
+    private boolean enabled = true;
+
+    /**
+     * QEMU写入串口日志的目录（写入domain XML的 serial/log 元素）
+     */
+    private String logDir = "/var/log/libvirt/qemu";
+
+    /**
+     * 每个虚拟机环形日志文件的存放目录
+     */
+    private String ringDir = "/var/lib/vm-manager/console";
+
+    /**
+     * 每个虚拟机保留的控制台输出大小（KB）
+     */
+    private int ringSizeKb = 1024;
+
+    /**
+     * 读取新输出的间隔（毫秒）
+     */
+    private long pollIntervalMs = 500;
+
+    /**
+     * 重新扫描运行中虚拟机的间隔（毫秒）
+     */
+    private long discoveryIntervalMs = 10000;
+
+    /**
+     * 采集与推送线程数
+     */
+    private int threads = 2;
+
+    /**
+     * follow模式的SSE连接超时（毫秒）
+     */
+    private long followTimeoutMs = 30 * 60 * 1000;
+}
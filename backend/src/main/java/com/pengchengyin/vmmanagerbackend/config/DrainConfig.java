@@ -0,0 +1,58 @@
+package com.pengchengyin.vmmanagerbackend.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 宿主机排空/恢复配置类
+ */
+@Configuration
+@ConfigurationProperties(prefix = "drain")
+@Data
+public class DrainConfig {
+    /**
+     * 排空计划与进度的持久化目录，宿主机重启后按其中的顺序恢复
+     */
+    private String stateDir = "/var/lib/vm-manager/drain";
+
+    /**
+     * 同时托管保存的虚拟机数量上限
+     */
+    private int maxConcurrency = 8;
+
+    /**
+     * 同时写盘的虚拟机内存总量上限（MB）：托管保存的写盘量约等于虚拟机内存，以此限制并发的磁盘吞吐
+     */
+    private long maxInflightMemoryMb = 65536;
+
+    /**
+     * 宿主机磁盘平均延迟高于该值（毫秒）时暂缓开始新的保存/恢复；HostDiskLatencyService 始终按 qos.interval-ms 采样，与 qos.enabled 无关，读不到 /proc/diskstats 时门限不生效
+     */
+    private double maxHostLatencyMs = 50.0;
+
+    /**
+     * 优先级标签键：值为整数，越大越重要（最后保存、最先恢复），缺省为0
+     */
+    private String priorityLabel = "drain-priority";
+
+    /**
+     * 同时恢复的虚拟机数量
+     */
+    private int restoreConcurrency = 2;
+
+    /**
+     * 相邻两次开始恢复的最小间隔（毫秒）
+     */
+    private long restoreIntervalMs = 2000;
+
+    /**
+     * 恢复时为宿主机保留的空闲内存（MB），空闲内存不足时暂缓恢复
+     */
+    private long memoryReserveMb = 2048;
+
+    /**
+     * 因磁盘延迟或空闲内存不足暂缓一台虚拟机的最长时间（秒），超时后仍然开始
+     */
+    private int waitSeconds = 300;
+}
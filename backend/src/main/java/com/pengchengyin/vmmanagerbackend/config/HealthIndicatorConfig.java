@@ -0,0 +1,36 @@
+package com.pengchengyin.vmmanagerbackend.config;
+
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.pengchengyin.vmmanagerbackend.service.HealthProbeService;
+
+/**
+ * 健康指示器配置类
+ * 指示器只读取后台探测缓存的结果，健康检查请求不会触发libvirt调用。
+ * 组件名取Bean名去掉HealthIndicator后缀：libvirt、storagePools、eventLoops、hostSample。
+ */
+@Configuration
+public class HealthIndicatorConfig {
+
+    @Bean
+    public HealthIndicator libvirtHealthIndicator(HealthProbeService probes) {
+        return () -> probes.get(HealthProbeService.LIBVIRT);
+    }
+
+    @Bean
+    public HealthIndicator storagePoolsHealthIndicator(HealthProbeService probes) {
+        return () -> probes.get(HealthProbeService.STORAGE_POOLS);
+    }
+
+    @Bean
+    public HealthIndicator eventLoopsHealthIndicator(HealthProbeService probes) {
+        return () -> probes.get(HealthProbeService.EVENT_LOOPS);
+    }
+
+    @Bean
+    public HealthIndicator hostSampleHealthIndicator(HealthProbeService probes) {
+        return () -> probes.get(HealthProbeService.HOST_SAMPLE);
+    }
+}
@@ -0,0 +1,43 @@
+package com.pengchengyin.vmmanagerbackend.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 健康探测配置类
+ */
+@Configuration
+@ConfigurationProperties(prefix = "health-probe")
+@Data
+public class HealthProbeConfig {
+    /**
+     * 后台探测间隔（毫秒）
+     */
+    private long intervalMs = 5000;
+
+    /**
+     * 探测结果超过该时间未更新视为探测线程卡住（例如libvirt调用挂起），报告DOWN
+     */
+    private long staleAfterMs = 20000;
+
+    /**
+     * libvirt往返耗时超过该值时报告DEGRADED（毫秒）
+     */
+    private long libvirtSlowMs = 1000;
+
+    /**
+     * 存储池可用空间比例低于该值时报告DEGRADED
+     */
+    private double poolMinFreeRatio = 0.05;
+
+    /**
+     * 宿主机采样结果（HostMonitorService）的最大允许年龄（毫秒）
+     */
+    private long hostSampleMaxAgeMs = 30000;
+
+    /**
+     * 事件循环线程允许的最大停顿（毫秒）
+     */
+    private long loopMaxLagMs = 10000;
+}
@@ -0,0 +1,23 @@
+package com.pengchengyin.vmmanagerbackend.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 宿主机资源采样配置类
+ */
+@Configuration
+@ConfigurationProperties(prefix = "host-monitor")
+@Data
+public class HostMonitorConfig {
+    /**
+     * 是否启用后台采样
+     */
+    private boolean enabled = true;
+
+    /**
+     * 采样间隔（毫秒）
+     */
+    private long refreshIntervalMs = 5000;
+}
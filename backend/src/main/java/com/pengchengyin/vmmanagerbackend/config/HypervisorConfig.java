@@ -0,0 +1,134 @@
+package com.pengchengyin.vmmanagerbackend.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hypervisor后端配置类
+ */
+@Configuration
+@ConfigurationProperties(prefix = "hypervisor")
+@Data
+public class HypervisorConfig {
+    /**
+     * 后端类型：libvirt（默认）或 simulated（进程内模拟，用于压测）
+     */
+    private String backend = "libvirt";
+
+    private Simulated simulated = new Simulated();
+
+    /**
+     * 调用延迟分布
+     */
+    public enum LatencyDistribution {
+        /**
+         * 固定为 latencyMs
+         */
+        FIXED,
+        /**
+         * 在 latencyMs ± jitterMs 之间均匀分布
+         */
+        UNIFORM,
+        /**
+         * 均值为 latencyMs 的指数分布
+         */
+        EXPONENTIAL,
+        /**
+         * 中位数为 latencyMs、对数标准差为 sigma 的对数正态分布（长尾）
+         */
+        LOGNORMAL
+    }
+
+    @Data
+    public static class Simulated {
+        /**
+         * 启动时生成的虚拟机数量
+         */
+        private int domainCount = 1000;
+
+        /**
+         * 初始处于运行状态的比例
+         */
+        private double runningRatio = 0.5;
+
+        /**
+         * 每次调用的延迟分布
+         */
+        private LatencyDistribution latencyDistribution = LatencyDistribution.FIXED;
+
+        /**
+         * 基准延迟（毫秒）
+         */
+        private double latencyMs = 1;
+
+        /**
+         * UNIFORM分布的抖动范围（毫秒）
+         */
+        private double jitterMs = 0;
+
+        /**
+         * LOGNORMAL分布的对数标准差
+         */
+        private double sigma = 0.5;
+
+        /**
+         * 同时处理的调用数上限，模拟libvirtd的工作线程数（0表示不限制）
+         */
+        private int maxConcurrentCalls = 20;
+
+        /**
+         * 故障注入概率（0~1）
+         */
+        private double failureRate = 0;
+
+        /**
+         * 注入故障的操作（list、get、define、undefine、start、shutdown、destroy、reboot、suspend、resume、agent、
+         * host、pool、volume、stream），为空表示全部
+         */
+        private List<String> failureOperations = new ArrayList<>();
+
+        /**
+         * 优雅关机从发出信号到虚拟机关闭的时间（毫秒）
+         */
+        private long shutdownDelayMs = 2000;
+
+        /**
+         * 每分钟随机让多少台运行中的虚拟机崩溃，用于验证事件处理（0表示关闭）
+         */
+        private double crashesPerMinute = 0;
+
+        /**
+         * 模拟宿主机的NUMA节点数
+         */
+        private int numaNodes = 2;
+
+        /**
+         * 每个NUMA节点的逻辑CPU数（每个核心两个超线程）
+         */
+        private int cpusPerNode = 32;
+
+        /**
+         * 每个NUMA节点的内存（GB）
+         */
+        private long memoryGbPerNode = 128;
+
+        /**
+         * 模拟存储池名称，启动时为每台虚拟机的磁盘在其中生成一个存储卷
+         */
+        private String storagePool = "default";
+
+        /**
+         * 模拟存储池的目录
+         */
+        private String storagePoolPath = "/var/lib/libvirt/images";
+
+        /**
+         * 模拟存储池的容量（GB）
+         */
+        private long storagePoolCapacityGb = 4096;
+    }
+}
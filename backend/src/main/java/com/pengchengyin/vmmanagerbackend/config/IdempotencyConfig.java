@@ -0,0 +1,38 @@
+package com.pengchengyin.vmmanagerbackend.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 幂等请求配置类（Idempotency-Key）
+ */
+@Configuration
+@ConfigurationProperties(prefix = "idempotency")
+@Data
+public class IdempotencyConfig {
+    /**
+     * 请求结果持久化目录，服务重启后重试的请求仍能得到原结果
+     */
+    private String storeDir = "/var/lib/vm-manager/idempotency";
+
+    /**
+     * 内存中缓存的结果数量上限（LRU）
+     */
+    private int maxEntries = 10000;
+
+    /**
+     * 结果保留时间（小时），过期后同一Key视为新请求
+     */
+    private long ttlHours = 24;
+
+    /**
+     * 相同Key的并发请求等待首个请求完成的最长时间（秒）
+     */
+    private long inFlightWaitSeconds = 120;
+
+    /**
+     * 是否由Idempotency-Key派生虚拟机UUID（重试时即使结果未保存，重新定义也不会产生新的虚拟机）
+     */
+    private boolean deterministicUuid = false;
+}
@@ -0,0 +1,38 @@
+package com.pengchengyin.vmmanagerbackend.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 操作日志配置类
+ */
+@Configuration
+@ConfigurationProperties(prefix = "journal")
+@Data
+public class JournalConfig {
+    /**
+     * 是否记录虚拟机变更操作
+     */
+    private boolean enabled = true;
+
+    /**
+     * 日志段与检查点文件目录
+     */
+    private String dir = "/var/lib/vm-manager/journal";
+
+    /**
+     * 单个日志段大小（MB），写满后切换到新段
+     */
+    private int segmentSizeMb = 64;
+
+    /**
+     * 累计多少条记录后做一次检查点并清理旧日志段
+     */
+    private long checkpointEveryRecords = 100000;
+
+    /**
+     * 重启后是否继续执行未完成的操作（否则只记录为已放弃）
+     */
+    private boolean resumeOnRecovery = true;
+}
@@ -0,0 +1,18 @@
+package com.pengchengyin.vmmanagerbackend.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 虚拟机标签索引配置类
+ */
+@Configuration
+@ConfigurationProperties(prefix = "label-index")
+@Data
+public class LabelIndexConfig {
+    /**
+     * 全量重建索引的间隔（毫秒），用于发现绕过本服务修改的虚拟机（如virsh edit）
+     */
+    private long resyncIntervalMs = 300000;
+}
@@ -13,6 +13,11 @@ import org.springframework.context.annotation.Configuration;
 public class LibvirtConfig {
     private Connection connection = new Connection();
 
+    /**
+     * 新建虚拟机的domain类型（kvm；使用 test:///default 驱动压测时设为 test）
+     */
+    private String domainType = "kvm";
+
     @Data
     public static class Connection {
         private String uri = "qemu:///system";
@@ -0,0 +1,104 @@
+package com.pengchengyin.vmmanagerbackend.config;
+
+import java.io.IOException;
+
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.aot.hint.TypeReference;
+import org.springframework.aot.hint.annotation.RegisterReflectionForBinding;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.ImportRuntimeHints;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.core.type.classreading.CachingMetadataReaderFactory;
+import org.springframework.core.type.classreading.MetadataReaderFactory;
+
+import com.pengchengyin.vmmanagerbackend.model.DesiredState;
+import com.pengchengyin.vmmanagerbackend.model.JournaledOperation;
+import com.pengchengyin.vmmanagerbackend.service.IdempotencyService;
+import com.pengchengyin.vmmanagerbackend.service.LibvirtNative;
+import com.pengchengyin.vmmanagerbackend.service.OperationJournal;
+
+/**
+ * GraalVM原生镜像运行时提示（仅在 -Pnative 构建时由Spring AOT使用，JVM运行时无影响）
+ * libvirt-java通过JNA动态代理调用本地库，JNA又通过JNI回调Java，这些都需要显式声明。
+ */
+@Configuration
+@ImportRuntimeHints(NativeHintsConfig.LibvirtHints.class)
+@RegisterReflectionForBinding({
+        DesiredState.class,
+        JournaledOperation.class,
+        IdempotencyService.StoredResponse.class,
+        OperationJournal.Checkpoint.class
+})
+public class NativeHintsConfig {
+
+    /**
+     * JNA在JNI层访问的类
+     */
+    private static final String[] JNA_JNI_TYPES = {
+            "com.sun.jna.Callback",
+            "com.sun.jna.CallbackReference",
+            "com.sun.jna.CallbackReference$AttachOptions",
+            "com.sun.jna.FromNativeConverter",
+            "com.sun.jna.IntegerType",
+            "com.sun.jna.JNIEnv",
+            "com.sun.jna.LastErrorException",
+            "com.sun.jna.Native",
+            "com.sun.jna.Native$ffi_callback",
+            "com.sun.jna.NativeLong",
+            "com.sun.jna.NativeMapped",
+            "com.sun.jna.Pointer",
+            "com.sun.jna.PointerType",
+            "com.sun.jna.Structure",
+            "com.sun.jna.Structure$ByValue",
+            "com.sun.jna.Structure$FFIType",
+            "com.sun.jna.Structure$FFIType$FFITypes",
+            "com.sun.jna.WString",
+            "java.lang.Boolean",
+            "java.lang.Byte",
+            "java.lang.Character",
+            "java.lang.Class",
+            "java.lang.Double",
+            "java.lang.Float",
+            "java.lang.Integer",
+            "java.lang.Long",
+            "java.lang.Object",
+            "java.lang.Short",
+            "java.lang.String",
+            "java.lang.Void",
+            "java.lang.reflect.Method",
+            "java.nio.Buffer",
+            "java.nio.ByteBuffer"
+    };
+
+    static class LibvirtHints implements RuntimeHintsRegistrar {
+
+        @Override
+        public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+            for (String type : JNA_JNI_TYPES) {
+                hints.jni().registerType(TypeReference.of(type), MemberCategory.values());
+            }
+            // JNA本地分发库及libvirt-java的绑定接口（由Native.load生成JDK动态代理）
+            hints.resources().registerPattern("com/sun/jna/*/libjnidispatch.*");
+            hints.resources().registerPattern("templates/*.xml");
+            hints.proxies().registerJdkProxy(TypeReference.of("org.libvirt.jna.Libvirt"));
+            hints.proxies().registerJdkProxy(LibvirtNative.Virt.class);
+            hints.reflection().registerType(LibvirtNative.TypedParameter.class, MemberCategory.values());
+            hints.reflection().registerType(LibvirtNative.Value.class, MemberCategory.values());
+
+            // JNA通过反射读写Structure子类的字段，回调接口通过反射调用；libvirt-java的这些类型都在org.libvirt包下
+            MetadataReaderFactory readers = new CachingMetadataReaderFactory(classLoader);
+            try {
+                for (Resource resource : new PathMatchingResourcePatternResolver(classLoader)
+                        .getResources("classpath*:org/libvirt/**/*.class")) {
+                    String className = readers.getMetadataReader(resource).getClassMetadata().getClassName();
+                    hints.reflection().registerType(TypeReference.of(className), MemberCategory.values());
+                }
+            } catch (IOException e) {
+                throw new IllegalStateException("扫描libvirt-java类失败", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.pengchengyin.vmmanagerbackend.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * NUMA放置策略配置类
+ */
+@Configuration
+@ConfigurationProperties(prefix = "numa-placement")
+@Data
+public class NumaPlacementConfig {
+    /**
+     * 创建虚拟机时默认是否进行NUMA放置（请求中可单独覆盖）；放置会写入vCPU绑定，默认关闭
+     */
+    private boolean enabled = false;
+
+    /**
+     * 单个NUMA节点允许的vCPU超分比（vCPU数 / 逻辑CPU数）
+     */
+    private double cpuOvercommitRatio = 4.0;
+
+    /**
+     * 每个节点为宿主机保留的内存（MB），放置时不计入可用内存
+     */
+    private long reservedMemoryMb = 1024;
+
+    /**
+     * 单节点放置时的内存策略：strict / preferred / interleave
+     */
+    private String memoryMode = "strict";
+}
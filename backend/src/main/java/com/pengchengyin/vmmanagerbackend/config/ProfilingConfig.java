@@ -0,0 +1,53 @@
+package com.pengchengyin.vmmanagerbackend.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * libvirt调用性能剖析配置类（JFR事件、慢操作日志、JFR录制）
+ */
+@Configuration
+@ConfigurationProperties(prefix = "profiling")
+@Data
+public class ProfilingConfig {
+    /**
+     * 慢操作阈值（毫秒），单次libvirt调用或VmInfo转换超过该值时记录调用栈和上下文
+     */
+    private long slowThresholdMs = 500;
+
+    /**
+     * 慢操作记录的调用栈深度
+     */
+    private int slowStackDepth = 24;
+
+    /**
+     * 内存中保留的慢操作记录数量
+     */
+    private int slowHistory = 200;
+
+    /**
+     * 通过接口启动的JFR录制中自定义事件的记录阈值（毫秒），0表示记录全部调用
+     */
+    private long jfrEventThresholdMs = 0;
+
+    /**
+     * JFR基础配置，default（开销约1%）或 profile（开销约2%，采样更密）
+     */
+    private String jfrSettings = "profile";
+
+    /**
+     * 单次录制的最长时间（秒），到时自动停止
+     */
+    private long maxRecordingSeconds = 1800;
+
+    /**
+     * 录制文件存放目录
+     */
+    private String recordingDir = "/tmp/vm-manager-jfr";
+
+    /**
+     * 保留的录制文件数量，超出时删除最早的
+     */
+    private int maxRecordings = 10;
+}
@@ -0,0 +1,67 @@
+package com.pengchengyin.vmmanagerbackend.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 磁盘与网络限速配置类
+ */
+@Configuration
+@ConfigurationProperties(prefix = "qos")
+@Data
+public class QosConfig {
+    /**
+     * 是否启用自适应限速（静态限速始终可用）
+     */
+    private boolean adaptiveEnabled = false;
+
+    /**
+     * 采样与控制周期（毫秒）
+     */
+    private long intervalMs = 5000;
+
+    /**
+     * 监测延迟的宿主机块设备（/proc/diskstats中的名称），为空时监测所有物理磁盘
+     */
+    private List<String> devices = new ArrayList<>();
+
+    /**
+     * 宿主机磁盘平均延迟高于该值（毫秒）时限速I/O最多的虚拟机
+     */
+    private double latencyThresholdMs = 20.0;
+
+    /**
+     * 延迟低于该值（毫秒）持续 releaseAfterSeconds 后逐台解除限速
+     */
+    private double recoverBelowMs = 5.0;
+
+    /**
+     * 解除限速前需要持续低延迟的时间（秒），每次只解除一台
+     */
+    private long releaseAfterSeconds = 60;
+
+    /**
+     * 每个周期最多限速的虚拟机数量
+     */
+    private int topConsumers = 3;
+
+    /**
+     * 限速值相对当前用量（或已有限速值）的比例
+     */
+    private double throttleRatio = 0.5;
+
+    /**
+     * 限速下限：IOPS与带宽（字节/秒），低于下限的虚拟机不参与限速
+     */
+    private long minIopsSec = 100;
+    private long minBytesSec = 10485760;
+
+    /**
+     * 保留的调整记录条数
+     */
+    private int eventHistory = 500;
+}
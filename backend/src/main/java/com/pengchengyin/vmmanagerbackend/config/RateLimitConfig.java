@@ -0,0 +1,80 @@
+package com.pengchengyin.vmmanagerbackend.config;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * API限流与公平排队配置类
+ */
+@Configuration
+@ConfigurationProperties(prefix = "rate-limit")
+@Data
+public class RateLimitConfig {
+    /**
+     * 是否启用限流
+     */
+    private boolean enabled = true;
+
+    /**
+     * 标识客户端的API Key请求头，未携带或不是已配置的Key时按客户端IP限流
+     */
+    private String apiKeyHeader = "X-API-Key";
+
+    /**
+     * 已分配的API Key；weights中配置的Key同样有效，其余取值一律忽略，避免客户端每次换一个Key绕过限流
+     */
+    private List<String> apiKeys = new ArrayList<>();
+
+    /**
+     * 是否按X-Forwarded-For识别客户端IP（经Nginx代理部署时开启），只对来自trustedProxies的请求生效
+     */
+    private boolean trustForwardedFor = false;
+
+    /**
+     * 可信代理的IP地址；从X-Forwarded-For右侧开始跳过可信代理，取第一个不可信的地址作为客户端IP
+     */
+    private List<String> trustedProxies = new ArrayList<>(List.of("127.0.0.1", "::1", "0:0:0:0:0:0:0:1"));
+
+    /**
+     * 读请求（GET/HEAD）每秒令牌数与桶容量
+     */
+    private double readRatePerSecond = 20;
+    private int readBurst = 40;
+
+    /**
+     * 变更请求（POST/PUT/PATCH/DELETE）每秒令牌数与桶容量
+     */
+    private double writeRatePerSecond = 2;
+    private int writeBurst = 10;
+
+    /**
+     * 令牌桶空闲多久后回收（秒）
+     */
+    private long idleEvictSeconds = 600;
+
+    /**
+     * 同时进入libvirt调用的请求数，超出的请求按加权公平排队
+     */
+    private int maxConcurrent = 4;
+
+    /**
+     * 每个客户端最多排队的请求数
+     */
+    private int maxQueuedPerClient = 16;
+
+    /**
+     * 排队等待的最长时间（毫秒）
+     */
+    private long queueTimeoutMs = 10000;
+
+    /**
+     * 客户端权重（API Key或IP -> 权重），未配置的为1；权重越大排队时分得的份额越多
+     */
+    private Map<String, Integer> weights = new HashMap<>();
+}
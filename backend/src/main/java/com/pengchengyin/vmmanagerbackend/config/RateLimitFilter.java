@@ -0,0 +1,139 @@
+package com.pengchengyin.vmmanagerbackend.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pengchengyin.vmmanagerbackend.service.FairQueueService;
+import com.pengchengyin.vmmanagerbackend.service.RateLimiterService;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * API限流过滤器
+ * 先按客户端（API Key或IP）的读/写令牌桶限流，超出时返回429和Retry-After；
+ * 通过后在公平队列中取得libvirt调用名额，请求处理结束后归还。只作用于 /v1/ 下的接口。
+ * 归档导入、导出和存储卷上传的传输时间取决于数据量，只受令牌桶限制，不占用公平队列名额。
+ */
+@Slf4j
+@Component
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    /**
+     * 长时间传输的接口：POST /v1/vms/import、GET /v1/vms/{name}/export、PUT /v1/pools/{pool}/volumes/{volume}/upload
+     */
+    private static final Pattern IMPORT = Pattern.compile("/v1/vms/import");
+    private static final Pattern EXPORT = Pattern.compile("/v1/vms/[^/]+/export");
+    private static final Pattern UPLOAD = Pattern.compile("/v1/pools/[^/]+/volumes/[^/]+/upload");
+
+    @Autowired
+    private RateLimitConfig rateLimitConfig;
+
+    @Autowired
+    private RateLimiterService rateLimiter;
+
+    @Autowired
+    private FairQueueService fairQueue;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !rateLimitConfig.isEnabled() || !request.getRequestURI().startsWith("/v1/");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String clientId = clientId(request);
+        String method = request.getMethod();
+        boolean write = !("GET".equals(method) || "HEAD".equals(method) || "OPTIONS".equals(method));
+
+        long waitNanos = rateLimiter.tryAcquire(clientId, write);
+        if (waitNanos > 0) {
+            long retryAfter = Math.max(1, (waitNanos + 999_999_999L) / 1_000_000_000L);
+            reject(response, 429, retryAfter, write ? "变更请求过于频繁，请稍后重试" : "查询请求过于频繁，请稍后重试");
+            return;
+        }
+
+        if (isTransfer(method, request.getRequestURI())) {
+            // 持有名额直到传输结束会让其他客户端的短请求长时间排队
+            chain.doFilter(request, response);
+            return;
+        }
+
+        FairQueueService.Admission admission;
+        try {
+            admission = fairQueue.acquire(clientId);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            reject(response, 503, 1, "服务正在关闭");
+            return;
+        }
+        switch (admission) {
+            case QUEUE_FULL -> reject(response, 429, 1, "排队中的请求过多，请稍后重试");
+            case TIMED_OUT -> reject(response, 503, 1, "服务繁忙，排队超时");
+            default -> {
+                try {
+                    chain.doFilter(request, response);
+                } finally {
+                    fairQueue.release();
+                }
+            }
+        }
+    }
+
+    private boolean isTransfer(String method, String uri) {
+        return switch (method) {
+            case "POST" -> IMPORT.matcher(uri).matches();
+            case "GET" -> EXPORT.matcher(uri).matches();
+            case "PUT" -> UPLOAD.matcher(uri).matches();
+            default -> false;
+        };
+    }
+
+    private String clientId(HttpServletRequest request) {
+        String apiKey = request.getHeader(rateLimitConfig.getApiKeyHeader());
+        if (apiKey != null && (rateLimitConfig.getApiKeys().contains(apiKey)
+                || rateLimitConfig.getWeights().containsKey(apiKey))) {
+            return apiKey;
+        }
+        String remoteAddr = request.getRemoteAddr();
+        if (rateLimitConfig.isTrustForwardedFor() && rateLimitConfig.getTrustedProxies().contains(remoteAddr)) {
+            String forwarded = request.getHeader("X-Forwarded-For");
+            if (forwarded != null && !forwarded.isBlank()) {
+                // 左侧的地址可由客户端任意伪造，从右向左跳过可信代理
+                String[] hops = forwarded.split(",");
+                for (int i = hops.length - 1; i >= 0; i--) {
+                    String hop = hops[i].trim();
+                    if (!hop.isEmpty() && !rateLimitConfig.getTrustedProxies().contains(hop)) {
+                        return hop;
+                    }
+                }
+            }
+        }
+        return remoteAddr;
+    }
+
+    private void reject(HttpServletResponse response, int status, long retryAfterSeconds, String message) throws IOException {
+        Map<String, Object> body = new HashMap<>();
+        body.put("success", false);
+        body.put("message", message);
+        response.setStatus(status);
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding("UTF-8");
+        objectMapper.writeValue(response.getOutputStream(), body);
+    }
+}
@@ -0,0 +1,38 @@
+package com.pengchengyin.vmmanagerbackend.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 声明式调和配置类
+ */
+@Configuration
+@ConfigurationProperties(prefix = "reconciler")
+@Data
+public class ReconcilerConfig {
+    /**
+     * 是否启用周期性调和（提交期望状态后总会立即调和一次）
+     */
+    private boolean enabled = true;
+
+    /**
+     * 期望状态与已应用规格哈希的持久化目录，服务重启后从这里继续调和
+     */
+    private String stateDir = "/var/lib/vm-manager/reconciler";
+
+    /**
+     * 周期性调和间隔（毫秒），用于纠正期望状态之外的手工修改
+     */
+    private long intervalMs = 60000;
+
+    /**
+     * 同时对多少台虚拟机执行操作
+     */
+    private int maxConcurrency = 8;
+
+    /**
+     * 期望关机时是否强制关闭（默认发送ACPI关机信号，下一轮调和会重试）
+     */
+    private boolean forceStop = false;
+}
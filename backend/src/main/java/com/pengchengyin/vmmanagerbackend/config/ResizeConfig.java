@@ -0,0 +1,38 @@
+package com.pengchengyin.vmmanagerbackend.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 虚拟机资源在线调整配置类
+ */
+@Configuration
+@ConfigurationProperties(prefix = "resize")
+@Data
+public class ResizeConfig {
+    /**
+     * 新建虚拟机的vCPU上限相对请求数量的倍数，1表示不预留热插拔余量
+     */
+    private double vcpuHeadroomRatio = 2.0;
+
+    /**
+     * 新建虚拟机的vCPU上限不超过该值
+     */
+    private int maxVcpus = 64;
+
+    /**
+     * 新建虚拟机的内存上限相对请求大小的倍数，1表示不预留气球余量
+     */
+    private double memoryHeadroomRatio = 2.0;
+
+    /**
+     * 新建虚拟机的内存上限不超过该值（MB）
+     */
+    private long maxMemoryMb = 262144;
+
+    /**
+     * 计划重启时等待优雅关机的时间（秒），超时后强制关闭
+     */
+    private int restartTimeoutSeconds = 120;
+}
@@ -0,0 +1,23 @@
+package com.pengchengyin.vmmanagerbackend.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 启动优化配置类
+ */
+@Configuration
+@ConfigurationProperties(prefix = "startup")
+@Data
+public class StartupConfig {
+    /**
+     * 是否在应用就绪前预热（建立libvirt连接、加载JNA本地库、读取虚拟机清单和XML模板）
+     */
+    private boolean warmup = false;
+
+    /**
+     * 预热失败时是否终止启动（默认只记录警告，首个请求时再重试连接）
+     */
+    private boolean failOnWarmupError = false;
+}
@@ -0,0 +1,33 @@
+package com.pengchengyin.vmmanagerbackend.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 存储池与存储卷配置类
+ */
+@Configuration
+@ConfigurationProperties(prefix = "storage")
+@Data
+public class StorageConfig {
+    /**
+     * 存储池容量缓存刷新间隔（毫秒）
+     */
+    private long capacityRefreshMs = 30000;
+
+    /**
+     * 执行存储卷创建任务的线程数
+     */
+    private int jobThreads = 2;
+
+    /**
+     * 保留的已完成任务数量
+     */
+    private int jobHistory = 200;
+
+    /**
+     * 上传镜像时每次写入libvirt流的缓冲区大小（字节）
+     */
+    private int uploadChunkSize = 1024 * 1024;
+}
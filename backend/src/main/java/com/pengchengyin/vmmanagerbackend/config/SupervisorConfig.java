@@ -0,0 +1,77 @@
+package com.pengchengyin.vmmanagerbackend.config;
+
+import com.pengchengyin.vmmanagerbackend.model.SupervisorPolicy;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 虚拟机守护配置类
+ */
+@Configuration
+@ConfigurationProperties(prefix = "supervisor")
+@Data
+public class SupervisorConfig {
+    /**
+     * 是否启用崩溃重启与空闲处理
+     */
+    private boolean enabled = false;
+
+    /**
+     * 状态检查周期（毫秒）
+     */
+    private long intervalMs = 10000;
+
+    /**
+     * 首次重启的等待时间（毫秒），之后每次翻倍
+     */
+    private long backoffBaseMs = 1000;
+
+    /**
+     * 重启等待时间上限（毫秒）
+     */
+    private long backoffMaxMs = 300000;
+
+    /**
+     * 窗口内重启次数达到该值后判定为崩溃循环，停止自动重启
+     */
+    private int crashLoopMaxRestarts = 5;
+
+    /**
+     * 崩溃循环的统计窗口（秒）
+     */
+    private long crashLoopWindowSeconds = 600;
+
+    /**
+     * 重启后连续运行超过该时间（秒）视为恢复稳定，清零重启计数与崩溃循环状态
+     */
+    private long stableAfterSeconds = 300;
+
+    /**
+     * CPU利用率（相对vCPU总数）低于该值视为空闲
+     */
+    private double idleCpuRatio = 0.05;
+
+    /**
+     * 磁盘与网络I/O速率（字节/秒）低于该值视为空闲
+     */
+    private long idleIoBytesPerSecond = 65536;
+
+    /**
+     * 保留的动作记录条数
+     */
+    private int eventHistory = 500;
+
+    /**
+     * 未单独配置的虚拟机使用的默认策略
+     */
+    private SupervisorPolicy defaults = new SupervisorPolicy();
+
+    /**
+     * 按虚拟机名称配置的策略
+     */
+    private Map<String, SupervisorPolicy> vms = new HashMap<>();
+}
@@ -0,0 +1,28 @@
+package com.pengchengyin.vmmanagerbackend.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 虚拟机导入/导出配置类
+ */
+@Configuration
+@ConfigurationProperties(prefix = "vm-transfer")
+@Data
+public class VmTransferConfig {
+    /**
+     * 导入的磁盘镜像存放目录
+     */
+    private String importDir = "/var/lib/libvirt/images";
+
+    /**
+     * 传输使用的直接缓冲区大小（字节）
+     */
+    private int chunkSize = 1024 * 1024;
+
+    /**
+     * 未完成的导入会话保留时间（分钟），超时后清理会话及已写入的磁盘文件
+     */
+    private long sessionTtlMinutes = 24 * 60;
+}
@@ -0,0 +1,43 @@
+package com.pengchengyin.vmmanagerbackend.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * VNC WebSocket代理配置类
+ */
+@Configuration
+@ConfigurationProperties(prefix = "vnc-proxy")
+@Data
+public class VncProxyConfig {
+    /**
+     * 是否启用VNC WebSocket代理
+     */
+    private boolean enabled = true;
+
+    /**
+     * Selector线程数，所有会话在这些线程上复用
+     */
+    private int selectorThreads = 2;
+
+    /**
+     * 每个会话从VNC读取数据使用的直接缓冲区大小（字节）
+     */
+    private int bufferSize = 64 * 1024;
+
+    /**
+     * VNC端写阻塞时允许积压的最大字节数，超过后断开会话
+     */
+    private int maxPendingBytes = 4 * 1024 * 1024;
+
+    /**
+     * 连接VNC端口的超时时间（毫秒）
+     */
+    private long connectTimeoutMs = 5000;
+
+    /**
+     * 当VNC监听地址为 0.0.0.0 等通配地址时使用的目标主机，为空时取libvirt连接URI中的主机
+     */
+    private String defaultHost;
+}
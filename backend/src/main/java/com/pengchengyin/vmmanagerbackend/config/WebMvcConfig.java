@@ -0,0 +1,22 @@
+package com.pengchengyin.vmmanagerbackend.config;
+
+import com.pengchengyin.vmmanagerbackend.controller.SupervisorWakeInterceptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Spring MVC拦截器配置类
+ */
+@Configuration
+public class WebMvcConfig implements WebMvcConfigurer {
+
+    @Autowired
+    private SupervisorWakeInterceptor supervisorWakeInterceptor;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(supervisorWakeInterceptor).addPathPatterns("/v1/vms/*", "/v1/vms/*/**");
+    }
+}
@@ -0,0 +1,32 @@
+package com.pengchengyin.vmmanagerbackend.config;
+
+import com.pengchengyin.vmmanagerbackend.controller.VncHandshakeInterceptor;
+import com.pengchengyin.vmmanagerbackend.controller.VncWebSocketHandler;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.socket.config.annotation.EnableWebSocket;
+import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
+
+/**
+ * WebSocket配置类
+ */
+@Configuration
+@EnableWebSocket
+@ConditionalOnProperty(prefix = "vnc-proxy", name = "enabled", matchIfMissing = true)
+public class WebSocketConfig implements WebSocketConfigurer {
+
+    @Autowired
+    private VncWebSocketHandler vncWebSocketHandler;
+
+    @Autowired
+    private VncHandshakeInterceptor vncHandshakeInterceptor;
+
+    @Override
+    public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
+        registry.addHandler(vncWebSocketHandler, "/v1/vms/*/vnc")
+                .addInterceptors(vncHandshakeInterceptor)
+                .setAllowedOriginPatterns("*");
+    }
+}
@@ -0,0 +1,28 @@
+package com.pengchengyin.vmmanagerbackend.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * domain XML批量导入配置类
+ */
+@Configuration
+@ConfigurationProperties(prefix = "xml-import")
+@Data
+public class XmlImportConfig {
+    /**
+     * 并行解析与校验XML文件的线程数
+     */
+    private int parseThreads = 8;
+
+    /**
+     * 同时定义的虚拟机数量
+     */
+    private int defineConcurrency = 4;
+
+    /**
+     * 单次导入最多处理的文件数量
+     */
+    private int maxFiles = 2000;
+}
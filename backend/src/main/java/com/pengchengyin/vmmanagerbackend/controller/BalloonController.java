@@ -0,0 +1,107 @@
+package com.pengchengyin.vmmanagerbackend.controller;
+
+import com.pengchengyin.vmmanagerbackend.model.ApiResult;
+import com.pengchengyin.vmmanagerbackend.model.BalloonDecision;
+import com.pengchengyin.vmmanagerbackend.model.BalloonPolicy;
+import com.pengchengyin.vmmanagerbackend.service.MemoryBalloonService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 内存气球控制器REST API
+ */
+@RestController
+@RequestMapping("/v1/balloon")
+@Tag(name = "内存气球", description = "自动内存气球控制器的指标、调整记录和虚拟机策略")
+public class BalloonController {
+
+    @Autowired
+    private MemoryBalloonService balloonService;
+
+    /**
+     * 获取控制器指标
+     */
+    @Operation(summary = "获取内存气球指标", description = "返回回收/归还次数与总量、宿主机压力模式以及各虚拟机最近一次采样状态")
+    @ApiResponse(responseCode = "200", description = "成功获取指标")
+    @GetMapping("/metrics")
+    public ResponseEntity<Map<String, Object>> getMetrics() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("data", balloonService.getMetrics());
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * 获取调整记录
+     */
+    @Operation(summary = "获取内存调整记录", description = "返回最近的内存回收/归还决策，新的在前")
+    @ApiResponse(responseCode = "200", description = "成功获取调整记录")
+    @GetMapping("/events")
+    public ResponseEntity<ApiResult<List<BalloonDecision>>> getEvents(
+            @Parameter(description = "返回条数", example = "100") @RequestParam(defaultValue = "100") int limit) {
+        return ResponseEntity.ok(ApiResult.list(balloonService.getEvents(limit)));
+    }
+
+    /**
+     * 获取所有虚拟机策略
+     */
+    @Operation(summary = "获取内存气球策略", description = "返回按虚拟机配置的最小/最大内存保证")
+    @ApiResponse(responseCode = "200", description = "成功获取策略")
+    @GetMapping("/policies")
+    public ResponseEntity<Map<String, Object>> getPolicies() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("data", balloonService.getPolicies());
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * 设置虚拟机策略
+     */
+    @Operation(summary = "设置内存气球策略", description = "设置指定虚拟机的最小/最大内存保证，或关闭该虚拟机的自动调整")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "策略已更新"),
+            @ApiResponse(responseCode = "400", description = "最小内存大于最大内存")
+    })
+    @PutMapping("/policies/{name}")
+    public ResponseEntity<Map<String, Object>> setPolicy(
+            @Parameter(description = "虚拟机名称", required = true, example = "my-vm") @PathVariable String name,
+            @RequestBody BalloonPolicy policy) {
+        Map<String, Object> response = new HashMap<>();
+        if (policy.getMinMb() != null && policy.getMaxMb() != null && policy.getMinMb() > policy.getMaxMb()) {
+            response.put("success", false);
+            response.put("message", "最小内存不能大于最大内存");
+            return ResponseEntity.status(400).body(response);
+        }
+        balloonService.setPolicy(name, policy);
+        response.put("success", true);
+        response.put("message", "策略已更新");
+        response.put("data", policy);
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * 删除虚拟机策略
+     */
+    @Operation(summary = "删除内存气球策略", description = "删除指定虚拟机的策略，恢复使用全局默认值")
+    @ApiResponse(responseCode = "200", description = "策略已删除")
+    @DeleteMapping("/policies/{name}")
+    public ResponseEntity<Map<String, Object>> removePolicy(
+            @Parameter(description = "虚拟机名称", required = true, example = "my-vm") @PathVariable String name) {
+        balloonService.removePolicy(name);
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("message", "策略已删除");
+        return ResponseEntity.ok(response);
+    }
+}
@@ -0,0 +1,112 @@
+package com.pengchengyin.vmmanagerbackend.controller;
+
+import com.pengchengyin.vmmanagerbackend.model.ApiResult;
+import com.pengchengyin.vmmanagerbackend.model.CloneJob;
+import com.pengchengyin.vmmanagerbackend.model.CloneRequest;
+import com.pengchengyin.vmmanagerbackend.service.CloneService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import lombok.extern.slf4j.Slf4j;
+import org.libvirt.LibvirtException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 虚拟机克隆REST API控制器
+ */
+@Slf4j
+@RestController
+@RequestMapping("/v1")
+@Tag(name = "克隆", description = "从已关机的虚拟机并行创建链接克隆或完整克隆，异步查询每个克隆的进度")
+public class CloneController {
+
+    @Autowired
+    private CloneService cloneService;
+
+    /**
+     * 克隆虚拟机
+     */
+    @Operation(summary = "克隆虚拟机", description = "校验源虚拟机和克隆名称后立即返回任务，克隆在后台并行执行；通过 GET /v1/clone-jobs/{id} 查询进度")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "202", description = "克隆任务已提交"),
+            @ApiResponse(responseCode = "400", description = "请求参数验证失败"),
+            @ApiResponse(responseCode = "404", description = "源虚拟机不存在"),
+            @ApiResponse(responseCode = "409", description = "源虚拟机正在运行或克隆名称已存在"),
+            @ApiResponse(responseCode = "500", description = "服务器内部错误")
+    })
+    @PostMapping("/vms/{name}/clone")
+    public ResponseEntity<Map<String, Object>> cloneVm(
+            @Parameter(description = "源虚拟机名称", required = true, example = "web-template") @PathVariable String name,
+            @Parameter(description = "克隆数量", example = "1") @RequestParam(defaultValue = "1") int count,
+            @Valid @RequestBody(required = false) CloneRequest request) {
+        Map<String, Object> response = new HashMap<>();
+        try {
+            CloneJob job = cloneService.submit(name, count, request != null ? request : new CloneRequest());
+            response.put("success", true);
+            response.put("message", "克隆任务已提交");
+            response.put("data", job);
+            return ResponseEntity.status(202)
+                    .header(HttpHeaders.LOCATION, "/v1/clone-jobs/" + job.getId())
+                    .body(response);
+        } catch (IllegalArgumentException e) {
+            response.put("success", false);
+            response.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        } catch (IllegalStateException e) {
+            response.put("success", false);
+            response.put("message", e.getMessage());
+            return ResponseEntity.status(409).body(response);
+        } catch (LibvirtException e) {
+            log.error("克隆虚拟机失败: {}", e.getMessage(), e);
+            response.put("success", false);
+            response.put("message", "克隆虚拟机失败: " + e.getMessage());
+            if (e.getMessage().contains("not found")) {
+                return ResponseEntity.status(404).body(response);
+            }
+            return ResponseEntity.status(500).body(response);
+        }
+    }
+
+    /**
+     * 获取克隆任务
+     */
+    @Operation(summary = "获取克隆任务", description = "返回任务状态和每个克隆的阶段、复制进度与失败原因")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "成功获取任务"),
+            @ApiResponse(responseCode = "404", description = "任务不存在或已过期")
+    })
+    @GetMapping("/clone-jobs/{id}")
+    public ResponseEntity<Map<String, Object>> getJob(
+            @Parameter(description = "任务ID", required = true) @PathVariable String id) {
+        CloneJob job = cloneService.getJob(id);
+        Map<String, Object> response = new HashMap<>();
+        if (job == null) {
+            response.put("success", false);
+            response.put("message", "任务不存在或已过期");
+            return ResponseEntity.status(404).body(response);
+        }
+        response.put("success", true);
+        response.put("data", job);
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * 获取克隆任务列表
+     */
+    @Operation(summary = "获取克隆任务列表", description = "返回进行中和最近完成的克隆任务")
+    @ApiResponse(responseCode = "200", description = "成功获取任务列表")
+    @GetMapping("/clone-jobs")
+    public ResponseEntity<ApiResult<List<CloneJob>>> listJobs() {
+        return ResponseEntity.ok(ApiResult.list(cloneService.listJobs()));
+    }
+}
@@ -0,0 +1,113 @@
+package com.pengchengyin.vmmanagerbackend.controller;
+
+import com.pengchengyin.vmmanagerbackend.service.ConsoleLogService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.extern.slf4j.Slf4j;
+import org.libvirt.LibvirtException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 串口控制台日志REST API控制器
+ */
+@Slf4j
+@RestController
+@RequestMapping("/v1/vms")
+@Tag(name = "串口控制台", description = "虚拟机串口控制台输出查看与实时跟踪")
+public class ConsoleController {
+
+    @Autowired
+    private ConsoleLogService consoleLogService;
+
+    /**
+     * 获取最近的控制台输出
+     */
+    @Operation(summary = "获取串口控制台输出", description = "返回虚拟机最近的串口输出（环形缓冲区内保留的内容），用于排查启动失败等问题")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "成功获取控制台输出"),
+            @ApiResponse(responseCode = "404", description = "虚拟机不存在"),
+            @ApiResponse(responseCode = "409", description = "虚拟机未配置串口日志"),
+            @ApiResponse(responseCode = "500", description = "服务器内部错误")
+    })
+    @GetMapping(value = "/{name}/console", params = "follow!=true")
+    public ResponseEntity<Map<String, Object>> getConsole(
+            @Parameter(description = "虚拟机名称", required = true, example = "my-vm")
+            @PathVariable String name) {
+        Map<String, Object> response = new HashMap<>();
+        try {
+            response.put("success", true);
+            response.put("data", consoleLogService.tail(name));
+            return ResponseEntity.ok(response);
+        } catch (IllegalStateException e) {
+            response.put("success", false);
+            response.put("message", e.getMessage());
+            return ResponseEntity.status(409).body(response);
+        } catch (LibvirtException e) {
+            log.error("获取控制台输出失败: {}", e.getMessage(), e);
+            response.put("success", false);
+            response.put("message", "获取控制台输出失败: " + e.getMessage());
+            if (e.getMessage().contains("not found")) {
+                return ResponseEntity.status(404).body(response);
+            }
+            return ResponseEntity.status(500).body(response);
+        }
+    }
+
+    /**
+     * 实时跟踪控制台输出（SSE）
+     */
+    @Operation(summary = "实时跟踪串口控制台", description = "follow=true时以Server-Sent Events推送，先发送已保留的输出，之后推送新输出（事件名console，数据为 {\"text\": ...}）")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "开始推送控制台输出"),
+            @ApiResponse(responseCode = "404", description = "虚拟机不存在"),
+            @ApiResponse(responseCode = "409", description = "虚拟机未配置串口日志"),
+            @ApiResponse(responseCode = "500", description = "服务器内部错误")
+    })
+    @GetMapping(value = "/{name}/console", params = "follow=true")
+    public ResponseEntity<ResponseBodyEmitter> followConsole(
+            @Parameter(description = "虚拟机名称", required = true, example = "my-vm")
+            @PathVariable String name) throws IOException {
+        Map<String, Object> response = new HashMap<>();
+        try {
+            return ResponseEntity.ok()
+                    .contentType(MediaType.TEXT_EVENT_STREAM)
+                    .body(consoleLogService.follow(name));
+        } catch (IllegalStateException e) {
+            response.put("success", false);
+            response.put("message", e.getMessage());
+            return jsonResponse(409, response);
+        } catch (LibvirtException e) {
+            log.error("跟踪控制台输出失败: {}", e.getMessage(), e);
+            response.put("success", false);
+            response.put("message", "跟踪控制台输出失败: " + e.getMessage());
+            if (e.getMessage().contains("not found")) {
+                return jsonResponse(404, response);
+            }
+            return jsonResponse(500, response);
+        }
+    }
+
+    /**
+     * 推送接口的错误响应仍保持统一的JSON结构
+     */
+    private ResponseEntity<ResponseBodyEmitter> jsonResponse(int status, Map<String, Object> response) throws IOException {
+        ResponseBodyEmitter emitter = new ResponseBodyEmitter();
+        emitter.send(response, MediaType.APPLICATION_JSON);
+        emitter.complete();
+        return ResponseEntity.status(status).contentType(MediaType.APPLICATION_JSON).body(emitter);
+    }
+}
@@ -0,0 +1,109 @@
+package com.pengchengyin.vmmanagerbackend.controller;
+
+import com.pengchengyin.vmmanagerbackend.model.DesiredState;
+import com.pengchengyin.vmmanagerbackend.service.ReconcilerService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 声明式期望状态REST API
+ */
+@Slf4j
+@RestController
+@RequestMapping("/v1/desired-state")
+@Tag(name = "期望状态", description = "提交虚拟机集合的期望状态，由调和器自动执行创建/启动/关闭/删除")
+public class DesiredStateController {
+
+    @Autowired
+    private ReconcilerService reconcilerService;
+
+    /**
+     * 提交期望状态
+     */
+    @Operation(summary = "提交期望状态", description = "替换当前期望状态并异步调和，返回分配的版本号；调和结果通过 /status 查询")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "202", description = "已接受，开始调和"),
+            @ApiResponse(responseCode = "400", description = "参数校验失败或虚拟机名称重复"),
+            @ApiResponse(responseCode = "500", description = "保存期望状态失败")
+    })
+    @PutMapping
+    public ResponseEntity<Map<String, Object>> submit(@Valid @RequestBody DesiredState state) {
+        Map<String, Object> response = new HashMap<>();
+        try {
+            long generation = reconcilerService.submit(state);
+            response.put("success", true);
+            response.put("message", "期望状态已提交");
+            response.put("data", Map.of("generation", generation));
+            return ResponseEntity.accepted().body(response);
+        } catch (IllegalArgumentException e) {
+            response.put("success", false);
+            response.put("message", e.getMessage());
+            return ResponseEntity.status(400).body(response);
+        } catch (IOException e) {
+            log.error("保存期望状态失败: {}", e.getMessage(), e);
+            response.put("success", false);
+            response.put("message", "保存期望状态失败: " + e.getMessage());
+            return ResponseEntity.status(500).body(response);
+        }
+    }
+
+    /**
+     * 获取当前期望状态
+     */
+    @Operation(summary = "获取期望状态", description = "返回当前生效的期望状态")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "成功获取期望状态"),
+            @ApiResponse(responseCode = "404", description = "尚未提交期望状态")
+    })
+    @GetMapping
+    public ResponseEntity<Map<String, Object>> getDesiredState() {
+        Map<String, Object> response = new HashMap<>();
+        DesiredState state = reconcilerService.getDesiredState();
+        if (state == null) {
+            response.put("success", false);
+            response.put("message", "尚未提交期望状态");
+            return ResponseEntity.status(404).body(response);
+        }
+        response.put("success", true);
+        response.put("data", state);
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * 获取调和状态
+     */
+    @Operation(summary = "获取调和状态", description = "返回期望状态版本、是否正在调和以及最近一次调和报告")
+    @ApiResponse(responseCode = "200", description = "成功获取调和状态")
+    @GetMapping("/status")
+    public ResponseEntity<Map<String, Object>> getStatus() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("data", reconcilerService.getStatus());
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * 立即调和
+     */
+    @Operation(summary = "立即调和", description = "不等待周期，立即按当前期望状态调和一次")
+    @ApiResponse(responseCode = "202", description = "已开始调和")
+    @PostMapping("/reconcile")
+    public ResponseEntity<Map<String, Object>> reconcile() {
+        reconcilerService.trigger();
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("message", "已开始调和");
+        return ResponseEntity.accepted().body(response);
+    }
+}
@@ -1,5 +1,6 @@
 package com.pengchengyin.vmmanagerbackend.controller;
 
+import com.pengchengyin.vmmanagerbackend.service.HypervisorException;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.FieldError;
 import org.springframework.web.bind.MethodArgumentNotValidException;
@@ -32,6 +33,20 @@ public class GlobalExceptionHandler {
         return ResponseEntity.status(400).body(response);
     }
 
+    /**
+     * 模拟后端的调用失败，与libvirt异常的处理方式一致：虚拟机不存在返回404，其余返回500
+     */
+    @ExceptionHandler(HypervisorException.class)
+    public ResponseEntity<Map<String, Object>> handleHypervisorException(HypervisorException ex) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", false);
+        response.put("message", ex.getMessage());
+        if (ex.getMessage() != null && ex.getMessage().contains("not found")) {
+            return ResponseEntity.status(404).body(response);
+        }
+        return ResponseEntity.status(500).body(response);
+    }
+
     @ExceptionHandler(Exception.class)
     public ResponseEntity<Map<String, Object>> handleGenericException(Exception ex) {
         Map<String, Object> response = new HashMap<>();
@@ -0,0 +1,192 @@
+package com.pengchengyin.vmmanagerbackend.controller;
+
+import com.pengchengyin.vmmanagerbackend.model.ApiResult;
+import com.pengchengyin.vmmanagerbackend.model.DrainJob;
+import com.pengchengyin.vmmanagerbackend.model.DrainRequest;
+import com.pengchengyin.vmmanagerbackend.model.HostInfo;
+import com.pengchengyin.vmmanagerbackend.model.NumaCellInfo;
+import com.pengchengyin.vmmanagerbackend.model.PlacementDecision;
+import com.pengchengyin.vmmanagerbackend.service.DrainService;
+import com.pengchengyin.vmmanagerbackend.service.HostMonitorService;
+import com.pengchengyin.vmmanagerbackend.service.NumaPlacementService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import lombok.extern.slf4j.Slf4j;
+import org.libvirt.LibvirtException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 宿主机信息REST API控制器
+ */
+@Slf4j
+@RestController
+@RequestMapping("/v1/host")
+@Tag(name = "宿主机", description = "宿主机资源概览、NUMA放置与维护排空API")
+public class HostController {
+
+    @Autowired
+    private HostMonitorService hostMonitorService;
+
+    @Autowired
+    private NumaPlacementService placementService;
+
+    @Autowired
+    private DrainService drainService;
+
+    /**
+     * 获取宿主机资源概览
+     */
+    @Operation(summary = "获取宿主机资源概览", description = "返回后台采样缓存的节点CPU/内存、NUMA节点空闲内存、存储池容量以及虚拟机已分配资源汇总")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "成功获取宿主机信息"),
+            @ApiResponse(responseCode = "500", description = "服务器内部错误")
+    })
+    @GetMapping
+    public ResponseEntity<ApiResult<HostInfo>> getHostInfo() {
+        try {
+            return ResponseEntity.ok(ApiResult.ok(hostMonitorService.getHostInfo()));
+        } catch (LibvirtException e) {
+            log.error("获取宿主机信息失败: {}", e.getMessage(), e);
+            return ResponseEntity.status(500).body(ApiResult.error("获取宿主机信息失败: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * 获取NUMA拓扑及分配情况
+     */
+    @Operation(summary = "获取NUMA拓扑", description = "返回各NUMA节点的CPU、内存、大页以及运行中虚拟机的放置情况")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "成功获取NUMA拓扑"),
+            @ApiResponse(responseCode = "500", description = "服务器内部错误")
+    })
+    @GetMapping("/numa")
+    public ResponseEntity<ApiResult<List<NumaCellInfo>>> getNumaTopology() {
+        try {
+            return ResponseEntity.ok(ApiResult.list(placementService.getTopology()));
+        } catch (LibvirtException e) {
+            log.error("获取NUMA拓扑失败: {}", e.getMessage(), e);
+            return ResponseEntity.status(500).body(ApiResult.error("获取NUMA拓扑失败: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * 重新平衡运行中虚拟机的NUMA放置
+     */
+    @Operation(summary = "重新平衡NUMA放置", description = "为运行中的虚拟机重新选择NUMA节点：vCPU绑定立即生效，内存节点写入持久化配置并在下次启动时生效")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "重平衡完成"),
+            @ApiResponse(responseCode = "409", description = "指定的虚拟机未运行"),
+            @ApiResponse(responseCode = "500", description = "服务器内部错误")
+    })
+    @PostMapping("/numa/rebalance")
+    public ResponseEntity<Map<String, Object>> rebalanceNuma(
+            @Parameter(description = "仅重平衡指定虚拟机（为空时处理所有运行中虚拟机）", example = "db-01")
+            @RequestParam(required = false) String name) {
+        Map<String, Object> response = new HashMap<>();
+        try {
+            List<PlacementDecision> decisions = placementService.rebalance(name);
+            response.put("success", true);
+            response.put("message", "NUMA重平衡完成");
+            response.put("data", decisions);
+            response.put("count", decisions.size());
+            return ResponseEntity.ok(response);
+        } catch (IllegalStateException e) {
+            response.put("success", false);
+            response.put("message", e.getMessage());
+            return ResponseEntity.status(409).body(response);
+        } catch (LibvirtException e) {
+            log.error("NUMA重平衡失败: {}", e.getMessage(), e);
+            response.put("success", false);
+            response.put("message", "NUMA重平衡失败: " + e.getMessage());
+            return ResponseEntity.status(500).body(response);
+        }
+    }
+
+    /**
+     * 排空宿主机
+     */
+    @Operation(summary = "排空宿主机", description = "并行托管保存所有运行中的虚拟机（不重要的先保存），立即返回；通过 GET /v1/host/drain 查询进度和各虚拟机耗时")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "202", description = "排空已开始"),
+            @ApiResponse(responseCode = "400", description = "请求参数验证失败"),
+            @ApiResponse(responseCode = "409", description = "排空或恢复正在进行，或上次排空的虚拟机尚未恢复"),
+            @ApiResponse(responseCode = "500", description = "服务器内部错误")
+    })
+    @PostMapping("/drain")
+    public ResponseEntity<Map<String, Object>> drain(@Valid @RequestBody(required = false) DrainRequest request) {
+        Map<String, Object> response = new HashMap<>();
+        try {
+            DrainJob job = drainService.drain(request != null ? request : new DrainRequest());
+            response.put("success", true);
+            response.put("message", "宿主机排空已开始");
+            response.put("data", job);
+            return ResponseEntity.status(202).header(HttpHeaders.LOCATION, "/v1/host/drain").body(response);
+        } catch (IllegalStateException e) {
+            response.put("success", false);
+            response.put("message", e.getMessage());
+            return ResponseEntity.status(409).body(response);
+        } catch (LibvirtException e) {
+            log.error("排空宿主机失败: {}", e.getMessage(), e);
+            response.put("success", false);
+            response.put("message", "排空宿主机失败: " + e.getMessage());
+            return ResponseEntity.status(500).body(response);
+        }
+    }
+
+    /**
+     * 获取排空/恢复进度
+     */
+    @Operation(summary = "获取排空/恢复进度", description = "返回当前或最近一次排空的阶段、各虚拟机的保存/恢复耗时以及排空总耗时")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "成功获取进度"),
+            @ApiResponse(responseCode = "404", description = "没有排空记录")
+    })
+    @GetMapping("/drain")
+    public ResponseEntity<ApiResult<DrainJob>> getDrain() {
+        DrainJob job = drainService.getJob();
+        if (job == null) {
+            return ResponseEntity.status(404).body(ApiResult.error("没有排空记录"));
+        }
+        return ResponseEntity.ok(ApiResult.ok(job));
+    }
+
+    /**
+     * 恢复排空的虚拟机
+     */
+    @Operation(summary = "恢复排空的虚拟机", description = "按与保存相反的顺序（重要的先恢复）启动排空时保存的虚拟机，按磁盘延迟和空闲内存控制恢复速度，立即返回")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "202", description = "恢复已开始"),
+            @ApiResponse(responseCode = "409", description = "没有等待恢复的排空，或排空/恢复正在进行")
+    })
+    @PostMapping("/restore")
+    public ResponseEntity<Map<String, Object>> restore() {
+        Map<String, Object> response = new HashMap<>();
+        try {
+            DrainJob job = drainService.restore();
+            response.put("success", true);
+            response.put("message", "虚拟机恢复已开始");
+            response.put("data", job);
+            return ResponseEntity.status(202).header(HttpHeaders.LOCATION, "/v1/host/drain").body(response);
+        } catch (IllegalStateException e) {
+            response.put("success", false);
+            response.put("message", e.getMessage());
+            return ResponseEntity.status(409).body(response);
+        }
+    }
+}
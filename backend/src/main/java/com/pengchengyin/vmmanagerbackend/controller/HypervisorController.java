@@ -0,0 +1,53 @@
+package com.pengchengyin.vmmanagerbackend.controller;
+
+import com.pengchengyin.vmmanagerbackend.service.HypervisorBackend;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.extern.slf4j.Slf4j;
+import org.libvirt.LibvirtException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Hypervisor后端信息REST API
+ */
+@Slf4j
+@RestController
+@RequestMapping("/v1/hypervisor")
+@Tag(name = "Hypervisor后端", description = "当前使用的Hypervisor后端（libvirt或模拟）及其统计")
+public class HypervisorController {
+
+    @Autowired
+    private HypervisorBackend hypervisor;
+
+    /**
+     * 获取后端信息
+     */
+    @Operation(summary = "获取Hypervisor后端信息", description = "libvirt后端返回连接URI和版本；模拟后端返回虚拟机数量、调用次数、注入故障次数和延迟配置")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "成功获取后端信息"),
+            @ApiResponse(responseCode = "500", description = "服务器内部错误")
+    })
+    @GetMapping
+    public ResponseEntity<Map<String, Object>> describe() {
+        Map<String, Object> response = new HashMap<>();
+        try {
+            response.put("success", true);
+            response.put("data", hypervisor.describe());
+            return ResponseEntity.ok(response);
+        } catch (LibvirtException e) {
+            log.error("获取Hypervisor后端信息失败: {}", e.getMessage(), e);
+            response.put("success", false);
+            response.put("message", "获取Hypervisor后端信息失败: " + e.getMessage());
+            return ResponseEntity.status(500).body(response);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.pengchengyin.vmmanagerbackend.controller;
+
+import com.pengchengyin.vmmanagerbackend.service.OperationJournal;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 操作日志REST API
+ */
+@Slf4j
+@RestController
+@RequestMapping("/v1/journal")
+@Tag(name = "操作日志", description = "虚拟机变更操作日志的状态、重启恢复结果和检查点")
+public class JournalController {
+
+    @Autowired
+    private OperationJournal journal;
+
+    /**
+     * 获取操作日志状态
+     */
+    @Operation(summary = "获取操作日志状态", description = "返回记录数、刷盘次数、未完成的操作以及启动时的恢复处理结果")
+    @ApiResponse(responseCode = "200", description = "成功获取状态")
+    @GetMapping
+    public ResponseEntity<Map<String, Object>> getStatus() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("data", journal.getStatus());
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * 立即做一次检查点
+     */
+    @Operation(summary = "创建检查点", description = "保存未完成的操作并清理之前的日志段")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "检查点已创建"),
+            @ApiResponse(responseCode = "500", description = "写入检查点失败")
+    })
+    @PostMapping("/checkpoint")
+    public ResponseEntity<Map<String, Object>> checkpoint() {
+        Map<String, Object> response = new HashMap<>();
+        try {
+            journal.checkpoint();
+            response.put("success", true);
+            response.put("message", "检查点已创建");
+            return ResponseEntity.ok(response);
+        } catch (IOException e) {
+            log.error("创建检查点失败: {}", e.getMessage(), e);
+            response.put("success", false);
+            response.put("message", "创建检查点失败: " + e.getMessage());
+            return ResponseEntity.status(500).body(response);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.pengchengyin.vmmanagerbackend.controller;
+
+import com.pengchengyin.vmmanagerbackend.service.VmLabelIndex;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 虚拟机标签索引REST API
+ */
+@RestController
+@RequestMapping("/v1/labels")
+@Tag(name = "标签", description = "虚拟机标签汇总与标签索引状态")
+public class LabelController {
+
+    @Autowired
+    private VmLabelIndex labelIndex;
+
+    /**
+     * 获取标签汇总
+     */
+    @Operation(summary = "获取标签汇总", description = "返回所有标签键、值及对应的虚拟机数量，以及索引统计")
+    @ApiResponse(responseCode = "200", description = "成功获取标签汇总")
+    @GetMapping
+    public ResponseEntity<Map<String, Object>> getLabels() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("data", labelIndex.summary());
+        response.put("index", labelIndex.getStats());
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * 立即重建标签索引
+     */
+    @Operation(summary = "重建标签索引", description = "逐台读取虚拟机持久化配置中的标签重建索引，用于通过virsh等方式直接修改了XML之后")
+    @ApiResponse(responseCode = "200", description = "索引已重建")
+    @PostMapping("/resync")
+    public ResponseEntity<Map<String, Object>> resync() {
+        labelIndex.resync();
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("message", "标签索引已重建");
+        response.put("index", labelIndex.getStats());
+        return ResponseEntity.ok(response);
+    }
+}
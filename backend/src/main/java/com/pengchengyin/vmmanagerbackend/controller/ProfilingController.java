@@ -0,0 +1,187 @@
+package com.pengchengyin.vmmanagerbackend.controller;
+
+import com.pengchengyin.vmmanagerbackend.model.ApiResult;
+import com.pengchengyin.vmmanagerbackend.service.FlightRecorderService;
+import com.pengchengyin.vmmanagerbackend.service.LibvirtProfiler;
+import com.pengchengyin.vmmanagerbackend.service.LibvirtProfiler.SlowOperation;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 性能剖析REST API：慢操作记录与JFR录制
+ */
+@Slf4j
+@RestController
+@RequestMapping("/v1/profiling")
+@Tag(name = "性能剖析", description = "libvirt慢操作记录，JFR录制的启动、停止和下载")
+public class ProfilingController {
+
+    @Autowired
+    private LibvirtProfiler profiler;
+
+    @Autowired
+    private FlightRecorderService flightRecorder;
+
+    /**
+     * 获取慢操作记录
+     */
+    @Operation(summary = "获取慢操作记录", description = "返回最近超过阈值的libvirt调用和VmInfo转换阶段，包含耗时、调用栈和触发的HTTP请求")
+    @ApiResponse(responseCode = "200", description = "成功获取慢操作记录")
+    @GetMapping("/slow-operations")
+    public ResponseEntity<Map<String, Object>> getSlowOperations() {
+        List<SlowOperation> operations = profiler.getSlowOperations();
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("data", operations);
+        response.put("count", operations.size());
+        response.put("stats", profiler.getStats());
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * 获取当前录制状态
+     */
+    @Operation(summary = "获取JFR录制状态")
+    @ApiResponse(responseCode = "200", description = "成功获取录制状态")
+    @GetMapping("/recording")
+    public ResponseEntity<ApiResult<Map<String, Object>>> getRecording() {
+        return ResponseEntity.ok(ApiResult.ok(flightRecorder.status()));
+    }
+
+    /**
+     * 开始JFR录制
+     */
+    @Operation(summary = "开始JFR录制", description = "按配置的JFR基础配置录制，同时记录libvirt调用与VmInfo转换事件；到时自动停止并写入文件")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "录制已开始"),
+            @ApiResponse(responseCode = "409", description = "已有录制正在进行"),
+            @ApiResponse(responseCode = "500", description = "服务器内部错误")
+    })
+    @PostMapping("/recording/start")
+    public ResponseEntity<ApiResult<Map<String, Object>>> startRecording(
+            @Parameter(description = "录制时长（秒），为空时使用配置的上限", example = "120") @RequestParam(required = false) Long seconds) {
+        try {
+            return ResponseEntity.ok(ApiResult.ok(flightRecorder.start(seconds)));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(409).body(ApiResult.error(e.getMessage()));
+        } catch (IOException e) {
+            log.error("开始JFR录制失败: {}", e.getMessage(), e);
+            return ResponseEntity.status(500).body(ApiResult.error("开始JFR录制失败: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * 停止JFR录制
+     */
+    @Operation(summary = "停止JFR录制", description = "停止当前录制并写入文件，之后可通过下载接口获取")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "录制已停止"),
+            @ApiResponse(responseCode = "409", description = "没有正在进行的录制")
+    })
+    @PostMapping("/recording/stop")
+    public ResponseEntity<ApiResult<Map<String, Object>>> stopRecording() {
+        try {
+            return ResponseEntity.ok(ApiResult.ok(flightRecorder.stop()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(409).body(ApiResult.error(e.getMessage()));
+        }
+    }
+
+    /**
+     * 获取录制文件列表
+     */
+    @Operation(summary = "获取JFR录制文件列表", description = "返回已完成的录制文件，最新的在前")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "成功获取文件列表"),
+            @ApiResponse(responseCode = "500", description = "服务器内部错误")
+    })
+    @GetMapping("/recordings")
+    public ResponseEntity<ApiResult<List<Map<String, Object>>>> listRecordings() {
+        try {
+            return ResponseEntity.ok(ApiResult.list(flightRecorder.listRecordings()));
+        } catch (IOException e) {
+            log.error("获取JFR录制文件失败: {}", e.getMessage(), e);
+            return ResponseEntity.status(500).body(ApiResult.error("获取JFR录制文件失败: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * 下载录制文件
+     */
+    @Operation(summary = "下载JFR录制文件", description = "可用 JDK Mission Control 或 jfr 命令行工具打开")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "录制文件"),
+            @ApiResponse(responseCode = "404", description = "文件不存在"),
+            @ApiResponse(responseCode = "409", description = "录制仍在进行")
+    })
+    @GetMapping("/recordings/{name}")
+    public ResponseEntity<?> downloadRecording(
+            @Parameter(description = "录制文件名", required = true) @PathVariable String name) {
+        Path file;
+        try {
+            file = flightRecorder.getRecording(name);
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(409).body(ApiResult.error(e.getMessage()));
+        }
+        if (file == null) {
+            return ResponseEntity.status(404).body(ApiResult.error("录制文件不存在: " + name));
+        }
+        Resource resource = new FileSystemResource(file);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + file.getFileName() + "\"")
+                .body(resource);
+    }
+
+    /**
+     * 删除录制文件
+     */
+    @Operation(summary = "删除JFR录制文件")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "删除成功"),
+            @ApiResponse(responseCode = "404", description = "文件不存在"),
+            @ApiResponse(responseCode = "409", description = "录制仍在进行"),
+            @ApiResponse(responseCode = "500", description = "服务器内部错误")
+    })
+    @DeleteMapping("/recordings/{name}")
+    public ResponseEntity<Map<String, Object>> deleteRecording(
+            @Parameter(description = "录制文件名", required = true) @PathVariable String name) {
+        Map<String, Object> response = new HashMap<>();
+        try {
+            if (!flightRecorder.deleteRecording(name)) {
+                response.put("success", false);
+                response.put("message", "录制文件不存在: " + name);
+                return ResponseEntity.status(404).body(response);
+            }
+            response.put("success", true);
+            response.put("message", "录制文件已删除");
+            return ResponseEntity.ok(response);
+        } catch (IllegalStateException e) {
+            response.put("success", false);
+            response.put("message", e.getMessage());
+            return ResponseEntity.status(409).body(response);
+        } catch (IOException e) {
+            log.error("删除JFR录制文件失败: {}", e.getMessage(), e);
+            response.put("success", false);
+            response.put("message", "删除JFR录制文件失败: " + e.getMessage());
+            return ResponseEntity.status(500).body(response);
+        }
+    }
+}
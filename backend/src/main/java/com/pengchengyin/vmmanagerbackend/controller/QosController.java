@@ -0,0 +1,112 @@
+package com.pengchengyin.vmmanagerbackend.controller;
+
+import com.pengchengyin.vmmanagerbackend.model.ApiResult;
+import com.pengchengyin.vmmanagerbackend.model.QosEvent;
+import com.pengchengyin.vmmanagerbackend.model.QosLimits;
+import com.pengchengyin.vmmanagerbackend.service.QosService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import lombok.extern.slf4j.Slf4j;
+import org.libvirt.LibvirtException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 磁盘与网络限速REST API
+ */
+@Slf4j
+@RestController
+@RequestMapping("/v1")
+@Tag(name = "限速", description = "虚拟机磁盘IOPS/带宽与网络带宽的静态限速，以及按宿主机磁盘延迟自动限速")
+public class QosController {
+
+    @Autowired
+    private QosService qosService;
+
+    /**
+     * 获取虚拟机限速
+     */
+    @Operation(summary = "获取虚拟机限速", description = "返回持久化配置中的静态限速（limits）以及当前生效的自适应限速（adaptive，未限速时为null）")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "成功获取限速"),
+            @ApiResponse(responseCode = "404", description = "虚拟机不存在"),
+            @ApiResponse(responseCode = "500", description = "服务器内部错误")
+    })
+    @GetMapping("/vms/{name}/qos")
+    public ResponseEntity<Map<String, Object>> getQos(
+            @Parameter(description = "虚拟机名称", required = true, example = "my-vm") @PathVariable String name) {
+        Map<String, Object> response = new HashMap<>();
+        try {
+            response.put("success", true);
+            response.put("data", qosService.getQos(name));
+            return ResponseEntity.ok(response);
+        } catch (LibvirtException e) {
+            log.error("获取虚拟机限速失败: {}", e.getMessage(), e);
+            response.put("success", false);
+            response.put("message", "获取虚拟机限速失败: " + e.getMessage());
+            if (e.getMessage().contains("not found")) {
+                return ResponseEntity.status(404).body(response);
+            }
+            return ResponseEntity.status(500).body(response);
+        }
+    }
+
+    /**
+     * 设置虚拟机限速
+     */
+    @Operation(summary = "设置虚拟机限速", description = "整体替换每块磁盘的IOPS/带宽上限和每块网卡的出入带宽上限（未指定或0表示不限制），写入持久化配置，运行中的虚拟机立即生效")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "限速已更新"),
+            @ApiResponse(responseCode = "400", description = "限速值不合法"),
+            @ApiResponse(responseCode = "404", description = "虚拟机不存在"),
+            @ApiResponse(responseCode = "500", description = "服务器内部错误")
+    })
+    @PutMapping("/vms/{name}/qos")
+    public ResponseEntity<ApiResult<QosLimits>> setQos(
+            @Parameter(description = "虚拟机名称", required = true, example = "my-vm") @PathVariable String name,
+            @Valid @RequestBody QosLimits limits) {
+        try {
+            return ResponseEntity.ok(ApiResult.ok(qosService.setQos(name, limits)));
+        } catch (LibvirtException e) {
+            log.error("设置虚拟机限速失败: {}", e.getMessage(), e);
+            ApiResult<QosLimits> response = ApiResult.error("设置虚拟机限速失败: " + e.getMessage());
+            if (e.getMessage().contains("not found")) {
+                return ResponseEntity.status(404).body(response);
+            }
+            return ResponseEntity.status(500).body(response);
+        }
+    }
+
+    /**
+     * 获取自适应限速指标
+     */
+    @Operation(summary = "获取自适应限速指标", description = "返回宿主机各磁盘的平均延迟、限速/解除次数以及当前被限速的虚拟机")
+    @ApiResponse(responseCode = "200", description = "成功获取指标")
+    @GetMapping("/qos/metrics")
+    public ResponseEntity<Map<String, Object>> getMetrics() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("data", qosService.getMetrics());
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * 获取自适应限速调整记录
+     */
+    @Operation(summary = "获取自适应限速记录", description = "返回最近的限速、收紧与解除记录，新的在前")
+    @ApiResponse(responseCode = "200", description = "成功获取调整记录")
+    @GetMapping("/qos/events")
+    public ResponseEntity<ApiResult<List<QosEvent>>> getEvents(
+            @Parameter(description = "返回条数", example = "100") @RequestParam(defaultValue = "100") int limit) {
+        return ResponseEntity.ok(ApiResult.list(qosService.getEvents(limit)));
+    }
+}
@@ -0,0 +1,46 @@
+package com.pengchengyin.vmmanagerbackend.controller;
+
+import com.pengchengyin.vmmanagerbackend.service.FairQueueService;
+import com.pengchengyin.vmmanagerbackend.service.RateLimiterService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 限流统计REST API
+ */
+@RestController
+@RequestMapping("/v1/rate-limit")
+@Tag(name = "限流", description = "API限流与公平排队统计")
+public class RateLimitController {
+
+    @Autowired
+    private RateLimiterService rateLimiter;
+
+    @Autowired
+    private FairQueueService fairQueue;
+
+    /**
+     * 获取限流统计
+     */
+    @Operation(summary = "获取限流统计", description = "返回令牌桶放行/拒绝次数以及libvirt调用名额和排队情况")
+    @ApiResponse(responseCode = "200", description = "成功获取统计")
+    @GetMapping
+    public ResponseEntity<Map<String, Object>> getStats() {
+        Map<String, Object> data = new HashMap<>();
+        data.put("limiter", rateLimiter.getStats());
+        data.put("queue", fairQueue.getStats());
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("data", data);
+        return ResponseEntity.ok(response);
+    }
+}
@@ -0,0 +1,286 @@
+package com.pengchengyin.vmmanagerbackend.controller;
+
+import com.pengchengyin.vmmanagerbackend.model.ApiResult;
+import com.pengchengyin.vmmanagerbackend.model.CreateVolumeRequest;
+import com.pengchengyin.vmmanagerbackend.model.StoragePoolSummary;
+import com.pengchengyin.vmmanagerbackend.model.StorageVolumeInfo;
+import com.pengchengyin.vmmanagerbackend.model.VolumeJob;
+import com.pengchengyin.vmmanagerbackend.service.StoragePoolService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.validation.Valid;
+import lombok.extern.slf4j.Slf4j;
+import org.libvirt.LibvirtException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 存储池与存储卷REST API控制器
+ */
+@Slf4j
+@RestController
+@RequestMapping("/v1")
+@Tag(name = "存储", description = "存储池容量查询，存储卷的异步创建、扩容、删除以及ISO/基础镜像上传")
+public class StoragePoolController {
+
+    @Autowired
+    private StoragePoolService storageService;
+
+    /**
+     * 获取存储池列表
+     */
+    @Operation(summary = "获取存储池列表", description = "返回所有存储池（含未启动的）的状态和容量，默认读取后台定时刷新的缓存")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "成功获取存储池列表"),
+            @ApiResponse(responseCode = "500", description = "服务器内部错误")
+    })
+    @GetMapping("/pools")
+    public ResponseEntity<ApiResult<List<StoragePoolSummary>>> listPools(
+            @Parameter(description = "是否立即重新查询容量", example = "false") @RequestParam(defaultValue = "false") boolean refresh) {
+        try {
+            return ResponseEntity.ok(ApiResult.list(storageService.listPools(refresh)));
+        } catch (LibvirtException e) {
+            log.error("获取存储池列表失败: {}", e.getMessage(), e);
+            return ResponseEntity.status(500).body(ApiResult.error("获取存储池列表失败: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * 获取存储卷列表
+     */
+    @Operation(summary = "获取存储卷列表", description = "返回指定存储池中所有存储卷的路径、格式和容量")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "成功获取存储卷列表"),
+            @ApiResponse(responseCode = "404", description = "存储池不存在"),
+            @ApiResponse(responseCode = "500", description = "服务器内部错误")
+    })
+    @GetMapping("/pools/{pool}/volumes")
+    public ResponseEntity<ApiResult<List<StorageVolumeInfo>>> listVolumes(
+            @Parameter(description = "存储池名称", required = true, example = "default") @PathVariable String pool) {
+        try {
+            return ResponseEntity.ok(ApiResult.list(storageService.listVolumes(pool)));
+        } catch (LibvirtException e) {
+            log.error("获取存储卷列表失败: {}", e.getMessage(), e);
+            ApiResult<List<StorageVolumeInfo>> response = ApiResult.error("获取存储卷列表失败: " + e.getMessage());
+            if (e.getMessage().contains("not found")) {
+                return ResponseEntity.status(404).body(response);
+            }
+            return ResponseEntity.status(500).body(response);
+        }
+    }
+
+    /**
+     * 获取存储卷信息
+     */
+    @Operation(summary = "获取存储卷信息", description = "返回存储卷的路径、格式和容量")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "成功获取存储卷信息"),
+            @ApiResponse(responseCode = "404", description = "存储池或存储卷不存在"),
+            @ApiResponse(responseCode = "500", description = "服务器内部错误")
+    })
+    @GetMapping("/pools/{pool}/volumes/{volume}")
+    public ResponseEntity<Map<String, Object>> getVolume(
+            @Parameter(description = "存储池名称", required = true, example = "default") @PathVariable String pool,
+            @Parameter(description = "存储卷名称", required = true, example = "my-vm.qcow2") @PathVariable String volume) {
+        Map<String, Object> response = new HashMap<>();
+        try {
+            response.put("success", true);
+            response.put("data", storageService.getVolume(pool, volume));
+            return ResponseEntity.ok(response);
+        } catch (LibvirtException e) {
+            return libvirtError("获取存储卷信息失败", e);
+        }
+    }
+
+    /**
+     * 创建存储卷（异步）
+     */
+    @Operation(summary = "创建存储卷", description = "校验参数后立即返回任务，存储卷在后台创建；通过 GET /v1/volume-jobs/{id} 查询结果")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "202", description = "创建任务已提交"),
+            @ApiResponse(responseCode = "400", description = "请求参数验证失败"),
+            @ApiResponse(responseCode = "404", description = "存储池或基础镜像不存在"),
+            @ApiResponse(responseCode = "409", description = "存储卷已存在"),
+            @ApiResponse(responseCode = "500", description = "服务器内部错误")
+    })
+    @PostMapping("/pools/{pool}/volumes")
+    public ResponseEntity<Map<String, Object>> createVolume(
+            @Parameter(description = "存储池名称", required = true, example = "default") @PathVariable String pool,
+            @Valid @RequestBody CreateVolumeRequest request) {
+        Map<String, Object> response = new HashMap<>();
+        try {
+            VolumeJob job = storageService.submitCreate(pool, request);
+            response.put("success", true);
+            response.put("message", "存储卷创建任务已提交");
+            response.put("data", job);
+            return ResponseEntity.status(202)
+                    .header(HttpHeaders.LOCATION, "/v1/volume-jobs/" + job.getId())
+                    .body(response);
+        } catch (IllegalStateException e) {
+            response.put("success", false);
+            response.put("message", e.getMessage());
+            return ResponseEntity.status(409).body(response);
+        } catch (LibvirtException e) {
+            return libvirtError("创建存储卷失败", e);
+        }
+    }
+
+    /**
+     * 扩容存储卷
+     */
+    @Operation(summary = "扩容存储卷", description = "将存储卷容量调整为指定大小，只能扩大")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "扩容成功"),
+            @ApiResponse(responseCode = "400", description = "目标容量小于当前容量"),
+            @ApiResponse(responseCode = "404", description = "存储池或存储卷不存在"),
+            @ApiResponse(responseCode = "500", description = "服务器内部错误")
+    })
+    @PostMapping("/pools/{pool}/volumes/{volume}/resize")
+    public ResponseEntity<Map<String, Object>> resizeVolume(
+            @Parameter(description = "存储池名称", required = true, example = "default") @PathVariable String pool,
+            @Parameter(description = "存储卷名称", required = true, example = "my-vm.qcow2") @PathVariable String volume,
+            @Parameter(description = "目标容量（MB）", required = true, example = "40960") @RequestParam long capacityMB) {
+        Map<String, Object> response = new HashMap<>();
+        try {
+            response.put("data", storageService.resizeVolume(pool, volume, capacityMB));
+            response.put("success", true);
+            response.put("message", "存储卷扩容成功");
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            response.put("success", false);
+            response.put("message", e.getMessage());
+            return ResponseEntity.status(400).body(response);
+        } catch (LibvirtException e) {
+            return libvirtError("扩容存储卷失败", e);
+        }
+    }
+
+    /**
+     * 删除存储卷
+     */
+    @Operation(summary = "删除存储卷", description = "删除存储卷及其数据")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "删除成功"),
+            @ApiResponse(responseCode = "404", description = "存储池或存储卷不存在"),
+            @ApiResponse(responseCode = "500", description = "服务器内部错误")
+    })
+    @DeleteMapping("/pools/{pool}/volumes/{volume}")
+    public ResponseEntity<Map<String, Object>> deleteVolume(
+            @Parameter(description = "存储池名称", required = true, example = "default") @PathVariable String pool,
+            @Parameter(description = "存储卷名称", required = true, example = "my-vm.qcow2") @PathVariable String volume) {
+        try {
+            storageService.deleteVolume(pool, volume);
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("message", "存储卷已删除");
+            return ResponseEntity.ok(response);
+        } catch (LibvirtException e) {
+            return libvirtError("删除存储卷失败", e);
+        }
+    }
+
+    /**
+     * 上传ISO或基础镜像
+     */
+    @Operation(summary = "上传镜像", description = "请求体为镜像文件原始内容，必须带Content-Length；数据边接收边通过libvirt流写入新建的存储卷")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "201", description = "上传完成"),
+            @ApiResponse(responseCode = "400", description = "卷名或格式无效"),
+            @ApiResponse(responseCode = "404", description = "存储池不存在"),
+            @ApiResponse(responseCode = "409", description = "存储卷已存在"),
+            @ApiResponse(responseCode = "411", description = "缺少Content-Length"),
+            @ApiResponse(responseCode = "500", description = "服务器内部错误")
+    })
+    @PutMapping(value = "/pools/{pool}/volumes/{volume}/upload", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<Map<String, Object>> uploadVolume(
+            @Parameter(description = "存储池名称", required = true, example = "default") @PathVariable String pool,
+            @Parameter(description = "存储卷名称", required = true, example = "ubuntu-24.04.iso") @PathVariable String volume,
+            @Parameter(description = "镜像格式（iso、raw、qcow2）", example = "raw") @RequestParam(defaultValue = "raw") String format,
+            HttpServletRequest request) {
+        Map<String, Object> response = new HashMap<>();
+        long length = request.getContentLengthLong();
+        if (length < 0) {
+            response.put("success", false);
+            response.put("message", "上传镜像需要Content-Length");
+            return ResponseEntity.status(411).body(response);
+        }
+        try {
+            StorageVolumeInfo info = storageService.uploadVolume(pool, volume, format, length, request.getInputStream());
+            response.put("success", true);
+            response.put("message", "镜像上传完成");
+            response.put("data", info);
+            return ResponseEntity.status(201).body(response);
+        } catch (IllegalArgumentException e) {
+            response.put("success", false);
+            response.put("message", e.getMessage());
+            return ResponseEntity.status(400).body(response);
+        } catch (IllegalStateException e) {
+            response.put("success", false);
+            response.put("message", e.getMessage());
+            return ResponseEntity.status(409).body(response);
+        } catch (IOException e) {
+            log.error("上传镜像失败: {}", e.getMessage(), e);
+            response.put("success", false);
+            response.put("message", "上传镜像失败: " + e.getMessage());
+            return ResponseEntity.status(500).body(response);
+        } catch (LibvirtException e) {
+            return libvirtError("上传镜像失败", e);
+        }
+    }
+
+    /**
+     * 查询存储卷创建任务
+     */
+    @Operation(summary = "查询存储卷创建任务", description = "返回任务状态，成功时包含存储卷信息，失败时包含原因")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "成功获取任务"),
+            @ApiResponse(responseCode = "404", description = "任务不存在或已过期")
+    })
+    @GetMapping("/volume-jobs/{id}")
+    public ResponseEntity<Map<String, Object>> getJob(
+            @Parameter(description = "任务ID", required = true) @PathVariable String id) {
+        VolumeJob job = storageService.getJob(id);
+        Map<String, Object> response = new HashMap<>();
+        if (job == null) {
+            response.put("success", false);
+            response.put("message", "任务不存在或已过期");
+            return ResponseEntity.status(404).body(response);
+        }
+        response.put("success", true);
+        response.put("data", job);
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * 获取存储卷创建任务列表
+     */
+    @Operation(summary = "获取存储卷创建任务列表", description = "返回进行中和最近完成的存储卷创建任务")
+    @ApiResponse(responseCode = "200", description = "成功获取任务列表")
+    @GetMapping("/volume-jobs")
+    public ResponseEntity<ApiResult<List<VolumeJob>>> listJobs() {
+        return ResponseEntity.ok(ApiResult.list(storageService.listJobs()));
+    }
+
+    private ResponseEntity<Map<String, Object>> libvirtError(String action, LibvirtException e) {
+        log.error("{}: {}", action, e.getMessage(), e);
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", false);
+        response.put("message", action + ": " + e.getMessage());
+        if (e.getMessage().contains("not found")) {
+            return ResponseEntity.status(404).body(response);
+        }
+        return ResponseEntity.status(500).body(response);
+    }
+}
@@ -0,0 +1,132 @@
+package com.pengchengyin.vmmanagerbackend.controller;
+
+import com.pengchengyin.vmmanagerbackend.model.ApiResult;
+import com.pengchengyin.vmmanagerbackend.model.SupervisorEvent;
+import com.pengchengyin.vmmanagerbackend.model.SupervisorPolicy;
+import com.pengchengyin.vmmanagerbackend.service.SupervisorService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 虚拟机守护REST API
+ */
+@RestController
+@RequestMapping("/v1/supervisor")
+@Tag(name = "虚拟机守护", description = "崩溃自动重启、空闲保存/暂停的指标、动作记录和虚拟机策略")
+public class SupervisorController {
+
+    @Autowired
+    private SupervisorService supervisorService;
+
+    /**
+     * 获取守护指标
+     */
+    @Operation(summary = "获取守护指标", description = "返回重启、崩溃循环、空闲保存/暂停和恢复次数，以及各状态的虚拟机数量")
+    @ApiResponse(responseCode = "200", description = "成功获取指标")
+    @GetMapping("/metrics")
+    public ResponseEntity<Map<String, Object>> getMetrics() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("data", supervisorService.getMetrics());
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * 获取守护动作记录
+     */
+    @Operation(summary = "获取守护动作记录", description = "返回最近的重启、崩溃循环、空闲处理和恢复记录，新的在前")
+    @ApiResponse(responseCode = "200", description = "成功获取动作记录")
+    @GetMapping("/events")
+    public ResponseEntity<ApiResult<List<SupervisorEvent>>> getEvents(
+            @Parameter(description = "返回条数", example = "100") @RequestParam(defaultValue = "100") int limit) {
+        return ResponseEntity.ok(ApiResult.list(supervisorService.getEvents(limit)));
+    }
+
+    /**
+     * 获取所有虚拟机策略
+     */
+    @Operation(summary = "获取守护策略", description = "返回按虚拟机配置的自动重启与空闲处理策略，未配置的虚拟机使用 supervisor.defaults")
+    @ApiResponse(responseCode = "200", description = "成功获取策略")
+    @GetMapping("/policies")
+    public ResponseEntity<Map<String, Object>> getPolicies() {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("data", supervisorService.getPolicies());
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * 设置虚拟机策略
+     */
+    @Operation(summary = "设置守护策略", description = "设置指定虚拟机是否自动重启，以及空闲多久后保存或暂停")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "策略已更新"),
+            @ApiResponse(responseCode = "400", description = "空闲时间不是正数")
+    })
+    @PutMapping("/policies/{name}")
+    public ResponseEntity<Map<String, Object>> setPolicy(
+            @Parameter(description = "虚拟机名称", required = true, example = "dev-01") @PathVariable String name,
+            @RequestBody SupervisorPolicy policy) {
+        Map<String, Object> response = new HashMap<>();
+        if (policy.getIdleAfterMinutes() != null && policy.getIdleAfterMinutes() <= 0) {
+            response.put("success", false);
+            response.put("message", "空闲时间必须大于0分钟");
+            return ResponseEntity.status(400).body(response);
+        }
+        if (policy.getIdleAction() == null) {
+            policy.setIdleAction(SupervisorPolicy.IdleAction.SAVE);
+        }
+        supervisorService.setPolicy(name, policy);
+        response.put("success", true);
+        response.put("message", "策略已更新");
+        response.put("data", policy);
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * 删除虚拟机策略
+     */
+    @Operation(summary = "删除守护策略", description = "删除指定虚拟机的策略，恢复使用默认策略")
+    @ApiResponse(responseCode = "200", description = "策略已删除")
+    @DeleteMapping("/policies/{name}")
+    public ResponseEntity<Map<String, Object>> removePolicy(
+            @Parameter(description = "虚拟机名称", required = true, example = "dev-01") @PathVariable String name) {
+        supervisorService.removePolicy(name);
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("message", "策略已删除");
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * 重置崩溃循环
+     */
+    @Operation(summary = "重置崩溃循环", description = "清零指定虚拟机的重启计数；处于崩溃循环的虚拟机重新开始自动重启")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "已重置"),
+            @ApiResponse(responseCode = "404", description = "虚拟机不在守护服务的跟踪中")
+    })
+    @PostMapping("/vms/{name}/reset")
+    public ResponseEntity<Map<String, Object>> resetCrashLoop(
+            @Parameter(description = "虚拟机名称", required = true, example = "dev-01") @PathVariable String name) {
+        Map<String, Object> response = new HashMap<>();
+        if (!supervisorService.resetCrashLoop(name)) {
+            response.put("success", false);
+            response.put("message", "虚拟机不存在或守护服务未启用: " + name);
+            return ResponseEntity.status(404).body(response);
+        }
+        response.put("success", true);
+        response.put("message", "崩溃循环已重置");
+        return ResponseEntity.ok(response);
+    }
+}
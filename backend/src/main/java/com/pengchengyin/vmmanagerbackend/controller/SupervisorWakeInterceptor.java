@@ -0,0 +1,42 @@
+package com.pengchengyin.vmmanagerbackend.controller;
+
+import com.pengchengyin.vmmanagerbackend.service.SupervisorService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.util.UriUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 虚拟机访问拦截器：请求 /v1/vms/{name}/** 时通知守护服务，因空闲被保存或暂停的虚拟机在处理请求前恢复。
+ * 删除、启动和恢复请求本身会改变虚拟机状态，不做额外恢复。
+ */
+@Component
+public class SupervisorWakeInterceptor implements HandlerInterceptor {
+
+    private static final Pattern PATH_PATTERN = Pattern.compile("^/v1/vms/([^/]+)(?:/([^/]+))?");
+
+    private static final Set<String> SKIPPED_ACTIONS = Set.of("start", "resume");
+
+    @Autowired
+    private SupervisorService supervisorService;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!supervisorService.isEnabled()) {
+            return true;
+        }
+        Matcher m = PATH_PATTERN.matcher(request.getRequestURI());
+        if (!m.find() || "DELETE".equals(request.getMethod()) || SKIPPED_ACTIONS.contains(m.group(2))) {
+            return true;
+        }
+        supervisorService.onAccess(UriUtils.decode(m.group(1), StandardCharsets.UTF_8));
+        return true;
+    }
+}
@@ -1,9 +1,20 @@
 package com.pengchengyin.vmmanagerbackend.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.pengchengyin.vmmanagerbackend.model.ApiResult;
+import com.pengchengyin.vmmanagerbackend.model.BatchActionRequest;
+import com.pengchengyin.vmmanagerbackend.model.BatchActionResult;
 import com.pengchengyin.vmmanagerbackend.model.CreateVmRequest;
+import com.pengchengyin.vmmanagerbackend.model.ResizeRequest;
+import com.pengchengyin.vmmanagerbackend.model.ResizeResult;
 import com.pengchengyin.vmmanagerbackend.model.VmInfo;
 import com.pengchengyin.vmmanagerbackend.model.ChangePasswordRequest;
 import com.pengchengyin.vmmanagerbackend.model.VmStatus;
+import com.pengchengyin.vmmanagerbackend.service.IdempotencyService;
+import com.pengchengyin.vmmanagerbackend.service.LabelSelector;
+import com.pengchengyin.vmmanagerbackend.service.ResizeService;
 import com.pengchengyin.vmmanagerbackend.service.VirtualMachineService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -16,12 +27,16 @@ import jakarta.validation.Valid;
 import lombok.extern.slf4j.Slf4j;
 import org.libvirt.LibvirtException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Stream;
 
 /**
  * 虚拟机管理REST API控制器
@@ -35,28 +50,141 @@ public class VirtualMachineController {
     @Autowired
     private VirtualMachineService vmService;
 
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    @Autowired
+    private ResizeService resizeService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
     /**
      * 获取所有虚拟机列表
      */
-    @Operation(summary = "获取所有虚拟机列表", description = "返回系统中所有虚拟机的列表，包括运行中和已关闭的虚拟机")
+    @Operation(summary = "获取所有虚拟机列表", description = "返回系统中所有虚拟机的列表，包括运行中和已关闭的虚拟机；"
+            + "提供selector时只返回标签匹配的虚拟机（由标签索引解析，不逐台读取XML）")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "成功获取虚拟机列表"),
+            @ApiResponse(responseCode = "400", description = "选择器语法错误"),
             @ApiResponse(responseCode = "500", description = "服务器内部错误")
     })
     @GetMapping
-    public ResponseEntity<Map<String, Object>> listAllVms() {
+    public ResponseEntity<ApiResult<List<VmInfo>>> listAllVms(
+            @Parameter(description = "标签选择器", example = "env=prod,role!=db") @RequestParam(required = false) String selector) {
+        try {
+            return ResponseEntity.ok(ApiResult.list(vmService.listVms(LabelSelector.parse(selector))));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(400).body(ApiResult.error(e.getMessage()));
+        } catch (LibvirtException e) {
+            log.error("获取虚拟机列表失败: {}", e.getMessage(), e);
+            return ResponseEntity.status(500).body(ApiResult.error("获取虚拟机列表失败: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * 以NDJSON流式获取所有虚拟机列表
+     */
+    @Operation(summary = "流式获取所有虚拟机列表", description = "每行一个虚拟机JSON对象，查询到一个立即输出一个，首字节时间和内存占用与虚拟机数量无关。"
+            + "输出过程中出错时最后一行为 {\"success\":false,\"message\":...}")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "开始输出虚拟机列表"),
+            @ApiResponse(responseCode = "500", description = "服务器内部错误")
+    })
+    @GetMapping(params = "format=ndjson", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAllVms(
+            @Parameter(description = "输出格式", required = true, example = "ndjson") @RequestParam String format,
+            @Parameter(description = "标签选择器", example = "env=prod,role!=db") @RequestParam(required = false) String selector) {
+        Stream<VmInfo> vms;
         try {
-            List<VmInfo> vms = vmService.listAllVms();
+            vms = vmService.streamVms(LabelSelector.parse(selector));
+        } catch (IllegalArgumentException e) {
             Map<String, Object> response = new HashMap<>();
-            response.put("success", true);
-            response.put("data", vms);
-            response.put("count", vms.size());
-            return ResponseEntity.ok(response);
+            response.put("success", false);
+            response.put("message", e.getMessage());
+            StreamingResponseBody body = out -> objectMapper.writeValue(out, response);
+            return ResponseEntity.status(400).contentType(MediaType.APPLICATION_JSON).body(body);
         } catch (LibvirtException e) {
             log.error("获取虚拟机列表失败: {}", e.getMessage(), e);
             Map<String, Object> response = new HashMap<>();
             response.put("success", false);
             response.put("message", "获取虚拟机列表失败: " + e.getMessage());
+            StreamingResponseBody body = out -> objectMapper.writeValue(out, response);
+            return ResponseEntity.status(500).contentType(MediaType.APPLICATION_JSON).body(body);
+        }
+
+        ObjectWriter writer = objectMapper.writer().without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        StreamingResponseBody body = out -> {
+            try (vms) {
+                Iterator<VmInfo> it = vms.iterator();
+                while (it.hasNext()) {
+                    writer.writeValue(out, it.next());
+                    out.write('\n');
+                    // 每行立即发出，客户端无需等待整个列表
+                    out.flush();
+                }
+            } catch (IllegalStateException e) {
+                log.error("流式输出虚拟机列表失败: {}", e.getMessage(), e);
+                Map<String, Object> error = new HashMap<>();
+                error.put("success", false);
+                error.put("message", "获取虚拟机列表失败: " + e.getMessage());
+                writer.writeValue(out, error);
+                out.write('\n');
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
+    /**
+     * 按标签选择器批量操作
+     */
+    @Operation(summary = "按标签批量操作虚拟机", description = "对选择器匹配的虚拟机逐台执行生命周期操作，返回每台的结果；单台失败不影响其他虚拟机")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "批量操作已执行（结果见data）"),
+            @ApiResponse(responseCode = "400", description = "选择器语法错误")
+    })
+    @PostMapping("/batch")
+    public ResponseEntity<Map<String, Object>> batchAction(@Valid @RequestBody BatchActionRequest request) {
+        Map<String, Object> response = new HashMap<>();
+        try {
+            List<BatchActionResult> results = vmService.batchAction(LabelSelector.parse(request.getSelector()), request.getAction());
+            long failed = results.stream().filter(r -> !r.isSuccess()).count();
+            response.put("success", failed == 0);
+            response.put("message", failed == 0 ? "批量操作完成" : "批量操作完成，" + failed + "台失败");
+            response.put("data", results);
+            response.put("count", results.size());
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            response.put("success", false);
+            response.put("message", e.getMessage());
+            return ResponseEntity.status(400).body(response);
+        }
+    }
+
+    /**
+     * 替换虚拟机标签
+     */
+    @Operation(summary = "替换虚拟机标签", description = "用请求体中的标签替换虚拟机的全部标签（写入domain XML的metadata），空对象表示清除标签")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "标签已更新"),
+            @ApiResponse(responseCode = "400", description = "标签不合法"),
+            @ApiResponse(responseCode = "404", description = "虚拟机不存在"),
+            @ApiResponse(responseCode = "500", description = "服务器内部错误")
+    })
+    @PutMapping("/{name}/labels")
+    public ResponseEntity<ApiResult<VmInfo>> setLabels(
+            @Parameter(description = "虚拟机名称", required = true, example = "my-vm") @PathVariable String name,
+            @RequestBody Map<String, String> labels) {
+        try {
+            return ResponseEntity.ok(ApiResult.ok(vmService.setLabels(name, labels)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(400).body(ApiResult.error(e.getMessage()));
+        } catch (LibvirtException e) {
+            log.error("更新虚拟机标签失败: {}", e.getMessage(), e);
+            ApiResult<VmInfo> response = ApiResult.error("更新虚拟机标签失败: " + e.getMessage());
+            if (e.getMessage().contains("not found")) {
+                return ResponseEntity.status(404).body(response);
+            }
             return ResponseEntity.status(500).body(response);
         }
     }
@@ -71,20 +199,14 @@ public class VirtualMachineController {
             @ApiResponse(responseCode = "500", description = "服务器内部错误")
     })
     @GetMapping("/{name}")
-    public ResponseEntity<Map<String, Object>> getVmByName(
+    public ResponseEntity<ApiResult<VmInfo>> getVmByName(
             @Parameter(description = "虚拟机名称", required = true, example = "my-vm")
             @PathVariable String name) {
         try {
-            VmInfo vm = vmService.getVmByName(name);
-            Map<String, Object> response = new HashMap<>();
-            response.put("success", true);
-            response.put("data", vm);
-            return ResponseEntity.ok(response);
+            return ResponseEntity.ok(ApiResult.ok(vmService.getVmByName(name)));
         } catch (LibvirtException e) {
             log.error("获取虚拟机信息失败: {}", e.getMessage(), e);
-            Map<String, Object> response = new HashMap<>();
-            response.put("success", false);
-            response.put("message", "获取虚拟机信息失败: " + e.getMessage());
+            ApiResult<VmInfo> response = ApiResult.error("获取虚拟机信息失败: " + e.getMessage());
             if (e.getMessage().contains("not found")) {
                 return ResponseEntity.status(404).body(response);
             }
@@ -98,7 +220,9 @@ public class VirtualMachineController {
     @Operation(summary = "创建虚拟机", description = "创建新的KVM虚拟机，需要提供虚拟机名称、内存、CPU、磁盘镜像等配置信息")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "201", description = "虚拟机创建成功"),
-            @ApiResponse(responseCode = "400", description = "请求参数验证失败"),
+            @ApiResponse(responseCode = "400", description = "请求参数验证失败，或XML配置文件无法读取、名称不一致、磁盘路径不存在"),
+            @ApiResponse(responseCode = "409", description = "相同Idempotency-Key的请求仍在处理中"),
+            @ApiResponse(responseCode = "422", description = "Idempotency-Key已用于内容不同的请求"),
             @ApiResponse(responseCode = "500", description = "服务器内部错误")
     })
     @PostMapping
@@ -108,14 +232,30 @@ public class VirtualMachineController {
                     required = true,
                     content = @Content(schema = @Schema(implementation = CreateVmRequest.class))
             )
-            @Valid @RequestBody CreateVmRequest request) {
+            @Valid @RequestBody CreateVmRequest request,
+            @Parameter(description = "幂等键：相同Key的重试返回首次请求的结果，并发重试共享同一次创建", example = "create-my-vm-20250101")
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey) {
+        if (idempotencyKey == null) {
+            return doCreateVm(request, null);
+        }
+        String uuid = idempotencyService.isDeterministicUuid()
+                ? idempotencyService.deterministicUuid(idempotencyKey).toString() : null;
+        return idempotencyService.execute(idempotencyKey, request, () -> doCreateVm(request, uuid));
+    }
+
+    private ResponseEntity<Map<String, Object>> doCreateVm(CreateVmRequest request, String uuid) {
         try {
-            VmInfo vm = vmService.createVm(request);
+            VmInfo vm = vmService.createVm(request, uuid);
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
             response.put("message", "虚拟机创建成功");
             response.put("data", vm);
             return ResponseEntity.status(201).body(response);
+        } catch (IllegalArgumentException e) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("message", e.getMessage());
+            return ResponseEntity.status(400).body(response);
         } catch (LibvirtException e) {
             log.error("创建虚拟机失败: {}", e.getMessage(), e);
             Map<String, Object> response = new HashMap<>();
@@ -364,20 +504,38 @@ public class VirtualMachineController {
             @ApiResponse(responseCode = "500", description = "服务器内部错误")
     })
     @GetMapping("/{name}/monitor")
-    public ResponseEntity<Map<String, Object>> monitorVm(
+    public ResponseEntity<ApiResult<VmInfo>> monitorVm(
             @Parameter(description = "虚拟机名称", required = true, example = "my-vm")
             @PathVariable String name) {
         try {
-            VmInfo vm = vmService.monitorVm(name);
-            Map<String, Object> response = new HashMap<>();
-            response.put("success", true);
-            response.put("data", vm);
-            return ResponseEntity.ok(response);
+            return ResponseEntity.ok(ApiResult.ok(vmService.monitorVm(name)));
         } catch (LibvirtException e) {
             log.error("监控虚拟机失败: {}", e.getMessage(), e);
-            Map<String, Object> response = new HashMap<>();
-            response.put("success", false);
-            response.put("message", "监控虚拟机失败: " + e.getMessage());
+            ApiResult<VmInfo> response = ApiResult.error("监控虚拟机失败: " + e.getMessage());
+            if (e.getMessage().contains("not found")) {
+                return ResponseEntity.status(404).body(response);
+            }
+            return ResponseEntity.status(500).body(response);
+        }
+    }
+
+    /**
+     * 获取虚拟机vCPU与内存配置
+     */
+    @Operation(summary = "获取虚拟机vCPU与内存配置", description = "返回持久化配置中的vCPU/内存及其上限、运行中的vCPU/内存，以及是否有待重启生效的调整")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "成功获取资源配置"),
+            @ApiResponse(responseCode = "404", description = "虚拟机不存在"),
+            @ApiResponse(responseCode = "500", description = "服务器内部错误")
+    })
+    @GetMapping("/{name}/resources")
+    public ResponseEntity<ApiResult<ResizeResult>> getResources(
+            @Parameter(description = "虚拟机名称", required = true, example = "my-vm") @PathVariable String name) {
+        try {
+            return ResponseEntity.ok(ApiResult.ok(resizeService.getResources(name)));
+        } catch (LibvirtException e) {
+            log.error("获取虚拟机资源配置失败: {}", e.getMessage(), e);
+            ApiResult<ResizeResult> response = ApiResult.error("获取虚拟机资源配置失败: " + e.getMessage());
             if (e.getMessage().contains("not found")) {
                 return ResponseEntity.status(404).body(response);
             }
@@ -385,6 +543,55 @@ public class VirtualMachineController {
         }
     }
 
+    /**
+     * 调整虚拟机vCPU与内存
+     */
+    @Operation(summary = "调整虚拟机vCPU与内存", description = "运行中的虚拟机在上限以内时在线调整（vCPU热插拔、内存通过virtio气球），同时写入持久化配置；"
+            + "超出运行中的上限或来宾不支持在线调整时只写入配置，allowRestart为true时按restartAt计划重启使其生效")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "资源已调整"),
+            @ApiResponse(responseCode = "400", description = "请求参数不合法"),
+            @ApiResponse(responseCode = "404", description = "虚拟机不存在"),
+            @ApiResponse(responseCode = "500", description = "服务器内部错误")
+    })
+    @PatchMapping("/{name}/resources")
+    public ResponseEntity<ApiResult<ResizeResult>> resizeVm(
+            @Parameter(description = "虚拟机名称", required = true, example = "my-vm") @PathVariable String name,
+            @Valid @RequestBody ResizeRequest request) {
+        try {
+            return ResponseEntity.ok(ApiResult.ok(resizeService.resize(name, request)));
+        } catch (LibvirtException e) {
+            log.error("调整虚拟机资源失败: {}", e.getMessage(), e);
+            ApiResult<ResizeResult> response = ApiResult.error("调整虚拟机资源失败: " + e.getMessage());
+            if (e.getMessage().contains("not found")) {
+                return ResponseEntity.status(404).body(response);
+            }
+            return ResponseEntity.status(500).body(response);
+        }
+    }
+
+    /**
+     * 取消资源调整的计划重启
+     */
+    @Operation(summary = "取消计划重启", description = "取消为使资源调整生效而计划的重启，已写入的配置保留，下次启动时生效")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "计划重启已取消"),
+            @ApiResponse(responseCode = "404", description = "没有计划的重启")
+    })
+    @DeleteMapping("/{name}/resources/restart")
+    public ResponseEntity<Map<String, Object>> cancelResizeRestart(
+            @Parameter(description = "虚拟机名称", required = true, example = "my-vm") @PathVariable String name) {
+        Map<String, Object> response = new HashMap<>();
+        if (!resizeService.cancelRestart(name)) {
+            response.put("success", false);
+            response.put("message", "虚拟机 " + name + " 没有计划的重启");
+            return ResponseEntity.status(404).body(response);
+        }
+        response.put("success", true);
+        response.put("message", "计划重启已取消");
+        return ResponseEntity.ok(response);
+    }
+
     /**
      * 修改虚拟机内用户密码（依赖QEMU Guest Agent）
      */
@@ -0,0 +1,228 @@
+package com.pengchengyin.vmmanagerbackend.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pengchengyin.vmmanagerbackend.model.XmlImportReport;
+import com.pengchengyin.vmmanagerbackend.model.XmlImportRequest;
+import com.pengchengyin.vmmanagerbackend.service.VmTransferService;
+import com.pengchengyin.vmmanagerbackend.service.VmTransferService.ExportPlan;
+import com.pengchengyin.vmmanagerbackend.service.VmTransferService.ImportStatus;
+import com.pengchengyin.vmmanagerbackend.service.XmlImportService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.validation.Valid;
+import lombok.extern.slf4j.Slf4j;
+import org.libvirt.LibvirtException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 虚拟机导入/导出REST API控制器
+ */
+@Slf4j
+@RestController
+@RequestMapping("/v1/vms")
+@Tag(name = "虚拟机导入导出", description = "以tar归档流式导出/导入虚拟机定义及磁盘镜像，支持断点续传；从目录批量导入domain XML")
+public class VmTransferController {
+
+    private static final Pattern RANGE_PATTERN = Pattern.compile("^bytes=(\\d+)-$");
+    private static final MediaType TAR = MediaType.parseMediaType("application/x-tar");
+
+    @Autowired
+    private VmTransferService transferService;
+
+    @Autowired
+    private XmlImportService xmlImportService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * 导出虚拟机
+     */
+    @Operation(summary = "导出虚拟机", description = "以tar归档流式导出domain XML和全部磁盘镜像。支持 Range: bytes=N- 从中断处继续下载；响应带ETag，续传时携带 If-Range，虚拟机配置或磁盘已变化时重新发送完整归档")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "开始传输完整归档"),
+            @ApiResponse(responseCode = "206", description = "从指定偏移继续传输"),
+            @ApiResponse(responseCode = "404", description = "虚拟机不存在"),
+            @ApiResponse(responseCode = "409", description = "虚拟机正在运行或磁盘带后备链"),
+            @ApiResponse(responseCode = "416", description = "Range超出归档长度")
+    })
+    @GetMapping("/{name}/export")
+    public ResponseEntity<StreamingResponseBody> exportVm(
+            @Parameter(description = "虚拟机名称", required = true, example = "my-vm")
+            @PathVariable String name,
+            @RequestHeader(value = HttpHeaders.RANGE, required = false) String range,
+            @RequestHeader(value = HttpHeaders.IF_RANGE, required = false) String ifRange) {
+        ExportPlan plan;
+        try {
+            plan = transferService.prepareExport(name);
+        } catch (LibvirtException e) {
+            log.error("导出虚拟机失败: {}", e.getMessage(), e);
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("message", "导出虚拟机失败: " + e.getMessage());
+            if (e.getMessage().contains("not found")) {
+                return jsonResponse(404, response);
+            }
+            return jsonResponse(500, response);
+        } catch (IllegalStateException e) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", false);
+            response.put("message", e.getMessage());
+            return jsonResponse(409, response);
+        }
+
+        long total = plan.getTotalLength();
+        long offset = 0;
+        // If-Range与当前归档不一致（或为日期）时忽略Range，返回完整归档
+        boolean sameArchive = ifRange == null || ifRange.trim().equals(plan.getEtag());
+        if (range != null && sameArchive) {
+            Matcher m = RANGE_PATTERN.matcher(range.trim());
+            if (m.matches()) {
+                offset = Long.parseLong(m.group(1));
+            }
+        }
+        if (offset >= total) {
+            return ResponseEntity.status(416)
+                    .eTag(plan.getEtag())
+                    .header(HttpHeaders.CONTENT_RANGE, "bytes */" + total)
+                    .<StreamingResponseBody>build();
+        }
+
+        final long start = offset;
+        StreamingResponseBody body = out -> transferService.writeExport(plan, start, out);
+        ResponseEntity.BodyBuilder builder = ResponseEntity.status(start > 0 ? 206 : 200)
+                .contentType(TAR)
+                .contentLength(total - start)
+                .eTag(plan.getEtag())
+                .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + name + ".tar\"");
+        if (start > 0) {
+            builder.header(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + (total - 1) + "/" + total);
+        }
+        return builder.body(body);
+    }
+
+    /**
+     * 流式接口的错误响应仍保持统一的JSON结构
+     */
+    private ResponseEntity<StreamingResponseBody> jsonResponse(int status, Map<String, Object> response) {
+        StreamingResponseBody body = out -> objectMapper.writeValue(out, response);
+        return ResponseEntity.status(status).contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
+    /**
+     * 导入虚拟机
+     */
+    @Operation(summary = "导入虚拟机", description = "请求体为导出接口生成的tar归档。建议客户端自行生成session ID，传输中断后携带相同session和已接收的offset上传剩余部分即可继续")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "201", description = "导入完成，虚拟机已定义"),
+            @ApiResponse(responseCode = "202", description = "数据未接收完整，可续传"),
+            @ApiResponse(responseCode = "400", description = "归档内容或参数无效"),
+            @ApiResponse(responseCode = "409", description = "虚拟机或磁盘已存在，或偏移不匹配"),
+            @ApiResponse(responseCode = "500", description = "服务器内部错误")
+    })
+    @PostMapping(value = "/import", consumes = {"application/x-tar", MediaType.APPLICATION_OCTET_STREAM_VALUE})
+    public ResponseEntity<Map<String, Object>> importVm(
+            @Parameter(description = "导入会话ID（可选，不存在时以该ID新建会话）") @RequestParam(required = false) String session,
+            @Parameter(description = "本次上传数据在归档中的起始偏移") @RequestParam(defaultValue = "0") long offset,
+            HttpServletRequest request) {
+        Map<String, Object> response = new HashMap<>();
+        try {
+            ImportStatus status = transferService.importArchive(session, offset, request.getInputStream());
+            response.put("success", true);
+            response.put("data", status);
+            if (status.completed()) {
+                response.put("message", "虚拟机导入成功");
+                return ResponseEntity.status(201).body(response);
+            }
+            response.put("message", "归档未接收完整，请从 " + status.received() + " 继续上传");
+            return ResponseEntity.status(202).body(response);
+        } catch (IllegalArgumentException e) {
+            response.put("success", false);
+            response.put("message", e.getMessage());
+            return ResponseEntity.status(400).body(response);
+        } catch (IllegalStateException e) {
+            response.put("success", false);
+            response.put("message", e.getMessage());
+            return ResponseEntity.status(409).body(response);
+        } catch (IOException | LibvirtException e) {
+            log.error("导入虚拟机失败: {}", e.getMessage(), e);
+            response.put("success", false);
+            response.put("message", "导入虚拟机失败: " + e.getMessage());
+            if (session != null) {
+                response.put("data", transferService.getImportStatus(session));
+            }
+            return ResponseEntity.status(500).body(response);
+        }
+    }
+
+    /**
+     * 查询导入进度
+     */
+    @Operation(summary = "查询导入进度", description = "返回导入会话已接收的字节数，作为续传的offset")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "成功获取导入进度"),
+            @ApiResponse(responseCode = "404", description = "导入会话不存在或已完成")
+    })
+    @GetMapping("/import/{session}")
+    public ResponseEntity<Map<String, Object>> getImportStatus(
+            @Parameter(description = "导入会话ID", required = true) @PathVariable String session) {
+        ImportStatus status = transferService.getImportStatus(session);
+        Map<String, Object> response = new HashMap<>();
+        if (status == null) {
+            response.put("success", false);
+            response.put("message", "导入会话不存在或已完成");
+            return ResponseEntity.status(404).body(response);
+        }
+        response.put("success", true);
+        response.put("data", status);
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * 从目录批量导入domain XML
+     */
+    @Operation(summary = "从目录批量导入domain XML", description = "并行解析和校验目录中的XML文件（名称/UUID重复、磁盘路径不存在），以有限并发定义校验通过的虚拟机，返回每个文件的结果；dryRun为true时只校验")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "导入已执行（结果见data）"),
+            @ApiResponse(responseCode = "400", description = "目录不存在或文件数量超过上限"),
+            @ApiResponse(responseCode = "500", description = "服务器内部错误")
+    })
+    @PostMapping(value = "/import-xml", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<Map<String, Object>> importXml(@Valid @RequestBody XmlImportRequest request) {
+        Map<String, Object> response = new HashMap<>();
+        try {
+            XmlImportReport report = xmlImportService.importDirectory(request);
+            boolean clean = report.getInvalid() == 0 && report.getFailed() == 0;
+            response.put("success", clean);
+            response.put("message", clean ? (request.isDryRun() ? "全部文件校验通过" : "批量导入完成")
+                    : report.getInvalid() + "个文件校验未通过，" + report.getFailed() + "台虚拟机定义失败");
+            response.put("data", report);
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            response.put("success", false);
+            response.put("message", e.getMessage());
+            return ResponseEntity.status(400).body(response);
+        } catch (LibvirtException e) {
+            log.error("批量导入XML失败: {}", e.getMessage(), e);
+            response.put("success", false);
+            response.put("message", "批量导入XML失败: " + e.getMessage());
+            return ResponseEntity.status(500).body(response);
+        }
+    }
+}
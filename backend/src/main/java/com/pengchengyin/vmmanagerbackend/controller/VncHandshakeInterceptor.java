@@ -0,0 +1,67 @@
+package com.pengchengyin.vmmanagerbackend.controller;
+
+import com.pengchengyin.vmmanagerbackend.service.SupervisorService;
+import com.pengchengyin.vmmanagerbackend.service.VncProxyService;
+import lombok.extern.slf4j.Slf4j;
+import org.libvirt.LibvirtException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.server.HandshakeInterceptor;
+
+import java.net.InetSocketAddress;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * VNC WebSocket握手拦截器：从路径 /v1/vms/{name}/vnc 解析虚拟机名称并确定VNC目标地址
+ */
+@Slf4j
+@Component
+public class VncHandshakeInterceptor implements HandshakeInterceptor {
+
+    private static final Pattern PATH_PATTERN = Pattern.compile("/v1/vms/([^/]+)/vnc$");
+
+    @Autowired
+    private VncProxyService proxyService;
+
+    @Autowired
+    private SupervisorService supervisorService;
+
+    @Override
+    public boolean beforeHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                                   WebSocketHandler wsHandler, Map<String, Object> attributes) {
+        Matcher m = PATH_PATTERN.matcher(request.getURI().getPath());
+        if (!m.find()) {
+            response.setStatusCode(HttpStatus.NOT_FOUND);
+            return false;
+        }
+        String vmName = m.group(1);
+        // 因空闲被保存或暂停的虚拟机先恢复，再解析VNC端口
+        supervisorService.onAccess(vmName);
+        try {
+            InetSocketAddress target = proxyService.resolveTarget(vmName);
+            attributes.put(VncWebSocketHandler.ATTR_VM_NAME, vmName);
+            attributes.put(VncWebSocketHandler.ATTR_TARGET, target);
+            return true;
+        } catch (LibvirtException e) {
+            log.warn("VNC握手失败，虚拟机 {}: {}", vmName, e.getMessage());
+            response.setStatusCode(e.getMessage() != null && e.getMessage().contains("not found")
+                    ? HttpStatus.NOT_FOUND : HttpStatus.INTERNAL_SERVER_ERROR);
+            return false;
+        } catch (IllegalStateException e) {
+            log.warn("VNC握手失败，虚拟机 {}: {}", vmName, e.getMessage());
+            response.setStatusCode(HttpStatus.CONFLICT);
+            return false;
+        }
+    }
+
+    @Override
+    public void afterHandshake(ServerHttpRequest request, ServerHttpResponse response,
+                               WebSocketHandler wsHandler, Exception exception) {
+    }
+}
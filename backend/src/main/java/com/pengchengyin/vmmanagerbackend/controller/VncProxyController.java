@@ -0,0 +1,45 @@
+package com.pengchengyin.vmmanagerbackend.controller;
+
+import com.pengchengyin.vmmanagerbackend.model.VncSessionInfo;
+import com.pengchengyin.vmmanagerbackend.service.VncProxyService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * VNC代理会话REST API控制器
+ * 控制台连接地址为 ws(s)://{backend}/v1/vms/{name}/vnc
+ */
+@RestController
+@RequestMapping("/v1/vnc")
+@Tag(name = "VNC控制台代理", description = "VNC WebSocket代理会话及带宽统计")
+public class VncProxyController {
+
+    @Autowired
+    private VncProxyService proxyService;
+
+    /**
+     * 获取当前代理会话
+     */
+    @Operation(summary = "获取VNC代理会话", description = "返回当前所有VNC代理会话及各自的收发字节数和带宽")
+    @ApiResponse(responseCode = "200", description = "成功获取会话列表")
+    @GetMapping("/sessions")
+    public ResponseEntity<Map<String, Object>> listSessions() {
+        List<VncSessionInfo> sessions = proxyService.listSessions();
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", true);
+        response.put("data", sessions);
+        response.put("count", sessions.size());
+        response.put("totalSessions", proxyService.getTotalSessions());
+        return ResponseEntity.ok(response);
+    }
+}
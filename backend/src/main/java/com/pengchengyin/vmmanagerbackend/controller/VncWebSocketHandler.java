@@ -0,0 +1,75 @@
+package com.pengchengyin.vmmanagerbackend.controller;
+
+import com.pengchengyin.vmmanagerbackend.service.VncProxyService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.SubProtocolCapable;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.BinaryWebSocketHandler;
+
+import java.net.InetSocketAddress;
+import java.util.List;
+
+/**
+ * VNC控制台WebSocket处理器（兼容noVNC，支持 "binary" 子协议）
+ * 握手阶段由 {@link VncHandshakeInterceptor} 解析目标地址，连接建立后交给 {@link VncProxyService} 转发
+ */
+@Slf4j
+@Component
+public class VncWebSocketHandler extends BinaryWebSocketHandler implements SubProtocolCapable {
+
+    static final String ATTR_VM_NAME = "vncVmName";
+    static final String ATTR_TARGET = "vncTarget";
+    private static final String ATTR_PROXY_SESSION = "vncProxySession";
+
+    @Autowired
+    private VncProxyService proxyService;
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+        String vmName = (String) session.getAttributes().get(ATTR_VM_NAME);
+        InetSocketAddress target = (InetSocketAddress) session.getAttributes().get(ATTR_TARGET);
+        String proxySession = proxyService.open(session, vmName, target);
+        session.getAttributes().put(ATTR_PROXY_SESSION, proxySession);
+    }
+
+    @Override
+    protected void handleBinaryMessage(WebSocketSession session, BinaryMessage message) {
+        String proxySession = (String) session.getAttributes().get(ATTR_PROXY_SESSION);
+        if (proxySession != null) {
+            proxyService.toVnc(proxySession, message.getPayload());
+        }
+    }
+
+    @Override
+    public void handleTransportError(WebSocketSession session, Throwable exception) {
+        log.debug("VNC WebSocket传输错误: {}", exception.getMessage());
+        closeProxy(session, "WebSocket传输错误");
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+        closeProxy(session, "客户端关闭连接");
+    }
+
+    @Override
+    public boolean supportsPartialMessages() {
+        // 字节流转发不需要完整的WebSocket消息，分片直接写往VNC
+        return true;
+    }
+
+    @Override
+    public List<String> getSubProtocols() {
+        return List.of("binary");
+    }
+
+    private void closeProxy(WebSocketSession session, String reason) {
+        String proxySession = (String) session.getAttributes().get(ATTR_PROXY_SESSION);
+        if (proxySession != null) {
+            proxyService.close(proxySession, reason);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.pengchengyin.vmmanagerbackend.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 统一响应体
+ * 字段与控制器原先返回的HashMap一致（success/message/data/count），为空的字段不输出，
+ * 按具体类型序列化，避免每次响应构造Map，同时可按Accept协商为JSON或CBOR。
+ */
+@Schema(description = "统一响应体")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ApiResult<T> {
+
+    @Schema(description = "是否成功", example = "true")
+    private boolean success;
+
+    @Schema(description = "提示信息")
+    private String message;
+
+    @Schema(description = "响应数据")
+    private T data;
+
+    @Schema(description = "列表数据的条数", example = "20")
+    private Integer count;
+
+    public static <T> ApiResult<T> ok(T data) {
+        return ApiResult.<T>builder().success(true).data(data).build();
+    }
+
+    public static <T> ApiResult<List<T>> list(List<T> data) {
+        return ApiResult.<List<T>>builder().success(true).data(data).count(data.size()).build();
+    }
+
+    public static <T> ApiResult<T> error(String message) {
+        return ApiResult.<T>builder().success(false).message(message).build();
+    }
+}
@@ -0,0 +1,44 @@
+package com.pengchengyin.vmmanagerbackend.model;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 内存气球调整记录
+ */
+@Schema(description = "内存气球调整记录")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BalloonDecision {
+    @Schema(description = "时间（毫秒时间戳）", example = "1760000000000")
+    private long timestamp;
+
+    @Schema(description = "虚拟机名称", example = "dev-01")
+    private String vmName;
+
+    @Schema(description = "动作：RECLAIM（回收）/ GROW（归还）/ FAILED", example = "RECLAIM")
+    private String action;
+
+    @Schema(description = "调整前气球内存（KiB）", example = "4194304")
+    private long fromKiB;
+
+    @Schema(description = "调整后气球内存（KiB）", example = "3145728")
+    private long toKiB;
+
+    @Schema(description = "来宾空闲内存（KiB）", example = "2097152")
+    private long unusedKiB;
+
+    @Schema(description = "来宾可用内存（KiB）", example = "4096000")
+    private long availableKiB;
+
+    @Schema(description = "是否处于宿主机内存压力模式", example = "false")
+    private boolean hostPressure;
+
+    @Schema(description = "原因说明", example = "空闲内存比例 0.45 高于回收阈值 0.35")
+    private String reason;
+}
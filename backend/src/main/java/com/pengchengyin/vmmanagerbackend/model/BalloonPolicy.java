@@ -0,0 +1,24 @@
+package com.pengchengyin.vmmanagerbackend.model;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 单个虚拟机的内存气球策略
+ */
+@Schema(description = "虚拟机内存气球策略")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BalloonPolicy {
+    @Schema(description = "是否允许自动调整该虚拟机内存", example = "true", defaultValue = "true")
+    private boolean enabled = true;
+
+    @Schema(description = "保证的最小内存（MB），为空时使用全局默认值", example = "1024")
+    private Long minMb;
+
+    @Schema(description = "允许的最大内存（MB），为空时为虚拟机最大内存", example = "8192")
+    private Long maxMb;
+}
@@ -0,0 +1,13 @@
+package com.pengchengyin.vmmanagerbackend.model;
+
+/**
+ * 可按标签选择器批量执行的生命周期操作
+ */
+public enum BatchAction {
+    START,
+    SHUTDOWN,
+    FORCE_SHUTDOWN,
+    REBOOT,
+    SUSPEND,
+    RESUME
+}
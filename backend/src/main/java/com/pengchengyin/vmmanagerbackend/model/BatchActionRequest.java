@@ -0,0 +1,21 @@
+package com.pengchengyin.vmmanagerbackend.model;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+/**
+ * 按标签选择器批量操作请求
+ */
+@Data
+@Schema(description = "按标签选择器批量执行生命周期操作")
+public class BatchActionRequest {
+    @NotBlank(message = "选择器不能为空")
+    @Schema(description = "标签选择器（不允许为空，避免误操作全部虚拟机）", example = "env=prod,role!=db", required = true)
+    private String selector;
+
+    @NotNull(message = "操作不能为空")
+    @Schema(description = "操作", example = "START", required = true)
+    private BatchAction action;
+}
@@ -0,0 +1,26 @@
+package com.pengchengyin.vmmanagerbackend.model;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 批量操作中单台虚拟机的结果
+ */
+@Schema(description = "批量操作中单台虚拟机的结果")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchActionResult {
+    @Schema(description = "虚拟机名称", example = "web-001")
+    private String name;
+
+    @Schema(description = "是否成功", example = "true")
+    private boolean success;
+
+    @Schema(description = "失败原因")
+    private String error;
+}
@@ -0,0 +1,63 @@
+package com.pengchengyin.vmmanagerbackend.model;
+
+import java.util.List;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 克隆任务中单个克隆的进度
+ */
+@Schema(description = "单个克隆的进度")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CloneItem {
+
+    /**
+     * 克隆阶段
+     */
+    public enum Status {
+        PENDING,
+        /**
+         * 等待存储池复制名额或宿主机磁盘延迟回落
+         */
+        WAITING_IO,
+        COPYING,
+        DEFINING,
+        STARTING,
+        SUCCEEDED,
+        FAILED
+    }
+
+    @Schema(description = "克隆名称", example = "web-01")
+    private String name;
+
+    @Schema(description = "克隆UUID")
+    private String uuid;
+
+    @Schema(description = "当前阶段", example = "COPYING")
+    private volatile Status status;
+
+    @Schema(description = "克隆的磁盘路径")
+    private volatile List<String> disks;
+
+    @Schema(description = "已复制字节数（完整复制）", example = "1073741824")
+    private volatile long copiedBytes;
+
+    @Schema(description = "需要复制的字节数（完整复制，链接克隆为0）", example = "4294967296")
+    private volatile long totalBytes;
+
+    @Schema(description = "开始时间（毫秒时间戳）")
+    private volatile long startedAt;
+
+    @Schema(description = "结束时间（毫秒时间戳）")
+    private volatile long finishedAt;
+
+    @Schema(description = "失败原因")
+    private volatile String error;
+}
@@ -0,0 +1,59 @@
+package com.pengchengyin.vmmanagerbackend.model;
+
+import java.util.List;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 虚拟机克隆任务
+ */
+@Schema(description = "虚拟机克隆任务")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CloneJob {
+
+    /**
+     * 任务状态
+     */
+    public enum Status {
+        RUNNING,
+        SUCCEEDED,
+        /**
+         * 至少一个克隆失败
+         */
+        FAILED
+    }
+
+    @Schema(description = "任务ID", example = "3f0c1c9e-8d1e-4c55-9a57-0a3b3c1f2d4e")
+    private String id;
+
+    @Schema(description = "源虚拟机", example = "web-template")
+    private String source;
+
+    @Schema(description = "磁盘克隆方式", example = "LINKED")
+    private CloneRequest.Mode mode;
+
+    @Schema(description = "任务状态", example = "RUNNING")
+    private volatile Status status;
+
+    @Schema(description = "已成功的克隆数量", example = "48")
+    private volatile int succeeded;
+
+    @Schema(description = "已失败的克隆数量", example = "0")
+    private volatile int failed;
+
+    @Schema(description = "提交时间（毫秒时间戳）")
+    private long submittedAt;
+
+    @Schema(description = "结束时间（毫秒时间戳）")
+    private volatile long finishedAt;
+
+    @Schema(description = "各克隆的进度")
+    private List<CloneItem> clones;
+}
@@ -0,0 +1,54 @@
+package com.pengchengyin.vmmanagerbackend.model;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.Pattern;
+import lombok.Data;
+
+/**
+ * 克隆虚拟机请求
+ */
+@Schema(description = "克隆虚拟机请求参数")
+@Data
+public class CloneRequest {
+
+    /**
+     * 磁盘克隆方式
+     */
+    public enum Mode {
+        /**
+         * 以源磁盘为后备文件创建qcow2覆盖卷，只写元数据
+         */
+        LINKED,
+        /**
+         * 完整复制源磁盘
+         */
+        FULL
+    }
+
+    /**
+     * 磁盘克隆方式
+     */
+    @Schema(description = "磁盘克隆方式：LINKED（链接克隆，秒级完成）/ FULL（完整复制）", example = "LINKED", defaultValue = "LINKED")
+    private Mode mode = Mode.LINKED;
+
+    /**
+     * 克隆名称前缀
+     */
+    @Schema(description = "克隆名称前缀，克隆名称为 前缀+序号；为空时使用 源名称-", example = "web-")
+    @Pattern(regexp = "[A-Za-z0-9._-]*", message = "名称前缀只能包含字母、数字、点、下划线和短横线")
+    private String namePrefix;
+
+    /**
+     * 起始序号
+     */
+    @Schema(description = "起始序号", example = "1", defaultValue = "1")
+    @Min(value = 0, message = "起始序号不能为负数")
+    private int startIndex = 1;
+
+    /**
+     * 定义后是否启动
+     */
+    @Schema(description = "克隆定义完成后是否启动", example = "false", defaultValue = "false")
+    private boolean start = false;
+}
@@ -1,8 +1,14 @@
 package com.pengchengyin.vmmanagerbackend.model;
 
+import java.util.Map;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.pengchengyin.vmmanagerbackend.service.VmLabels;
 import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.AssertTrue;
 import jakarta.validation.constraints.NotBlank;
-import jakarta.validation.constraints.Min;
 import lombok.Data;
 
 /**
@@ -21,28 +27,37 @@ public class CreateVmRequest {
     /**
      * 内存大小（MB）
      */
-    @Schema(description = "内存大小（MB）", example = "2048", minimum = "512")
-    @Min(value = 512, message = "内存大小至少为512MB")
+    @Schema(description = "内存大小（MB），使用XML配置文件时不需要", example = "2048", minimum = "512")
     private int memoryMB;
 
     /**
      * CPU核心数
      */
-    @Schema(description = "CPU核心数", example = "2", minimum = "1")
-    @Min(value = 1, message = "CPU核心数至少为1")
+    @Schema(description = "CPU核心数，使用XML配置文件时不需要", example = "2", minimum = "1")
     private int cpuCount;
 
     /**
      * 磁盘镜像路径
      */
-    @Schema(description = "磁盘镜像路径（qcow2格式）", example = "/var/lib/libvirt/images/my-vm.qcow2", required = true)
-    @NotBlank(message = "磁盘镜像路径不能为空")
+    @Schema(description = "磁盘镜像路径（qcow2格式），与 storagePool + volume 二选一", example = "/var/lib/libvirt/images/my-vm.qcow2")
     private String diskImagePath;
 
+    /**
+     * 磁盘所在存储池
+     */
+    @Schema(description = "磁盘所在存储池（与 volume 一起使用，替代 diskImagePath）", example = "default")
+    private String storagePool;
+
+    /**
+     * 磁盘存储卷名称
+     */
+    @Schema(description = "磁盘存储卷名称（与 storagePool 一起使用，替代 diskImagePath）", example = "my-vm.qcow2")
+    private String volume;
+
     /**
      * XML配置文件路径（可选，如果提供则使用XML配置）
      */
-    @Schema(description = "XML配置文件路径（可选，如果提供则使用XML配置）", example = "/path/to/vm.xml")
+    @Schema(description = "XML配置文件路径（可选，如果提供则使用XML配置，内存、CPU和磁盘参数不生效）", example = "/path/to/vm.xml")
     private String xmlConfigPath;
 
     /**
@@ -56,5 +71,81 @@ public class CreateVmRequest {
      */
     @Schema(description = "网络名称", example = "default", defaultValue = "default")
     private String networkName = "default";
-}
 
+    /**
+     * 是否进行NUMA放置（为空时使用全局配置）
+     */
+    @Schema(description = "是否根据宿主机NUMA拓扑放置vCPU和内存（为空时使用全局配置）", example = "true")
+    private Boolean numaPlacement;
+
+    /**
+     * 是否为每个vCPU独占绑定一个逻辑CPU
+     */
+    @Schema(description = "是否为每个vCPU独占绑定一个逻辑CPU（适用于数据库等延迟敏感型虚拟机）", example = "false", defaultValue = "false")
+    private boolean dedicatedCpus = false;
+
+    /**
+     * 是否使用大页内存
+     */
+    @Schema(description = "是否使用大页内存（宿主机需预先配置hugepages）", example = "false", defaultValue = "false")
+    private boolean hugepages = false;
+
+    /**
+     * 虚拟机标签
+     */
+    @Schema(description = "虚拟机标签（写入domain XML的metadata，可用选择器查询）", example = "{\"env\": \"prod\", \"role\": \"web\"}")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Map<String, String> labels;
+
+    /**
+     * 磁盘与网络限速
+     */
+    @Schema(description = "磁盘与网络限速（写入domain XML的iotune/bandwidth）")
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    @Valid
+    private QosLimits qos;
+
+    /**
+     * 使用XML配置文件时内存、CPU和磁盘取自XML，不校验对应参数
+     */
+    @JsonIgnore
+    @Schema(hidden = true)
+    public boolean isFromXml() {
+        return xmlConfigPath != null && !xmlConfigPath.isEmpty();
+    }
+
+    @JsonIgnore
+    @Schema(hidden = true)
+    @AssertTrue(message = "内存大小至少为512MB")
+    public boolean isMemoryValid() {
+        return isFromXml() || memoryMB >= 512;
+    }
+
+    @JsonIgnore
+    @Schema(hidden = true)
+    @AssertTrue(message = "CPU核心数至少为1")
+    public boolean isCpuCountValid() {
+        return isFromXml() || cpuCount >= 1;
+    }
+
+    @JsonIgnore
+    @Schema(hidden = true)
+    @AssertTrue(message = "必须提供磁盘镜像路径，或同时提供存储池和存储卷名称")
+    public boolean isDiskSpecified() {
+        return isFromXml()
+                || (diskImagePath != null && !diskImagePath.isBlank())
+                || (storagePool != null && !storagePool.isBlank() && volume != null && !volume.isBlank());
+    }
+
+    @JsonIgnore
+    @Schema(hidden = true)
+    @AssertTrue(message = "标签不合法：最多64个，键和值只能包含字母、数字及 - _ .（键可带 前缀/），值最长63个字符")
+    public boolean isLabelsValid() {
+        try {
+            VmLabels.validate(labels);
+            return true;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+}
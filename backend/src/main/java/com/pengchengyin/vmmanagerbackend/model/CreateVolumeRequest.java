@@ -0,0 +1,68 @@
+package com.pengchengyin.vmmanagerbackend.model;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Pattern;
+import lombok.Data;
+
+/**
+ * 创建存储卷请求
+ */
+@Schema(description = "创建存储卷请求参数")
+@Data
+public class CreateVolumeRequest {
+
+    /**
+     * 预分配方式
+     */
+    public enum Preallocation {
+        /**
+         * 不预分配，按需增长（最快）
+         */
+        OFF,
+        /**
+         * 只预分配qcow2元数据
+         */
+        METADATA,
+        /**
+         * 预先分配全部空间
+         */
+        FULL
+    }
+
+    /**
+     * 存储卷名称
+     */
+    @Schema(description = "存储卷名称", example = "my-vm.qcow2", required = true)
+    @NotBlank(message = "存储卷名称不能为空")
+    @Pattern(regexp = "[A-Za-z0-9._-]+", message = "存储卷名称只能包含字母、数字、点、下划线和短横线")
+    private String name;
+
+    /**
+     * 容量（MB）
+     */
+    @Schema(description = "容量（MB）", example = "20480", minimum = "1")
+    @Min(value = 1, message = "容量至少为1MB")
+    private long capacityMB;
+
+    /**
+     * 镜像格式
+     */
+    @Schema(description = "镜像格式（qcow2、raw等）", example = "qcow2", defaultValue = "qcow2")
+    @Pattern(regexp = "[a-z0-9]+", message = "无效的镜像格式")
+    private String format = "qcow2";
+
+    /**
+     * 预分配方式
+     */
+    @Schema(description = "预分配方式：OFF不预分配，METADATA只预分配qcow2元数据，FULL预分配全部空间", example = "OFF", defaultValue = "OFF")
+    private Preallocation preallocation = Preallocation.OFF;
+
+    /**
+     * 基础镜像（可选）
+     */
+    @Schema(description = "同一存储池中作为后备文件的基础镜像卷名（可选，仅qcow2）", example = "ubuntu-24.04-base.qcow2")
+    @Pattern(regexp = "[A-Za-z0-9._-]+", message = "基础镜像卷名只能包含字母、数字、点、下划线和短横线")
+    private String backingVolume;
+}
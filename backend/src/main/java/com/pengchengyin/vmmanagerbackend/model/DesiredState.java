@@ -0,0 +1,42 @@
+package com.pengchengyin.vmmanagerbackend.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+/**
+ * 虚拟机集合的期望状态
+ */
+@Schema(description = "虚拟机集合的期望状态")
+@Data
+public class DesiredState {
+    /**
+     * 期望存在（或期望删除）的虚拟机
+     */
+    @Schema(description = "虚拟机期望状态列表，名称不能重复", required = true)
+    @NotNull(message = "虚拟机列表不能为空")
+    @Valid
+    private List<VmSpec> vms = new ArrayList<>();
+
+    /**
+     * 是否删除之前由调和器创建、但已不在列表中的虚拟机
+     */
+    @Schema(description = "是否删除之前由调和器创建、但已不在列表中的虚拟机", example = "false", defaultValue = "false")
+    private boolean prune = false;
+
+    /**
+     * 版本号（服务端在提交时分配）
+     */
+    @Schema(description = "版本号（服务端分配）", accessMode = Schema.AccessMode.READ_ONLY, example = "3")
+    private long generation;
+
+    /**
+     * 提交时间（毫秒时间戳）
+     */
+    @Schema(description = "提交时间（毫秒时间戳，服务端分配）", accessMode = Schema.AccessMode.READ_ONLY)
+    private long submittedAt;
+}
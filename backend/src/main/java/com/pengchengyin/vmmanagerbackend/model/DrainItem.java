@@ -0,0 +1,61 @@
+package com.pengchengyin.vmmanagerbackend.model;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 排空中单台虚拟机的进度与耗时
+ */
+@Schema(description = "排空中单台虚拟机的进度")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DrainItem {
+
+    /**
+     * 虚拟机阶段
+     */
+    public enum Status {
+        PENDING,
+        SAVING,
+        SAVED,
+        RESTORING,
+        RESTORED,
+        FAILED,
+        /**
+         * 无法托管保存（临时虚拟机），保持运行
+         */
+        SKIPPED
+    }
+
+    @Schema(description = "虚拟机名称", example = "web-01")
+    private String name;
+
+    @Schema(description = "优先级，越大越重要", example = "0")
+    private int priority;
+
+    @Schema(description = "虚拟机内存（MB），约等于保存的写盘量", example = "8192")
+    private long memoryMB;
+
+    @Schema(description = "当前阶段", example = "SAVED")
+    private volatile Status status;
+
+    @Schema(description = "开始保存时间（毫秒时间戳）")
+    private volatile long saveStartedAt;
+
+    @Schema(description = "保存耗时（毫秒）", example = "4200")
+    private volatile long saveMs;
+
+    @Schema(description = "开始恢复时间（毫秒时间戳）")
+    private volatile long restoreStartedAt;
+
+    @Schema(description = "恢复耗时（毫秒）", example = "2100")
+    private volatile long restoreMs;
+
+    @Schema(description = "失败或跳过的原因")
+    private volatile String error;
+}
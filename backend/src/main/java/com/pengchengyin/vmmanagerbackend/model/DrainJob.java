@@ -0,0 +1,69 @@
+package com.pengchengyin.vmmanagerbackend.model;
+
+import java.util.List;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 宿主机排空与恢复的进度
+ */
+@Schema(description = "宿主机排空与恢复的进度")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DrainJob {
+
+    /**
+     * 排空阶段
+     */
+    public enum Phase {
+        DRAINING,
+        /**
+         * 排空结束，等待恢复
+         */
+        DRAINED,
+        RESTORING,
+        RESTORED
+    }
+
+    @Schema(description = "任务ID")
+    private String id;
+
+    @Schema(description = "当前阶段", example = "DRAINED")
+    private volatile Phase phase;
+
+    @Schema(description = "同时保存的数量上限", example = "8")
+    private int concurrency;
+
+    @Schema(description = "开始排空时间（毫秒时间戳）")
+    private long startedAt;
+
+    @Schema(description = "排空总耗时（毫秒）", example = "38000")
+    private volatile long drainMs;
+
+    @Schema(description = "保存的平均写盘吞吐（MB/s，按虚拟机内存估算）", example = "850.5")
+    private volatile double drainThroughputMBps;
+
+    @Schema(description = "开始恢复时间（毫秒时间戳）")
+    private volatile long restoreStartedAt;
+
+    @Schema(description = "恢复总耗时（毫秒）", example = "52000")
+    private volatile long restoreMs;
+
+    @Schema(description = "已保存的虚拟机数量", example = "40")
+    private volatile int saved;
+
+    @Schema(description = "已恢复的虚拟机数量", example = "0")
+    private volatile int restored;
+
+    @Schema(description = "保存或恢复失败的虚拟机数量", example = "0")
+    private volatile int failed;
+
+    @Schema(description = "各虚拟机的进度，按保存顺序排列")
+    private List<DrainItem> items;
+}
@@ -0,0 +1,29 @@
+package com.pengchengyin.vmmanagerbackend.model;
+
+import java.util.List;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.Min;
+import lombok.Data;
+
+/**
+ * 宿主机排空请求
+ */
+@Schema(description = "宿主机排空请求参数")
+@Data
+public class DrainRequest {
+
+    /**
+     * 按重要程度排列的虚拟机
+     */
+    @Schema(description = "按重要程度从高到低排列的虚拟机名称（最后保存、最先恢复）；未列出的虚拟机按优先级标签排在其后",
+            example = "[\"db-01\", \"web-01\"]")
+    private List<String> order;
+
+    /**
+     * 同时保存的数量上限
+     */
+    @Schema(description = "同时托管保存的虚拟机数量（不超过 drain.max-concurrency），为空时使用配置值", example = "4")
+    @Min(value = 1, message = "并发数至少为1")
+    private Integer concurrency;
+}
@@ -0,0 +1,85 @@
+package com.pengchengyin.vmmanagerbackend.model;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 宿主机资源概览
+ */
+@Schema(description = "宿主机资源概览")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class HostInfo {
+    @Schema(description = "主机名", example = "kvm-host-01")
+    private String hostname;
+
+    @Schema(description = "Hypervisor类型", example = "QEMU")
+    private String hypervisorType;
+
+    @Schema(description = "Hypervisor版本", example = "8002000")
+    private long hypervisorVersion;
+
+    @Schema(description = "Libvirt版本", example = "10000000")
+    private long libvirtVersion;
+
+    @Schema(description = "CPU型号", example = "x86_64")
+    private String cpuModel;
+
+    @Schema(description = "逻辑CPU数量", example = "64")
+    private int cpus;
+
+    @Schema(description = "CPU频率（MHz）", example = "2600")
+    private int cpuMhz;
+
+    @Schema(description = "NUMA节点数", example = "2")
+    private int numaNodes;
+
+    @Schema(description = "每个NUMA节点的CPU插槽数", example = "1")
+    private int sockets;
+
+    @Schema(description = "每个插槽的核心数", example = "16")
+    private int cores;
+
+    @Schema(description = "每个核心的线程数", example = "2")
+    private int threads;
+
+    @Schema(description = "物理内存总量（字节）", example = "274877906944")
+    private long totalMemory;
+
+    @Schema(description = "空闲内存（字节）", example = "137438953472")
+    private long freeMemory;
+
+    @Schema(description = "各NUMA节点空闲内存（字节），下标为节点编号")
+    private List<Long> cellFreeMemory;
+
+    @Schema(description = "存储池容量列表")
+    private List<StoragePoolSummary> storagePools;
+
+    @Schema(description = "已定义虚拟机数量", example = "20")
+    private int domainCount;
+
+    @Schema(description = "运行中虚拟机数量", example = "12")
+    private int runningDomainCount;
+
+    @Schema(description = "所有虚拟机分配的vCPU总数", example = "48")
+    private int committedVcpus;
+
+    @Schema(description = "运行中虚拟机的vCPU总数", example = "32")
+    private int runningVcpus;
+
+    @Schema(description = "所有虚拟机的最大内存之和（字节）", example = "103079215104")
+    private long committedMemory;
+
+    @Schema(description = "运行中虚拟机当前内存之和（字节）", example = "68719476736")
+    private long runningMemory;
+
+    @Schema(description = "采样时间（毫秒时间戳）", example = "1760000000000")
+    private long sampledAt;
+}
@@ -0,0 +1,35 @@
+package com.pengchengyin.vmmanagerbackend.model;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 操作日志中的一次操作
+ */
+@Schema(description = "操作日志记录")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class JournaledOperation {
+    @Schema(description = "操作编号", example = "1024")
+    private long opId;
+
+    @Schema(description = "操作类型", example = "START")
+    private OperationType type;
+
+    @Schema(description = "虚拟机名称", example = "my-vm")
+    private String vmName;
+
+    @Schema(description = "开始时间（毫秒时间戳）")
+    private long startedAt;
+
+    @Schema(description = "重启恢复时的处理结果：RESUMED（已继续执行）/ COMPLETED（已完成）/ ABANDONED（已放弃）/ FAILED", example = "RESUMED")
+    private String outcome;
+
+    @Schema(description = "说明", example = "虚拟机未运行，已重新启动")
+    private String detail;
+}
@@ -0,0 +1,46 @@
+package com.pengchengyin.vmmanagerbackend.model;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * NUMA节点信息及当前分配情况
+ */
+@Schema(description = "NUMA节点信息及当前分配情况")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class NumaCellInfo {
+    @Schema(description = "节点编号", example = "0")
+    private int id;
+
+    @Schema(description = "节点内的逻辑CPU编号")
+    private List<Integer> cpus;
+
+    @Schema(description = "节点内存总量（字节）", example = "137438953472")
+    private long memory;
+
+    @Schema(description = "节点空闲内存（字节）", example = "68719476736")
+    private long freeMemory;
+
+    @Schema(description = "2MiB大页总数", example = "0")
+    private long hugepages2M;
+
+    @Schema(description = "已放置到该节点的运行中虚拟机vCPU总数", example = "16")
+    private int allocatedVcpus;
+
+    @Schema(description = "已放置到该节点的运行中虚拟机内存总量（字节）", example = "34359738368")
+    private long allocatedMemory;
+
+    @Schema(description = "已独占绑定的逻辑CPU编号")
+    private List<Integer> dedicatedCpus;
+
+    @Schema(description = "已放置到该节点的虚拟机名称")
+    private List<String> domains;
+}
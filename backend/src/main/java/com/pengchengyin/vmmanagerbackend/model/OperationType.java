@@ -0,0 +1,18 @@
+package com.pengchengyin.vmmanagerbackend.model;
+
+/**
+ * 操作日志中记录的虚拟机变更操作类型
+ */
+public enum OperationType {
+    CREATE,
+    DEFINE,
+    DESTROY,
+    START,
+    SHUTDOWN,
+    FORCE_SHUTDOWN,
+    REBOOT,
+    SUSPEND,
+    RESUME,
+    SAVE,
+    RESIZE
+}
@@ -0,0 +1,40 @@
+package com.pengchengyin.vmmanagerbackend.model;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * NUMA放置结果
+ */
+@Schema(description = "NUMA放置结果")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PlacementDecision {
+    @Schema(description = "虚拟机名称", example = "db-01")
+    private String vmName;
+
+    @Schema(description = "内存所在NUMA节点")
+    private List<Integer> nodeset;
+
+    @Schema(description = "vCPU可运行的逻辑CPU；独占模式下第i个元素为第i个vCPU绑定的CPU")
+    private List<Integer> cpuset;
+
+    @Schema(description = "是否为每个vCPU独占绑定一个逻辑CPU", example = "false")
+    private boolean dedicated;
+
+    @Schema(description = "内存策略", example = "strict")
+    private String memoryMode;
+
+    @Schema(description = "是否使用大页内存", example = "false")
+    private boolean hugepages;
+
+    @Schema(description = "放置是否发生变化（重平衡时有效）", example = "true")
+    private boolean changed;
+}
@@ -0,0 +1,44 @@
+package com.pengchengyin.vmmanagerbackend.model;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 自适应限速调整记录
+ */
+@Schema(description = "自适应限速调整记录")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class QosEvent {
+    @Schema(description = "时间（毫秒时间戳）", example = "1760000000000")
+    private long timestamp;
+
+    @Schema(description = "虚拟机名称", example = "backup-01")
+    private String vmName;
+
+    @Schema(description = "动作：THROTTLE（限速）/ TIGHTEN（收紧）/ RELEASE（解除）/ FAILED", example = "THROTTLE")
+    private String action;
+
+    @Schema(description = "宿主机磁盘平均延迟（毫秒）", example = "35.2")
+    private double hostLatencyMs;
+
+    @Schema(description = "限速前观测到的磁盘带宽（字节/秒）", example = "524288000")
+    private long observedBytesSec;
+
+    @Schema(description = "限速前观测到的磁盘IOPS", example = "4000")
+    private long observedIopsSec;
+
+    @Schema(description = "设置的带宽上限（字节/秒），0表示不限制", example = "262144000")
+    private long limitBytesSec;
+
+    @Schema(description = "设置的IOPS上限，0表示不限制", example = "2000")
+    private long limitIopsSec;
+
+    @Schema(description = "原因说明", example = "宿主机磁盘延迟 35.2ms 超过阈值 20.0ms")
+    private String reason;
+}
@@ -0,0 +1,36 @@
+package com.pengchengyin.vmmanagerbackend.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.PositiveOrZero;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 虚拟机静态限速（作用于每块磁盘和每块网卡，为空或0表示不限制）
+ */
+@Schema(description = "虚拟机磁盘与网络限速")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class QosLimits {
+    @Schema(description = "每块磁盘的读写总IOPS上限", example = "2000")
+    @PositiveOrZero
+    private Long totalIopsSec;
+
+    @Schema(description = "每块磁盘的读写总带宽上限（字节/秒）", example = "104857600")
+    @PositiveOrZero
+    private Long totalBytesSec;
+
+    @Schema(description = "每块网卡入方向平均带宽上限（KB/s）", example = "12500")
+    @PositiveOrZero
+    private Integer inboundKBps;
+
+    @Schema(description = "每块网卡出方向平均带宽上限（KB/s）", example = "12500")
+    @PositiveOrZero
+    private Integer outboundKBps;
+}
@@ -0,0 +1,47 @@
+package com.pengchengyin.vmmanagerbackend.model;
+
+import java.util.List;
+import java.util.Map;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 一次调和的汇总报告
+ */
+@Schema(description = "调和报告")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReconcileReport {
+    @Schema(description = "调和所依据的期望状态版本号", example = "3")
+    private long generation;
+
+    @Schema(description = "开始时间（毫秒时间戳）")
+    private long startedAt;
+
+    @Schema(description = "总耗时（毫秒）", example = "1830")
+    private long durationMs;
+
+    @Schema(description = "期望状态中的虚拟机数量", example = "1000")
+    private int total;
+
+    @Schema(description = "规格哈希与电源状态均一致、直接跳过的虚拟机数量", example = "990")
+    private int unchanged;
+
+    @Schema(description = "执行了操作的虚拟机数量", example = "10")
+    private int changed;
+
+    @Schema(description = "失败的虚拟机数量", example = "0")
+    private int failed;
+
+    @Schema(description = "各类操作次数")
+    private Map<String, Integer> actionCounts;
+
+    @Schema(description = "执行了操作或失败的虚拟机明细（跳过的不列出）")
+    private List<ReconcileResult> results;
+}
@@ -0,0 +1,34 @@
+package com.pengchengyin.vmmanagerbackend.model;
+
+import java.util.List;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 单台虚拟机在一次调和中执行的操作
+ */
+@Schema(description = "单台虚拟机的调和结果")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReconcileResult {
+    @Schema(description = "虚拟机名称", example = "web-001")
+    private String name;
+
+    @Schema(description = "已执行的操作：DEFINE / REDEFINE / START / STOP / UNDEFINE", example = "[\"DEFINE\", \"START\"]")
+    private List<String> actions;
+
+    @Schema(description = "是否成功", example = "true")
+    private boolean success;
+
+    @Schema(description = "失败原因")
+    private String error;
+
+    @Schema(description = "耗时（毫秒）", example = "42")
+    private long durationMs;
+}
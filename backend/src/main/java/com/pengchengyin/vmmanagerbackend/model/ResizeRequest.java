@@ -0,0 +1,48 @@
+package com.pengchengyin.vmmanagerbackend.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.AssertTrue;
+import jakarta.validation.constraints.Min;
+import lombok.Data;
+
+/**
+ * 调整虚拟机vCPU与内存请求
+ */
+@Schema(description = "调整虚拟机vCPU与内存请求参数")
+@Data
+public class ResizeRequest {
+    /**
+     * 目标vCPU数量
+     */
+    @Schema(description = "目标vCPU数量，为空表示不调整", example = "4", minimum = "1")
+    @Min(value = 1, message = "CPU核心数至少为1")
+    private Integer cpuCount;
+
+    /**
+     * 目标内存大小（MB）
+     */
+    @Schema(description = "目标内存大小（MB），为空表示不调整", example = "4096", minimum = "512")
+    @Min(value = 512, message = "内存大小至少为512MB")
+    private Integer memoryMB;
+
+    /**
+     * 无法在线生效时是否计划重启
+     */
+    @Schema(description = "超出热插拔上限或在线调整失败时，是否计划重启虚拟机使配置生效；为false时只写入配置，下次启动生效",
+            example = "true", defaultValue = "true")
+    private boolean allowRestart = true;
+
+    /**
+     * 计划重启时间
+     */
+    @Schema(description = "计划重启时间（毫秒时间戳），为空表示立即重启", example = "1760000000000")
+    private Long restartAt;
+
+    @JsonIgnore
+    @Schema(hidden = true)
+    @AssertTrue(message = "cpuCount 和 memoryMB 至少需要提供一个")
+    public boolean isTargetSpecified() {
+        return cpuCount != null || memoryMB != null;
+    }
+}
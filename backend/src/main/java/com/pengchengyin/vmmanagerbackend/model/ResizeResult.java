@@ -0,0 +1,52 @@
+package com.pengchengyin.vmmanagerbackend.model;
+
+import java.util.List;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 虚拟机vCPU与内存配置及调整结果
+ */
+@Schema(description = "虚拟机vCPU与内存配置及调整结果")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResizeResult {
+    @Schema(description = "虚拟机名称", example = "my-vm")
+    private String name;
+
+    @Schema(description = "持久化配置中的vCPU数量", example = "4")
+    private int cpuCount;
+
+    @Schema(description = "持久化配置中的vCPU上限（可在线热插拔到该数量）", example = "8")
+    private int maxCpuCount;
+
+    @Schema(description = "持久化配置中的内存大小（MB）", example = "4096")
+    private long memoryMB;
+
+    @Schema(description = "持久化配置中的内存上限（MB，可在线扩大到该大小）", example = "8192")
+    private long maxMemoryMB;
+
+    @Schema(description = "运行中的vCPU数量，虚拟机未运行时为空", example = "4")
+    private Integer liveCpuCount;
+
+    @Schema(description = "运行中的内存大小（MB），虚拟机未运行时为空", example = "4096")
+    private Long liveMemoryMB;
+
+    @Schema(description = "本次调整是否已在线生效", example = "true")
+    private boolean liveApplied;
+
+    @Schema(description = "是否需要重启才能完全生效", example = "false")
+    private boolean restartRequired;
+
+    @Schema(description = "已计划的重启时间（毫秒时间戳）", example = "1760000000000")
+    private Long restartScheduledAt;
+
+    @Schema(description = "调整过程说明")
+    private List<String> details;
+}
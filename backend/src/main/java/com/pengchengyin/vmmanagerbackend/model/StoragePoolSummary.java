@@ -0,0 +1,32 @@
+package com.pengchengyin.vmmanagerbackend.model;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 存储池容量信息
+ */
+@Schema(description = "存储池容量信息")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StoragePoolSummary {
+    @Schema(description = "存储池名称", example = "default")
+    private String name;
+
+    @Schema(description = "存储池状态", example = "VIR_STORAGE_POOL_RUNNING")
+    private String state;
+
+    @Schema(description = "总容量（字节）", example = "107374182400")
+    private long capacity;
+
+    @Schema(description = "已分配（字节）", example = "21474836480")
+    private long allocation;
+
+    @Schema(description = "可用空间（字节）", example = "85899345920")
+    private long available;
+}
@@ -0,0 +1,38 @@
+package com.pengchengyin.vmmanagerbackend.model;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 存储卷信息
+ */
+@Schema(description = "存储卷信息")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StorageVolumeInfo {
+    @Schema(description = "存储卷名称", example = "my-vm.qcow2")
+    private String name;
+
+    @Schema(description = "所属存储池", example = "default")
+    private String pool;
+
+    @Schema(description = "存储卷路径", example = "/var/lib/libvirt/images/my-vm.qcow2")
+    private String path;
+
+    @Schema(description = "存储卷类型", example = "VIR_STORAGE_VOL_FILE")
+    private String type;
+
+    @Schema(description = "镜像格式", example = "qcow2")
+    private String format;
+
+    @Schema(description = "容量（字节）", example = "21474836480")
+    private long capacity;
+
+    @Schema(description = "实际占用（字节）", example = "196608")
+    private long allocation;
+}
@@ -0,0 +1,33 @@
+package com.pengchengyin.vmmanagerbackend.model;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 守护动作记录
+ */
+@Schema(description = "守护动作记录")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SupervisorEvent {
+    @Schema(description = "时间（毫秒时间戳）", example = "1760000000000")
+    private long timestamp;
+
+    @Schema(description = "虚拟机名称", example = "dev-01")
+    private String vmName;
+
+    @Schema(description = "动作：CRASH_DETECTED / RESTART_SCHEDULED / RESTARTED / RESTART_FAILED / CRASH_LOOP / IDLE_SAVED / IDLE_SUSPENDED / WOKEN / FAILED",
+            example = "RESTARTED")
+    private String action;
+
+    @Schema(description = "当前窗口内的重启次数", example = "1")
+    private int restarts;
+
+    @Schema(description = "原因说明", example = "虚拟机意外关闭，5秒后重启")
+    private String reason;
+}
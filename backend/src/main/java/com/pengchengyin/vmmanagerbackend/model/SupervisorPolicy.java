@@ -0,0 +1,39 @@
+package com.pengchengyin.vmmanagerbackend.model;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 单个虚拟机的守护策略
+ */
+@Schema(description = "虚拟机守护策略")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SupervisorPolicy {
+
+    /**
+     * 空闲时的处理方式
+     */
+    public enum IdleAction {
+        /**
+         * 托管保存：内存写入磁盘后关闭，释放宿主机内存
+         */
+        SAVE,
+        /**
+         * 暂停：释放CPU，内存仍然占用
+         */
+        SUSPEND
+    }
+
+    @Schema(description = "崩溃或意外关闭后是否自动重启", example = "true", defaultValue = "true")
+    private boolean autoRestart = true;
+
+    @Schema(description = "空闲超过该时间（分钟）后保存或暂停，为空表示不处理空闲", example = "60")
+    private Integer idleAfterMinutes;
+
+    @Schema(description = "空闲处理方式：SAVE / SUSPEND", example = "SAVE", defaultValue = "SAVE")
+    private IdleAction idleAction = IdleAction.SAVE;
+}
@@ -7,6 +7,7 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * 虚拟机信息
@@ -100,5 +101,10 @@ public class VmInfo {
      */
     @Schema(description = "VNC端口（-1表示未知）", example = "5901")
     private Integer vncPort;
-}
 
+    /**
+     * 标签
+     */
+    @Schema(description = "标签")
+    private Map<String, String> labels;
+}
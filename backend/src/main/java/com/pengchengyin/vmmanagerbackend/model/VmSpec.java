@@ -0,0 +1,34 @@
+package com.pengchengyin.vmmanagerbackend.model;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+/**
+ * 单台虚拟机的期望状态：规格 + 电源状态
+ */
+@Schema(description = "虚拟机期望状态")
+@Data
+public class VmSpec {
+    /**
+     * 虚拟机规格（与创建虚拟机请求相同）
+     */
+    @Schema(description = "虚拟机规格", required = true)
+    @NotNull(message = "虚拟机规格不能为空")
+    @Valid
+    private CreateVmRequest spec;
+
+    /**
+     * 期望电源状态
+     */
+    @Schema(description = "期望电源状态：RUNNING（运行）/ SHUTOFF（已定义但关机）/ ABSENT（删除）", example = "RUNNING",
+            defaultValue = "RUNNING")
+    private PowerState state = PowerState.RUNNING;
+
+    public enum PowerState {
+        RUNNING,
+        SHUTOFF,
+        ABSENT
+    }
+}
@@ -0,0 +1,44 @@
+package com.pengchengyin.vmmanagerbackend.model;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * VNC代理会话信息
+ */
+@Schema(description = "VNC代理会话信息")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class VncSessionInfo {
+    @Schema(description = "会话ID", example = "7f1c2e")
+    private String id;
+
+    @Schema(description = "虚拟机名称", example = "my-vm")
+    private String vmName;
+
+    @Schema(description = "客户端地址", example = "10.0.0.8:51234")
+    private String clientAddress;
+
+    @Schema(description = "VNC目标地址", example = "127.0.0.1:5901")
+    private String target;
+
+    @Schema(description = "建立时间（毫秒时间戳）", example = "1760000000000")
+    private long startedAt;
+
+    @Schema(description = "发送给客户端的字节数", example = "10485760")
+    private long bytesToClient;
+
+    @Schema(description = "发送给VNC服务端的字节数", example = "20480")
+    private long bytesToVnc;
+
+    @Schema(description = "发送给客户端的平均带宽（字节/秒）", example = "524288")
+    private long clientBytesPerSecond;
+
+    @Schema(description = "当前积压等待写入VNC的字节数", example = "0")
+    private long pendingBytes;
+}
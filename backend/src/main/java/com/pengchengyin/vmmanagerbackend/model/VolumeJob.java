@@ -0,0 +1,55 @@
+package com.pengchengyin.vmmanagerbackend.model;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 存储卷创建任务
+ */
+@Schema(description = "存储卷创建任务")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class VolumeJob {
+
+    /**
+     * 任务状态
+     */
+    public enum Status {
+        PENDING,
+        RUNNING,
+        SUCCEEDED,
+        FAILED
+    }
+
+    @Schema(description = "任务ID", example = "3f0c1c9e-8d1e-4c55-9a57-0a3b3c1f2d4e")
+    private String id;
+
+    @Schema(description = "存储池", example = "default")
+    private String pool;
+
+    @Schema(description = "存储卷名称", example = "my-vm.qcow2")
+    private String volume;
+
+    @Schema(description = "任务状态", example = "SUCCEEDED")
+    private volatile Status status;
+
+    @Schema(description = "提交时间（毫秒时间戳）")
+    private long submittedAt;
+
+    @Schema(description = "开始执行时间（毫秒时间戳）")
+    private volatile long startedAt;
+
+    @Schema(description = "结束时间（毫秒时间戳）")
+    private volatile long finishedAt;
+
+    @Schema(description = "创建完成的存储卷信息")
+    private volatile StorageVolumeInfo result;
+
+    @Schema(description = "失败原因")
+    private volatile String error;
+}
@@ -0,0 +1,46 @@
+package com.pengchengyin.vmmanagerbackend.model;
+
+import java.util.List;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 一次批量导入的汇总报告
+ */
+@Schema(description = "批量导入domain XML报告")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class XmlImportReport {
+    @Schema(description = "导入目录", example = "/srv/vm-definitions")
+    private String directory;
+
+    @Schema(description = "是否为预演", example = "false")
+    private boolean dryRun;
+
+    @Schema(description = "匹配的文件数量", example = "300")
+    private int total;
+
+    @Schema(description = "校验通过的文件数量", example = "298")
+    private int valid;
+
+    @Schema(description = "校验未通过的文件数量", example = "2")
+    private int invalid;
+
+    @Schema(description = "已定义的虚拟机数量", example = "298")
+    private int defined;
+
+    @Schema(description = "定义失败的虚拟机数量", example = "0")
+    private int failed;
+
+    @Schema(description = "总耗时（毫秒）", example = "5120")
+    private long durationMs;
+
+    @Schema(description = "每个文件的结果（按文件名排序）")
+    private List<XmlImportResult> files;
+}
@@ -0,0 +1,32 @@
+package com.pengchengyin.vmmanagerbackend.model;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotBlank;
+import lombok.Data;
+
+/**
+ * 从目录批量导入domain XML的请求
+ */
+@Schema(description = "批量导入domain XML请求参数")
+@Data
+public class XmlImportRequest {
+
+    /**
+     * 存放domain XML文件的目录
+     */
+    @Schema(description = "存放domain XML文件的目录（服务端路径，不递归子目录）", example = "/srv/vm-definitions")
+    @NotBlank(message = "目录不能为空")
+    private String directory;
+
+    /**
+     * 文件名匹配模式
+     */
+    @Schema(description = "文件名匹配模式（glob）", example = "*.xml", defaultValue = "*.xml")
+    private String pattern = "*.xml";
+
+    /**
+     * 只解析和校验，不定义虚拟机
+     */
+    @Schema(description = "只解析和校验，不定义虚拟机", example = "true", defaultValue = "false")
+    private boolean dryRun = false;
+}
@@ -0,0 +1,54 @@
+package com.pengchengyin.vmmanagerbackend.model;
+
+import java.util.List;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 批量导入中单个XML文件的结果
+ */
+@Schema(description = "批量导入中单个XML文件的结果")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class XmlImportResult {
+
+    /**
+     * 文件处理结果
+     */
+    public enum Status {
+        /**
+         * 校验通过（预演模式下不定义）
+         */
+        VALID,
+        /**
+         * 校验未通过，未定义
+         */
+        INVALID,
+        DEFINED,
+        /**
+         * 校验通过但定义失败
+         */
+        FAILED
+    }
+
+    @Schema(description = "文件名", example = "web-01.xml")
+    private String file;
+
+    @Schema(description = "虚拟机名称", example = "web-01")
+    private String name;
+
+    @Schema(description = "虚拟机UUID")
+    private String uuid;
+
+    @Schema(description = "处理结果", example = "DEFINED")
+    private Status status;
+
+    @Schema(description = "校验或定义失败的原因")
+    private List<String> errors;
+}
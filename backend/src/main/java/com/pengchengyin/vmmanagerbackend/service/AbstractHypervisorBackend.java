@@ -0,0 +1,59 @@
+package com.pengchengyin.vmmanagerbackend.service;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Hypervisor后端公共部分：生命周期事件在单独的事件线程上按顺序分发，调用方不会被监听器阻塞
+ */
+@Slf4j
+abstract class AbstractHypervisorBackend implements HypervisorBackend {
+
+    private final List<LifecycleListener> listeners = new CopyOnWriteArrayList<>();
+    private final ExecutorService eventThread = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "hypervisor-events");
+        t.setDaemon(true);
+        return t;
+    });
+
+    @Override
+    public void addLifecycleListener(LifecycleListener listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public boolean usesNativeEvents() {
+        return false;
+    }
+
+    @Override
+    public boolean isEventLoopRunning() {
+        return true;
+    }
+
+    protected void emit(String name, LifecycleEventType type) {
+        if (listeners.isEmpty()) {
+            return;
+        }
+        LifecycleEvent event = new LifecycleEvent(name, type, System.currentTimeMillis());
+        eventThread.execute(() -> {
+            for (LifecycleListener listener : listeners) {
+                try {
+                    listener.onEvent(event);
+                } catch (RuntimeException e) {
+                    log.warn("生命周期事件处理失败: {} {}: {}", name, type, e.getMessage());
+                }
+            }
+        });
+    }
+
+    @PreDestroy
+    public void stopEvents() {
+        eventThread.shutdownNow();
+    }
+}
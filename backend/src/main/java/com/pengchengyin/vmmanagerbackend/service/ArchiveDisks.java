@@ -0,0 +1,178 @@
+package com.pengchengyin.vmmanagerbackend.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.transform.OutputKeys;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+
+/**
+ * 导入/导出归档中domain.xml与磁盘条目的对应关系
+ * 按文档顺序取 {@code <disk>} 中 {@code <source file>} 引用的文件（含光驱），第i个对应归档条目 disks/{i}-{文件名}；
+ * 块设备、存储池卷和网络磁盘不在归档中，导入时保持原样。导出和导入共用同一次DOM解析的结果。
+ */
+final class ArchiveDisks {
+
+    private static final byte[] QCOW2_MAGIC = {'Q', 'F', 'I', (byte) 0xfb};
+
+    private final Document document;
+    private final String name;
+    private final List<Disk> disks;
+
+    /**
+     * 归档中的一个磁盘
+     *
+     * @param target  客户机中的设备名（如 vda），XML中没有时为null
+     * @param path    源文件路径
+     * @param backing domain XML中记录的后备文件路径，没有后备链时为null
+     */
+    record Disk(String target, String path, String backing, Element source) {
+    }
+
+    private ArchiveDisks(Document document, String name, List<Disk> disks) {
+        this.document = document;
+        this.name = name;
+        this.disks = disks;
+    }
+
+    /**
+     * 解析domain XML，XML格式错误或缺少名称时抛出IllegalArgumentException
+     */
+    static ArchiveDisks parse(String xml) {
+        Document document;
+        try {
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+            document = factory.newDocumentBuilder().parse(new InputSource(new StringReader(xml)));
+        } catch (SAXException e) {
+            throw new IllegalArgumentException("domain.xml 格式错误: " + e.getMessage());
+        } catch (ParserConfigurationException | IOException e) {
+            throw new IllegalStateException("XML解析器初始化失败: " + e.getMessage(), e);
+        }
+        Element root = document.getDocumentElement();
+        if (!"domain".equals(root.getTagName())) {
+            throw new IllegalArgumentException("domain.xml 根元素必须是 <domain>");
+        }
+        Element name = child(root, "name");
+        if (name == null || name.getTextContent().isBlank()) {
+            throw new IllegalArgumentException("domain.xml 缺少虚拟机名称");
+        }
+
+        List<Disk> disks = new ArrayList<>();
+        NodeList nodes = root.getElementsByTagName("disk");
+        for (int i = 0; i < nodes.getLength(); i++) {
+            Element disk = (Element) nodes.item(i);
+            Element source = child(disk, "source");
+            if (source == null || source.getAttribute("file").isEmpty()) {
+                continue;
+            }
+            Element target = child(disk, "target");
+            String dev = target == null || target.getAttribute("dev").isEmpty() ? null : target.getAttribute("dev");
+            disks.add(new Disk(dev, source.getAttribute("file"), backingPath(disk), source));
+        }
+        return new ArchiveDisks(document, name.getTextContent().trim(), disks);
+    }
+
+    String name() {
+        return name;
+    }
+
+    List<Disk> disks() {
+        return disks;
+    }
+
+    /**
+     * 将第i个磁盘的源文件改为 paths[i]，返回新的XML
+     */
+    String withPaths(List<Path> paths) {
+        if (paths.size() != disks.size()) {
+            throw new IllegalArgumentException("归档中有 " + paths.size() + " 个磁盘条目，domain.xml 引用了 "
+                    + disks.size() + " 个磁盘文件");
+        }
+        for (int i = 0; i < disks.size(); i++) {
+            disks.get(i).source().setAttribute("file", paths.get(i).toString());
+        }
+        try {
+            TransformerFactory factory = TransformerFactory.newInstance();
+            factory.setAttribute(XMLConstants.ACCESS_EXTERNAL_DTD, "");
+            factory.setAttribute(XMLConstants.ACCESS_EXTERNAL_STYLESHEET, "");
+            Transformer transformer = factory.newTransformer();
+            transformer.setOutputProperty(OutputKeys.OMIT_XML_DECLARATION, "yes");
+            StringWriter out = new StringWriter();
+            transformer.transform(new DOMSource(document), new StreamResult(out));
+            return out.toString();
+        } catch (TransformerException e) {
+            throw new IllegalStateException("XML序列化失败: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 本地qcow2镜像头中是否记录了后备文件（持久化配置通常不带 {@code <backingStore>}，需要看镜像本身）
+     */
+    static boolean hasBackingFile(Path file) throws IOException {
+        byte[] header = new byte[16];
+        try (InputStream in = Files.newInputStream(file)) {
+            if (in.readNBytes(header, 0, header.length) < header.length) {
+                return false;
+            }
+        }
+        for (int i = 0; i < QCOW2_MAGIC.length; i++) {
+            if (header[i] != QCOW2_MAGIC[i]) {
+                return false;
+            }
+        }
+        // 偏移8处的8字节为后备文件名在镜像中的偏移（大端），为0表示没有后备文件
+        for (int i = 8; i < 16; i++) {
+            if (header[i] != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * {@code <backingStore>} 下有 {@code <source>} 时为后备文件路径；空的 {@code <backingStore/>} 表示链到此为止
+     */
+    private static String backingPath(Element disk) {
+        Element backingStore = child(disk, "backingStore");
+        Element source = backingStore == null ? null : child(backingStore, "source");
+        if (source == null) {
+            return null;
+        }
+        for (String attribute : List.of("file", "dev", "name")) {
+            if (!source.getAttribute(attribute).isEmpty()) {
+                return source.getAttribute(attribute);
+            }
+        }
+        return backingStore.getAttribute("type");
+    }
+
+    private static Element child(Element parent, String tagName) {
+        for (Node node = parent.getFirstChild(); node != null; node = node.getNextSibling()) {
+            if (node instanceof Element element && tagName.equals(element.getTagName())) {
+                return element;
+            }
+        }
+        return null;
+    }
+}
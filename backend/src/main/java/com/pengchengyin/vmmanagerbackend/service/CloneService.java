@@ -0,0 +1,433 @@
+package com.pengchengyin.vmmanagerbackend.service;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.libvirt.LibvirtException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import com.pengchengyin.vmmanagerbackend.config.CloneConfig;
+import com.pengchengyin.vmmanagerbackend.model.CloneItem;
+import com.pengchengyin.vmmanagerbackend.model.CloneJob;
+import com.pengchengyin.vmmanagerbackend.model.CloneRequest;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 虚拟机克隆服务
+ * 从已关机的源虚拟机复制出多台虚拟机：改写domain XML中的名称、UUID、MAC地址和磁盘路径，
+ * 磁盘按 LINKED（qcow2覆盖卷，后备文件为源磁盘）或 FULL（存储卷完整复制）克隆。
+ * 各克隆并行执行；完整复制按存储池限制并发，并在宿主机磁盘延迟过高时暂缓开始新的复制。
+ * 链接克隆前先为源虚拟机自身也创建覆盖卷，使作为后备文件的源磁盘此后不再被写入。
+ */
+@Slf4j
+@Service
+public class CloneService {
+
+    private static final Pattern DISK_BLOCK = Pattern.compile("<disk\\b[^>]*>.*?</disk>", Pattern.DOTALL);
+    private static final Pattern DISK_DEVICE = Pattern.compile("<disk\\b[^>]*device=['\"]disk['\"]");
+    private static final Pattern DISK_FILE = Pattern.compile("<source\\s+file=['\"]([^'\"]+)['\"]");
+    private static final Pattern DISK_TARGET = Pattern.compile("<target\\s+dev=['\"]([^'\"]+)['\"]");
+    private static final Pattern SHARED_DISK = Pattern.compile("<readonly\\s*/>|<shareable\\s*/>");
+    private static final Pattern NAME_ELEMENT = Pattern.compile("<name>[^<]*</name>");
+    private static final Pattern UUID_ELEMENT = Pattern.compile("<uuid>[^<]*</uuid>");
+    private static final Pattern MAC_ELEMENT = Pattern.compile("<mac\\s+address=['\"][^'\"]*['\"]\\s*/>");
+    private static final Pattern CPUTUNE_BLOCK = Pattern.compile("\\s*<cputune>.*?</cputune>", Pattern.DOTALL);
+    private static final Pattern NUMATUNE_BLOCK = Pattern.compile("\\s*<numatune>.*?</numatune>", Pattern.DOTALL);
+    private static final Pattern GRAPHICS_TAG = Pattern.compile("<graphics\\b[^>]*>");
+    private static final DateTimeFormatter SNAPSHOT_SUFFIX = DateTimeFormatter.ofPattern("yyyyMMddHHmmss");
+
+    @Autowired
+    private CloneConfig cloneConfig;
+
+    @Autowired
+    private HypervisorBackend hypervisor;
+
+    @Autowired
+    private VirtualMachineService vmService;
+
+    @Autowired
+    private StoragePoolService storageService;
+
+    @Autowired
+    private HostDiskLatencyService latencyService;
+
+    private final Map<String, CloneJob> jobs = new ConcurrentHashMap<>();
+    private final Map<String, CloneJob> finishedJobs = new LinkedHashMap<>();
+    private final Map<String, Semaphore> poolCopySlots = new ConcurrentHashMap<>();
+    private final Map<CloneItem, Copy> copies = new ConcurrentHashMap<>();
+    private ExecutorService executor;
+    private ScheduledExecutorService progressPoller;
+
+    /**
+     * 正在进行的完整复制，用于刷新进度
+     *
+     * @param copiedBefore 该克隆此前已复制完成的磁盘字节数
+     */
+    private record Copy(String pool, String volume, long copiedBefore) {
+    }
+
+    /**
+     * 需要克隆的源磁盘
+     */
+    private record SourceDisk(String target, StoragePoolService.VolumeRef volume) {
+    }
+
+    @PostConstruct
+    public void init() {
+        executor = Executors.newFixedThreadPool(Math.max(1, cloneConfig.getThreads()), r -> {
+            Thread t = new Thread(r, "vm-clone");
+            t.setDaemon(true);
+            return t;
+        });
+        progressPoller = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "vm-clone-progress");
+            t.setDaemon(true);
+            return t;
+        });
+        long interval = cloneConfig.getProgressIntervalMs();
+        progressPoller.scheduleWithFixedDelay(this::refreshProgress, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+        progressPoller.shutdownNow();
+    }
+
+    /**
+     * 提交克隆任务
+     * 源虚拟机状态、磁盘和克隆名称的校验同步完成，磁盘克隆和定义在后台并行执行。
+     */
+    public CloneJob submit(String source, int count, CloneRequest request) throws LibvirtException {
+        if (count < 1 || count > cloneConfig.getMaxCount()) {
+            throw new IllegalArgumentException("克隆数量必须在 1 到 " + cloneConfig.getMaxCount() + " 之间");
+        }
+        HypervisorBackend.DomainSnapshot domain = hypervisor.getDomain(source);
+        if (domain.active()) {
+            throw new IllegalStateException("源虚拟机 " + source + " 正在运行，请先关机后再克隆");
+        }
+        boolean linked = request.getMode() == CloneRequest.Mode.LINKED;
+        if (linked && hypervisor.hasManagedSave(source)) {
+            // 保存的状态恢复时仍使用原磁盘，会写入作为后备文件的源磁盘
+            throw new IllegalStateException("源虚拟机 " + source + " 存在托管保存的状态，请先启动并关机后再链接克隆");
+        }
+        String xml = hypervisor.findDefinitionXml(source);
+        List<SourceDisk> disks = sourceDisks(xml);
+
+        String prefix = request.getNamePrefix() == null || request.getNamePrefix().isEmpty()
+                ? source + "-" : request.getNamePrefix();
+        List<String> names = new ArrayList<>();
+        List<String> conflicts = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            String name = prefix + (request.getStartIndex() + i);
+            if (hypervisor.findDomain(name) != null) {
+                conflicts.add(name);
+            }
+            names.add(name);
+        }
+        if (!conflicts.isEmpty()) {
+            throw new IllegalStateException("虚拟机已存在: " + String.join(", ", conflicts));
+        }
+
+        if (linked) {
+            protectSource(source, xml, disks);
+        }
+
+        List<CloneItem> items = new ArrayList<>();
+        for (String name : names) {
+            items.add(CloneItem.builder()
+                    .name(name)
+                    .uuid(UUID.randomUUID().toString())
+                    .status(CloneItem.Status.PENDING)
+                    .build());
+        }
+        CloneJob job = CloneJob.builder()
+                .id(UUID.randomUUID().toString())
+                .source(source)
+                .mode(request.getMode())
+                .status(CloneJob.Status.RUNNING)
+                .submittedAt(System.currentTimeMillis())
+                .clones(items)
+                .build();
+        jobs.put(job.getId(), job);
+        log.info("克隆任务 {} 已提交: {} -> {} 台（{}）", job.getId(), source, count, request.getMode());
+        for (CloneItem item : items) {
+            executor.execute(() -> runClone(job, item, xml, disks, request));
+        }
+        return job;
+    }
+
+    public CloneJob getJob(String id) {
+        CloneJob job = jobs.get(id);
+        if (job != null) {
+            return job;
+        }
+        synchronized (finishedJobs) {
+            return finishedJobs.get(id);
+        }
+    }
+
+    public List<CloneJob> listJobs() {
+        List<CloneJob> result = new ArrayList<>(jobs.values());
+        synchronized (finishedJobs) {
+            result.addAll(finishedJobs.values());
+        }
+        return result;
+    }
+
+    /**
+     * 源虚拟机中可克隆的磁盘：device='disk' 的文件磁盘，只读和共享磁盘由克隆直接共用
+     */
+    private List<SourceDisk> sourceDisks(String xml) {
+        List<SourceDisk> disks = new ArrayList<>();
+        Matcher block = DISK_BLOCK.matcher(xml);
+        while (block.find()) {
+            String disk = block.group();
+            if (!DISK_DEVICE.matcher(disk).find() || SHARED_DISK.matcher(disk).find()) {
+                continue;
+            }
+            Matcher file = DISK_FILE.matcher(disk);
+            Matcher target = DISK_TARGET.matcher(disk);
+            if (!file.find() || !target.find()) {
+                throw new IllegalArgumentException("只支持克隆文件类型的磁盘");
+            }
+            try {
+                disks.add(new SourceDisk(target.group(1), storageService.resolveVolume(file.group(1))));
+            } catch (LibvirtException e) {
+                throw new IllegalStateException("磁盘 " + file.group(1) + " 不属于任何存储池，无法克隆");
+            }
+        }
+        return disks;
+    }
+
+    /**
+     * 为源虚拟机的磁盘创建覆盖卷并重新定义，原磁盘此后只作为后备文件被读取
+     */
+    private void protectSource(String source, String xml, List<SourceDisk> disks) throws LibvirtException {
+        if (disks.isEmpty()) {
+            return;
+        }
+        String suffix = LocalDateTime.now().format(SNAPSHOT_SUFFIX);
+        String updated = xml;
+        for (SourceDisk disk : disks) {
+            StoragePoolService.VolumeRef overlay = storageService.createOverlay(disk.volume(),
+                    source + "-" + disk.target() + "-" + suffix + ".qcow2");
+            updated = replaceDiskPath(updated, disk.volume().path(), overlay.path(), "qcow2");
+        }
+        vmService.defineVmXml(source, updated);
+        log.info("源虚拟机 {} 已切换到新的覆盖卷，原磁盘作为链接克隆的后备文件", source);
+    }
+
+    private void runClone(CloneJob job, CloneItem item, String sourceXml, List<SourceDisk> disks, CloneRequest request) {
+        item.setStartedAt(System.currentTimeMillis());
+        List<StoragePoolService.VolumeRef> created = new ArrayList<>();
+        boolean defined = false;
+        try {
+            String xml = sourceXml;
+            List<String> paths = new ArrayList<>();
+            long copiedBefore = 0;
+            if (request.getMode() == CloneRequest.Mode.FULL) {
+                item.setTotalBytes(disks.stream().mapToLong(d -> d.volume().allocation()).sum());
+            }
+            for (SourceDisk disk : disks) {
+                String volumeName = item.getName() + "-" + disk.target();
+                StoragePoolService.VolumeRef clone;
+                if (request.getMode() == CloneRequest.Mode.LINKED) {
+                    item.setStatus(CloneItem.Status.COPYING);
+                    clone = storageService.createOverlay(disk.volume(), volumeName + ".qcow2");
+                } else {
+                    clone = fullCopy(item, disk.volume(), volumeName + extension(disk.volume().format()), copiedBefore);
+                    copiedBefore += disk.volume().allocation();
+                    item.setCopiedBytes(copiedBefore);
+                }
+                created.add(clone);
+                paths.add(clone.path());
+                xml = replaceDiskPath(xml, disk.volume().path(), clone.path(), clone.format());
+            }
+            item.setDisks(paths);
+
+            item.setStatus(CloneItem.Status.DEFINING);
+            vmService.defineVmXml(item.getName(), rewriteIdentity(xml, job.getSource(), item));
+            defined = true;
+            if (request.isStart()) {
+                item.setStatus(CloneItem.Status.STARTING);
+                vmService.startVm(item.getName());
+            }
+            item.setStatus(CloneItem.Status.SUCCEEDED);
+        } catch (LibvirtException | RuntimeException e) {
+            log.error("克隆 {} -> {} 失败: {}", job.getSource(), item.getName(), e.getMessage());
+            item.setError(e.getMessage());
+            item.setStatus(CloneItem.Status.FAILED);
+            if (!defined) {
+                deleteQuietly(created);
+            }
+        } finally {
+            copies.remove(item);
+            item.setFinishedAt(System.currentTimeMillis());
+            finishItem(job, item);
+        }
+    }
+
+    /**
+     * 完整复制一块磁盘：先取得存储池的复制名额，宿主机磁盘延迟过高时等待回落
+     */
+    private StoragePoolService.VolumeRef fullCopy(CloneItem item, StoragePoolService.VolumeRef source, String volumeName,
+                                                  long copiedBefore) throws LibvirtException {
+        item.setStatus(CloneItem.Status.WAITING_IO);
+        Semaphore slots = poolCopySlots.computeIfAbsent(source.pool(),
+                k -> new Semaphore(Math.max(1, cloneConfig.getFullCopiesPerPool()), true));
+        try {
+            slots.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("等待复制名额时被中断", e);
+        }
+        try {
+            awaitDiskLatency();
+            item.setStatus(CloneItem.Status.COPYING);
+            copies.put(item, new Copy(source.pool(), volumeName, copiedBefore));
+            return storageService.copyVolume(source, volumeName);
+        } finally {
+            copies.remove(item);
+            slots.release();
+        }
+    }
+
+    private void awaitDiskLatency() {
+        long deadline = System.currentTimeMillis() + cloneConfig.getLatencyWaitSeconds() * 1000L;
+        while (latencyService.getHostLatencyMs() > cloneConfig.getMaxHostLatencyMs() && System.currentTimeMillis() < deadline) {
+            try {
+                Thread.sleep(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("等待磁盘延迟回落时被中断", e);
+            }
+        }
+    }
+
+    private void refreshProgress() {
+        copies.forEach((item, copy) -> {
+            long allocation = storageService.getAllocation(copy.pool(), copy.volume());
+            if (allocation > 0) {
+                item.setCopiedBytes(Math.min(item.getTotalBytes(), copy.copiedBefore() + allocation));
+            }
+        });
+    }
+
+    /**
+     * 改写名称、UUID和MAC地址；去掉NUMA绑定，固定VNC端口改为自动分配，串口日志改为克隆自己的文件
+     */
+    private String rewriteIdentity(String xml, String source, CloneItem item) {
+        xml = NAME_ELEMENT.matcher(xml).replaceFirst(Matcher.quoteReplacement("<name>" + item.getName() + "</name>"));
+        xml = UUID_ELEMENT.matcher(xml).replaceFirst(Matcher.quoteReplacement("<uuid>" + item.getUuid() + "</uuid>"));
+        Matcher mac = MAC_ELEMENT.matcher(xml);
+        StringBuilder sb = new StringBuilder();
+        while (mac.find()) {
+            mac.appendReplacement(sb, Matcher.quoteReplacement("<mac address='" + randomMac() + "'/>"));
+        }
+        mac.appendTail(sb);
+        xml = sb.toString();
+        xml = CPUTUNE_BLOCK.matcher(xml).replaceAll("");
+        xml = NUMATUNE_BLOCK.matcher(xml).replaceAll("");
+        Matcher graphics = GRAPHICS_TAG.matcher(xml);
+        sb = new StringBuilder();
+        while (graphics.find()) {
+            String tag = graphics.group()
+                    .replaceAll("\\bport=['\"]\\d+['\"]", "port='-1'")
+                    .replaceAll("autoport=['\"]no['\"]", "autoport='yes'");
+            graphics.appendReplacement(sb, Matcher.quoteReplacement(tag));
+        }
+        graphics.appendTail(sb);
+        return sb.toString().replace("/" + source + "-serial0.log'", "/" + item.getName() + "-serial0.log'");
+    }
+
+    /**
+     * 替换磁盘的源文件路径，并同步磁盘驱动的格式
+     */
+    private static String replaceDiskPath(String xml, String oldPath, String newPath, String format) {
+        Matcher block = DISK_BLOCK.matcher(xml);
+        StringBuilder sb = new StringBuilder();
+        Pattern source = Pattern.compile("<source\\s+file=['\"]" + Pattern.quote(oldPath) + "['\"]");
+        while (block.find()) {
+            String disk = block.group();
+            if (source.matcher(disk).find()) {
+                disk = source.matcher(disk).replaceFirst(Matcher.quoteReplacement("<source file='" + newPath + "'"))
+                        .replaceFirst("(<driver\\b[^>]*\\btype=)['\"][^'\"]*['\"]", "$1'" + format + "'");
+            }
+            block.appendReplacement(sb, Matcher.quoteReplacement(disk));
+        }
+        block.appendTail(sb);
+        return sb.toString();
+    }
+
+    private static String extension(String format) {
+        return "raw".equals(format) ? ".img" : "." + format;
+    }
+
+    /**
+     * 随机生成QEMU/KVM前缀（52:54:00）的MAC地址
+     */
+    private static String randomMac() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return String.format("52:54:00:%02x:%02x:%02x", random.nextInt(256), random.nextInt(256), random.nextInt(256));
+    }
+
+    private void deleteQuietly(List<StoragePoolService.VolumeRef> volumes) {
+        for (StoragePoolService.VolumeRef volume : volumes) {
+            try {
+                storageService.deleteVolume(volume.pool(), volume.volume());
+            } catch (LibvirtException e) {
+                log.warn("删除克隆失败遗留的存储卷 {}/{} 失败: {}", volume.pool(), volume.volume(), e.getMessage());
+            }
+        }
+    }
+
+    private void finishItem(CloneJob job, CloneItem item) {
+        synchronized (job) {
+            if (item.getStatus() == CloneItem.Status.SUCCEEDED) {
+                job.setSucceeded(job.getSucceeded() + 1);
+            } else {
+                job.setFailed(job.getFailed() + 1);
+            }
+            if (job.getSucceeded() + job.getFailed() < job.getClones().size()) {
+                return;
+            }
+            job.setFinishedAt(System.currentTimeMillis());
+            job.setStatus(job.getFailed() == 0 ? CloneJob.Status.SUCCEEDED : CloneJob.Status.FAILED);
+        }
+        log.info("克隆任务 {} 完成: 成功 {} 台，失败 {} 台，耗时 {}ms", job.getId(), job.getSucceeded(), job.getFailed(),
+                job.getFinishedAt() - job.getSubmittedAt());
+        retire(job);
+    }
+
+    /**
+     * 已完成的任务移入有界的历史记录
+     */
+    private void retire(CloneJob job) {
+        synchronized (finishedJobs) {
+            finishedJobs.put(job.getId(), job);
+            jobs.remove(job.getId());
+            while (finishedJobs.size() > cloneConfig.getJobHistory()) {
+                finishedJobs.remove(finishedJobs.keySet().iterator().next());
+            }
+        }
+    }
+}
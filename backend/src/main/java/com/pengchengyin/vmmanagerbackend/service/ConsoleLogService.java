@@ -0,0 +1,329 @@
+package com.pengchengyin.vmmanagerbackend.service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.libvirt.LibvirtException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.pengchengyin.vmmanagerbackend.config.ConsoleLogConfig;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 串口控制台日志服务
+ * QEMU通过domain XML中 serial/log 元素把串口输出写入日志文件，本服务在少量线程上轮询这些文件，
+ * 把新输出追加到每个虚拟机的内存映射环形文件中（大小固定），并推送给follow模式的订阅者。
+ */
+@Slf4j
+@Service
+public class ConsoleLogService {
+
+    private static final Pattern SERIAL_LOG_PATTERN = Pattern.compile(
+            "<serial[^>]*>.*?<log\\s+file=['\"]([^'\"]+)['\"]", Pattern.DOTALL);
+    private static final int READ_CHUNK = 64 * 1024;
+
+    @Autowired
+    private HypervisorBackend hypervisor;
+
+    @Autowired
+    private ConsoleLogConfig consoleConfig;
+
+    private final Map<String, Capture> captures = new ConcurrentHashMap<>();
+    private ScheduledExecutorService scheduler;
+
+    @PostConstruct
+    public void start() {
+        if (!consoleConfig.isEnabled()) {
+            return;
+        }
+        if (!"libvirt".equals(hypervisor.getType())) {
+            // 模拟后端的虚拟机没有QEMU进程，不会产生串口日志文件
+            log.info("{} 后端不产生串口日志，串口控制台日志采集不启动", hypervisor.getType());
+            return;
+        }
+        scheduler = Executors.newScheduledThreadPool(Math.max(1, consoleConfig.getThreads()), r -> {
+            Thread t = new Thread(r, "console-log");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(this::discover, 0, consoleConfig.getDiscoveryIntervalMs(), TimeUnit.MILLISECONDS);
+        scheduler.scheduleWithFixedDelay(this::pollAll, consoleConfig.getPollIntervalMs(),
+                consoleConfig.getPollIntervalMs(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        for (Capture capture : captures.values()) {
+            capture.close();
+        }
+    }
+
+    /**
+     * 生成写入模板的串口日志元素
+     */
+    public String renderSerialLogXml(String vmName) {
+        if (!consoleConfig.isEnabled()) {
+            return "";
+        }
+        Path file = Paths.get(consoleConfig.getLogDir(), vmName + "-serial0.log");
+        return "<log file='" + file + "' append='on'/>\n            ";
+    }
+
+    /**
+     * 获取虚拟机最近的控制台输出
+     */
+    public String tail(String vmName) throws LibvirtException {
+        return new String(captureFor(vmName).ring.snapshot(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * follow模式：先发送已保留的内容，之后实时推送新输出
+     */
+    public SseEmitter follow(String vmName) throws LibvirtException {
+        Capture capture = captureFor(vmName);
+        SseEmitter emitter = new SseEmitter(consoleConfig.getFollowTimeoutMs());
+        Subscriber subscriber = new Subscriber(emitter);
+        // 与采集线程的追加互斥，快照之后的输出一定会推送给该订阅者，且不会重复
+        synchronized (capture) {
+            subscriber.queue.add(capture.ring.snapshot());
+            capture.subscribers.add(subscriber);
+        }
+        Runnable remove = () -> capture.subscribers.remove(subscriber);
+        emitter.onCompletion(remove);
+        emitter.onTimeout(remove);
+        emitter.onError(e -> remove.run());
+        dispatch(subscriber);
+        return emitter;
+    }
+
+    private Capture captureFor(String vmName) throws LibvirtException {
+        if (scheduler == null) {
+            throw new IllegalStateException("串口控制台日志未启用，或当前Hypervisor后端（" + hypervisor.getType() + "）不产生串口日志");
+        }
+        Capture capture = captures.get(vmName);
+        if (capture != null) {
+            return capture;
+        }
+        // 尚未被后台扫描到（例如刚启动），立即尝试接入
+        capture = attach(vmName, hypervisor.getDomain(vmName).xml());
+        if (capture == null) {
+            throw new IllegalStateException("虚拟机 " + vmName + " 未配置串口日志文件");
+        }
+        return capture;
+    }
+
+    private void discover() {
+        try {
+            Set<String> running = new HashSet<>(hypervisor.listActiveDomains());
+            for (String name : running) {
+                if (captures.containsKey(name)) {
+                    continue;
+                }
+                try {
+                    // 只为尚未接入的虚拟机读取XML
+                    attach(name, hypervisor.getDomain(name).xml());
+                } catch (LibvirtException | RuntimeException e) {
+                    log.debug("扫描虚拟机 {} 串口日志失败: {}", name, e.getMessage());
+                }
+            }
+            // 已关闭的虚拟机保留环形文件，但不再轮询；没有订阅者时释放映射
+            captures.values().removeIf(c -> {
+                if (running.contains(c.vmName) || !c.subscribers.isEmpty() || !c.busy.compareAndSet(false, true)) {
+                    return false;
+                }
+                c.close();
+                return true;
+            });
+        } catch (LibvirtException | RuntimeException e) {
+            log.warn("扫描串口日志失败: {}", e.getMessage());
+        }
+    }
+
+    private Capture attach(String vmName, String xml) {
+        if (xml == null) {
+            return null;
+        }
+        Matcher m = SERIAL_LOG_PATTERN.matcher(xml);
+        if (!m.find()) {
+            return null;
+        }
+        return captures.computeIfAbsent(vmName, name -> {
+            try {
+                Path ringFile = Paths.get(consoleConfig.getRingDir(), name + ".ring");
+                ConsoleRing ring = new ConsoleRing(ringFile, consoleConfig.getRingSizeKb() * 1024);
+                log.info("开始采集虚拟机 {} 的串口输出: {}", name, m.group(1));
+                return new Capture(name, Paths.get(m.group(1)), ring);
+            } catch (IOException e) {
+                log.warn("创建虚拟机 {} 的控制台环形文件失败: {}", name, e.getMessage());
+                return null;
+            }
+        });
+    }
+
+    private void pollAll() {
+        for (Capture capture : captures.values()) {
+            if (capture.busy.compareAndSet(false, true)) {
+                scheduler.execute(() -> {
+                    try {
+                        poll(capture);
+                    } finally {
+                        capture.busy.set(false);
+                    }
+                });
+            }
+        }
+    }
+
+    /**
+     * 读取日志文件的新增部分；文件被截断或轮转时从头开始
+     */
+    private void poll(Capture capture) {
+        if (!Files.isReadable(capture.logFile)) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(capture.logFile, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long offset = capture.ring.sourceOffset();
+            if (size < offset) {
+                offset = 0;
+            }
+            while (offset < size) {
+                capture.buffer.clear();
+                int n = channel.read(capture.buffer, offset);
+                if (n <= 0) {
+                    break;
+                }
+                capture.buffer.flip();
+                synchronized (capture) {
+                    byte[] chunk = capture.subscribers.isEmpty() ? null : new byte[n];
+                    if (chunk != null) {
+                        capture.buffer.get(capture.buffer.position(), chunk);
+                    }
+                    capture.ring.append(capture.buffer);
+                    if (chunk != null) {
+                        for (Subscriber subscriber : capture.subscribers) {
+                            subscriber.queue.add(chunk);
+                            dispatch(subscriber);
+                        }
+                    }
+                }
+                offset += n;
+            }
+            capture.ring.sourceOffset(offset);
+        } catch (IOException e) {
+            log.debug("读取虚拟机 {} 串口日志失败: {}", capture.vmName, e.getMessage());
+        }
+    }
+
+    /**
+     * 推送在线程池中进行，同一订阅者同时只有一个推送任务，慢客户端不会阻塞采集
+     */
+    private void dispatch(Subscriber subscriber) {
+        if (scheduler == null || !subscriber.sending.compareAndSet(false, true)) {
+            return;
+        }
+        scheduler.execute(() -> {
+            try {
+                byte[] chunk;
+                while ((chunk = subscriber.queue.poll()) != null) {
+                    String text = subscriber.decode(chunk);
+                    if (!text.isEmpty()) {
+                        subscriber.emitter.send(SseEmitter.event()
+                                .name("console")
+                                .data(Map.of("text", text)));
+                    }
+                }
+            } catch (IOException | IllegalStateException e) {
+                subscriber.emitter.completeWithError(e);
+            } finally {
+                subscriber.sending.set(false);
+            }
+            if (!subscriber.queue.isEmpty()) {
+                dispatch(subscriber);
+            }
+        });
+    }
+
+    private static class Capture {
+        private final String vmName;
+        private final Path logFile;
+        private final ConsoleRing ring;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(READ_CHUNK);
+        private final AtomicBoolean busy = new AtomicBoolean();
+        private final CopyOnWriteArrayList<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+
+        Capture(String vmName, Path logFile, ConsoleRing ring) {
+            this.vmName = vmName;
+            this.logFile = logFile;
+            this.ring = ring;
+        }
+
+        void close() {
+            try {
+                ring.close();
+            } catch (IOException e) {
+                log.debug("关闭虚拟机 {} 的控制台环形文件失败: {}", vmName, e.getMessage());
+            }
+        }
+    }
+
+    private static class Subscriber {
+        private final SseEmitter emitter;
+        private final Queue<byte[]> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean sending = new AtomicBoolean();
+        private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        /**
+         * 上一块末尾不完整的UTF-8字节序列，与下一块拼接后再解码
+         */
+        private byte[] partial = new byte[0];
+
+        Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        /**
+         * 只在持有sending的推送线程上调用
+         */
+        String decode(byte[] chunk) {
+            ByteBuffer in = ByteBuffer.allocate(partial.length + chunk.length);
+            in.put(partial).put(chunk).flip();
+            CharBuffer out = CharBuffer.allocate((int) (in.remaining() * (double) decoder.maxCharsPerByte()) + 1);
+            decoder.decode(in, out, false);
+            partial = new byte[in.remaining()];
+            in.get(partial);
+            return out.flip().toString();
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.pengchengyin.vmmanagerbackend.service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 基于内存映射文件的定长环形日志
+ * 文件头：[0] 累计写入字节数，[8] 容量，[16] 来源日志文件的读取偏移（重启后续采，避免重复）
+ */
+final class ConsoleRing implements AutoCloseable {
+
+    private static final int HEADER = 32;
+    private static final int POS_WRITTEN = 0;
+    private static final int POS_CAPACITY = 8;
+    private static final int POS_SOURCE_OFFSET = 16;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer map;
+    private final int capacity;
+
+    ConsoleRing(Path file, int capacity) throws IOException {
+        Files.createDirectories(file.getParent());
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.map = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER + (long) capacity);
+        if (map.getLong(POS_CAPACITY) != capacity) {
+            // 新文件或容量配置变化，重新初始化
+            map.putLong(POS_WRITTEN, 0);
+            map.putLong(POS_CAPACITY, capacity);
+            map.putLong(POS_SOURCE_OFFSET, 0);
+        }
+        this.capacity = capacity;
+    }
+
+    /**
+     * 追加数据，超出容量时覆盖最旧的内容
+     */
+    synchronized void append(ByteBuffer src) {
+        long written = map.getLong(POS_WRITTEN);
+        while (src.hasRemaining()) {
+            int at = (int) (written % capacity);
+            int n = Math.min(src.remaining(), capacity - at);
+            map.put(HEADER + at, src, src.position(), n);
+            src.position(src.position() + n);
+            written += n;
+        }
+        map.putLong(POS_WRITTEN, written);
+    }
+
+    synchronized long written() {
+        return map.getLong(POS_WRITTEN);
+    }
+
+    synchronized long sourceOffset() {
+        return map.getLong(POS_SOURCE_OFFSET);
+    }
+
+    synchronized void sourceOffset(long offset) {
+        map.putLong(POS_SOURCE_OFFSET, offset);
+    }
+
+    /**
+     * 读取当前保留的全部内容（按时间顺序）
+     */
+    synchronized byte[] snapshot() {
+        long written = map.getLong(POS_WRITTEN);
+        int size = (int) Math.min(written, capacity);
+        byte[] out = new byte[size];
+        int start = (int) ((written - size) % capacity);
+        int first = Math.min(size, capacity - start);
+        map.get(HEADER + start, out, 0, first);
+        if (first < size) {
+            map.get(HEADER, out, first, size - first);
+        }
+        return out;
+    }
+
+    @Override
+    public void close() throws IOException {
+        map.force();
+        channel.close();
+    }
+}
@@ -0,0 +1,155 @@
+package com.pengchengyin.vmmanagerbackend.service;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.transform.OutputKeys;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+
+/**
+ * 手工维护的domain XML文件
+ * 读取时检查XML格式、根元素、名称，UUID可以不指定（指定时检查格式），并取出磁盘引用的文件或块设备路径。
+ *
+ * @param xml       文件内容
+ * @param uuid      XML中的UUID，未指定时为null（由libvirt生成）
+ * @param diskPaths 磁盘（含光驱）引用的本地路径，存储池卷和网络磁盘不包含在内
+ */
+public record DomainXmlFile(Path path, String xml, String name, String uuid, List<String> diskPaths) {
+
+    /**
+     * 读取并解析XML文件，文件无法读取或内容不合法时抛出IllegalArgumentException
+     */
+    public static DomainXmlFile read(Path path) {
+        String xml;
+        try {
+            xml = Files.readString(path, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("无法读取XML文件 " + path + ": " + e.getMessage());
+        }
+        Element root = parse(xml);
+        if (!"domain".equals(root.getTagName())) {
+            throw new IllegalArgumentException("根元素必须是 <domain>，实际为 <" + root.getTagName() + ">");
+        }
+        Element name = child(root, "name");
+        if (name == null || name.getTextContent().isBlank()) {
+            throw new IllegalArgumentException("缺少虚拟机名称 <name>");
+        }
+        Element uuid = child(root, "uuid");
+        String uuidValue = uuid == null ? null : uuid.getTextContent().trim();
+        if (uuidValue != null) {
+            try {
+                UUID.fromString(uuidValue);
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("UUID格式错误: " + uuidValue);
+            }
+        }
+        return new DomainXmlFile(path, xml, name.getTextContent().trim(), uuidValue, diskPaths(root));
+    }
+
+    /**
+     * 按路径读取，路径必须为绝对路径
+     */
+    public static DomainXmlFile read(String path) {
+        Path file = Paths.get(path);
+        if (!file.isAbsolute()) {
+            throw new IllegalArgumentException("XML配置文件路径必须为绝对路径: " + path);
+        }
+        return read(file);
+    }
+
+    /**
+     * 在根元素的 <name> 之后插入 <uuid>，返回新的XML（XML中已有UUID时原样返回）
+     */
+    public String withUuid(String uuidValue) {
+        if (uuid != null) {
+            return xml;
+        }
+        Element root = parse(xml);
+        Element name = child(root, "name");
+        Element element = root.getOwnerDocument().createElement("uuid");
+        element.setTextContent(uuidValue);
+        Node next = name.getNextSibling();
+        root.insertBefore(element, next);
+        // 沿用 <name> 之前的缩进
+        if (name.getPreviousSibling() != null && name.getPreviousSibling().getNodeType() == Node.TEXT_NODE) {
+            root.insertBefore(root.getOwnerDocument().createTextNode(name.getPreviousSibling().getTextContent()), element);
+        }
+        try {
+            TransformerFactory factory = TransformerFactory.newInstance();
+            factory.setAttribute(XMLConstants.ACCESS_EXTERNAL_DTD, "");
+            factory.setAttribute(XMLConstants.ACCESS_EXTERNAL_STYLESHEET, "");
+            Transformer transformer = factory.newTransformer();
+            transformer.setOutputProperty(OutputKeys.OMIT_XML_DECLARATION, "yes");
+            StringWriter out = new StringWriter();
+            transformer.transform(new DOMSource(root.getOwnerDocument()), new StreamResult(out));
+            return out.toString();
+        } catch (TransformerException e) {
+            throw new IllegalStateException("XML序列化失败: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 不存在的磁盘路径
+     */
+    public List<String> missingDisks() {
+        return diskPaths.stream().filter(p -> !Files.exists(Paths.get(p))).toList();
+    }
+
+    private static Element parse(String xml) {
+        try {
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+            return factory.newDocumentBuilder().parse(new InputSource(new StringReader(xml))).getDocumentElement();
+        } catch (SAXException e) {
+            throw new IllegalArgumentException("XML格式错误: " + e.getMessage());
+        } catch (ParserConfigurationException | IOException e) {
+            throw new IllegalStateException("XML解析器初始化失败: " + e.getMessage(), e);
+        }
+    }
+
+    private static List<String> diskPaths(Element root) {
+        List<String> paths = new ArrayList<>();
+        NodeList disks = root.getElementsByTagName("disk");
+        for (int i = 0; i < disks.getLength(); i++) {
+            Element source = child((Element) disks.item(i), "source");
+            if (source == null) {
+                continue;
+            }
+            String path = !source.getAttribute("file").isEmpty() ? source.getAttribute("file") : source.getAttribute("dev");
+            if (!path.isEmpty()) {
+                paths.add(path);
+            }
+        }
+        return paths;
+    }
+
+    private static Element child(Element parent, String tagName) {
+        for (Node node = parent.getFirstChild(); node != null; node = node.getNextSibling()) {
+            if (node instanceof Element element && tagName.equals(element.getTagName())) {
+                return element;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,428 @@
+package com.pengchengyin.vmmanagerbackend.service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.libvirt.LibvirtException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pengchengyin.vmmanagerbackend.config.DrainConfig;
+import com.pengchengyin.vmmanagerbackend.model.DrainItem;
+import com.pengchengyin.vmmanagerbackend.model.DrainJob;
+import com.pengchengyin.vmmanagerbackend.model.DrainRequest;
+import com.pengchengyin.vmmanagerbackend.model.HostInfo;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 宿主机排空/恢复服务
+ * 排空：并行托管保存所有运行中的虚拟机，并发数、同时写盘的内存总量和宿主机磁盘延迟共同限制同时进行的保存，
+ * 不重要的虚拟机先保存。恢复：按相反顺序（重要的先恢复）启动虚拟机，从保存的状态继续运行，
+ * 按磁盘延迟、宿主机空闲内存和最小间隔控制恢复速度。
+ * 排空计划与进度持久化到 drain.state-dir，服务或宿主机重启后仍可按原顺序恢复。
+ */
+@Slf4j
+@Service
+public class DrainService {
+
+    private static final String STATE_FILE = "drain.json";
+    private static final long POLL_MS = 200;
+    private static final long MB = 1024 * 1024;
+
+    @Autowired
+    private DrainConfig drainConfig;
+
+    @Autowired
+    private HypervisorBackend hypervisor;
+
+    @Autowired
+    private VirtualMachineService vmService;
+
+    @Autowired
+    private VmLabelIndex labelIndex;
+
+    @Autowired
+    private HostDiskLatencyService latencyService;
+
+    @Autowired
+    private HostMonitorService hostMonitorService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private volatile DrainJob job;
+
+    /**
+     * 进行中的保存/恢复数量及其内存总量（MB），由lock保护
+     */
+    private final Object lock = new Object();
+    private int inflight;
+    private long inflightMemoryMB;
+
+    private ExecutorService coordinator;
+    private ExecutorService workers;
+
+    @PostConstruct
+    public void init() {
+        coordinator = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "host-drain");
+            t.setDaemon(true);
+            return t;
+        });
+        AtomicInteger seq = new AtomicInteger();
+        workers = Executors.newFixedThreadPool(
+                Math.max(1, Math.max(drainConfig.getMaxConcurrency(), drainConfig.getRestoreConcurrency())), r -> {
+                    Thread t = new Thread(r, "host-drain-" + seq.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+
+        Path file = Paths.get(drainConfig.getStateDir()).resolve(STATE_FILE);
+        if (!Files.isRegularFile(file)) {
+            return;
+        }
+        try {
+            DrainJob saved = objectMapper.readValue(file.toFile(), DrainJob.class);
+            if (saved.getPhase() == DrainJob.Phase.DRAINING || saved.getPhase() == DrainJob.Phase.RESTORING) {
+                // 中断的排空/恢复：各虚拟机的实际状态在恢复时逐台确认
+                saved.setPhase(DrainJob.Phase.DRAINED);
+            }
+            job = saved;
+            if (saved.getPhase() == DrainJob.Phase.DRAINED) {
+                log.info("已读取排空记录 {}：{} 台虚拟机等待恢复", saved.getId(), saved.getSaved());
+            }
+        } catch (IOException e) {
+            log.warn("读取排空记录失败: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        coordinator.shutdownNow();
+        workers.shutdownNow();
+    }
+
+    /**
+     * 当前（或最近一次）排空，没有时返回null
+     */
+    public DrainJob getJob() {
+        return job;
+    }
+
+    /**
+     * 虚拟机是否因排空被保存且尚未恢复；调和器不应在此期间启动它
+     */
+    public boolean isHeld(String name) {
+        DrainJob current = job;
+        if (current == null || current.getPhase() == DrainJob.Phase.RESTORED) {
+            return false;
+        }
+        for (DrainItem item : current.getItems()) {
+            if (item.getName().equals(name)) {
+                DrainItem.Status status = item.getStatus();
+                return status == DrainItem.Status.SAVING || status == DrainItem.Status.SAVED
+                        || status == DrainItem.Status.RESTORING;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 开始排空：确定保存顺序后立即返回，保存在后台进行
+     */
+    public synchronized DrainJob drain(DrainRequest request) throws LibvirtException {
+        DrainJob current = job;
+        if (current != null && current.getPhase() != DrainJob.Phase.RESTORED) {
+            throw new IllegalStateException(current.getPhase() == DrainJob.Phase.DRAINED
+                    ? "上次排空的虚拟机尚未恢复" : "排空或恢复正在进行");
+        }
+        int concurrency = drainConfig.getMaxConcurrency();
+        if (request.getConcurrency() != null) {
+            concurrency = Math.min(concurrency, request.getConcurrency());
+        }
+        DrainJob created = DrainJob.builder()
+                .id(UUID.randomUUID().toString())
+                .phase(DrainJob.Phase.DRAINING)
+                .concurrency(Math.max(1, concurrency))
+                .startedAt(System.currentTimeMillis())
+                .items(plan(request.getOrder()))
+                .build();
+        job = created;
+        persist();
+        log.info("开始排空宿主机: {} 台虚拟机，并发上限 {}", created.getItems().size(), created.getConcurrency());
+        coordinator.execute(() -> runDrain(created));
+        return created;
+    }
+
+    /**
+     * 开始恢复上次排空保存的虚拟机
+     */
+    public synchronized DrainJob restore() {
+        DrainJob current = job;
+        if (current == null || current.getPhase() != DrainJob.Phase.DRAINED) {
+            throw new IllegalStateException(current == null || current.getPhase() == DrainJob.Phase.RESTORED
+                    ? "没有等待恢复的排空" : "排空或恢复正在进行");
+        }
+        current.setPhase(DrainJob.Phase.RESTORING);
+        current.setRestoreStartedAt(System.currentTimeMillis());
+        persist();
+        log.info("开始恢复排空 {} 保存的虚拟机", current.getId());
+        coordinator.execute(() -> runRestore(current));
+        return current;
+    }
+
+    /**
+     * 保存顺序：不重要的在前。请求中列出的虚拟机比未列出的重要（越靠前越重要），
+     * 未列出的按优先级标签排序；重要程度相同时内存大的先保存，缩短总排空时间
+     */
+    private List<DrainItem> plan(List<String> order) throws LibvirtException {
+        Map<String, Integer> rank = new HashMap<>();
+        if (order != null) {
+            for (int i = 0; i < order.size(); i++) {
+                rank.putIfAbsent(order.get(i), order.size() - i);
+            }
+        }
+        List<DrainItem> items = new ArrayList<>();
+        for (String name : hypervisor.listActiveDomains()) {
+            HypervisorBackend.DomainSnapshot domain = hypervisor.findDomain(name);
+            if (domain == null || !domain.active()) {
+                continue;
+            }
+            DrainItem item = DrainItem.builder()
+                    .name(name)
+                    .priority(labelPriority(name))
+                    .memoryMB(domain.memoryKiB() / 1024)
+                    .status(DrainItem.Status.PENDING)
+                    .build();
+            if (!domain.persistent()) {
+                item.setStatus(DrainItem.Status.SKIPPED);
+                item.setError("临时虚拟机无法托管保存");
+            }
+            items.add(item);
+        }
+        items.sort(Comparator.comparingInt((DrainItem i) -> rank.getOrDefault(i.getName(), 0))
+                .thenComparingInt(DrainItem::getPriority)
+                .thenComparing(Comparator.comparingLong(DrainItem::getMemoryMB).reversed()));
+        return items;
+    }
+
+    private int labelPriority(String name) {
+        String value = labelIndex.getLabels(name).get(drainConfig.getPriorityLabel());
+        if (value == null) {
+            return 0;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private void runDrain(DrainJob current) {
+        try {
+            for (DrainItem item : current.getItems()) {
+                if (item.getStatus() != DrainItem.Status.PENDING) {
+                    continue;
+                }
+                acquire(item.getMemoryMB(), current.getConcurrency(), false);
+                item.setStatus(DrainItem.Status.SAVING);
+                item.setSaveStartedAt(System.currentTimeMillis());
+                workers.execute(() -> save(current, item));
+            }
+            awaitIdle();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        long drainMs = System.currentTimeMillis() - current.getStartedAt();
+        long savedMB = current.getItems().stream()
+                .filter(i -> i.getStatus() == DrainItem.Status.SAVED)
+                .mapToLong(DrainItem::getMemoryMB)
+                .sum();
+        current.setDrainMs(drainMs);
+        current.setDrainThroughputMBps(drainMs > 0 ? savedMB * 1000.0 / drainMs : 0);
+        current.setPhase(DrainJob.Phase.DRAINED);
+        persist();
+        log.info("宿主机排空完成: 保存 {} 台，失败 {} 台，耗时 {}ms，写盘约 {}MB/s", current.getSaved(),
+                current.getFailed(), drainMs, String.format("%.1f", current.getDrainThroughputMBps()));
+    }
+
+    private void save(DrainJob current, DrainItem item) {
+        try {
+            vmService.saveVm(item.getName());
+            item.setStatus(DrainItem.Status.SAVED);
+            synchronized (current) {
+                current.setSaved(current.getSaved() + 1);
+            }
+        } catch (LibvirtException | RuntimeException e) {
+            log.warn("排空时托管保存虚拟机 {} 失败: {}", item.getName(), e.getMessage());
+            item.setError(e.getMessage());
+            item.setStatus(DrainItem.Status.FAILED);
+            synchronized (current) {
+                current.setFailed(current.getFailed() + 1);
+            }
+        } finally {
+            long now = System.currentTimeMillis();
+            item.setSaveMs(now - item.getSaveStartedAt());
+            current.setDrainMs(now - current.getStartedAt());
+            release(item.getMemoryMB());
+            persist();
+        }
+    }
+
+    /**
+     * 恢复顺序与保存顺序相反：重要的先恢复。排空中断时各虚拟机的状态以实际状态为准
+     */
+    private void runRestore(DrainJob current) {
+        List<DrainItem> order = new ArrayList<>(current.getItems()).reversed();
+        long lastStartedAt = 0;
+        try {
+            for (DrainItem item : order) {
+                DrainItem.Status status = item.getStatus();
+                if (status == DrainItem.Status.RESTORED || status == DrainItem.Status.SKIPPED
+                        || status == DrainItem.Status.FAILED) {
+                    continue;
+                }
+                long wait = lastStartedAt + drainConfig.getRestoreIntervalMs() - System.currentTimeMillis();
+                if (wait > 0) {
+                    Thread.sleep(wait);
+                }
+                acquire(item.getMemoryMB(), drainConfig.getRestoreConcurrency(), true);
+                lastStartedAt = System.currentTimeMillis();
+                item.setStatus(DrainItem.Status.RESTORING);
+                item.setRestoreStartedAt(lastStartedAt);
+                workers.execute(() -> restoreOne(current, item));
+            }
+            awaitIdle();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        current.setRestoreMs(System.currentTimeMillis() - current.getRestoreStartedAt());
+        current.setPhase(DrainJob.Phase.RESTORED);
+        persist();
+        log.info("宿主机恢复完成: 恢复 {} 台，失败 {} 台，耗时 {}ms", current.getRestored(), current.getFailed(),
+                current.getRestoreMs());
+    }
+
+    private void restoreOne(DrainJob current, DrainItem item) {
+        try {
+            HypervisorBackend.DomainSnapshot domain = hypervisor.findDomain(item.getName());
+            if (domain == null) {
+                throw new IllegalStateException("虚拟机已不存在");
+            }
+            if (!domain.active()) {
+                if (!hypervisor.hasManagedSave(item.getName())) {
+                    log.info("虚拟机 {} 没有托管保存的状态，将冷启动", item.getName());
+                }
+                vmService.startVm(item.getName());
+            }
+            item.setStatus(DrainItem.Status.RESTORED);
+            synchronized (current) {
+                current.setRestored(current.getRestored() + 1);
+            }
+        } catch (LibvirtException | RuntimeException e) {
+            log.warn("恢复虚拟机 {} 失败: {}", item.getName(), e.getMessage());
+            item.setError(e.getMessage());
+            item.setStatus(DrainItem.Status.FAILED);
+            synchronized (current) {
+                current.setFailed(current.getFailed() + 1);
+            }
+        } finally {
+            item.setRestoreMs(System.currentTimeMillis() - item.getRestoreStartedAt());
+            release(item.getMemoryMB());
+            persist();
+        }
+    }
+
+    /**
+     * 等待可以开始下一台：数量不超过并发上限；保存时写盘的内存总量不超过上限，恢复时宿主机空闲内存足够；
+     * 磁盘延迟过高时暂缓。没有进行中的任务时数量与写盘量不作限制，等待超过 wait-seconds 后不再等待延迟和内存
+     */
+    private void acquire(long memoryMB, int concurrency, boolean restoring) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + drainConfig.getWaitSeconds() * 1000L;
+        synchronized (lock) {
+            while (true) {
+                boolean idle = inflight == 0;
+                boolean slot = idle || (inflight < concurrency
+                        && (restoring || inflightMemoryMB + memoryMB <= drainConfig.getMaxInflightMemoryMb()));
+                boolean hostReady = System.currentTimeMillis() >= deadline
+                        || (latencyService.getHostLatencyMs() <= drainConfig.getMaxHostLatencyMs()
+                        && (!restoring || hasFreeMemory(memoryMB)));
+                if (slot && hostReady) {
+                    inflight++;
+                    inflightMemoryMB += memoryMB;
+                    return;
+                }
+                lock.wait(POLL_MS);
+            }
+        }
+    }
+
+    private void release(long memoryMB) {
+        synchronized (lock) {
+            inflight--;
+            inflightMemoryMB -= memoryMB;
+            lock.notifyAll();
+        }
+    }
+
+    private void awaitIdle() throws InterruptedException {
+        synchronized (lock) {
+            while (inflight > 0) {
+                lock.wait();
+            }
+        }
+    }
+
+    /**
+     * 宿主机空闲内存是否足够再恢复一台：采样之后开始恢复的虚拟机尚未体现在采样中，需要扣除
+     */
+    private boolean hasFreeMemory(long memoryMB) {
+        HostInfo host;
+        try {
+            host = hostMonitorService.getHostInfo();
+        } catch (LibvirtException e) {
+            return true;
+        }
+        DrainJob current = job;
+        long pendingMB = current == null ? 0 : current.getItems().stream()
+                .filter(i -> i.getRestoreStartedAt() > host.getSampledAt())
+                .mapToLong(DrainItem::getMemoryMB)
+                .sum();
+        return host.getFreeMemory() / MB - pendingMB - drainConfig.getMemoryReserveMb() >= memoryMB;
+    }
+
+    private synchronized void persist() {
+        DrainJob current = job;
+        if (current == null) {
+            return;
+        }
+        try {
+            Path dir = Paths.get(drainConfig.getStateDir());
+            Files.createDirectories(dir);
+            Path tmp = dir.resolve(STATE_FILE + ".tmp");
+            Files.write(tmp, objectMapper.writeValueAsString(current).getBytes(StandardCharsets.UTF_8));
+            Files.move(tmp, dir.resolve(STATE_FILE), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("保存排空记录失败: {}", e.getMessage());
+        }
+    }
+}
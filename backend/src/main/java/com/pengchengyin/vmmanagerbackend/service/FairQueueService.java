@@ -0,0 +1,161 @@
+package com.pengchengyin.vmmanagerbackend.service;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import com.pengchengyin.vmmanagerbackend.config.RateLimitConfig;
+
+/**
+ * libvirt调用前的加权公平排队服务
+ * 同时进入libvirt调用的请求数有上限；空闲时请求直接通过，拥塞时按客户端排队，
+ * 使用起始时间公平排队（SFQ，WFQ的一种实现）：每个请求的起始标签 = max(系统虚拟时间, 该客户端上一个请求的结束标签)，
+ * 结束标签 = 起始标签 + 1/权重，按起始标签从小到大放行，持续发请求的客户端不会挤占其他客户端。
+ */
+@Service
+public class FairQueueService {
+
+    @Autowired
+    private RateLimitConfig rateLimitConfig;
+
+    private final Object lock = new Object();
+    private final PriorityQueue<Waiter> queue = new PriorityQueue<>();
+    private final Map<String, Double> lastFinish = new HashMap<>();
+    private final Map<String, Integer> queuedPerClient = new HashMap<>();
+    private int inUse;
+    private double virtualTime;
+    private long sequence;
+
+    private final AtomicLong queuedTotal = new AtomicLong();
+    private final AtomicLong rejectedQueueFull = new AtomicLong();
+    private final AtomicLong timedOut = new AtomicLong();
+
+    /**
+     * 排队结果
+     */
+    public enum Admission {
+        ADMITTED,
+        QUEUE_FULL,
+        TIMED_OUT
+    }
+
+    /**
+     * 获取一个libvirt调用名额，ADMITTED时调用方必须在结束后调用 {@link #release()}
+     */
+    public Admission acquire(String clientId) throws InterruptedException {
+        Waiter waiter;
+        synchronized (lock) {
+            if (queue.isEmpty() && inUse < rateLimitConfig.getMaxConcurrent()) {
+                inUse++;
+                return Admission.ADMITTED;
+            }
+            int queued = queuedPerClient.getOrDefault(clientId, 0);
+            if (queued >= rateLimitConfig.getMaxQueuedPerClient()) {
+                rejectedQueueFull.incrementAndGet();
+                return Admission.QUEUE_FULL;
+            }
+            double start = Math.max(virtualTime, lastFinish.getOrDefault(clientId, 0.0));
+            double finish = start + 1.0 / Math.max(1, rateLimitConfig.getWeights().getOrDefault(clientId, 1));
+            lastFinish.put(clientId, finish);
+            queuedPerClient.put(clientId, queued + 1);
+            waiter = new Waiter(clientId, start, sequence++);
+            queue.add(waiter);
+            queuedTotal.incrementAndGet();
+        }
+
+        boolean granted;
+        try {
+            granted = waiter.granted.await(rateLimitConfig.getQueueTimeoutMs(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            abandon(waiter);
+            throw e;
+        }
+        if (granted) {
+            return Admission.ADMITTED;
+        }
+        synchronized (lock) {
+            if (queue.remove(waiter)) {
+                decrementQueued(waiter.clientId);
+                timedOut.incrementAndGet();
+                return Admission.TIMED_OUT;
+            }
+        }
+        // 超时的同时被放行，名额已经转交给本请求
+        return Admission.ADMITTED;
+    }
+
+    /**
+     * 归还名额；有排队请求时直接转交给起始标签最小的请求
+     */
+    public void release() {
+        synchronized (lock) {
+            Waiter next = queue.poll();
+            if (next == null) {
+                inUse--;
+                // 系统空闲，清理已经落后于虚拟时间的客户端标签
+                lastFinish.values().removeIf(f -> f <= virtualTime);
+                return;
+            }
+            virtualTime = next.start;
+            decrementQueued(next.clientId);
+            next.granted.countDown();
+        }
+    }
+
+    /**
+     * 等待被中断：仍在队列中则移除，已被放行则归还名额
+     */
+    private void abandon(Waiter waiter) {
+        synchronized (lock) {
+            if (queue.remove(waiter)) {
+                decrementQueued(waiter.clientId);
+                return;
+            }
+        }
+        release();
+    }
+
+    private void decrementQueued(String clientId) {
+        queuedPerClient.computeIfPresent(clientId, (k, v) -> v > 1 ? v - 1 : null);
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        synchronized (lock) {
+            stats.put("maxConcurrent", rateLimitConfig.getMaxConcurrent());
+            stats.put("inUse", inUse);
+            stats.put("queued", queue.size());
+            stats.put("queuedClients", queuedPerClient.size());
+        }
+        stats.put("queuedTotal", queuedTotal.get());
+        stats.put("rejectedQueueFull", rejectedQueueFull.get());
+        stats.put("timedOut", timedOut.get());
+        return stats;
+    }
+
+    private static class Waiter implements Comparable<Waiter> {
+        final String clientId;
+        final double start;
+        final long seq;
+        final CountDownLatch granted = new CountDownLatch(1);
+
+        Waiter(String clientId, double start, long seq) {
+            this.clientId = clientId;
+            this.start = start;
+            this.seq = seq;
+        }
+
+        @Override
+        public int compareTo(Waiter other) {
+            int c = Double.compare(start, other.start);
+            return c != 0 ? c : Long.compare(seq, other.seq);
+        }
+    }
+}
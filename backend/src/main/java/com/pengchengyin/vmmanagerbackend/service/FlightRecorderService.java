@@ -0,0 +1,215 @@
+package com.pengchengyin.vmmanagerbackend.service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import com.pengchengyin.vmmanagerbackend.config.ProfilingConfig;
+
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * JFR录制管理
+ * 同一时刻只允许一个由接口启动的录制；录制停止后写入录制目录，可通过接口下载，
+ * 用 JDK Mission Control 或 `jfr print --events com.pengchengyin.vmmanager.*` 查看。
+ */
+@Slf4j
+@Service
+public class FlightRecorderService {
+
+    private static final DateTimeFormatter FILE_TIME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+    private static final String SUFFIX = ".jfr";
+
+    @Autowired
+    private ProfilingConfig profilingConfig;
+
+    private Recording active;
+    private Path activeFile;
+
+    /**
+     * 开始录制
+     *
+     * @param seconds 录制时长（秒），为空或超过上限时使用配置的上限
+     * @return 录制状态
+     */
+    public synchronized Map<String, Object> start(Long seconds) throws IOException {
+        if (active != null && active.getState() == RecordingState.RUNNING) {
+            throw new IllegalStateException("已有录制正在进行: " + activeFile.getFileName());
+        }
+        if (active != null) {
+            // 上一次录制已到时自动停止
+            active.close();
+            active = null;
+        }
+        Configuration settings;
+        try {
+            settings = Configuration.getConfiguration(profilingConfig.getJfrSettings());
+        } catch (ParseException e) {
+            throw new IOException("读取JFR配置失败: " + profilingConfig.getJfrSettings(), e);
+        }
+        Path dir = Path.of(profilingConfig.getRecordingDir());
+        Files.createDirectories(dir);
+        long limit = profilingConfig.getMaxRecordingSeconds();
+        long duration = seconds == null || seconds <= 0 ? limit : Math.min(seconds, limit);
+
+        Recording recording = new Recording(settings);
+        recording.setName("vm-manager-" + LocalDateTime.now().format(FILE_TIME));
+        Duration threshold = Duration.ofMillis(profilingConfig.getJfrEventThresholdMs());
+        recording.enable(LibvirtCallEvent.class).withThreshold(threshold).withStackTrace();
+        recording.enable(VmConversionEvent.class).withThreshold(threshold);
+        recording.setDuration(Duration.ofSeconds(duration));
+        // 到时自动停止时也写入文件
+        activeFile = dir.resolve(recording.getName() + SUFFIX);
+        recording.setDestination(activeFile);
+        recording.setToDisk(true);
+        recording.start();
+        active = recording;
+        log.info("开始JFR录制: {}，时长{}秒", activeFile, duration);
+        return status();
+    }
+
+    /**
+     * 停止当前录制并写入文件
+     */
+    public synchronized Map<String, Object> stop() {
+        if (active == null || active.getState() != RecordingState.RUNNING) {
+            throw new IllegalStateException("没有正在进行的录制");
+        }
+        active.stop();
+        log.info("JFR录制已停止: {}", activeFile);
+        Map<String, Object> status = status();
+        active.close();
+        active = null;
+        pruneOldRecordings();
+        return status;
+    }
+
+    public synchronized Map<String, Object> status() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        if (active == null) {
+            status.put("state", "IDLE");
+            return status;
+        }
+        status.put("state", active.getState().name());
+        status.put("name", activeFile.getFileName().toString());
+        status.put("startTime", active.getStartTime() == null ? null : active.getStartTime().toString());
+        status.put("duration", active.getDuration() == null ? null : active.getDuration().toSeconds());
+        status.put("settings", profilingConfig.getJfrSettings());
+        return status;
+    }
+
+    /**
+     * 已完成的录制文件，最新的在前
+     */
+    public List<Map<String, Object>> listRecordings() throws IOException {
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (Path file : recordingFiles()) {
+            if (file.equals(runningFile())) {
+                continue;
+            }
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("name", file.getFileName().toString());
+            item.put("size", Files.size(file));
+            item.put("modified", Files.getLastModifiedTime(file).toString());
+            result.add(item);
+        }
+        return result;
+    }
+
+    /**
+     * 按文件名获取录制文件，只允许访问录制目录下的.jfr文件
+     *
+     * @return 文件不存在时返回null
+     */
+    public Path getRecording(String name) {
+        Path dir = Path.of(profilingConfig.getRecordingDir()).toAbsolutePath().normalize();
+        Path file = dir.resolve(name).normalize();
+        if (!dir.equals(file.getParent()) || !name.endsWith(SUFFIX) || !Files.isRegularFile(file)) {
+            return null;
+        }
+        if (file.equals(runningFile())) {
+            throw new IllegalStateException("录制仍在进行，请先停止: " + name);
+        }
+        return file;
+    }
+
+    /**
+     * 删除录制文件
+     *
+     * @return 文件不存在时返回false
+     */
+    public boolean deleteRecording(String name) throws IOException {
+        Path file = getRecording(name);
+        if (file == null) {
+            return false;
+        }
+        Files.delete(file);
+        return true;
+    }
+
+    @PreDestroy
+    public synchronized void shutdown() {
+        if (active != null) {
+            if (active.getState() == RecordingState.RUNNING) {
+                active.stop();
+            }
+            active.close();
+        }
+    }
+
+    private synchronized Path runningFile() {
+        if (active != null && active.getState() == RecordingState.RUNNING) {
+            return activeFile.toAbsolutePath().normalize();
+        }
+        return null;
+    }
+
+    private List<Path> recordingFiles() throws IOException {
+        Path dir = Path.of(profilingConfig.getRecordingDir()).toAbsolutePath().normalize();
+        if (!Files.isDirectory(dir)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(f -> f.getFileName().toString().endsWith(SUFFIX))
+                    .sorted(Comparator.comparing(this::lastModified).reversed())
+                    .toList();
+        }
+    }
+
+    private void pruneOldRecordings() {
+        try {
+            List<Path> files = recordingFiles();
+            for (Path file : files.subList(Math.min(files.size(), profilingConfig.getMaxRecordings()), files.size())) {
+                Files.deleteIfExists(file);
+                log.info("删除旧的JFR录制: {}", file);
+            }
+        } catch (IOException e) {
+            log.warn("清理JFR录制失败: {}", e.getMessage());
+        }
+    }
+
+    private long lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+}
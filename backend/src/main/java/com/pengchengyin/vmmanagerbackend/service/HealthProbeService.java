@@ -0,0 +1,190 @@
+package com.pengchengyin.vmmanagerbackend.service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.libvirt.LibvirtException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.stereotype.Service;
+
+import com.pengchengyin.vmmanagerbackend.config.HealthProbeConfig;
+import com.pengchengyin.vmmanagerbackend.config.HostMonitorConfig;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 健康探测服务
+ * 后台线程定时探测Hypervisor后端连接、存储池、事件循环线程和宿主机采样，结果缓存在内存中供健康指示器读取。
+ * 访问后端的探测与本地探测分别在不同线程上执行，后端调用挂起时本地探测不受影响，
+ * 挂起的探测因结果过期而报告DOWN。
+ */
+@Slf4j
+@Service
+public class HealthProbeService {
+
+    public static final String LIBVIRT = "libvirt";
+    public static final String STORAGE_POOLS = "storagePools";
+    public static final String EVENT_LOOPS = "eventLoops";
+    public static final String HOST_SAMPLE = "hostSample";
+
+    /**
+     * 可用但性能或容量下降，不影响就绪状态
+     */
+    public static final Status DEGRADED = new Status("DEGRADED");
+
+    @Autowired
+    private HealthProbeConfig probeConfig;
+
+    @Autowired
+    private HostMonitorConfig hostMonitorConfig;
+
+    @Autowired
+    private HypervisorBackend hypervisor;
+
+    @Autowired
+    private HostMonitorService hostMonitorService;
+
+    @Autowired
+    private VncProxyService vncProxyService;
+
+    @Autowired
+    private OperationJournal journal;
+
+    private final Map<String, Probe> probes = new ConcurrentHashMap<>();
+    private ScheduledExecutorService scheduler;
+
+    private record Probe(Health health, long checkedAt) {
+    }
+
+    @PostConstruct
+    public void start() {
+        scheduler = Executors.newScheduledThreadPool(2, r -> {
+            Thread t = new Thread(r, "health-probe");
+            t.setDaemon(true);
+            return t;
+        });
+        long interval = probeConfig.getIntervalMs();
+        scheduler.scheduleWithFixedDelay(this::probeLibvirt, 0, interval, TimeUnit.MILLISECONDS);
+        scheduler.scheduleWithFixedDelay(this::probeLocal, 0, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * 读取缓存的探测结果（不触发任何探测）
+     */
+    public Health get(String name) {
+        Probe probe = probes.get(name);
+        if (probe == null) {
+            return Health.unknown().withDetail("reason", "尚未完成首次探测").build();
+        }
+        long age = System.currentTimeMillis() - probe.checkedAt();
+        if (age > probeConfig.getStaleAfterMs()) {
+            return Health.down()
+                    .withDetail("reason", "探测结果已过期，探测线程可能被阻塞")
+                    .withDetail("ageMs", age)
+                    .withDetail("last", probe.health())
+                    .build();
+        }
+        return probe.health();
+    }
+
+    private void probeLibvirt() {
+        long start = System.nanoTime();
+        try {
+            Map<String, Object> details = hypervisor.describe();
+            long latencyMs = (System.nanoTime() - start) / 1_000_000;
+            Health.Builder builder = latencyMs > probeConfig.getLibvirtSlowMs() ? Health.status(DEGRADED) : Health.up();
+            put(LIBVIRT, builder
+                    .withDetails(details)
+                    .withDetail("latencyMs", latencyMs)
+                    .build());
+        } catch (LibvirtException | RuntimeException e) {
+            put(LIBVIRT, Health.down().withDetail("error", String.valueOf(e.getMessage())).build());
+            put(STORAGE_POOLS, Health.unknown().withDetail("reason", "libvirt不可用").build());
+            return;
+        }
+        probePools();
+    }
+
+    private void probePools() {
+        try {
+            List<String> lowSpace = new ArrayList<>();
+            List<String> inactive = new ArrayList<>();
+            Map<String, Object> pools = new LinkedHashMap<>();
+            for (HypervisorBackend.PoolSnapshot pool : hypervisor.listStoragePools()) {
+                if (!pool.active()) {
+                    inactive.add(pool.name());
+                    continue;
+                }
+                double freeRatio = pool.capacity() > 0 ? pool.available() / (double) pool.capacity() : 1.0;
+                if (freeRatio < probeConfig.getPoolMinFreeRatio()) {
+                    lowSpace.add(pool.name());
+                }
+                pools.put(pool.name(), Map.of("state", pool.state(), "freeRatio", freeRatio));
+            }
+            Health.Builder builder = lowSpace.isEmpty() ? Health.up() : Health.status(DEGRADED);
+            put(STORAGE_POOLS, builder
+                    .withDetail("pools", pools)
+                    .withDetail("inactive", inactive)
+                    .withDetail("lowSpace", lowSpace)
+                    .build());
+        } catch (LibvirtException | RuntimeException e) {
+            put(STORAGE_POOLS, Health.down().withDetail("error", String.valueOf(e.getMessage())).build());
+        }
+    }
+
+    /**
+     * 不访问libvirt的探测：事件循环线程与宿主机采样新鲜度
+     */
+    private void probeLocal() {
+        try {
+            Map<String, Long> lags = vncProxyService.isEnabled() ? vncProxyService.getLoopLagMs() : Map.of();
+            boolean loopsOk = lags.values().stream().allMatch(lag -> lag >= 0 && lag <= probeConfig.getLoopMaxLagMs());
+            boolean flusherOk = journal.isFlusherAlive();
+            // 事件循环停止后收不到虚拟机内部关机和崩溃事件，且不会自行恢复
+            boolean libvirtLoopOk = hypervisor.isEventLoopRunning();
+            put(EVENT_LOOPS, (loopsOk && flusherOk && libvirtLoopOk ? Health.up() : Health.down())
+                    .withDetail("vncSelectorLagMs", lags)
+                    .withDetail("journalFlusher", flusherOk ? "running" : "stopped")
+                    .withDetail("libvirtEventLoop", !hypervisor.usesNativeEvents() ? "unused"
+                            : libvirtLoopOk ? "running" : "stopped")
+                    .build());
+
+            if (!hostMonitorConfig.isEnabled()) {
+                put(HOST_SAMPLE, Health.unknown().withDetail("reason", "宿主机采样未启用").build());
+            } else {
+                long sampledAt = hostMonitorService.getLastSampledAt();
+                long age = sampledAt == 0 ? -1 : System.currentTimeMillis() - sampledAt;
+                boolean fresh = age >= 0 && age <= probeConfig.getHostSampleMaxAgeMs();
+                put(HOST_SAMPLE, (fresh ? Health.up() : Health.down())
+                        .withDetail("sampledAt", sampledAt)
+                        .withDetail("ageMs", age)
+                        .withDetail("maxAgeMs", probeConfig.getHostSampleMaxAgeMs())
+                        .build());
+            }
+        } catch (RuntimeException e) {
+            log.warn("本地健康探测失败: {}", e.getMessage());
+        }
+    }
+
+    private void put(String name, Health health) {
+        Probe previous = probes.put(name, new Probe(health, System.currentTimeMillis()));
+        if (previous != null && !previous.health().getStatus().equals(health.getStatus())) {
+            log.info("健康状态变化: {} {} -> {}", name, previous.health().getStatus(), health.getStatus());
+        }
+    }
+}
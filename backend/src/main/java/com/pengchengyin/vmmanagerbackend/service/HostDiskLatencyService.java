@@ -0,0 +1,118 @@
+package com.pengchengyin.vmmanagerbackend.service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.pengchengyin.vmmanagerbackend.config.QosConfig;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 宿主机磁盘延迟采样服务
+ * 按 qos.interval-ms 周期性读取 /proc/diskstats，计算区间内各物理磁盘（或 qos.devices 指定的设备）的平均I/O延迟。
+ * 始终运行，不依赖自适应限速是否开启；自适应限速、克隆和排空的延迟门限都读取这里的结果。
+ */
+@Slf4j
+@Service
+public class HostDiskLatencyService {
+
+    private static final Path DISKSTATS = Path.of("/proc/diskstats");
+    private static final Path SYS_BLOCK = Path.of("/sys/block");
+
+    @Autowired
+    private QosConfig qosConfig;
+
+    private final Map<String, DeviceSample> deviceSamples = new HashMap<>();
+    private final Map<String, Double> deviceLatencies = new ConcurrentHashMap<>();
+    private volatile double hostLatencyMs = -1;
+    private volatile boolean available;
+
+    private record DeviceSample(long ops, long ioMs) {
+    }
+
+    @PostConstruct
+    public void init() {
+        available = Files.isReadable(DISKSTATS);
+        if (!available) {
+            log.warn("无法读取 {}，宿主机磁盘延迟不可用：自适应限速、克隆和排空的磁盘延迟门限不生效", DISKSTATS);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${qos.interval-ms:5000}")
+    public void run() {
+        if (!available) {
+            return;
+        }
+        hostLatencyMs = sample();
+    }
+
+    /**
+     * 最近一次采样的宿主机磁盘平均延迟（毫秒，取各设备最大值）；尚未采样、区间内无I/O或不可用时为-1
+     */
+    public double getHostLatencyMs() {
+        return hostLatencyMs;
+    }
+
+    /**
+     * 当前宿主机是否提供磁盘延迟信号（Linux的 /proc/diskstats 可读）
+     */
+    public boolean isAvailable() {
+        return available;
+    }
+
+    /**
+     * 各设备最近一次的平均延迟（毫秒）
+     */
+    public Map<String, Double> getDeviceLatencies() {
+        return deviceLatencies;
+    }
+
+    /**
+     * 计算与上次采样之间各设备的平均I/O延迟，返回最大值；首次采样或无I/O时返回-1
+     */
+    private synchronized double sample() {
+        List<String> lines;
+        try {
+            lines = Files.readAllLines(DISKSTATS);
+        } catch (IOException e) {
+            log.debug("读取 {} 失败: {}", DISKSTATS, e.getMessage());
+            return -1;
+        }
+        double worst = -1;
+        for (String line : lines) {
+            String[] f = line.trim().split("\\s+");
+            if (f.length < 11 || !monitored(f[2])) {
+                continue;
+            }
+            // 完成的读/写次数与读/写耗时（毫秒）
+            long ops = Long.parseLong(f[3]) + Long.parseLong(f[7]);
+            long ioMs = Long.parseLong(f[6]) + Long.parseLong(f[10]);
+            DeviceSample previous = deviceSamples.put(f[2], new DeviceSample(ops, ioMs));
+            if (previous == null || ops <= previous.ops()) {
+                continue;
+            }
+            double latency = (ioMs - previous.ioMs()) / (double) (ops - previous.ops());
+            deviceLatencies.put(f[2], latency);
+            worst = Math.max(worst, latency);
+        }
+        return worst;
+    }
+
+    private boolean monitored(String device) {
+        if (!qosConfig.getDevices().isEmpty()) {
+            return qosConfig.getDevices().contains(device);
+        }
+        // 只监测物理磁盘，排除分区、loop、device-mapper等
+        return Files.exists(SYS_BLOCK.resolve(device).resolve("device"));
+    }
+}
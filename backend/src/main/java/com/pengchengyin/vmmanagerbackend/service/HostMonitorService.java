@@ -0,0 +1,153 @@
+package com.pengchengyin.vmmanagerbackend.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.libvirt.LibvirtException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.pengchengyin.vmmanagerbackend.config.HostMonitorConfig;
+import com.pengchengyin.vmmanagerbackend.model.HostInfo;
+import com.pengchengyin.vmmanagerbackend.model.StoragePoolSummary;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 宿主机资源采样服务
+ * 后台定时通过Hypervisor后端采样节点信息并缓存在内存中，查询接口直接返回最近一次快照，不触发后端调用
+ */
+@Slf4j
+@Service
+public class HostMonitorService {
+
+    @Autowired
+    private HypervisorBackend hypervisor;
+
+    @Autowired
+    private HostMonitorConfig hostMonitorConfig;
+
+    private volatile HostInfo snapshot;
+
+    /**
+     * 获取宿主机资源概览（缓存快照），尚未采样过时同步采样一次
+     */
+    public HostInfo getHostInfo() throws LibvirtException {
+        HostInfo current = snapshot;
+        if (current == null) {
+            current = sample();
+        }
+        return current;
+    }
+
+    /**
+     * 最近一次采样时间（毫秒时间戳），尚未采样时为0
+     */
+    public long getLastSampledAt() {
+        HostInfo current = snapshot;
+        return current == null ? 0 : current.getSampledAt();
+    }
+
+    /**
+     * 后台定时刷新快照
+     */
+    @Scheduled(fixedDelayString = "${host-monitor.refresh-interval-ms:5000}")
+    public void refresh() {
+        if (!hostMonitorConfig.isEnabled()) {
+            return;
+        }
+        try {
+            sample();
+        } catch (LibvirtException | RuntimeException e) {
+            log.warn("宿主机资源采样失败: {}", e.getMessage());
+        }
+    }
+
+    private synchronized HostInfo sample() throws LibvirtException {
+        HypervisorBackend.HostSnapshot node = hypervisor.getHostInfo();
+
+        List<Long> cellFree = new ArrayList<>();
+        try {
+            for (long free : hypervisor.getCellsFreeMemory(Math.max(node.nodes(), 1))) {
+                cellFree.add(free);
+            }
+        } catch (LibvirtException | RuntimeException e) {
+            log.debug("获取NUMA节点空闲内存失败: {}", e.getMessage());
+        }
+
+        HostInfo.HostInfoBuilder builder = HostInfo.builder()
+                .hostname(node.hostname())
+                .hypervisorType(node.hypervisorType())
+                .hypervisorVersion(node.hypervisorVersion())
+                .libvirtVersion(node.libVersion())
+                .cpuModel(node.cpuModel())
+                .cpus(node.cpus())
+                .cpuMhz(node.mhz())
+                .numaNodes(node.nodes())
+                .sockets(node.sockets())
+                .cores(node.cores())
+                .threads(node.threads())
+                .totalMemory(node.memoryKiB() * 1024) // 转换为字节
+                .freeMemory(node.freeMemory())
+                .cellFreeMemory(cellFree)
+                .storagePools(samplePools());
+
+        sampleDomains(builder);
+
+        HostInfo info = builder.sampledAt(System.currentTimeMillis()).build();
+        snapshot = info;
+        return info;
+    }
+
+    private List<StoragePoolSummary> samplePools() {
+        List<StoragePoolSummary> pools = new ArrayList<>();
+        try {
+            for (HypervisorBackend.PoolSnapshot pool : hypervisor.listStoragePools()) {
+                if (!pool.active()) {
+                    continue;
+                }
+                pools.add(StoragePoolSummary.builder()
+                        .name(pool.name())
+                        .state(pool.state())
+                        .capacity(pool.capacity())
+                        .allocation(pool.allocation())
+                        .available(pool.available())
+                        .build());
+            }
+        } catch (LibvirtException | RuntimeException e) {
+            log.debug("获取存储池列表失败: {}", e.getMessage());
+        }
+        return pools;
+    }
+
+    /**
+     * 汇总所有虚拟机的已分配资源（committed）与运行中虚拟机的实际占用
+     */
+    private void sampleDomains(HostInfo.HostInfoBuilder builder) throws LibvirtException {
+        int domainCount = 0;
+        int runningCount = 0;
+        int committedVcpus = 0;
+        int runningVcpus = 0;
+        long committedMemory = 0;
+        long runningMemory = 0;
+
+        for (HypervisorBackend.DomainResources domain : hypervisor.listDomainResources()) {
+            domainCount++;
+            committedVcpus += domain.vcpus();
+            committedMemory += domain.maxMemoryKiB() * 1024;
+            if (domain.active()) {
+                runningCount++;
+                runningVcpus += domain.vcpus();
+                runningMemory += domain.memoryKiB() * 1024;
+            }
+        }
+
+        builder.domainCount(domainCount)
+                .runningDomainCount(runningCount)
+                .committedVcpus(committedVcpus)
+                .runningVcpus(runningVcpus)
+                .committedMemory(committedMemory)
+                .runningMemory(runningMemory);
+    }
+}
@@ -0,0 +1,330 @@
+package com.pengchengyin.vmmanagerbackend.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.WritableByteChannel;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import org.libvirt.LibvirtException;
+
+import com.pengchengyin.vmmanagerbackend.model.VmStatus;
+
+/**
+ * Hypervisor后端
+ * 虚拟机清单与生命周期、宿主机信息、存储池/存储卷及卷数据流都通过该接口访问。默认实现基于libvirt；
+ * hypervisor.backend=simulated 时使用进程内模拟后端，可在没有宿主机的环境下模拟大量虚拟机、调用延迟和故障。
+ * 虚拟机、存储池或存储卷不存在时，查询和变更方法抛出的异常消息中包含 "not found"，与libvirt一致。
+ */
+public interface HypervisorBackend {
+
+    /**
+     * 后端类型：libvirt 或 simulated
+     */
+    String getType();
+
+    /**
+     * 后端连接信息与统计，用于健康检查和诊断接口
+     */
+    Map<String, Object> describe() throws LibvirtException;
+
+    /**
+     * 运行中（含暂停）的虚拟机名称
+     */
+    List<String> listActiveDomains() throws LibvirtException;
+
+    /**
+     * 已定义但未运行的虚拟机名称
+     */
+    List<String> listInactiveDomains() throws LibvirtException;
+
+    /**
+     * 获取虚拟机快照，不存在时抛出异常
+     */
+    DomainSnapshot getDomain(String name) throws LibvirtException;
+
+    /**
+     * 获取虚拟机快照，不存在时返回null
+     */
+    DomainSnapshot findDomain(String name) throws LibvirtException;
+
+    DomainSnapshot getDomainByUuid(String uuid) throws LibvirtException;
+
+    /**
+     * 持久化配置的domain XML（运行中虚拟机重新定义后的配置在重启前只体现在这里），不存在时返回null
+     */
+    String findDefinitionXml(String name) throws LibvirtException;
+
+    /**
+     * 定义（或按同名同UUID更新）持久化虚拟机
+     */
+    DomainSnapshot defineDomain(String xml) throws LibvirtException;
+
+    void undefine(String name) throws LibvirtException;
+
+    void start(String name) throws LibvirtException;
+
+    void shutdown(String name) throws LibvirtException;
+
+    /**
+     * 强制关闭
+     */
+    void destroy(String name) throws LibvirtException;
+
+    void reboot(String name) throws LibvirtException;
+
+    void suspend(String name) throws LibvirtException;
+
+    void resume(String name) throws LibvirtException;
+
+    /**
+     * 托管保存：将内存状态写入磁盘后关闭虚拟机，下次启动时自动从保存的状态恢复
+     */
+    void managedSave(String name) throws LibvirtException;
+
+    /**
+     * 是否存在托管保存的状态
+     */
+    boolean hasManagedSave(String name) throws LibvirtException;
+
+    /**
+     * 采样累计CPU时间与磁盘/网络I/O字节数，用于计算空闲程度
+     */
+    UsageSample sampleUsage(String name) throws LibvirtException;
+
+    /**
+     * 设置所有磁盘的I/O限速与所有网卡的带宽限制
+     * 运行中的虚拟机立即生效；persistent为true时同时写入持久化配置，否则只作用于本次运行
+     */
+    void setIoTune(String name, IoTune tune, boolean persistent) throws LibvirtException;
+
+    /**
+     * 调整vCPU数量，不能超过vCPU上限
+     * live为true时对运行中的虚拟机热插拔，config为true时写入持久化配置
+     */
+    void setVcpus(String name, int count, boolean live, boolean config) throws LibvirtException;
+
+    /**
+     * 修改持久化配置中的vCPU上限，重启后生效
+     */
+    void setMaxVcpus(String name, int max) throws LibvirtException;
+
+    /**
+     * 调整当前内存（KiB），不能超过内存上限；运行中的虚拟机通过virtio气球生效
+     * live与config的含义同 {@link #setVcpus}
+     */
+    void setMemory(String name, long memoryKiB, boolean live, boolean config) throws LibvirtException;
+
+    /**
+     * 修改持久化配置中的内存上限（KiB），重启后生效
+     */
+    void setMaxMemory(String name, long maxMemoryKiB) throws LibvirtException;
+
+    /**
+     * 执行QEMU Guest Agent命令
+     */
+    String guestAgentCommand(String name, String command, int timeoutSeconds) throws LibvirtException;
+
+    /**
+     * 将运行中虚拟机的一个vCPU绑定到指定的宿主机CPU集合
+     */
+    void pinVcpu(String name, int vcpu, Collection<Integer> cpus) throws LibvirtException;
+
+    /**
+     * 读取来宾上报的内存气球统计，需要来宾运行virtio-balloon驱动并开启统计周期
+     */
+    BalloonStats memoryStats(String name) throws LibvirtException;
+
+    /**
+     * 所有虚拟机（运行中与已定义）的vCPU和内存分配，只读取基本信息，不获取XML
+     */
+    List<DomainResources> listDomainResources() throws LibvirtException;
+
+    /**
+     * 宿主机节点信息
+     */
+    HostSnapshot getHostInfo() throws LibvirtException;
+
+    /**
+     * 宿主机capabilities XML，包含NUMA拓扑
+     */
+    String getCapabilities() throws LibvirtException;
+
+    /**
+     * 前cells个NUMA节点各自的空闲内存（字节）
+     */
+    long[] getCellsFreeMemory(int cells) throws LibvirtException;
+
+    /**
+     * 所有存储池（运行中与已定义）及其容量；读取失败的存储池跳过
+     */
+    List<PoolSnapshot> listStoragePools() throws LibvirtException;
+
+    PoolSnapshot getStoragePool(String pool) throws LibvirtException;
+
+    List<VolumeSnapshot> listVolumes(String pool) throws LibvirtException;
+
+    VolumeSnapshot getVolume(String pool, String volume) throws LibvirtException;
+
+    /**
+     * 按路径查找存储卷，路径不属于任何存储池时抛出异常
+     */
+    VolumeSnapshot getVolumeByPath(String path) throws LibvirtException;
+
+    /**
+     * 按卷XML在存储池中创建存储卷
+     *
+     * @param preallocateMetadata 只预分配元数据（qcow2）
+     */
+    VolumeSnapshot createVolume(String pool, String xml, boolean preallocateMetadata) throws LibvirtException;
+
+    /**
+     * 按卷XML在存储池中创建存储卷，内容从同一存储池中的源卷完整复制（阻塞直到复制完成）
+     */
+    VolumeSnapshot copyVolume(String pool, String xml, String sourceVolume) throws LibvirtException;
+
+    /**
+     * 调整存储卷容量（字节）
+     */
+    void resizeVolume(String pool, String volume, long capacity) throws LibvirtException;
+
+    void deleteVolume(String pool, String volume) throws LibvirtException;
+
+    /**
+     * 从输入流读取length字节写入存储卷（从偏移0开始），数据不足时抛出IOException
+     */
+    void uploadVolume(String pool, String volume, InputStream in, long length, int chunkSize)
+            throws LibvirtException, IOException;
+
+    /**
+     * 从存储卷的offset处读取length字节写入目标通道
+     */
+    void downloadVolume(String path, long offset, long length, WritableByteChannel target, int chunkSize)
+            throws LibvirtException, IOException;
+
+    /**
+     * 注册生命周期事件监听器；事件在后端的事件线程上回调，监听器不应阻塞
+     */
+    void addLifecycleListener(LifecycleListener listener);
+
+    /**
+     * 是否通过libvirt原生域事件感知虚拟机内部关机和崩溃；否则只为本服务执行的操作发出事件
+     */
+    boolean usesNativeEvents();
+
+    /**
+     * 投递原生域事件的事件循环线程是否在运行，不使用原生事件时为true
+     */
+    boolean isEventLoopRunning();
+
+    /**
+     * 某一时刻的虚拟机状态
+     *
+     * @param maxMemoryKiB 最大内存（KiB）
+     * @param memoryKiB    当前内存（KiB）
+     * @param cpuTimeNs    累计CPU时间（纳秒）
+     * @param xml          当前domain XML
+     */
+    record DomainSnapshot(String name, String uuid, VmStatus status, long maxMemoryKiB, long memoryKiB,
+                          int vcpus, long cpuTimeNs, boolean active, boolean persistent, String xml) {
+    }
+
+    /**
+     * 资源使用采样（累计值，两次采样相减得到区间用量）
+     *
+     * @param cpuTimeNs 累计CPU时间（纳秒）
+     * @param diskBytes 所有磁盘累计读写字节数
+     * @param diskOps   所有磁盘累计读写请求数
+     * @param netBytes  所有网卡累计收发字节数
+     * @param sampledAt 采样时刻（System.nanoTime）
+     */
+    record UsageSample(long cpuTimeNs, int vcpus, long diskBytes, long diskOps, long netBytes, long sampledAt) {
+    }
+
+    /**
+     * 磁盘与网卡限速：为null的项保持不变，0表示不限制
+     *
+     * @param totalBytesSec 每块磁盘的读写总带宽（字节/秒）
+     * @param totalIopsSec  每块磁盘的读写总IOPS
+     * @param inboundKBps   每块网卡的入方向平均带宽（KB/s）
+     * @param outboundKBps  每块网卡的出方向平均带宽（KB/s）
+     */
+    record IoTune(Long totalBytesSec, Long totalIopsSec, Integer inboundKBps, Integer outboundKBps) {
+    }
+
+    /**
+     * 来宾内存气球统计（KiB），来宾未上报的项为null
+     *
+     * @param actualKiB   气球当前大小，即来宾可见内存
+     * @param swapIn      累计换入量
+     * @param majorFaults 累计主缺页次数
+     */
+    record BalloonStats(Long unusedKiB, Long availableKiB, Long actualKiB, long swapIn, long majorFaults) {
+    }
+
+    /**
+     * 虚拟机的资源分配
+     *
+     * @param maxMemoryKiB 最大内存（KiB）
+     * @param memoryKiB    当前内存（KiB）
+     * @param vcpus        当前vCPU数量
+     */
+    record DomainResources(String name, boolean active, long maxMemoryKiB, long memoryKiB, int vcpus) {
+    }
+
+    /**
+     * 宿主机节点信息
+     *
+     * @param nodes      NUMA节点数
+     * @param sockets    每个NUMA节点的CPU插槽数
+     * @param memoryKiB  物理内存总量（KiB）
+     * @param freeMemory 空闲内存（字节）
+     */
+    record HostSnapshot(String hostname, String hypervisorType, long hypervisorVersion, long libVersion,
+                        String cpuModel, int cpus, int mhz, int nodes, int sockets, int cores, int threads,
+                        long memoryKiB, long freeMemory) {
+    }
+
+    /**
+     * 存储池状态与容量（字节）
+     */
+    record PoolSnapshot(String name, String state, boolean active, long capacity, long allocation, long available) {
+    }
+
+    /**
+     * 存储卷信息
+     *
+     * @param capacity   容量（字节）
+     * @param allocation 已分配（字节）
+     * @param physical   卷文件的实际长度（字节），导出时按该长度传输
+     * @param backing    后备卷路径（qcow2覆盖卷），独立的卷为null
+     */
+    record VolumeSnapshot(String pool, String name, String path, String type, String format, long capacity,
+                          long allocation, long physical, String backing) {
+    }
+
+    /**
+     * 生命周期事件类型
+     */
+    enum LifecycleEventType {
+        DEFINED,
+        UNDEFINED,
+        STARTED,
+        SUSPENDED,
+        RESUMED,
+        SHUTDOWN,
+        STOPPED,
+        CRASHED,
+        REBOOTED,
+        SAVED
+    }
+
+    record LifecycleEvent(String name, LifecycleEventType type, long timestamp) {
+    }
+
+    @FunctionalInterface
+    interface LifecycleListener {
+        void onEvent(LifecycleEvent event);
+    }
+}
@@ -0,0 +1,12 @@
+package com.pengchengyin.vmmanagerbackend.service;
+
+/**
+ * 模拟后端及直接本地调用（{@link LibvirtNative}）的失败
+ * libvirt的LibvirtException只能由本地库构造，这些场景以该异常代替；虚拟机不存在时消息中包含 "not found"。
+ */
+public class HypervisorException extends RuntimeException {
+
+    public HypervisorException(String message) {
+        super(message);
+    }
+}
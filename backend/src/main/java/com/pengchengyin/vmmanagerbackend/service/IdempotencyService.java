@@ -0,0 +1,258 @@
+package com.pengchengyin.vmmanagerbackend.service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pengchengyin.vmmanagerbackend.config.IdempotencyConfig;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 幂等请求服务
+ * 以Idempotency-Key为键保存请求的响应：已完成的请求直接返回保存的响应；
+ * 同一Key正在处理时，后到的请求等待并共享首个请求的结果，不会重复调用libvirt。
+ * 结果同时保存在有界LRU缓存和磁盘上，服务重启后仍然有效，超过保留时间后清理。
+ * 5xx响应不保存，客户端可以用同一Key重试。
+ */
+@Slf4j
+@Service
+public class IdempotencyService {
+
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+    private static final int MAX_KEY_LENGTH = 255;
+
+    @Autowired
+    private IdempotencyConfig idempotencyConfig;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final Map<String, CompletableFuture<StoredResponse>> inFlight = new ConcurrentHashMap<>();
+    private Map<String, StoredResponse> cache;
+
+    /**
+     * 已保存的响应
+     *
+     * @param fingerprint 请求体摘要，同一Key携带不同请求体时拒绝
+     */
+    public record StoredResponse(String fingerprint, int status, Map<String, Object> body, long createdAt) {
+    }
+
+    @PostConstruct
+    public void init() {
+        int maxEntries = Math.max(1, idempotencyConfig.getMaxEntries());
+        cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, StoredResponse> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * 以幂等方式执行请求
+     *
+     * @param key     Idempotency-Key
+     * @param request 请求体，用于校验同一Key的请求内容一致
+     * @param action  实际执行请求的逻辑
+     */
+    public ResponseEntity<Map<String, Object>> execute(String key, Object request,
+                                                       Supplier<ResponseEntity<Map<String, Object>>> action) {
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            return error(400, "Idempotency-Key 长度必须在1到" + MAX_KEY_LENGTH + "之间");
+        }
+        String fingerprint = fingerprint(request);
+
+        StoredResponse stored = lookup(key);
+        if (stored != null) {
+            return replay(stored, fingerprint);
+        }
+
+        CompletableFuture<StoredResponse> future = new CompletableFuture<>();
+        CompletableFuture<StoredResponse> existing = inFlight.putIfAbsent(key, future);
+        if (existing != null) {
+            // 同一Key的请求正在处理，等待其结果
+            try {
+                return replay(existing.get(idempotencyConfig.getInFlightWaitSeconds(), TimeUnit.SECONDS), fingerprint);
+            } catch (TimeoutException e) {
+                return error(409, "相同Idempotency-Key的请求仍在处理中，请稍后重试");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return error(409, "相同Idempotency-Key的请求仍在处理中，请稍后重试");
+            } catch (ExecutionException e) {
+                return error(500, "请求处理失败: " + e.getCause().getMessage());
+            }
+        }
+
+        try {
+            // 获得处理权后再查一次，防止刚完成的请求在检查与登记之间移出了inFlight
+            stored = lookup(key);
+            if (stored != null) {
+                future.complete(stored);
+                return replay(stored, fingerprint);
+            }
+            ResponseEntity<Map<String, Object>> response = action.get();
+            StoredResponse result = new StoredResponse(fingerprint, response.getStatusCode().value(),
+                    response.getBody(), System.currentTimeMillis());
+            if (result.status() < 500) {
+                save(key, result);
+            }
+            future.complete(result);
+            return response;
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, future);
+        }
+    }
+
+    /**
+     * 由Idempotency-Key派生虚拟机UUID（基于名称的UUID，同一Key总是得到同一UUID）
+     */
+    public UUID deterministicUuid(String key) {
+        return UUID.nameUUIDFromBytes(("vm-manager/" + key).getBytes(StandardCharsets.UTF_8));
+    }
+
+    public boolean isDeterministicUuid() {
+        return idempotencyConfig.isDeterministicUuid();
+    }
+
+    private ResponseEntity<Map<String, Object>> replay(StoredResponse stored, String fingerprint) {
+        if (!stored.fingerprint().equals(fingerprint)) {
+            return error(422, "该Idempotency-Key已用于内容不同的请求");
+        }
+        return ResponseEntity.status(stored.status())
+                .header(REPLAYED_HEADER, "true")
+                .body(stored.body());
+    }
+
+    private StoredResponse lookup(String key) {
+        synchronized (cache) {
+            StoredResponse stored = cache.get(key);
+            if (stored != null) {
+                return expired(stored) ? null : stored;
+            }
+        }
+        Path file = fileFor(key);
+        try {
+            StoredResponse stored = objectMapper.readValue(Files.readAllBytes(file), StoredResponse.class);
+            if (expired(stored)) {
+                return null;
+            }
+            synchronized (cache) {
+                cache.put(key, stored);
+            }
+            return stored;
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            log.warn("读取幂等请求结果失败: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private void save(String key, StoredResponse stored) {
+        synchronized (cache) {
+            cache.put(key, stored);
+        }
+        try {
+            Path file = fileFor(key);
+            Files.createDirectories(file.getParent());
+            Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+            Files.write(tmp, objectMapper.writeValueAsBytes(stored));
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            // 内存中仍有结果，只是重启后失效
+            log.warn("保存幂等请求结果失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 定时清理过期结果
+     */
+    @Scheduled(fixedDelay = 3600000, initialDelay = 60000)
+    public void purge() {
+        synchronized (cache) {
+            cache.values().removeIf(this::expired);
+        }
+        Path dir = Paths.get(idempotencyConfig.getStoreDir());
+        if (!Files.isDirectory(dir)) {
+            return;
+        }
+        long cutoff = System.currentTimeMillis() - TimeUnit.HOURS.toMillis(idempotencyConfig.getTtlHours());
+        int removed = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "*.json")) {
+            for (Path file : files) {
+                if (Files.getLastModifiedTime(file).toMillis() < cutoff) {
+                    Files.deleteIfExists(file);
+                    removed++;
+                }
+            }
+        } catch (IOException e) {
+            log.warn("清理幂等请求结果失败: {}", e.getMessage());
+        }
+        if (removed > 0) {
+            log.info("已清理 {} 条过期的幂等请求结果", removed);
+        }
+    }
+
+    private boolean expired(StoredResponse stored) {
+        return System.currentTimeMillis() - stored.createdAt() > TimeUnit.HOURS.toMillis(idempotencyConfig.getTtlHours());
+    }
+
+    private Path fileFor(String key) {
+        // Key可能包含任意字符，文件名使用其摘要
+        return Paths.get(idempotencyConfig.getStoreDir(), sha256(key.getBytes(StandardCharsets.UTF_8)) + ".json");
+    }
+
+    private String fingerprint(Object request) {
+        try {
+            return sha256(objectMapper.writeValueAsBytes(request));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("序列化请求失败", e);
+        }
+    }
+
+    private static String sha256(byte[] data) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(data));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private ResponseEntity<Map<String, Object>> error(int status, String message) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("success", false);
+        response.put("message", message);
+        return ResponseEntity.status(status).body(response);
+    }
+}
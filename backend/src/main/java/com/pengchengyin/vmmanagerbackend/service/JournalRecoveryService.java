@@ -0,0 +1,144 @@
+package com.pengchengyin.vmmanagerbackend.service;
+
+import org.libvirt.LibvirtException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import com.pengchengyin.vmmanagerbackend.config.JournalConfig;
+import com.pengchengyin.vmmanagerbackend.model.JournaledOperation;
+import com.pengchengyin.vmmanagerbackend.model.OperationType;
+import com.pengchengyin.vmmanagerbackend.model.VmStatus;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 重启恢复服务
+ * 应用启动完成后处理操作日志中未完成的操作：对照虚拟机当前状态，
+ * 已经生效的记为完成，可以安全重放的继续执行，无法判断是否执行过的（如重启）记为放弃。
+ */
+@Slf4j
+@Service
+public class JournalRecoveryService {
+
+    @Autowired
+    private OperationJournal journal;
+
+    @Autowired
+    private JournalConfig journalConfig;
+
+    @Autowired
+    private HypervisorBackend hypervisor;
+
+    @Autowired
+    private VirtualMachineService vmService;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void recover() {
+        for (JournaledOperation op : journal.getRecovered()) {
+            if (!journalConfig.isResumeOnRecovery()) {
+                abandon(op, "已按配置放弃未完成的操作");
+                continue;
+            }
+            try {
+                recoverOperation(op);
+            } catch (LibvirtException | RuntimeException e) {
+                log.warn("恢复操作 {} {} {} 失败: {}", op.getOpId(), op.getType(), op.getVmName(), e.getMessage());
+                journal.fail(op.getOpId(), e.getMessage());
+                journal.recordRecovery(op, "FAILED", e.getMessage());
+            }
+        }
+    }
+
+    private void recoverOperation(JournaledOperation op) throws LibvirtException {
+        String name = op.getVmName();
+        HypervisorBackend.DomainSnapshot domain = hypervisor.findDomain(name);
+        VmStatus state = domain == null ? null : domain.status();
+        boolean active = domain != null && domain.active();
+
+        switch (op.getType()) {
+            case CREATE, DEFINE -> {
+                // 定义是原子的：要么已存在，要么没有发生，不自动重建
+                if (domain != null) {
+                    complete(op, "虚拟机已定义");
+                } else {
+                    abandon(op, "虚拟机未定义，需要客户端重新提交");
+                }
+            }
+            case DESTROY -> {
+                if (domain == null) {
+                    complete(op, "虚拟机已删除");
+                } else {
+                    vmService.destroyVm(name);
+                    resumed(op, "已继续删除虚拟机");
+                }
+            }
+            case START -> {
+                if (domain == null) {
+                    abandon(op, "虚拟机不存在");
+                } else if (active) {
+                    complete(op, "虚拟机已在运行");
+                } else {
+                    vmService.startVm(name);
+                    resumed(op, "虚拟机未运行，已重新启动");
+                }
+            }
+            case SHUTDOWN, FORCE_SHUTDOWN -> {
+                if (!active) {
+                    complete(op, "虚拟机已关闭");
+                } else if (op.getType() == OperationType.SHUTDOWN) {
+                    vmService.shutdownVm(name);
+                    resumed(op, "已重新发送关机信号");
+                } else {
+                    vmService.forceShutdownVm(name);
+                    resumed(op, "已重新强制关闭");
+                }
+            }
+            case SUSPEND -> {
+                if (state == VmStatus.PAUSED) {
+                    complete(op, "虚拟机已暂停");
+                } else if (state == VmStatus.RUNNING) {
+                    vmService.suspendVm(name);
+                    resumed(op, "已重新暂停");
+                } else {
+                    abandon(op, "虚拟机未运行");
+                }
+            }
+            case RESUME -> {
+                if (state == VmStatus.PAUSED) {
+                    vmService.resumeVm(name);
+                    resumed(op, "已重新恢复运行");
+                } else {
+                    complete(op, "虚拟机未处于暂停状态");
+                }
+            }
+            case SAVE -> {
+                if (domain != null && !active) {
+                    complete(op, "虚拟机已保存");
+                } else {
+                    abandon(op, "虚拟机仍在运行，由空闲策略重新判断");
+                }
+            }
+            default -> abandon(op, "无法确认该操作是否已执行，不自动重放");
+        }
+    }
+
+    private void complete(JournaledOperation op, String detail) {
+        journal.complete(op.getOpId());
+        journal.recordRecovery(op, "COMPLETED", detail);
+        log.info("未完成的操作 {} {} {}: {}", op.getOpId(), op.getType(), op.getVmName(), detail);
+    }
+
+    private void resumed(JournaledOperation op, String detail) {
+        journal.complete(op.getOpId());
+        journal.recordRecovery(op, "RESUMED", detail);
+        log.info("未完成的操作 {} {} {}: {}", op.getOpId(), op.getType(), op.getVmName(), detail);
+    }
+
+    private void abandon(JournaledOperation op, String detail) {
+        journal.abandon(op.getOpId(), detail);
+        journal.recordRecovery(op, "ABANDONED", detail);
+        log.info("未完成的操作 {} {} {}: {}", op.getOpId(), op.getType(), op.getVmName(), detail);
+    }
+}
@@ -0,0 +1,121 @@
+package com.pengchengyin.vmmanagerbackend.service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 标签选择器，语法与Kubernetes的基于集合的选择器相同，多个条件以逗号分隔、同时满足：
+ * {@code env=prod}、{@code env==prod}、{@code role!=db}、{@code tier in (web,api)}、
+ * {@code tier notin (cache)}、{@code gpu}（存在该键）、{@code !gpu}（不存在该键）。
+ * {@code !=} 和 {@code notin} 也匹配没有该键的虚拟机。
+ */
+public record LabelSelector(List<Requirement> requirements) {
+
+    public enum Operator {
+        IN,
+        NOT_IN,
+        EXISTS,
+        NOT_EXISTS
+    }
+
+    /**
+     * 单个条件；EXISTS/NOT_EXISTS的values为空
+     */
+    public record Requirement(String key, Operator operator, Set<String> values) {
+    }
+
+    public boolean isEmpty() {
+        return requirements.isEmpty();
+    }
+
+    /**
+     * 解析选择器，为空时返回空选择器（匹配全部），语法错误时抛出IllegalArgumentException
+     */
+    public static LabelSelector parse(String selector) {
+        List<Requirement> requirements = new ArrayList<>();
+        if (selector == null || selector.isBlank()) {
+            return new LabelSelector(requirements);
+        }
+        for (String term : splitTopLevel(selector)) {
+            requirements.add(parseTerm(term.trim(), selector));
+        }
+        return new LabelSelector(List.copyOf(requirements));
+    }
+
+    private static Requirement parseTerm(String term, String selector) {
+        if (term.isEmpty()) {
+            throw new IllegalArgumentException("选择器中有空条件: " + selector);
+        }
+        int not = term.indexOf("!=");
+        if (not > 0) {
+            return requirement(term.substring(0, not), Operator.NOT_IN, term.substring(not + 2));
+        }
+        int eq = term.indexOf('=');
+        if (eq > 0) {
+            String value = term.startsWith("==", eq) ? term.substring(eq + 2) : term.substring(eq + 1);
+            return requirement(term.substring(0, eq), Operator.IN, value);
+        }
+        String[] parts = term.split("\\s+", 3);
+        if (parts.length == 3 && ("in".equals(parts[1]) || "notin".equals(parts[1]))) {
+            String list = parts[2].trim();
+            if (!list.startsWith("(") || !list.endsWith(")")) {
+                throw new IllegalArgumentException("集合条件需要用括号括起取值: " + term);
+            }
+            Set<String> values = new LinkedHashSet<>();
+            for (String value : list.substring(1, list.length() - 1).split(",")) {
+                values.add(checkValue(value.trim(), term));
+            }
+            return new Requirement(checkKey(parts[0], term), "in".equals(parts[1]) ? Operator.IN : Operator.NOT_IN, values);
+        }
+        if (term.startsWith("!")) {
+            return new Requirement(checkKey(term.substring(1).trim(), term), Operator.NOT_EXISTS, Set.of());
+        }
+        return new Requirement(checkKey(term, term), Operator.EXISTS, Set.of());
+    }
+
+    private static Requirement requirement(String key, Operator operator, String value) {
+        String term = key + (operator == Operator.IN ? "=" : "!=") + value;
+        return new Requirement(checkKey(key.trim(), term), operator, Set.of(checkValue(value.trim(), term)));
+    }
+
+    private static String checkKey(String key, String term) {
+        if (!VmLabels.isValidKey(key)) {
+            throw new IllegalArgumentException("选择器中的标签键不合法: " + term);
+        }
+        return key;
+    }
+
+    private static String checkValue(String value, String term) {
+        if (!VmLabels.isValidValue(value)) {
+            throw new IllegalArgumentException("选择器中的标签值不合法: " + term);
+        }
+        return value;
+    }
+
+    /**
+     * 按逗号拆分，括号内的逗号不拆分
+     */
+    private static List<String> splitTopLevel(String selector) {
+        List<String> terms = new ArrayList<>();
+        int depth = 0;
+        int start = 0;
+        for (int i = 0; i < selector.length(); i++) {
+            char c = selector.charAt(i);
+            if (c == '(') {
+                depth++;
+            } else if (c == ')') {
+                depth--;
+            } else if (c == ',' && depth == 0) {
+                terms.add(selector.substring(start, i));
+                start = i + 1;
+            }
+        }
+        if (depth != 0) {
+            throw new IllegalArgumentException("选择器括号不匹配: " + selector);
+        }
+        terms.add(selector.substring(start));
+        return terms;
+    }
+}
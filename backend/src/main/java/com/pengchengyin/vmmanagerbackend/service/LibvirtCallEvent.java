@@ -0,0 +1,27 @@
+package com.pengchengyin.vmmanagerbackend.service;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR事件：一次libvirt调用（经JNA进入libvirt库，远程连接时包含与libvirtd的往返）
+ */
+@Name("com.pengchengyin.vmmanager.LibvirtCall")
+@Label("Libvirt Call")
+@Description("一次Connect/Domain方法调用")
+@Category({"VM Manager", "libvirt"})
+@StackTrace(true)
+public class LibvirtCallEvent extends jdk.jfr.Event {
+
+    @Label("Operation")
+    String operation;
+
+    @Label("Domain")
+    String domain;
+
+    @Label("Success")
+    boolean success;
+}
@@ -5,11 +5,18 @@ import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.libvirt.Connect;
+import org.libvirt.Library;
 import org.libvirt.LibvirtException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
 /**
  * Libvirt连接管理服务
+ * 首次连接前初始化libvirt默认事件循环，并在后台线程上运行，域事件回调在该线程上执行。
  */
 @Slf4j
 @Service
@@ -18,8 +25,15 @@ public class LibvirtConnectionService {
     @Autowired
     private LibvirtConfig libvirtConfig;
 
+    @Autowired
+    private LibvirtProfiler profiler;
+
     private Connect connect;
 
+    private final List<Consumer<Connect>> connectListeners = new CopyOnWriteArrayList<>();
+    private boolean eventLoopInitialized;
+    private Thread eventLoopThread;
+
     /**
      * 获取配置的QEMU路径
      */
@@ -40,19 +54,41 @@ public class LibvirtConnectionService {
         log.warn("如果使用SSH远程连接（qemu+ssh://），建议在Linux服务器上运行此应用。");
     }
 
+    /**
+     * 注册新连接建立时的回调（例如订阅域事件），重连后会再次调用
+     */
+    public void addConnectListener(Consumer<Connect> listener) {
+        connectListeners.add(listener);
+    }
+
+    /**
+     * 事件循环是否在运行，未运行时域事件回调不会被调用
+     */
+    public boolean isEventLoopRunning() {
+        Thread thread = eventLoopThread;
+        return thread != null && thread.isAlive();
+    }
+
     /**
      * 获取连接（延迟初始化）
+     * 后台采样任务与请求线程会并发调用，加锁避免重复建立连接
      */
-    public Connect getConnection() {
+    public synchronized Connect getConnection() {
         try {
             if (connect == null || !connect.isAlive()) {
                 try {
                     log.info("正在连接到libvirt: {}", libvirtConfig.getConnection().getUri());
-                    connect = new Connect(libvirtConfig.getConnection().getUri(), false);
+                    startEventLoop();
+                    Connect opened = profiler.call("Connect.open", null,
+                            () -> new Connect(libvirtConfig.getConnection().getUri(), false));
+                    connect = opened;
                     log.info("成功连接到libvirt");
-                    log.info("Hypervisor类型: {}", connect.getType());
-                    log.info("Libvirt版本: {}", connect.getLibVersion());
-                    log.info("主机名: {}", connect.getHostName());
+                    log.info("Hypervisor类型: {}", profiler.call("Connect.getType", null, opened::getType));
+                    log.info("Libvirt版本: {}", profiler.call("Connect.getLibVersion", null, opened::getLibVersion));
+                    log.info("主机名: {}", profiler.call("Connect.getHostName", null, opened::getHostName));
+                    for (Consumer<Connect> listener : connectListeners) {
+                        listener.accept(connect);
+                    }
                 } catch (LibvirtException e) {
                     log.error("连接libvirt失败: {}", e.getMessage(), e);
                     throw new RuntimeException("无法连接到libvirt: " + e.getMessage(), e);
@@ -73,14 +109,48 @@ public class LibvirtConnectionService {
         return connect;
     }
 
+    /**
+     * 初始化并启动事件循环（只执行一次），必须在打开连接之前调用
+     */
+    private void startEventLoop() {
+        if (eventLoopInitialized) {
+            return;
+        }
+        eventLoopInitialized = true;
+        try {
+            Library.initEventLoop();
+        } catch (LibvirtException | UnsatisfiedLinkError e) {
+            log.warn("初始化libvirt事件循环失败，将无法接收域事件: {}", e.getMessage());
+            return;
+        }
+        eventLoopThread = new Thread(() -> {
+            try {
+                Library.runEventLoop();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (LibvirtException e) {
+                log.error("libvirt事件循环异常退出: {}", e.getMessage(), e);
+            }
+        }, "libvirt-event-loop");
+        eventLoopThread.setDaemon(true);
+        eventLoopThread.start();
+    }
+
     /**
      * 关闭连接
      */
     @PreDestroy
     public void close() {
+        if (isEventLoopRunning()) {
+            try {
+                Library.stopEventLoop();
+            } catch (LibvirtException e) {
+                log.warn("停止libvirt事件循环失败: {}", e.getMessage());
+            }
+        }
         if (connect != null) {
             try {
-                connect.close();
+                profiler.call("Connect.close", null, connect::close);
                 log.info("已关闭libvirt连接");
             } catch (LibvirtException e) {
                 log.error("关闭libvirt连接失败: {}", e.getMessage(), e);
@@ -0,0 +1,751 @@
+package com.pengchengyin.vmmanagerbackend.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.libvirt.Connect;
+import org.libvirt.Domain;
+import org.libvirt.DomainBlockStats;
+import org.libvirt.DomainInfo;
+import org.libvirt.DomainInterfaceStats;
+import org.libvirt.LibvirtException;
+import org.libvirt.MemoryStatistic;
+import org.libvirt.NodeInfo;
+import org.libvirt.StoragePool;
+import org.libvirt.StoragePoolInfo;
+import org.libvirt.StorageVol;
+import org.libvirt.StorageVolInfo;
+import org.libvirt.Stream;
+import org.libvirt.event.DomainEvent;
+import org.libvirt.event.StoppedReason;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import com.pengchengyin.vmmanagerbackend.model.VmStatus;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 基于libvirt的Hypervisor后端（默认）
+ * 生命周期事件来自libvirt的域生命周期回调，包括在虚拟机内部关机、崩溃和通过virsh执行的操作；
+ * 订阅失败（例如事件循环不可用）时退回为只针对通过本服务执行的操作发出。
+ * 每个Connect/Domain调用都经过 {@link LibvirtProfiler}，发出JFR事件并参与慢操作统计。
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(prefix = "hypervisor", name = "backend", havingValue = "libvirt", matchIfMissing = true)
+public class LibvirtHypervisorBackend extends AbstractHypervisorBackend {
+
+    /**
+     * virDomainXMLFlags.VIR_DOMAIN_XML_INACTIVE
+     */
+    private static final int VIR_DOMAIN_XML_INACTIVE = 2;
+
+    /**
+     * virDomainUndefineFlagsValues.VIR_DOMAIN_UNDEFINE_MANAGED_SAVE
+     */
+    private static final int VIR_DOMAIN_UNDEFINE_MANAGED_SAVE = 1;
+
+    /**
+     * virStorageVolCreateFlags.VIR_STORAGE_VOL_CREATE_PREALLOC_METADATA
+     */
+    private static final int VIR_STORAGE_VOL_CREATE_PREALLOC_METADATA = 1;
+
+    /**
+     * virDomainMemoryStatTags
+     */
+    private static final int STAT_SWAP_IN = 0;
+    private static final int STAT_MAJOR_FAULT = 2;
+    private static final int STAT_UNUSED = 4;
+    private static final int STAT_AVAILABLE = 5;
+    private static final int STAT_ACTUAL_BALLOON = 6;
+    private static final int STAT_NR = 10;
+
+    private static final Pattern DISK_TARGET_PATTERN = Pattern.compile(
+            "<disk[^>]*>.*?<target\\s+dev=['\"]([^'\"]+)['\"]", Pattern.DOTALL);
+    private static final Pattern INTERFACE_TARGET_PATTERN = Pattern.compile(
+            "<interface[^>]*>.*?<target\\s+dev=['\"]([^'\"]+)['\"]", Pattern.DOTALL);
+    private static final Pattern BLOCK_DISK_TARGET_PATTERN = Pattern.compile(
+            "<disk[^>]*device=['\"]disk['\"][^>]*>.*?<target\\s+dev=['\"]([^'\"]+)['\"]", Pattern.DOTALL);
+    private static final Pattern INTERFACE_MAC_PATTERN = Pattern.compile(
+            "<interface[^>]*>.*?<mac\\s+address=['\"]([^'\"]+)['\"]", Pattern.DOTALL);
+    private static final Pattern VOLUME_FORMAT_PATTERN = Pattern.compile("<format\\s+type=['\"]([^'\"]+)['\"]");
+    private static final Pattern VOLUME_PHYSICAL_PATTERN = Pattern.compile("<physical[^>]*>(\\d+)</physical>");
+    private static final Pattern VOLUME_BACKING_PATTERN = Pattern.compile(
+            "<backingStore>.*?<path>([^<]+)</path>", Pattern.DOTALL);
+
+    @Autowired
+    private LibvirtConnectionService connectionService;
+
+    @Autowired
+    private LibvirtProfiler profiler;
+
+    /**
+     * 已在当前连接上订阅libvirt域事件，此时不再为本服务的操作补发事件，避免重复
+     */
+    private volatile boolean nativeEvents;
+
+    @PostConstruct
+    public void init() {
+        connectionService.addConnectListener(this::subscribeEvents);
+    }
+
+    private void subscribeEvents(Connect connect) {
+        if (!connectionService.isEventLoopRunning()) {
+            nativeEvents = false;
+            log.warn("libvirt事件循环未运行，无法接收虚拟机内部关机和崩溃事件");
+            return;
+        }
+        try {
+            profiler.run("Connect.addLifecycleListener", null, () -> connect.addLifecycleListener((domain, event) -> {
+                onDomainEvent(domain, event);
+                return 0;
+            }));
+            nativeEvents = true;
+            log.info("已订阅libvirt域生命周期事件");
+        } catch (LibvirtException e) {
+            nativeEvents = false;
+            log.warn("订阅libvirt域生命周期事件失败，无法接收虚拟机内部关机和崩溃事件: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * libvirt域事件映射为生命周期事件（在libvirt事件循环线程上执行）
+     * 停止事件按原因区分：客户机关机为SHUTDOWN，强制关闭/迁出/恢复快照为STOPPED，
+     * 保存为SAVED，崩溃和QEMU异常退出为CRASHED
+     */
+    private void onDomainEvent(Domain domain, DomainEvent event) {
+        LifecycleEventType type = switch (event.getType()) {
+            case DEFINED -> LifecycleEventType.DEFINED;
+            case UNDEFINED -> LifecycleEventType.UNDEFINED;
+            case STARTED -> LifecycleEventType.STARTED;
+            case SUSPENDED -> LifecycleEventType.SUSPENDED;
+            case RESUMED -> LifecycleEventType.RESUMED;
+            case CRASHED -> LifecycleEventType.CRASHED;
+            case STOPPED -> {
+                Object detail = event.getDetail();
+                if (detail == StoppedReason.SHUTDOWN) {
+                    yield LifecycleEventType.SHUTDOWN;
+                } else if (detail == StoppedReason.SAVED) {
+                    yield LifecycleEventType.SAVED;
+                } else if (detail == StoppedReason.CRASHED || detail == StoppedReason.FAILED) {
+                    yield LifecycleEventType.CRASHED;
+                }
+                yield LifecycleEventType.STOPPED;
+            }
+            // 客户机开始关机（SHUTDOWN）等中间状态不发出，关机完成时会收到STOPPED
+            default -> null;
+        };
+        if (type == null) {
+            return;
+        }
+        try {
+            emit(profiler.call("Domain.getName", null, domain::getName), type);
+        } catch (LibvirtException e) {
+            log.debug("读取事件中的虚拟机名称失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 未订阅libvirt域事件时，为本服务执行的操作发出事件
+     */
+    private void emitLocal(String name, LifecycleEventType type) {
+        if (!nativeEvents) {
+            emit(name, type);
+        }
+    }
+
+    @Override
+    public String getType() {
+        return "libvirt";
+    }
+
+    @Override
+    public boolean usesNativeEvents() {
+        return nativeEvents;
+    }
+
+    @Override
+    public boolean isEventLoopRunning() {
+        return !nativeEvents || connectionService.isEventLoopRunning();
+    }
+
+    @Override
+    public Map<String, Object> describe() throws LibvirtException {
+        Connect connect = connectionService.getConnection();
+        Map<String, Object> details = new LinkedHashMap<>();
+        details.put("backend", getType());
+        details.put("uri", profiler.call("Connect.getURI", null, connect::getURI));
+        details.put("libVersion", profiler.call("Connect.getLibVersion", null, connect::getLibVersion));
+        return details;
+    }
+
+    @Override
+    public List<String> listActiveDomains() throws LibvirtException {
+        Connect connect = connectionService.getConnection();
+        List<String> names = new ArrayList<>();
+        for (int id : profiler.call("Connect.listDomains", null, connect::listDomains)) {
+            try {
+                Domain domain = profiler.call("Connect.domainLookupByID", null, () -> connect.domainLookupByID(id));
+                names.add(profiler.call("Domain.getName", null, domain::getName));
+            } catch (LibvirtException e) {
+                // 列出后已关闭
+            }
+        }
+        return names;
+    }
+
+    @Override
+    public List<String> listInactiveDomains() throws LibvirtException {
+        Connect connect = connectionService.getConnection();
+        return List.of(profiler.call("Connect.listDefinedDomains", null, connect::listDefinedDomains));
+    }
+
+    @Override
+    public DomainSnapshot getDomain(String name) throws LibvirtException {
+        return snapshot(lookup(name));
+    }
+
+    @Override
+    public DomainSnapshot findDomain(String name) throws LibvirtException {
+        try {
+            return snapshot(lookup(name));
+        } catch (LibvirtException e) {
+            if (e.getMessage() != null && e.getMessage().contains("not found")) {
+                return null;
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public DomainSnapshot getDomainByUuid(String uuid) throws LibvirtException {
+        Connect connect = connectionService.getConnection();
+        return snapshot(profiler.call("Connect.domainLookupByUUIDString", uuid, () -> connect.domainLookupByUUIDString(uuid)));
+    }
+
+    @Override
+    public String findDefinitionXml(String name) throws LibvirtException {
+        Domain domain;
+        try {
+            domain = lookup(name);
+        } catch (LibvirtException e) {
+            if (e.getMessage() != null && e.getMessage().contains("not found")) {
+                return null;
+            }
+            throw e;
+        }
+        return profiler.call("Domain.getXMLDesc", name, () -> domain.getXMLDesc(VIR_DOMAIN_XML_INACTIVE));
+    }
+
+    @Override
+    public DomainSnapshot defineDomain(String xml) throws LibvirtException {
+        Connect connect = connectionService.getConnection();
+        Domain domain = profiler.call("Connect.domainDefineXML", null, () -> connect.domainDefineXML(xml));
+        DomainSnapshot snapshot = snapshot(domain);
+        emitLocal(snapshot.name(), LifecycleEventType.DEFINED);
+        return snapshot;
+    }
+
+    @Override
+    public void undefine(String name) throws LibvirtException {
+        Domain domain = lookup(name);
+        // 同时删除托管保存的状态文件，否则被空闲托管保存的虚拟机无法删除
+        profiler.call("Domain.undefine", name, () -> domain.undefine(VIR_DOMAIN_UNDEFINE_MANAGED_SAVE));
+        emitLocal(name, LifecycleEventType.UNDEFINED);
+    }
+
+    @Override
+    public void start(String name) throws LibvirtException {
+        Domain domain = lookup(name);
+        profiler.call("Domain.create", name, domain::create);
+        emitLocal(name, LifecycleEventType.STARTED);
+    }
+
+    @Override
+    public void shutdown(String name) throws LibvirtException {
+        Domain domain = lookup(name);
+        profiler.run("Domain.shutdown", name, domain::shutdown);
+        emitLocal(name, LifecycleEventType.SHUTDOWN);
+    }
+
+    @Override
+    public void destroy(String name) throws LibvirtException {
+        Domain domain = lookup(name);
+        profiler.run("Domain.destroy", name, domain::destroy);
+        emitLocal(name, LifecycleEventType.STOPPED);
+    }
+
+    @Override
+    public void reboot(String name) throws LibvirtException {
+        Domain domain = lookup(name);
+        profiler.run("Domain.reboot", name, () -> domain.reboot(0));
+        emit(name, LifecycleEventType.REBOOTED);
+    }
+
+    @Override
+    public void suspend(String name) throws LibvirtException {
+        Domain domain = lookup(name);
+        profiler.run("Domain.suspend", name, domain::suspend);
+        emitLocal(name, LifecycleEventType.SUSPENDED);
+    }
+
+    @Override
+    public void resume(String name) throws LibvirtException {
+        Domain domain = lookup(name);
+        profiler.run("Domain.resume", name, domain::resume);
+        emitLocal(name, LifecycleEventType.RESUMED);
+    }
+
+    @Override
+    public void managedSave(String name) throws LibvirtException {
+        Domain domain = lookup(name);
+        profiler.call("Domain.managedSave", name, domain::managedSave);
+        emitLocal(name, LifecycleEventType.SAVED);
+    }
+
+    @Override
+    public boolean hasManagedSave(String name) throws LibvirtException {
+        Domain domain = lookup(name);
+        return profiler.call("Domain.hasManagedSaveImage", name, () -> domain.hasManagedSaveImage(0)) == 1;
+    }
+
+    @Override
+    public UsageSample sampleUsage(String name) throws LibvirtException {
+        Domain domain = lookup(name);
+        DomainInfo info = profiler.call("Domain.getInfo", name, domain::getInfo);
+        String xml = profiler.call("Domain.getXMLDesc", name, () -> domain.getXMLDesc(0));
+        long diskBytes = 0;
+        long diskOps = 0;
+        Matcher disks = DISK_TARGET_PATTERN.matcher(xml);
+        while (disks.find()) {
+            String dev = disks.group(1);
+            try {
+                DomainBlockStats stats = profiler.call("Domain.blockStats", name, () -> domain.blockStats(dev));
+                diskBytes += stats.rd_bytes + stats.wr_bytes;
+                diskOps += stats.rd_req + stats.wr_req;
+            } catch (LibvirtException e) {
+                log.debug("读取虚拟机 {} 磁盘 {} 统计失败: {}", name, dev, e.getMessage());
+            }
+        }
+        long netBytes = 0;
+        Matcher interfaces = INTERFACE_TARGET_PATTERN.matcher(xml);
+        while (interfaces.find()) {
+            String dev = interfaces.group(1);
+            try {
+                DomainInterfaceStats stats = profiler.call("Domain.interfaceStats", name, () -> domain.interfaceStats(dev));
+                netBytes += stats.rx_bytes + stats.tx_bytes;
+            } catch (LibvirtException e) {
+                log.debug("读取虚拟机 {} 网卡 {} 统计失败: {}", name, dev, e.getMessage());
+            }
+        }
+        return new UsageSample(info.cpuTime, info.nrVirtCpu, diskBytes, diskOps, netBytes, System.nanoTime());
+    }
+
+    @Override
+    public void setIoTune(String name, IoTune tune, boolean persistent) throws LibvirtException {
+        Domain domain = lookup(name);
+        boolean active = profiler.call("Domain.isActive", name, domain::isActive) == 1;
+        int flags = (active ? LibvirtNative.VIR_DOMAIN_AFFECT_LIVE : 0) | (persistent ? LibvirtNative.VIR_DOMAIN_AFFECT_CONFIG : 0);
+        if (flags == 0) {
+            throw new IllegalStateException("虚拟机未运行，临时限速无法生效");
+        }
+        // 持久化配置中的网卡没有target dev，统一按MAC地址指定
+        String xml = profiler.call("Domain.getXMLDesc", name,
+                () -> domain.getXMLDesc(active ? 0 : VIR_DOMAIN_XML_INACTIVE));
+
+        Map<String, Long> blockParams = new LinkedHashMap<>();
+        if (tune.totalBytesSec() != null) {
+            blockParams.put("total_bytes_sec", tune.totalBytesSec());
+        }
+        if (tune.totalIopsSec() != null) {
+            blockParams.put("total_iops_sec", tune.totalIopsSec());
+        }
+        if (!blockParams.isEmpty()) {
+            Matcher disks = BLOCK_DISK_TARGET_PATTERN.matcher(xml);
+            while (disks.find()) {
+                String dev = disks.group(1);
+                profiler.run("Domain.setBlockIoTune", name, () -> LibvirtNative.setBlockIoTune(domain, dev, blockParams, flags));
+            }
+        }
+
+        Map<String, Integer> interfaceParams = new LinkedHashMap<>();
+        if (tune.inboundKBps() != null) {
+            interfaceParams.put("inbound.average", tune.inboundKBps());
+        }
+        if (tune.outboundKBps() != null) {
+            interfaceParams.put("outbound.average", tune.outboundKBps());
+        }
+        if (!interfaceParams.isEmpty()) {
+            Matcher interfaces = INTERFACE_MAC_PATTERN.matcher(xml);
+            while (interfaces.find()) {
+                String mac = interfaces.group(1);
+                profiler.run("Domain.setInterfaceParameters", name,
+                        () -> LibvirtNative.setInterfaceParameters(domain, mac, interfaceParams, flags));
+            }
+        }
+    }
+
+    @Override
+    public void setVcpus(String name, int count, boolean live, boolean config) throws LibvirtException {
+        Domain domain = lookup(name);
+        int flags = modificationFlags(live, config);
+        profiler.run("Domain.setVcpusFlags", name, () -> LibvirtNative.setVcpus(domain, count, flags));
+    }
+
+    @Override
+    public void setMaxVcpus(String name, int max) throws LibvirtException {
+        Domain domain = lookup(name);
+        profiler.run("Domain.setVcpusFlags", name, () -> LibvirtNative.setVcpus(domain, max,
+                LibvirtNative.VIR_DOMAIN_AFFECT_CONFIG | LibvirtNative.VIR_DOMAIN_VCPU_MAXIMUM));
+    }
+
+    @Override
+    public void setMemory(String name, long memoryKiB, boolean live, boolean config) throws LibvirtException {
+        Domain domain = lookup(name);
+        int flags = modificationFlags(live, config);
+        profiler.run("Domain.setMemoryFlags", name, () -> LibvirtNative.setMemory(domain, memoryKiB, flags));
+    }
+
+    @Override
+    public void setMaxMemory(String name, long maxMemoryKiB) throws LibvirtException {
+        Domain domain = lookup(name);
+        profiler.run("Domain.setMemoryFlags", name, () -> LibvirtNative.setMemory(domain, maxMemoryKiB,
+                LibvirtNative.VIR_DOMAIN_AFFECT_CONFIG | LibvirtNative.VIR_DOMAIN_MEM_MAXIMUM));
+    }
+
+    private static int modificationFlags(boolean live, boolean config) {
+        int flags = (live ? LibvirtNative.VIR_DOMAIN_AFFECT_LIVE : 0) | (config ? LibvirtNative.VIR_DOMAIN_AFFECT_CONFIG : 0);
+        if (flags == 0) {
+            throw new IllegalArgumentException("至少需要作用于运行状态或持久化配置之一");
+        }
+        return flags;
+    }
+
+    @Override
+    public String guestAgentCommand(String name, String command, int timeoutSeconds) throws LibvirtException {
+        Domain domain = lookup(name);
+        return profiler.call("Domain.qemuAgentCommand", name, () -> domain.qemuAgentCommand(command, timeoutSeconds, 0));
+    }
+
+    @Override
+    public void pinVcpu(String name, int vcpu, Collection<Integer> cpus) throws LibvirtException {
+        Domain domain = lookup(name);
+        int[] cpumap = cpumap(cpus);
+        profiler.run("Domain.pinVcpu", name, () -> domain.pinVcpu(vcpu, cpumap));
+    }
+
+    /**
+     * libvirt pinVcpu 使用的CPU位图，每个int表示位图中的一个字节
+     */
+    private static int[] cpumap(Collection<Integer> cpus) {
+        int maxCpu = 0;
+        for (int cpu : cpus) {
+            maxCpu = Math.max(maxCpu, cpu);
+        }
+        int[] map = new int[maxCpu / 8 + 1];
+        for (int cpu : cpus) {
+            map[cpu / 8] |= 1 << (cpu % 8);
+        }
+        return map;
+    }
+
+    @Override
+    public BalloonStats memoryStats(String name) throws LibvirtException {
+        Domain domain = lookup(name);
+        Map<Integer, Long> stats = new LinkedHashMap<>();
+        for (MemoryStatistic stat : profiler.call("Domain.memoryStats", name, () -> domain.memoryStats(STAT_NR))) {
+            stats.put(stat.getTag(), stat.getValue());
+        }
+        return new BalloonStats(stats.get(STAT_UNUSED), stats.get(STAT_AVAILABLE), stats.get(STAT_ACTUAL_BALLOON),
+                stats.getOrDefault(STAT_SWAP_IN, 0L), stats.getOrDefault(STAT_MAJOR_FAULT, 0L));
+    }
+
+    @Override
+    public List<DomainResources> listDomainResources() throws LibvirtException {
+        Connect connect = connectionService.getConnection();
+        List<DomainResources> result = new ArrayList<>();
+        for (int id : profiler.call("Connect.listDomains", null, connect::listDomains)) {
+            try {
+                Domain domain = profiler.call("Connect.domainLookupByID", null, () -> connect.domainLookupByID(id));
+                result.add(resources(domain, true));
+            } catch (LibvirtException e) {
+                // 采样期间虚拟机可能已被关闭
+                log.debug("获取虚拟机 {} 信息失败: {}", id, e.getMessage());
+            }
+        }
+        for (String name : profiler.call("Connect.listDefinedDomains", null, connect::listDefinedDomains)) {
+            try {
+                result.add(resources(lookup(name), false));
+            } catch (LibvirtException e) {
+                log.debug("获取虚拟机 {} 信息失败: {}", name, e.getMessage());
+            }
+        }
+        return result;
+    }
+
+    private DomainResources resources(Domain domain, boolean active) throws LibvirtException {
+        String name = profiler.call("Domain.getName", null, domain::getName);
+        DomainInfo info = profiler.call("Domain.getInfo", name, domain::getInfo);
+        return new DomainResources(name, active, info.maxMem, info.memory, info.nrVirtCpu);
+    }
+
+    @Override
+    public HostSnapshot getHostInfo() throws LibvirtException {
+        Connect connect = connectionService.getConnection();
+        NodeInfo node = profiler.call("Connect.nodeInfo", null, connect::nodeInfo);
+        return new HostSnapshot(
+                profiler.call("Connect.getHostName", null, connect::getHostName),
+                profiler.call("Connect.getType", null, connect::getType),
+                profiler.call("Connect.getVersion", null, connect::getVersion),
+                profiler.call("Connect.getLibVersion", null, connect::getLibVersion),
+                node.model, node.cpus, node.mhz, node.nodes, node.sockets, node.cores, node.threads, node.memory,
+                profiler.call("Connect.getFreeMemory", null, connect::getFreeMemory));
+    }
+
+    @Override
+    public String getCapabilities() throws LibvirtException {
+        Connect connect = connectionService.getConnection();
+        return profiler.call("Connect.getCapabilities", null, connect::getCapabilities);
+    }
+
+    @Override
+    public long[] getCellsFreeMemory(int cells) throws LibvirtException {
+        Connect connect = connectionService.getConnection();
+        return profiler.call("Connect.getCellsFreeMemory", null, () -> connect.getCellsFreeMemory(0, cells));
+    }
+
+    @Override
+    public List<PoolSnapshot> listStoragePools() throws LibvirtException {
+        Connect connect = connectionService.getConnection();
+        List<PoolSnapshot> pools = new ArrayList<>();
+        String[] active = profiler.call("Connect.listStoragePools", null, connect::listStoragePools);
+        String[] defined = profiler.call("Connect.listDefinedStoragePools", null, connect::listDefinedStoragePools);
+        for (String[] names : new String[][]{active, defined}) {
+            for (String name : names) {
+                try {
+                    pools.add(poolSnapshot(name, lookupPool(name)));
+                } catch (LibvirtException e) {
+                    log.debug("读取存储池 {} 信息失败: {}", name, e.getMessage());
+                }
+            }
+        }
+        return pools;
+    }
+
+    @Override
+    public PoolSnapshot getStoragePool(String pool) throws LibvirtException {
+        return poolSnapshot(pool, lookupPool(pool));
+    }
+
+    @Override
+    public List<VolumeSnapshot> listVolumes(String pool) throws LibvirtException {
+        StoragePool storagePool = lookupPool(pool);
+        List<VolumeSnapshot> volumes = new ArrayList<>();
+        for (String name : profiler.call("StoragePool.listVolumes", null, storagePool::listVolumes)) {
+            try {
+                volumes.add(volumeSnapshot(pool, lookupVolume(storagePool, name)));
+            } catch (LibvirtException e) {
+                // 列出后被删除的卷
+                log.debug("读取存储卷 {}/{} 失败: {}", pool, name, e.getMessage());
+            }
+        }
+        return volumes;
+    }
+
+    @Override
+    public VolumeSnapshot getVolume(String pool, String volume) throws LibvirtException {
+        return volumeSnapshot(pool, lookupVolume(lookupPool(pool), volume));
+    }
+
+    @Override
+    public VolumeSnapshot getVolumeByPath(String path) throws LibvirtException {
+        Connect connect = connectionService.getConnection();
+        StorageVol vol = profiler.call("Connect.storageVolLookupByPath", null, () -> connect.storageVolLookupByPath(path));
+        StoragePool pool = profiler.call("StorageVol.storagePoolLookupByVolume", null, vol::storagePoolLookupByVolume);
+        return volumeSnapshot(profiler.call("StoragePool.getName", null, pool::getName), vol);
+    }
+
+    @Override
+    public VolumeSnapshot createVolume(String pool, String xml, boolean preallocateMetadata) throws LibvirtException {
+        StoragePool storagePool = lookupPool(pool);
+        int flags = preallocateMetadata ? VIR_STORAGE_VOL_CREATE_PREALLOC_METADATA : 0;
+        StorageVol vol = profiler.call("StoragePool.storageVolCreateXML", null, () -> storagePool.storageVolCreateXML(xml, flags));
+        return volumeSnapshot(pool, vol);
+    }
+
+    @Override
+    public VolumeSnapshot copyVolume(String pool, String xml, String sourceVolume) throws LibvirtException {
+        StoragePool storagePool = lookupPool(pool);
+        StorageVol source = lookupVolume(storagePool, sourceVolume);
+        StorageVol vol = profiler.call("StoragePool.storageVolCreateXMLFrom", null,
+                () -> storagePool.storageVolCreateXMLFrom(xml, source, 0));
+        return volumeSnapshot(pool, vol);
+    }
+
+    @Override
+    public void resizeVolume(String pool, String volume, long capacity) throws LibvirtException {
+        StorageVol vol = lookupVolume(lookupPool(pool), volume);
+        profiler.run("StorageVol.resize", null, () -> vol.resize(capacity, 0));
+    }
+
+    @Override
+    public void deleteVolume(String pool, String volume) throws LibvirtException {
+        StorageVol vol = lookupVolume(lookupPool(pool), volume);
+        profiler.run("StorageVol.delete", null, () -> vol.delete(0));
+    }
+
+    @Override
+    public void uploadVolume(String pool, String volume, InputStream in, long length, int chunkSize)
+            throws LibvirtException, IOException {
+        StorageVol vol = lookupVolume(lookupPool(pool), volume);
+        Connect connect = connectionService.getConnection();
+        Stream stream = profiler.call("Connect.streamNew", null, () -> connect.streamNew(0));
+        boolean completed = false;
+        try {
+            profiler.call("StorageVol.upload", null, () -> vol.upload(stream, 0, length, 0));
+            byte[] chunk = new byte[chunkSize];
+            ByteBuffer buffer = ByteBuffer.wrap(chunk);
+            long remaining = length;
+            while (remaining > 0) {
+                int n = in.read(chunk, 0, (int) Math.min(chunk.length, remaining));
+                if (n < 0) {
+                    throw new IOException("上传数据提前结束，还差 " + remaining + " 字节");
+                }
+                buffer.clear().limit(n);
+                while (buffer.hasRemaining()) {
+                    profiler.call("Stream.write", null, () -> stream.write(buffer));
+                }
+                remaining -= n;
+            }
+            profiler.run("Stream.finish", null, stream::finish);
+            completed = true;
+        } finally {
+            if (!completed) {
+                try {
+                    profiler.run("Stream.abort", null, stream::abort);
+                } catch (LibvirtException e) {
+                    log.debug("中止libvirt流失败: {}", e.getMessage());
+                }
+            }
+            freeQuietly(stream);
+        }
+    }
+
+    @Override
+    public void downloadVolume(String path, long offset, long length, WritableByteChannel target, int chunkSize)
+            throws LibvirtException, IOException {
+        Connect connect = connectionService.getConnection();
+        StorageVol vol = profiler.call("Connect.storageVolLookupByPath", null, () -> connect.storageVolLookupByPath(path));
+        Stream stream = profiler.call("Connect.streamNew", null, () -> connect.streamNew(0));
+        try {
+            profiler.call("StorageVol.download", null, () -> vol.download(stream, offset, length, 0));
+            ByteBuffer buffer = ByteBuffer.allocateDirect(chunkSize);
+            long remaining = length;
+            while (remaining > 0) {
+                buffer.clear();
+                if (buffer.capacity() > remaining) {
+                    buffer.limit((int) remaining);
+                }
+                int n = profiler.call("Stream.read", null, () -> stream.read(buffer));
+                if (n < 0) {
+                    throw new IOException("存储卷数据提前结束: " + path);
+                }
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    target.write(buffer);
+                }
+                remaining -= n;
+            }
+            profiler.run("Stream.finish", null, stream::finish);
+        } finally {
+            freeQuietly(stream);
+        }
+    }
+
+    private void freeQuietly(Stream stream) {
+        try {
+            profiler.run("Stream.free", null, stream::free);
+        } catch (LibvirtException e) {
+            log.debug("释放libvirt流失败: {}", e.getMessage());
+        }
+    }
+
+    private StoragePool lookupPool(String pool) throws LibvirtException {
+        Connect connect = connectionService.getConnection();
+        return profiler.call("Connect.storagePoolLookupByName", null, () -> connect.storagePoolLookupByName(pool));
+    }
+
+    private StorageVol lookupVolume(StoragePool pool, String volume) throws LibvirtException {
+        return profiler.call("StoragePool.storageVolLookupByName", null, () -> pool.storageVolLookupByName(volume));
+    }
+
+    private PoolSnapshot poolSnapshot(String name, StoragePool pool) throws LibvirtException {
+        StoragePoolInfo info = profiler.call("StoragePool.getInfo", null, pool::getInfo);
+        boolean active = profiler.call("StoragePool.isActive", null, pool::isActive) == 1;
+        return new PoolSnapshot(name, String.valueOf(info.state), active, info.capacity, info.allocation, info.available);
+    }
+
+    private VolumeSnapshot volumeSnapshot(String pool, StorageVol vol) throws LibvirtException {
+        StorageVolInfo info = profiler.call("StorageVol.getInfo", null, vol::getInfo);
+        String xml = profiler.call("StorageVol.getXMLDesc", null, () -> vol.getXMLDesc(0));
+        Matcher format = VOLUME_FORMAT_PATTERN.matcher(xml);
+        // 卷XML中的物理大小即文件实际长度，旧版本libvirt没有该字段时退回容量
+        Matcher physical = VOLUME_PHYSICAL_PATTERN.matcher(xml);
+        Matcher backing = VOLUME_BACKING_PATTERN.matcher(xml);
+        return new VolumeSnapshot(pool, profiler.call("StorageVol.getName", null, vol::getName),
+                profiler.call("StorageVol.getPath", null, vol::getPath), String.valueOf(info.type),
+                format.find() ? format.group(1) : "raw", info.capacity, info.allocation,
+                physical.find() ? Long.parseLong(physical.group(1)) : info.capacity,
+                backing.find() ? backing.group(1).trim() : null);
+    }
+
+    private Domain lookup(String name) throws LibvirtException {
+        Connect connect = connectionService.getConnection();
+        return profiler.call("Connect.domainLookupByName", name, () -> connect.domainLookupByName(name));
+    }
+
+    private DomainSnapshot snapshot(Domain domain) throws LibvirtException {
+        String name = profiler.call("Domain.getName", null, domain::getName);
+        DomainInfo info = profiler.call("Domain.getInfo", name, domain::getInfo);
+        String xml = null;
+        try {
+            xml = profiler.call("Domain.getXMLDesc", name, () -> domain.getXMLDesc(0));
+        } catch (LibvirtException e) {
+            log.debug("获取XML配置失败: {}", e.getMessage());
+        }
+        return new DomainSnapshot(name, profiler.call("Domain.getUUIDString", name, domain::getUUIDString),
+                convertDomainState(info.state), info.maxMem, info.memory, info.nrVirtCpu, info.cpuTime,
+                profiler.call("Domain.isActive", name, domain::isActive) == 1,
+                profiler.call("Domain.isPersistent", name, domain::isPersistent) == 1, xml);
+    }
+
+    /**
+     * 将DomainState枚举转换为VmStatus
+     */
+    private VmStatus convertDomainState(DomainInfo.DomainState domainState) {
+        if (domainState == null) {
+            return VmStatus.NOSTATE;
+        }
+        return switch (domainState) {
+            case VIR_DOMAIN_RUNNING -> VmStatus.RUNNING;
+            case VIR_DOMAIN_BLOCKED -> VmStatus.BLOCKED;
+            case VIR_DOMAIN_PAUSED -> VmStatus.PAUSED;
+            case VIR_DOMAIN_SHUTDOWN -> VmStatus.SHUTDOWN;
+            case VIR_DOMAIN_SHUTOFF -> VmStatus.SHUTOFF;
+            case VIR_DOMAIN_CRASHED -> VmStatus.CRASHED;
+            default -> VmStatus.NOSTATE;
+        };
+    }
+}
@@ -0,0 +1,164 @@
+package com.pengchengyin.vmmanagerbackend.service;
+
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import org.libvirt.Domain;
+
+import com.sun.jna.Library;
+import com.sun.jna.Native;
+import com.sun.jna.NativeLong;
+import com.sun.jna.Pointer;
+import com.sun.jna.PointerType;
+import com.sun.jna.Structure;
+import com.sun.jna.Union;
+
+/**
+ * libvirt-java未封装的本地调用
+ * libvirt-java 0.5.2 没有 virDomainSetBlockIoTune / virDomainSetInterfaceParameters 的绑定，
+ * 也没有带flags的 virDomainSetVcpusFlags / virDomainSetMemoryFlags，
+ * 这里用JNA直接调用libvirt，参数以 virTypedParameter 数组传递；域指针取自libvirt-java的Domain对象。
+ */
+public final class LibvirtNative {
+
+    /**
+     * virDomainModificationImpact
+     */
+    static final int VIR_DOMAIN_AFFECT_LIVE = 1;
+    static final int VIR_DOMAIN_AFFECT_CONFIG = 2;
+
+    /**
+     * virDomainVcpuFlags.VIR_DOMAIN_VCPU_MAXIMUM / virDomainMemoryModFlags.VIR_DOMAIN_MEM_MAXIMUM
+     */
+    static final int VIR_DOMAIN_VCPU_MAXIMUM = 4;
+    static final int VIR_DOMAIN_MEM_MAXIMUM = 4;
+
+    /**
+     * virTypedParameterType
+     */
+    private static final int VIR_TYPED_PARAM_UINT = 2;
+    private static final int VIR_TYPED_PARAM_ULLONG = 4;
+    private static final int VIR_TYPED_PARAM_FIELD_LENGTH = 80;
+
+    private static final Field DOMAIN_POINTER;
+
+    static {
+        try {
+            DOMAIN_POINTER = Domain.class.getDeclaredField("VDP");
+            DOMAIN_POINTER.setAccessible(true);
+        } catch (NoSuchFieldException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private static volatile Virt virt;
+
+    public interface Virt extends Library {
+        int virDomainSetBlockIoTune(Pointer domain, String disk, TypedParameter[] params, int nparams, int flags);
+
+        int virDomainSetInterfaceParameters(Pointer domain, String device, TypedParameter[] params, int nparams, int flags);
+
+        int virDomainSetVcpusFlags(Pointer domain, int nvcpus, int flags);
+
+        int virDomainSetMemoryFlags(Pointer domain, NativeLong memory, int flags);
+
+        String virGetLastErrorMessage();
+    }
+
+    /**
+     * virTypedParameter
+     */
+    @Structure.FieldOrder({"field", "type", "value"})
+    public static class TypedParameter extends Structure {
+        public byte[] field = new byte[VIR_TYPED_PARAM_FIELD_LENGTH];
+        public int type;
+        public Value value = new Value();
+    }
+
+    public static class Value extends Union {
+        public int ui;
+        public long ul;
+    }
+
+    private LibvirtNative() {
+    }
+
+    /**
+     * 设置磁盘I/O限速，参数为 total_bytes_sec、total_iops_sec 等（unsigned long long）
+     */
+    static void setBlockIoTune(Domain domain, String disk, Map<String, Long> params, int flags) {
+        TypedParameter[] array = (TypedParameter[]) new TypedParameter().toArray(params.size());
+        int i = 0;
+        for (Map.Entry<String, Long> param : params.entrySet()) {
+            TypedParameter p = fill(array[i++], param.getKey(), VIR_TYPED_PARAM_ULLONG);
+            p.value.setType(long.class);
+            p.value.ul = param.getValue();
+        }
+        check(virt().virDomainSetBlockIoTune(pointer(domain), disk, array, array.length, flags));
+    }
+
+    /**
+     * 设置网卡带宽，参数为 inbound.average、outbound.average 等（unsigned int，KB/s）；device可以是网卡名称或MAC地址
+     */
+    static void setInterfaceParameters(Domain domain, String device, Map<String, Integer> params, int flags) {
+        TypedParameter[] array = (TypedParameter[]) new TypedParameter().toArray(params.size());
+        int i = 0;
+        for (Map.Entry<String, Integer> param : params.entrySet()) {
+            TypedParameter p = fill(array[i++], param.getKey(), VIR_TYPED_PARAM_UINT);
+            p.value.setType(int.class);
+            p.value.ui = param.getValue();
+        }
+        check(virt().virDomainSetInterfaceParameters(pointer(domain), device, array, array.length, flags));
+    }
+
+    /**
+     * 按flags调整vCPU数量或上限（libvirt-java只封装了不带flags的virDomainSetVcpus）
+     */
+    static void setVcpus(Domain domain, int count, int flags) {
+        check(virt().virDomainSetVcpusFlags(pointer(domain), count, flags));
+    }
+
+    /**
+     * 按flags调整内存或内存上限（KiB）
+     */
+    static void setMemory(Domain domain, long memoryKiB, int flags) {
+        check(virt().virDomainSetMemoryFlags(pointer(domain), new NativeLong(memoryKiB), flags));
+    }
+
+    private static TypedParameter fill(TypedParameter p, String field, int type) {
+        byte[] name = field.getBytes(StandardCharsets.US_ASCII);
+        System.arraycopy(name, 0, p.field, 0, Math.min(name.length, VIR_TYPED_PARAM_FIELD_LENGTH - 1));
+        p.type = type;
+        return p;
+    }
+
+    private static void check(int result) {
+        if (result < 0) {
+            String message = virt().virGetLastErrorMessage();
+            throw new HypervisorException(message == null ? "libvirt call failed" : message);
+        }
+    }
+
+    private static Pointer pointer(Domain domain) {
+        try {
+            return ((PointerType) DOMAIN_POINTER.get(domain)).getPointer();
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("无法获取libvirt域指针", e);
+        }
+    }
+
+    private static Virt virt() {
+        Virt instance = virt;
+        if (instance == null) {
+            synchronized (LibvirtNative.class) {
+                instance = virt;
+                if (instance == null) {
+                    instance = Native.load("virt", Virt.class);
+                    virt = instance;
+                }
+            }
+        }
+        return instance;
+    }
+}
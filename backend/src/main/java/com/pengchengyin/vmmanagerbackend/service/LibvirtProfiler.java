@@ -0,0 +1,172 @@
+package com.pengchengyin.vmmanagerbackend.service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.libvirt.LibvirtException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import com.pengchengyin.vmmanagerbackend.config.ProfilingConfig;
+
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * libvirt调用剖析
+ * 每次调用发出一个JFR事件（没有录制时JFR事件几乎没有开销），并常开慢操作日志：
+ * 正常路径只有两次 System.nanoTime()，只有超过阈值的调用才采集调用栈和请求上下文。
+ */
+@Slf4j
+@Service
+public class LibvirtProfiler {
+
+    @Autowired
+    private ProfilingConfig profilingConfig;
+
+    private final Deque<SlowOperation> slowOperations = new ArrayDeque<>();
+    private final AtomicLong slowTotal = new AtomicLong();
+
+    @FunctionalInterface
+    public interface LibvirtCall<T> {
+        T call() throws LibvirtException;
+    }
+
+    @FunctionalInterface
+    public interface LibvirtRun {
+        void run() throws LibvirtException;
+    }
+
+    /**
+     * 慢操作记录
+     */
+    public record SlowOperation(long timestamp, String operation, String domain, long durationMs, boolean success,
+                                String thread, String request, List<String> stack) {
+    }
+
+    /**
+     * 执行并剖析一次libvirt调用
+     *
+     * @param operation 调用名称，如 Domain.getInfo
+     * @param domain    虚拟机名称，与具体虚拟机无关时为null
+     */
+    public <T> T call(String operation, String domain, LibvirtCall<T> call) throws LibvirtException {
+        LibvirtCallEvent event = new LibvirtCallEvent();
+        event.begin();
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            T result = call.call();
+            success = true;
+            return result;
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.operation = operation;
+                event.domain = domain;
+                event.success = success;
+                event.commit();
+            }
+            checkSlow(operation, domain, start, success);
+        }
+    }
+
+    public void run(String operation, String domain, LibvirtRun run) throws LibvirtException {
+        call(operation, domain, () -> {
+            run.run();
+            return null;
+        });
+    }
+
+    /**
+     * 开始一个VmInfo转换阶段，结束时调用 {@link Stage#end()}
+     */
+    public Stage stage(String stage, String domain) {
+        return new Stage(stage, domain);
+    }
+
+    public final class Stage {
+        private final VmConversionEvent event = new VmConversionEvent();
+        private final String stage;
+        private final String domain;
+        private final long start;
+
+        private Stage(String stage, String domain) {
+            this.stage = stage;
+            this.domain = domain;
+            event.begin();
+            start = System.nanoTime();
+        }
+
+        public void end() {
+            event.end();
+            if (event.shouldCommit()) {
+                event.stage = stage;
+                event.domain = domain;
+                event.commit();
+            }
+            checkSlow("convert." + stage, domain, start, true);
+        }
+    }
+
+    public List<SlowOperation> getSlowOperations() {
+        synchronized (slowOperations) {
+            return new ArrayList<>(slowOperations);
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("slowThresholdMs", profilingConfig.getSlowThresholdMs());
+        stats.put("slowTotal", slowTotal.get());
+        synchronized (slowOperations) {
+            stats.put("slowRetained", slowOperations.size());
+        }
+        return stats;
+    }
+
+    private void checkSlow(String operation, String domain, long start, boolean success) {
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        if (elapsedMs < profilingConfig.getSlowThresholdMs()) {
+            return;
+        }
+        // 跳过本类的帧，保留调用方的调用栈
+        List<String> stack = StackWalker.getInstance().walk(frames -> frames
+                .dropWhile(f -> f.getClassName().startsWith(LibvirtProfiler.class.getName()))
+                .limit(profilingConfig.getSlowStackDepth())
+                .map(StackWalker.StackFrame::toString)
+                .toList());
+        SlowOperation slow = new SlowOperation(System.currentTimeMillis(), operation, domain, elapsedMs, success,
+                Thread.currentThread().getName(), currentRequest(), stack);
+        slowTotal.incrementAndGet();
+        synchronized (slowOperations) {
+            slowOperations.addLast(slow);
+            while (slowOperations.size() > profilingConfig.getSlowHistory()) {
+                slowOperations.removeFirst();
+            }
+        }
+        log.warn("慢操作: {} domain={} 耗时{}ms success={} request={} 调用方={}",
+                operation, domain, elapsedMs, success, slow.request(), stack.isEmpty() ? "" : stack.get(0));
+    }
+
+    /**
+     * 触发调用的HTTP请求（后台线程中为null）
+     */
+    private static String currentRequest() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes instanceof ServletRequestAttributes servletAttributes) {
+            HttpServletRequest request = servletAttributes.getRequest();
+            return request.getMethod() + " " + request.getRequestURI();
+        }
+        return null;
+    }
+}
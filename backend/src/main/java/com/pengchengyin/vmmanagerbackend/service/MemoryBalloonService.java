@@ -0,0 +1,285 @@
+package com.pengchengyin.vmmanagerbackend.service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.libvirt.LibvirtException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.pengchengyin.vmmanagerbackend.config.BalloonConfig;
+import com.pengchengyin.vmmanagerbackend.model.BalloonDecision;
+import com.pengchengyin.vmmanagerbackend.model.BalloonPolicy;
+import com.pengchengyin.vmmanagerbackend.model.HostInfo;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 内存气球控制服务
+ * 周期性读取来宾的气球统计（unused/available），回收空闲内存，来宾内存紧张时归还。
+ * 回收与归还阈值之间留有间隔（滞回），回收受冷却时间、单次幅度和每周期次数限制。
+ * 来宾需要运行virtio-balloon驱动并开启统计周期（模板中 memballoon/stats）。
+ * 归还不超过持久化配置中的当前内存（currentMemory），memory上限与其之间的余量只通过资源调整接口分配。
+ */
+@Slf4j
+@Service
+public class MemoryBalloonService {
+
+    @Autowired
+    private HypervisorBackend hypervisor;
+
+    @Autowired
+    private HostMonitorService hostMonitorService;
+
+    @Autowired
+    private BalloonConfig balloonConfig;
+
+    private final Map<String, BalloonPolicy> policies = new ConcurrentHashMap<>();
+    private final Map<String, VmState> states = new ConcurrentHashMap<>();
+    private final Deque<BalloonDecision> events = new ArrayDeque<>();
+
+    private final AtomicLong cycles = new AtomicLong();
+    private final AtomicLong reclaims = new AtomicLong();
+    private final AtomicLong grows = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong reclaimedKiB = new AtomicLong();
+    private final AtomicLong returnedKiB = new AtomicLong();
+    private volatile boolean hostPressure;
+
+    @PostConstruct
+    public void init() {
+        policies.putAll(balloonConfig.getVms());
+    }
+
+    /**
+     * 控制周期
+     */
+    @Scheduled(fixedDelayString = "${balloon.interval-ms:10000}")
+    public void run() {
+        if (!balloonConfig.isEnabled()) {
+            return;
+        }
+        try {
+            runCycle();
+        } catch (LibvirtException | RuntimeException e) {
+            log.warn("内存气球控制周期执行失败: {}", e.getMessage());
+        }
+    }
+
+    private void runCycle() throws LibvirtException {
+        cycles.incrementAndGet();
+        hostPressure = detectHostPressure();
+        int reclaimBudget = balloonConfig.getMaxReclaimsPerCycle();
+
+        List<String> seen = new ArrayList<>();
+        for (String name : hypervisor.listActiveDomains()) {
+            seen.add(name);
+            BalloonPolicy policy = policies.get(name);
+            if (policy != null && !policy.isEnabled()) {
+                continue;
+            }
+            try {
+                reclaimBudget -= adjust(name, policy, reclaimBudget > 0) ? 1 : 0;
+            } catch (LibvirtException | RuntimeException e) {
+                failures.incrementAndGet();
+                record(BalloonDecision.builder().vmName(name).action("FAILED").reason(e.getMessage()).build());
+            }
+        }
+        states.keySet().retainAll(seen);
+    }
+
+    /**
+     * 对单个虚拟机做一次调整决策
+     *
+     * @return 是否执行了回收
+     */
+    private boolean adjust(String name, BalloonPolicy policy, boolean mayReclaim) throws LibvirtException {
+        HypervisorBackend.BalloonStats stats = hypervisor.memoryStats(name);
+        Long unused = stats.unusedKiB();
+        Long available = stats.availableKiB();
+        if (unused == null || available == null || available <= 0) {
+            // 来宾未上报气球统计，无法判断
+            return false;
+        }
+        HypervisorBackend.DomainSnapshot domain = hypervisor.getDomain(name);
+        long actual = stats.actualKiB() != null ? stats.actualKiB() : domain.memoryKiB();
+        long swapIn = stats.swapIn();
+        long majorFaults = stats.majorFaults();
+
+        VmState state = states.computeIfAbsent(name, k -> new VmState());
+        boolean swapping = state.lastSwapIn >= 0
+                && (swapIn > state.lastSwapIn || majorFaults - state.lastMajorFaults > 1000);
+        state.lastSwapIn = swapIn;
+        state.lastMajorFaults = majorFaults;
+        state.actualKiB = actual;
+        state.unusedKiB = unused;
+        state.availableKiB = available;
+        String definition = hypervisor.findDefinitionXml(name);
+        long entitledKiB = definition == null ? domain.maxMemoryKiB()
+                : Math.min(domain.maxMemoryKiB(), VmSizing.parse(definition).memoryKiB());
+        state.maxKiB = entitledKiB;
+
+        long minKiB = minKiB(policy, entitledKiB);
+        long maxKiB = maxKiB(policy, entitledKiB);
+        long stepKiB = balloonConfig.getMaxStepMb() * 1024;
+        long minStepKiB = balloonConfig.getMinStepMb() * 1024;
+        double freeRatio = unused / (double) available;
+        boolean pressure = hostPressure;
+        double reclaimAbove = pressure ? balloonConfig.getPressureReclaimAboveRatio() : balloonConfig.getReclaimAboveRatio();
+        double targetFree = pressure ? balloonConfig.getPressureTargetFreeRatio() : balloonConfig.getTargetFreeRatio();
+
+        // 来宾内存紧张或发生换页：立即归还，不受冷却限制
+        if ((freeRatio < balloonConfig.getGrowBelowRatio() || swapping) && actual < maxKiB) {
+            long wanted = Math.max(minStepKiB, (long) (targetFree * available) - unused);
+            long target = Math.min(maxKiB, actual + Math.min(stepKiB, wanted));
+            hypervisor.setMemory(name, target, true, false);
+            grows.incrementAndGet();
+            returnedKiB.addAndGet(target - actual);
+            state.lastAdjustAt = System.currentTimeMillis();
+            record(decision(name, "GROW", actual, target, unused, available, pressure,
+                    swapping ? "来宾发生换页" : String.format("空闲内存比例 %.2f 低于归还阈值 %.2f", freeRatio, balloonConfig.getGrowBelowRatio())));
+            return false;
+        }
+
+        if (!mayReclaim || freeRatio <= reclaimAbove || actual <= minKiB) {
+            return false;
+        }
+        long cooldownMs = balloonConfig.getCooldownSeconds() * 1000;
+        if (System.currentTimeMillis() - state.lastAdjustAt < cooldownMs) {
+            return false;
+        }
+        long excess = unused - (long) (targetFree * available);
+        long target = Math.max(minKiB, actual - Math.min(stepKiB, excess));
+        if (actual - target < minStepKiB) {
+            return false;
+        }
+        hypervisor.setMemory(name, target, true, false);
+        reclaims.incrementAndGet();
+        reclaimedKiB.addAndGet(actual - target);
+        state.lastAdjustAt = System.currentTimeMillis();
+        record(decision(name, "RECLAIM", actual, target, unused, available, pressure,
+                String.format("空闲内存比例 %.2f 高于回收阈值 %.2f", freeRatio, reclaimAbove)));
+        return true;
+    }
+
+    private boolean detectHostPressure() {
+        try {
+            HostInfo host = hostMonitorService.getHostInfo();
+            if (host.getTotalMemory() <= 0) {
+                return false;
+            }
+            boolean pressure = host.getFreeMemory() / (double) host.getTotalMemory() < balloonConfig.getHostPressureFreeRatio();
+            if (pressure != hostPressure) {
+                log.info("宿主机内存压力模式: {}", pressure ? "进入" : "退出");
+            }
+            return pressure;
+        } catch (LibvirtException | RuntimeException e) {
+            return hostPressure;
+        }
+    }
+
+    private long minKiB(BalloonPolicy policy, long maxMem) {
+        if (policy != null && policy.getMinMb() != null) {
+            return Math.min(maxMem, policy.getMinMb() * 1024);
+        }
+        long byRatio = (long) (maxMem * balloonConfig.getMinRatio());
+        return Math.min(maxMem, Math.max(balloonConfig.getMinMb() * 1024, byRatio));
+    }
+
+    private long maxKiB(BalloonPolicy policy, long maxMem) {
+        if (policy != null && policy.getMaxMb() != null) {
+            return Math.min(maxMem, policy.getMaxMb() * 1024);
+        }
+        return maxMem;
+    }
+
+    private BalloonDecision decision(String name, String action, long from, long to, long unused, long available,
+                                     boolean pressure, String reason) {
+        return BalloonDecision.builder()
+                .vmName(name)
+                .action(action)
+                .fromKiB(from)
+                .toKiB(to)
+                .unusedKiB(unused)
+                .availableKiB(available)
+                .hostPressure(pressure)
+                .reason(reason)
+                .build();
+    }
+
+    private void record(BalloonDecision decision) {
+        decision.setTimestamp(System.currentTimeMillis());
+        log.info("内存气球调整: {} {} {}KiB -> {}KiB，{}", decision.getVmName(), decision.getAction(),
+                decision.getFromKiB(), decision.getToKiB(), decision.getReason());
+        synchronized (events) {
+            events.addFirst(decision);
+            while (events.size() > balloonConfig.getEventHistory()) {
+                events.removeLast();
+            }
+        }
+    }
+
+    /**
+     * 最近的调整记录（新的在前）
+     */
+    public List<BalloonDecision> getEvents(int limit) {
+        synchronized (events) {
+            return events.stream().limit(limit).toList();
+        }
+    }
+
+    /**
+     * 控制器指标与各虚拟机最近一次采样状态
+     */
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("enabled", balloonConfig.isEnabled());
+        metrics.put("hostPressure", hostPressure);
+        metrics.put("cycles", cycles.get());
+        metrics.put("reclaims", reclaims.get());
+        metrics.put("grows", grows.get());
+        metrics.put("failures", failures.get());
+        metrics.put("reclaimedKiB", reclaimedKiB.get());
+        metrics.put("returnedKiB", returnedKiB.get());
+        Map<String, Object> vms = new LinkedHashMap<>();
+        states.forEach((name, s) -> vms.put(name, Map.of(
+                "actualKiB", s.actualKiB,
+                "unusedKiB", s.unusedKiB,
+                "availableKiB", s.availableKiB,
+                "maxKiB", s.maxKiB,
+                "lastAdjustAt", s.lastAdjustAt)));
+        metrics.put("vms", vms);
+        return metrics;
+    }
+
+    public Map<String, BalloonPolicy> getPolicies() {
+        return policies;
+    }
+
+    public void setPolicy(String name, BalloonPolicy policy) {
+        policies.put(name, policy);
+        log.info("虚拟机 {} 的内存气球策略已更新: {}", name, policy);
+    }
+
+    public void removePolicy(String name) {
+        policies.remove(name);
+    }
+
+    private static class VmState {
+        volatile long actualKiB;
+        volatile long unusedKiB;
+        volatile long availableKiB;
+        volatile long maxKiB;
+        volatile long lastAdjustAt;
+        long lastSwapIn = -1;
+        long lastMajorFaults;
+    }
+}
@@ -0,0 +1,679 @@
+package com.pengchengyin.vmmanagerbackend.service;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.libvirt.LibvirtException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.xml.sax.InputSource;
+
+import com.pengchengyin.vmmanagerbackend.config.NumaPlacementConfig;
+import com.pengchengyin.vmmanagerbackend.model.NumaCellInfo;
+import com.pengchengyin.vmmanagerbackend.model.OperationType;
+import com.pengchengyin.vmmanagerbackend.model.PlacementDecision;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * NUMA放置服务
+ * 从capabilities XML读取宿主机拓扑，结合运行中虚拟机的绑定情况为新虚拟机选择NUMA节点，
+ * 生成 cputune / numatune / memoryBacking 配置，并支持对运行中虚拟机重新平衡。
+ * 已选定但尚未定义的放置记为预留并计入分配，避免并发创建的虚拟机选中同一批资源。
+ */
+@Slf4j
+@Service
+public class NumaPlacementService {
+
+    private static final Pattern NODESET_PATTERN = Pattern.compile(
+            "<numatune>.*?<memory[^>]*nodeset=['\"]([^'\"]+)['\"]", Pattern.DOTALL);
+    private static final Pattern VCPUPIN_PATTERN = Pattern.compile(
+            "<vcpupin\\s+vcpu=['\"](\\d+)['\"]\\s+cpuset=['\"]([^'\"]+)['\"]");
+    private static final Pattern CPUTUNE_BLOCK = Pattern.compile("<cputune>.*?</cputune>", Pattern.DOTALL);
+    private static final Pattern NUMATUNE_BLOCK = Pattern.compile("<numatune>.*?</numatune>", Pattern.DOTALL);
+    private static final Pattern EMPTY_TUNE = Pattern.compile("\\s*<(?:cputune|numatune)\\s*/>");
+    private static final Pattern CPU_PIN_ELEMENT = Pattern.compile("\\s*<(?:vcpupin|emulatorpin)\\b[^>]*/>");
+    private static final Pattern NUMA_MEMORY_ELEMENT = Pattern.compile("\\s*<memory\\b[^>]*/>");
+    private static final Pattern VCPU_ELEMENT = Pattern.compile("<vcpu[^>]*>\\d+</vcpu>");
+
+    @Autowired
+    private NumaPlacementConfig placementConfig;
+
+    @Autowired
+    private HypervisorBackend hypervisor;
+
+    @Autowired
+    private OperationJournal journal;
+
+    /**
+     * 已选定放置但尚未定义完成的虚拟机（名称 -> 预留），定义结束后由调用方释放
+     */
+    private final Map<String, Reservation> reservations = new ConcurrentHashMap<>();
+
+    /**
+     * capabilities 中的拓扑在宿主机运行期间不变，解析成功一次后缓存；解析失败不缓存，下次重新获取
+     */
+    private volatile List<Cell> topology;
+
+    /**
+     * 获取NUMA拓扑及当前分配情况
+     */
+    public List<NumaCellInfo> getTopology() throws LibvirtException {
+        List<Cell> cells = loadTopology();
+        Allocation allocation = currentAllocation(cells, null);
+        List<NumaCellInfo> result = new ArrayList<>();
+        for (Cell cell : cells) {
+            result.add(NumaCellInfo.builder()
+                    .id(cell.id)
+                    .cpus(cell.cpus)
+                    .memory(cell.memory)
+                    .freeMemory(allocation.freeMemory[cell.index])
+                    .hugepages2M(cell.hugepages2M)
+                    .allocatedVcpus(allocation.vcpus[cell.index])
+                    .allocatedMemory(allocation.memory[cell.index])
+                    .dedicatedCpus(new ArrayList<>(allocation.dedicatedCpus[cell.index]))
+                    .domains(allocation.domains[cell.index])
+                    .build());
+        }
+        return result;
+    }
+
+    /**
+     * 为新虚拟机选择放置方案，无法放置时返回 null（保持原有的不绑定行为）
+     * 选定的方案记为预留，定义虚拟机后需调用 {@link #release(String)}；并发的选择按顺序进行
+     */
+    public synchronized PlacementDecision place(String vmName, int vcpus, long memoryBytes, boolean dedicated,
+                                                boolean hugepages) throws LibvirtException {
+        List<Cell> cells = loadTopology();
+        if (cells.size() < 2 && !dedicated && !hugepages) {
+            // 单节点宿主机不存在跨节点访问问题
+            return null;
+        }
+        Allocation allocation = currentAllocation(cells, null);
+        PlacementDecision decision = choose(cells, allocation, vmName, vcpus, memoryBytes, dedicated);
+        if (decision != null) {
+            decision.setHugepages(hugepages && decision.getNodeset().stream()
+                    .allMatch(id -> cellById(cells, id).hugepages2M > 0));
+            reservations.put(vmName, new Reservation(decision, vcpus, memoryBytes));
+            log.info("虚拟机 {} 放置到NUMA节点 {}，CPU {}", vmName, decision.getNodeset(), formatCpuset(decision.getCpuset()));
+        }
+        return decision;
+    }
+
+    /**
+     * 释放放置预留（定义成功或失败后调用）
+     */
+    public void release(String vmName) {
+        reservations.remove(vmName);
+    }
+
+    /**
+     * 生成插入到domain XML中的放置配置
+     */
+    public String renderPlacementXml(PlacementDecision decision, int vcpus) {
+        if (decision == null) {
+            return "";
+        }
+        StringBuilder sb = new StringBuilder();
+        sb.append("<cputune>\n");
+        String shared = formatCpuset(decision.getCpuset());
+        for (int i = 0; i < vcpus; i++) {
+            String cpuset = decision.isDedicated() ? String.valueOf(decision.getCpuset().get(i)) : shared;
+            sb.append("        <vcpupin vcpu='").append(i).append("' cpuset='").append(cpuset).append("'/>\n");
+        }
+        sb.append("        <emulatorpin cpuset='").append(shared).append("'/>\n");
+        sb.append("    </cputune>\n");
+
+        String nodeset = formatCpuset(decision.getNodeset());
+        sb.append("    <numatune>\n");
+        sb.append("        <memory mode='").append(decision.getMemoryMode()).append("' nodeset='").append(nodeset).append("'/>\n");
+        sb.append("    </numatune>\n");
+
+        if (decision.isHugepages()) {
+            sb.append("    <memoryBacking>\n");
+            sb.append("        <hugepages>\n");
+            sb.append("            <page size='2048' unit='KiB' nodeset='").append(nodeset).append("'/>\n");
+            sb.append("        </hugepages>\n");
+            sb.append("    </memoryBacking>\n");
+        }
+        sb.append("    ");
+        return sb.toString();
+    }
+
+    /**
+     * 重新平衡运行中的虚拟机
+     * 按vCPU数从大到小依次重新选择节点；vCPU绑定实时生效，numatune写入持久化配置，下次启动时内存按新节点分配
+     *
+     * @param vmName 仅重平衡指定虚拟机；为空时处理所有运行中虚拟机
+     */
+    public List<PlacementDecision> rebalance(String vmName) throws LibvirtException {
+        List<Cell> cells = loadTopology();
+
+        List<String> targets = new ArrayList<>();
+        for (String name : hypervisor.listActiveDomains()) {
+            if (vmName == null || vmName.equals(name)) {
+                targets.add(name);
+            }
+        }
+        if (vmName != null && targets.isEmpty()) {
+            throw new IllegalStateException("虚拟机 " + vmName + " 未运行");
+        }
+
+        Set<String> excluded = new HashSet<>(targets);
+        Allocation allocation = currentAllocation(cells, excluded);
+
+        List<DomainLoad> loads = new ArrayList<>();
+        for (String name : targets) {
+            HypervisorBackend.DomainSnapshot domain = hypervisor.getDomain(name);
+            String xml = domain.xml();
+            loads.add(new DomainLoad(name, VmSizing.parse(xml).maxVcpus(), domain.vcpus(), domain.maxMemoryKiB() * 1024,
+                    xml, domain.persistent()));
+        }
+        loads.sort(Comparator.comparingInt((DomainLoad l) -> l.vcpus).reversed());
+
+        List<PlacementDecision> decisions = new ArrayList<>();
+        for (DomainLoad load : loads) {
+            boolean dedicated = isDedicated(load.xml);
+            String name = load.name;
+            PlacementDecision decision = choose(cells, allocation, name, load.vcpus, load.memory, dedicated);
+            if (decision == null) {
+                log.warn("虚拟机 {} 无法放置到任何NUMA节点组合，保持原状", name);
+                continue;
+            }
+            // 后续虚拟机的选择需要考虑本次放置
+            allocation.add(cells, decision, load.vcpus, load.memory, name);
+
+            Set<Integer> current = parseCpuset(matchFirst(NODESET_PATTERN, load.xml));
+            decision.setChanged(!current.equals(new TreeSet<>(decision.getNodeset())));
+            if (decision.isChanged()) {
+                applyLive(name, decision, load.liveVcpus);
+                if (load.persistent) {
+                    applyConfig(name, decision);
+                }
+                log.info("虚拟机 {} 已重新放置到NUMA节点 {}", name, decision.getNodeset());
+            }
+            decisions.add(decision);
+        }
+        return decisions;
+    }
+
+    private PlacementDecision choose(List<Cell> cells, Allocation allocation, String vmName, int vcpus,
+                                     long memoryBytes, boolean dedicated) {
+        long reserved = placementConfig.getReservedMemoryMb() * 1024 * 1024;
+
+        // 优先单节点：内存放得下、CPU未超出超分比（独占模式要求有足够空闲CPU），选负载最低的节点
+        Cell best = null;
+        double bestLoad = Double.MAX_VALUE;
+        for (Cell cell : cells) {
+            long available = allocation.freeMemory[cell.index] - reserved;
+            if (available < memoryBytes) {
+                continue;
+            }
+            if (dedicated && freeCpus(cell, allocation).size() < vcpus) {
+                continue;
+            }
+            double load = (allocation.vcpus[cell.index] + vcpus) / (double) cell.cpus.size();
+            if (!dedicated && load > placementConfig.getCpuOvercommitRatio()) {
+                continue;
+            }
+            if (load < bestLoad) {
+                bestLoad = load;
+                best = cell;
+            }
+        }
+        if (best != null) {
+            List<Integer> cpuset = dedicated ? freeCpus(best, allocation).subList(0, vcpus) : best.cpus;
+            return PlacementDecision.builder()
+                    .vmName(vmName)
+                    .nodeset(List.of(best.id))
+                    .cpuset(new ArrayList<>(cpuset))
+                    .dedicated(dedicated)
+                    .memoryMode(placementConfig.getMemoryMode())
+                    .build();
+        }
+
+        // 单节点放不下时，按空闲内存从大到小选取最少的节点组合，内存交错分配
+        if (dedicated) {
+            return null;
+        }
+        List<Cell> byFree = new ArrayList<>(cells);
+        byFree.sort(Comparator.comparingLong((Cell c) -> allocation.freeMemory[c.index]).reversed());
+        List<Integer> nodeset = new ArrayList<>();
+        List<Integer> cpuset = new ArrayList<>();
+        long total = 0;
+        for (Cell cell : byFree) {
+            nodeset.add(cell.id);
+            cpuset.addAll(cell.cpus);
+            total += Math.max(0, allocation.freeMemory[cell.index] - reserved);
+            if (total >= memoryBytes) {
+                if (nodeset.size() == cells.size()) {
+                    // 需要占用全部节点时绑定没有意义
+                    return null;
+                }
+                nodeset.sort(null);
+                cpuset.sort(null);
+                return PlacementDecision.builder()
+                        .vmName(vmName)
+                        .nodeset(nodeset)
+                        .cpuset(cpuset)
+                        .dedicated(false)
+                        .memoryMode("interleave")
+                        .build();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 节点内尚未被独占绑定的CPU，同一物理核心的第一个超线程优先，尽量让每个vCPU落在不同核心上
+     */
+    private List<Integer> freeCpus(Cell cell, Allocation allocation) {
+        List<Integer> free = new ArrayList<>();
+        for (int cpu : cell.cpus) {
+            if (!allocation.dedicatedCpus[cell.index].contains(cpu)) {
+                free.add(cpu);
+            }
+        }
+        free.sort(Comparator.comparingInt((Integer cpu) -> cell.threadIndex(cpu)).thenComparingInt(cpu -> cpu));
+        return free;
+    }
+
+    private void applyLive(String name, PlacementDecision decision, int vcpus) throws LibvirtException {
+        for (int i = 0; i < vcpus; i++) {
+            List<Integer> cpus = decision.isDedicated() ? List.of(decision.getCpuset().get(i)) : decision.getCpuset();
+            hypervisor.pinVcpu(name, i, cpus);
+        }
+    }
+
+    /**
+     * 把新的放置写入持久化配置：只替换 cputune 中的 vcpupin/emulatorpin 和 numatune 中的 memory，
+     * 其余子元素（shares、quota、iothreadpin、memnode等）保留；按配置中的vCPU上限生成绑定
+     */
+    private void applyConfig(String name, PlacementDecision decision) throws LibvirtException {
+        String definition = hypervisor.findDefinitionXml(name);
+        if (definition == null) {
+            return;
+        }
+        String xml = EMPTY_TUNE.matcher(definition).replaceAll("");
+        Matcher vcpu = VCPU_ELEMENT.matcher(xml);
+        if (!vcpu.find()) {
+            return;
+        }
+        int vcpus = VmSizing.parse(xml).maxVcpus();
+        String shared = formatCpuset(decision.getCpuset());
+        StringBuilder pins = new StringBuilder();
+        for (int i = 0; i < vcpus; i++) {
+            String cpuset = decision.isDedicated() && i < decision.getCpuset().size()
+                    ? String.valueOf(decision.getCpuset().get(i)) : shared;
+            pins.append("\n      <vcpupin vcpu='").append(i).append("' cpuset='").append(cpuset).append("'/>");
+        }
+        pins.append("\n      <emulatorpin cpuset='").append(shared).append("'/>");
+        String memory = "\n      <memory mode='" + decision.getMemoryMode() + "' nodeset='"
+                + formatCpuset(decision.getNodeset()) + "'/>";
+
+        StringBuilder missing = new StringBuilder();
+        Matcher cputune = CPUTUNE_BLOCK.matcher(xml);
+        if (cputune.find()) {
+            String block = CPU_PIN_ELEMENT.matcher(cputune.group()).replaceAll("");
+            xml = xml.substring(0, cputune.start()) + block.replace("<cputune>", "<cputune>" + pins)
+                    + xml.substring(cputune.end());
+        } else {
+            missing.append("\n    <cputune>").append(pins).append("\n    </cputune>");
+        }
+        Matcher numatune = NUMATUNE_BLOCK.matcher(xml);
+        if (numatune.find()) {
+            String block = NUMA_MEMORY_ELEMENT.matcher(numatune.group()).replaceAll("");
+            xml = xml.substring(0, numatune.start()) + block.replace("<numatune>", "<numatune>" + memory)
+                    + xml.substring(numatune.end());
+        } else {
+            missing.append("\n    <numatune>").append(memory).append("\n    </numatune>");
+        }
+        if (missing.length() > 0) {
+            vcpu = VCPU_ELEMENT.matcher(xml);
+            if (vcpu.find()) {
+                xml = xml.substring(0, vcpu.end()) + missing + xml.substring(vcpu.end());
+            }
+        }
+
+        // 经Hypervisor后端定义并记录操作日志，与其他配置变更一样发出DEFINED事件
+        long opId = journal.begin(OperationType.DEFINE, name);
+        try {
+            hypervisor.defineDomain(xml);
+            journal.complete(opId);
+        } catch (LibvirtException | RuntimeException e) {
+            journal.fail(opId, e.getMessage());
+            throw e;
+        }
+    }
+
+    private List<Cell> loadTopology() throws LibvirtException {
+        List<Cell> cells = topology;
+        if (cells == null) {
+            try {
+                cells = parseTopology(hypervisor.getCapabilities());
+            } catch (IllegalArgumentException e) {
+                // 按无拓扑处理（不做绑定），不缓存残缺的结果
+                log.warn("解析宿主机NUMA拓扑失败: {}", e.getMessage());
+                return List.of();
+            }
+            topology = cells;
+        }
+        return cells;
+    }
+
+    /**
+     * 统计运行中虚拟机在各节点上的vCPU/内存分配；未做NUMA绑定的虚拟机不计入任何节点
+     */
+    private Allocation currentAllocation(List<Cell> cells, Set<String> excluded) throws LibvirtException {
+        Allocation allocation = new Allocation(cells.size());
+        try {
+            long[] free = hypervisor.getCellsFreeMemory(cells.size());
+            for (int i = 0; i < cells.size() && i < free.length; i++) {
+                allocation.freeMemory[i] = free[i];
+            }
+        } catch (LibvirtException | RuntimeException e) {
+            log.debug("获取NUMA节点空闲内存失败，使用节点总内存估算: {}", e.getMessage());
+            for (Cell cell : cells) {
+                allocation.freeMemory[cell.index] = cell.memory;
+            }
+        }
+
+        Set<String> running = new HashSet<>();
+        for (String name : hypervisor.listActiveDomains()) {
+            try {
+                running.add(name);
+                HypervisorBackend.DomainSnapshot domain = hypervisor.getDomain(name);
+                String xml = domain.xml();
+                Set<Integer> nodes = parseCpuset(matchFirst(NODESET_PATTERN, xml));
+                if (excluded != null && excluded.contains(name)) {
+                    // 重平衡对象的内存仍占用原节点，重新放置前加回以便评估
+                    long mem = domain.memoryKiB() * 1024;
+                    int position = 0;
+                    for (int node : nodes) {
+                        Cell cell = cellById(cells, node);
+                        if (cell != null) {
+                            allocation.freeMemory[cell.index] += share(mem, nodes.size(), position);
+                        }
+                        position++;
+                    }
+                    continue;
+                }
+                if (nodes.isEmpty()) {
+                    continue;
+                }
+                // 与放置时一致按vCPU上限和内存上限占用：在线调整不会离开所选节点；
+                // 气球归还到上限所需的内存尚未体现在空闲内存中
+                int maxVcpus = VmSizing.parse(xml).maxVcpus();
+                long growth = Math.max(0, domain.maxMemoryKiB() - domain.memoryKiB()) * 1024;
+                allocation.add(cells, nodes, maxVcpus, domain.maxMemoryKiB() * 1024, growth, name);
+                Matcher m = VCPUPIN_PATTERN.matcher(xml);
+                while (m.find()) {
+                    Set<Integer> pinned = parseCpuset(m.group(2));
+                    if (pinned.size() == 1) {
+                        int cpu = pinned.iterator().next();
+                        for (Cell cell : cells) {
+                            if (cell.cpus.contains(cpu)) {
+                                allocation.dedicatedCpus[cell.index].add(cpu);
+                            }
+                        }
+                    }
+                }
+            } catch (LibvirtException | RuntimeException e) {
+                // 列出后已关闭
+                log.debug("统计虚拟机 {} 的NUMA分配失败: {}", name, e.getMessage());
+            }
+        }
+        // 尚未定义完成的放置同样占用资源
+        reservations.forEach((name, r) -> {
+            if (!running.contains(name) && (excluded == null || !excluded.contains(name))) {
+                allocation.add(cells, r.decision(), r.vcpus(), r.memoryBytes(), name);
+            }
+        });
+        return allocation;
+    }
+
+    /**
+     * 解析 capabilities 中的NUMA节点；格式错误时抛出IllegalArgumentException，不返回部分结果
+     */
+    static List<Cell> parseTopology(String capabilities) {
+        List<Cell> cells = new ArrayList<>();
+        try {
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+            Document doc = factory.newDocumentBuilder().parse(new InputSource(new StringReader(capabilities)));
+            NodeList cellNodes = doc.getElementsByTagName("cell");
+            for (int i = 0; i < cellNodes.getLength(); i++) {
+                Element cellEl = (Element) cellNodes.item(i);
+                Cell cell = new Cell(cells.size(), Integer.parseInt(cellEl.getAttribute("id")));
+                for (Node child = cellEl.getFirstChild(); child != null; child = child.getNextSibling()) {
+                    if (!(child instanceof Element el)) {
+                        continue;
+                    }
+                    if ("memory".equals(el.getTagName())) {
+                        cell.memory = toBytes(Long.parseLong(el.getTextContent().trim()), el.getAttribute("unit"));
+                    } else if ("pages".equals(el.getTagName()) && "2048".equals(el.getAttribute("size"))) {
+                        cell.hugepages2M = Long.parseLong(el.getTextContent().trim());
+                    }
+                }
+                NodeList cpuNodes = cellEl.getElementsByTagName("cpu");
+                for (int j = 0; j < cpuNodes.getLength(); j++) {
+                    Element cpuEl = (Element) cpuNodes.item(j);
+                    int cpuId = Integer.parseInt(cpuEl.getAttribute("id"));
+                    cell.cpus.add(cpuId);
+                    List<Integer> siblings = new ArrayList<>(parseCpuset(cpuEl.getAttribute("siblings")));
+                    cell.threadIndex.put(cpuId, Math.max(0, siblings.indexOf(cpuId)));
+                }
+                cells.add(cell);
+            }
+        } catch (Exception e) {
+            throw new IllegalArgumentException(e.getMessage(), e);
+        }
+        return cells;
+    }
+
+    private boolean isDedicated(String xml) {
+        Matcher m = VCPUPIN_PATTERN.matcher(xml);
+        boolean found = false;
+        while (m.find()) {
+            found = true;
+            if (parseCpuset(m.group(2)).size() != 1) {
+                return false;
+            }
+        }
+        return found;
+    }
+
+    private static Cell cellById(List<Cell> cells, int id) {
+        for (Cell cell : cells) {
+            if (cell.id == id) {
+                return cell;
+            }
+        }
+        return null;
+    }
+
+    private static long toBytes(long value, String unit) {
+        if (unit == null || unit.isEmpty() || "KiB".equals(unit)) {
+            return value * 1024;
+        }
+        return switch (unit) {
+            case "MiB" -> value * 1024 * 1024;
+            case "GiB" -> value * 1024 * 1024 * 1024;
+            case "bytes", "B" -> value;
+            default -> value * 1024;
+        };
+    }
+
+    private static String matchFirst(Pattern pattern, String xml) {
+        Matcher m = pattern.matcher(xml);
+        return m.find() ? m.group(1) : null;
+    }
+
+    /**
+     * 解析 "0-3,8,10-11" 形式的CPU/节点列表
+     */
+    static Set<Integer> parseCpuset(String spec) {
+        Set<Integer> result = new TreeSet<>();
+        if (spec == null || spec.isBlank()) {
+            return result;
+        }
+        for (String part : spec.split(",")) {
+            part = part.trim();
+            if (part.isEmpty() || part.startsWith("^")) {
+                continue;
+            }
+            int dash = part.indexOf('-');
+            if (dash > 0) {
+                int from = Integer.parseInt(part.substring(0, dash).trim());
+                int to = Integer.parseInt(part.substring(dash + 1).trim());
+                for (int i = from; i <= to; i++) {
+                    result.add(i);
+                }
+            } else {
+                result.add(Integer.parseInt(part));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 将CPU列表格式化为 "0-3,8" 形式
+     */
+    static String formatCpuset(List<Integer> cpus) {
+        List<Integer> sorted = new ArrayList<>(new TreeSet<>(cpus));
+        StringBuilder sb = new StringBuilder();
+        int i = 0;
+        while (i < sorted.size()) {
+            int start = sorted.get(i);
+            int end = start;
+            while (i + 1 < sorted.size() && sorted.get(i + 1) == end + 1) {
+                end = sorted.get(++i);
+            }
+            if (sb.length() > 0) {
+                sb.append(',');
+            }
+            sb.append(start);
+            if (end > start) {
+                sb.append('-').append(end);
+            }
+            i++;
+        }
+        return sb.toString();
+    }
+
+    static class Cell {
+        final int index;
+        final int id;
+        final List<Integer> cpus = new ArrayList<>();
+        final Map<Integer, Integer> threadIndex = new HashMap<>();
+        long memory;
+        long hugepages2M;
+
+        Cell(int index, int id) {
+            this.index = index;
+            this.id = id;
+        }
+
+        int threadIndex(int cpu) {
+            return threadIndex.getOrDefault(cpu, 0);
+        }
+    }
+
+    private static class Allocation {
+        final long[] freeMemory;
+        final int[] vcpus;
+        final long[] memory;
+        final Set<Integer>[] dedicatedCpus;
+        final List<String>[] domains;
+
+        @SuppressWarnings("unchecked")
+        Allocation(int size) {
+            freeMemory = new long[size];
+            vcpus = new int[size];
+            memory = new long[size];
+            dedicatedCpus = new Set[size];
+            domains = new List[size];
+            for (int i = 0; i < size; i++) {
+                dedicatedCpus[i] = new TreeSet<>();
+                domains[i] = new ArrayList<>();
+            }
+        }
+
+        /**
+         * 计入一个放置方案，尚未分配的内存全部从空闲内存中扣除
+         */
+        void add(List<Cell> cells, PlacementDecision decision, int vcpuCount, long memoryBytes, String name) {
+            add(cells, decision.getNodeset(), vcpuCount, memoryBytes, memoryBytes, name);
+            if (decision.isDedicated()) {
+                for (int node : decision.getNodeset()) {
+                    Cell cell = cellById(cells, node);
+                    if (cell == null) {
+                        continue;
+                    }
+                    for (int cpu : decision.getCpuset()) {
+                        if (cell.cpus.contains(cpu)) {
+                            dedicatedCpus[cell.index].add(cpu);
+                        }
+                    }
+                }
+            }
+        }
+
+        /**
+         * 把vCPU和内存分摊到节点集合上，各节点之和等于总量；余数从按名称错开的节点开始计入，
+         * 多台小虚拟机的余数不会都落在第一个节点上
+         *
+         * @param freeMemoryBytes 需从空闲内存中扣除的部分（运行中的虚拟机已分配的内存已体现在空闲内存中）
+         */
+        void add(List<Cell> cells, Collection<Integer> nodeset, int vcpuCount, long memoryBytes, long freeMemoryBytes,
+                 String name) {
+            int nodes = nodeset.size();
+            int position = Math.floorMod(name.hashCode(), Math.max(1, nodes));
+            for (int node : nodeset) {
+                Cell cell = cellById(cells, node);
+                if (cell != null) {
+                    vcpus[cell.index] += (int) share(vcpuCount, nodes, position);
+                    memory[cell.index] += share(memoryBytes, nodes, position);
+                    freeMemory[cell.index] -= share(freeMemoryBytes, nodes, position);
+                    domains[cell.index].add(name);
+                }
+                position = (position + 1) % nodes;
+            }
+        }
+    }
+
+    /**
+     * 总量在nodes个节点上均分时第position个节点的份额，余数分给position小于 total % nodes 的节点
+     */
+    private static long share(long total, int nodes, int position) {
+        return total / nodes + (position < total % nodes ? 1 : 0);
+    }
+
+    /**
+     * @param vcpus      vCPU上限，按上限选择节点
+     * @param liveVcpus  当前在线的vCPU数量，实时绑定只作用于这些vCPU
+     * @param persistent 是否为持久化虚拟机，临时虚拟机只做实时绑定
+     */
+    private record DomainLoad(String name, int vcpus, int liveVcpus, long memory, String xml, boolean persistent) {
+    }
+
+    private record Reservation(PlacementDecision decision, int vcpus, long memoryBytes) {
+    }
+}
@@ -0,0 +1,498 @@
+package com.pengchengyin.vmmanagerbackend.service;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32C;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pengchengyin.vmmanagerbackend.config.JournalConfig;
+import com.pengchengyin.vmmanagerbackend.model.JournaledOperation;
+import com.pengchengyin.vmmanagerbackend.model.OperationType;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 虚拟机操作日志（预写式）
+ * 每次变更先追加一条意图记录，libvirt调用返回后再追加结果记录。日志段为内存映射文件，
+ * 追加只是一次内存拷贝；意图记录需要落盘后才执行操作，由后台线程统一force，
+ * 同一时间段内的多条记录共享一次刷盘（组提交）。
+ * 检查点把未完成的操作写入 checkpoint.json 并删除之前的日志段，因此启动时只需读取检查点和之后的少量记录。
+ * 检查点文件先写临时文件并落盘，重命名后再对目录落盘，之后才删除旧段，任何时刻崩溃都至少保留一份完整的恢复起点。
+ *
+ * 记录格式：[int 长度][int CRC32C][long opId][byte 记录类型][long 时间戳][短字符串 操作类型][短字符串 虚拟机][短字符串 说明]
+ */
+@Slf4j
+@Service
+public class OperationJournal {
+
+    private static final byte INTENT = 1;
+    private static final byte DONE = 2;
+    private static final byte FAILED = 3;
+    private static final byte ABANDONED = 4;
+    private static final int HEADER_SIZE = 8;
+    private static final int MAX_DETAIL = 512;
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String CHECKPOINT_FILE = "checkpoint.json";
+
+    @Autowired
+    private JournalConfig journalConfig;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * 检查点：之后的记录从 segment 开始，pending 为检查点时刻未完成的操作
+     */
+    public record Checkpoint(long segment, long nextOpId, List<JournaledOperation> pending, long createdAt) {
+    }
+
+    private final Object appendLock = new Object();
+    private final Object durability = new Object();
+    private final Map<Long, JournaledOperation> pending = new ConcurrentHashMap<>();
+    private final List<JournaledOperation> recovered = new ArrayList<>();
+    private final AtomicLong forces = new AtomicLong();
+
+    private Path dir;
+    private MappedByteBuffer buffer;
+    private long segment;
+    private long nextOpId = 1;
+    private long recordsSinceCheckpoint;
+    private volatile long appended;
+    private volatile long durable;
+    private volatile long lastCheckpointAt;
+    private volatile long recoveryMs;
+    private volatile boolean closed;
+    private Thread flusher;
+
+    @PostConstruct
+    public void init() throws IOException {
+        if (!journalConfig.isEnabled()) {
+            return;
+        }
+        dir = Paths.get(journalConfig.getDir());
+        Files.createDirectories(dir);
+        long start = System.currentTimeMillis();
+        long lastSegment = replay();
+        recovered.addAll(pending.values());
+        recovered.sort((a, b) -> Long.compare(a.getOpId(), b.getOpId()));
+        synchronized (appendLock) {
+            segment = lastSegment;
+            openNextSegment();
+        }
+        // 新段从空开始，立即做检查点，旧段（包括可能残缺的尾部）全部清理
+        checkpoint();
+        recoveryMs = System.currentTimeMillis() - start;
+        if (!recovered.isEmpty()) {
+            log.info("操作日志恢复完成，耗时 {}ms，发现 {} 个未完成的操作", recoveryMs, recovered.size());
+        }
+
+        flusher = new Thread(this::flushLoop, "journal-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    @PreDestroy
+    public void close() {
+        if (flusher == null) {
+            return;
+        }
+        closed = true;
+        synchronized (durability) {
+            durability.notifyAll();
+        }
+        try {
+            flusher.join(5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (appendLock) {
+            buffer.force();
+        }
+    }
+
+    /**
+     * 记录操作意图，返回前保证记录已落盘
+     *
+     * @return 操作编号，日志未启用时为0
+     */
+    public long begin(OperationType type, String vmName) {
+        if (flusher == null) {
+            return 0;
+        }
+        JournaledOperation op;
+        long seq;
+        synchronized (appendLock) {
+            op = JournaledOperation.builder()
+                    .opId(nextOpId++)
+                    .type(type)
+                    .vmName(vmName)
+                    .startedAt(System.currentTimeMillis())
+                    .build();
+            pending.put(op.getOpId(), op);
+            seq = append(op.getOpId(), INTENT, op.getStartedAt(), type.name(), vmName, "");
+        }
+        awaitDurable(seq);
+        return op.getOpId();
+    }
+
+    /**
+     * 记录操作成功（不等待落盘，丢失时重启恢复会按实际状态判断）
+     */
+    public void complete(long opId) {
+        finish(opId, DONE, "");
+    }
+
+    /**
+     * 记录操作失败
+     */
+    public void fail(long opId, String error) {
+        finish(opId, FAILED, error);
+    }
+
+    /**
+     * 记录操作已放弃（重启后不再继续）
+     */
+    public void abandon(long opId, String reason) {
+        finish(opId, ABANDONED, reason);
+    }
+
+    private void finish(long opId, byte kind, String detail) {
+        if (opId == 0 || flusher == null) {
+            return;
+        }
+        synchronized (appendLock) {
+            JournaledOperation op = pending.remove(opId);
+            if (op == null) {
+                return;
+            }
+            append(opId, kind, System.currentTimeMillis(), op.getType().name(), op.getVmName(), detail);
+        }
+        synchronized (durability) {
+            durability.notifyAll();
+        }
+    }
+
+    /**
+     * 启动时发现的未完成操作（按编号排序）
+     */
+    public List<JournaledOperation> getRecovered() {
+        synchronized (recovered) {
+            return new ArrayList<>(recovered);
+        }
+    }
+
+    /**
+     * 日志未启用或刷盘线程正常运行
+     */
+    public boolean isFlusherAlive() {
+        return flusher == null || (flusher.isAlive() && !closed);
+    }
+
+    /**
+     * 日志状态
+     */
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("enabled", flusher != null);
+        status.put("segment", segment);
+        status.put("appendedRecords", appended);
+        status.put("durableRecords", durable);
+        status.put("forces", forces.get());
+        status.put("pendingOperations", new ArrayList<>(pending.values()));
+        status.put("lastCheckpointAt", lastCheckpointAt);
+        status.put("recoveryMs", recoveryMs);
+        status.put("recovered", getRecovered());
+        return status;
+    }
+
+    /**
+     * 检查点：切换到新段，保存未完成的操作，检查点持久化后删除之前的所有段
+     */
+    public synchronized void checkpoint() throws IOException {
+        if (dir == null) {
+            return;
+        }
+        Checkpoint checkpoint;
+        synchronized (appendLock) {
+            if (recordsSinceCheckpoint > 0 || buffer.position() > 0) {
+                openNextSegment();
+            }
+            checkpoint = new Checkpoint(segment, nextOpId, new ArrayList<>(pending.values()), System.currentTimeMillis());
+            recordsSinceCheckpoint = 0;
+        }
+        Path tmp = dir.resolve(CHECKPOINT_FILE + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer data = ByteBuffer.wrap(objectMapper.writeValueAsBytes(checkpoint));
+            while (data.hasRemaining()) {
+                channel.write(data);
+            }
+            channel.force(true);
+        }
+        Files.move(tmp, dir.resolve(CHECKPOINT_FILE), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        // 重命名落盘后才能删除旧段，否则崩溃后可能恢复出旧检查点，而它引用的段已被删除
+        forceDirectory();
+        for (Map.Entry<Long, Path> entry : listSegments().entrySet()) {
+            if (entry.getKey() < checkpoint.segment()) {
+                Files.deleteIfExists(entry.getValue());
+            }
+        }
+        lastCheckpointAt = checkpoint.createdAt();
+        log.debug("操作日志检查点: 段 {}，未完成操作 {} 个", checkpoint.segment(), checkpoint.pending().size());
+    }
+
+    /**
+     * 追加一条记录，调用方持有 appendLock
+     *
+     * @return 记录序号
+     */
+    private long append(long opId, byte kind, long timestamp, String type, String vmName, String detail) {
+        byte[] typeBytes = type.getBytes(StandardCharsets.UTF_8);
+        byte[] nameBytes = vmName.getBytes(StandardCharsets.UTF_8);
+        String text = detail == null ? "" : detail;
+        byte[] detailBytes = (text.length() > MAX_DETAIL ? text.substring(0, MAX_DETAIL) : text).getBytes(StandardCharsets.UTF_8);
+        int length = 8 + 1 + 8 + 2 + typeBytes.length + 2 + nameBytes.length + 2 + detailBytes.length;
+
+        ByteBuffer payload = ByteBuffer.allocate(length);
+        payload.putLong(opId).put(kind).putLong(timestamp);
+        putShortString(payload, typeBytes);
+        putShortString(payload, nameBytes);
+        putShortString(payload, detailBytes);
+        CRC32C crc = new CRC32C();
+        crc.update(payload.array(), 0, length);
+
+        if (buffer.remaining() < HEADER_SIZE + length) {
+            openNextSegment();
+        }
+        buffer.putInt(length).putInt((int) crc.getValue()).put(payload.array());
+        recordsSinceCheckpoint++;
+        return ++appended;
+    }
+
+    private static void putShortString(ByteBuffer buf, byte[] bytes) {
+        buf.putShort((short) bytes.length).put(bytes);
+    }
+
+    private static String getShortString(ByteBuffer buf) {
+        byte[] bytes = new byte[buf.getShort() & 0xffff];
+        buf.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 切换到下一个日志段，调用方持有 appendLock；旧段在切换前落盘
+     */
+    private void openNextSegment() {
+        if (buffer != null) {
+            buffer.force();
+            forces.incrementAndGet();
+        }
+        segment++;
+        Path file = dir.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, segment, SEGMENT_SUFFIX));
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, journalConfig.getSegmentSizeMb() * 1024L * 1024L);
+        } catch (IOException e) {
+            throw new IllegalStateException("创建操作日志段失败: " + file, e);
+        }
+        // 新段的目录项也要落盘，否则崩溃后段内已落盘的记录随文件一起丢失
+        try {
+            forceDirectory();
+        } catch (IOException e) {
+            throw new IllegalStateException("操作日志目录落盘失败: " + dir, e);
+        }
+    }
+
+    /**
+     * 目录落盘，使文件的创建、重命名和删除持久化；不支持以通道打开目录的平台（Windows）上跳过
+     */
+    private void forceDirectory() throws IOException {
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(dir, StandardOpenOption.READ);
+        } catch (IOException | UnsupportedOperationException e) {
+            log.debug("当前平台不支持目录落盘: {}", e.getMessage());
+            return;
+        }
+        try (channel) {
+            channel.force(true);
+        }
+    }
+
+    private void awaitDurable(long seq) {
+        synchronized (durability) {
+            durability.notifyAll();
+            while (durable < seq && !closed) {
+                try {
+                    durability.wait(100);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * 组提交：一次force覆盖上次刷盘后追加的所有记录
+     */
+    private void flushLoop() {
+        while (!closed) {
+            synchronized (durability) {
+                while (!closed && appended == durable) {
+                    try {
+                        durability.wait(1000);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+            }
+            MappedByteBuffer current;
+            long target;
+            boolean checkpointDue;
+            synchronized (appendLock) {
+                current = buffer;
+                target = appended;
+                checkpointDue = recordsSinceCheckpoint >= journalConfig.getCheckpointEveryRecords();
+            }
+            current.force();
+            forces.incrementAndGet();
+            synchronized (durability) {
+                durable = target;
+                durability.notifyAll();
+            }
+            if (checkpointDue) {
+                try {
+                    checkpoint();
+                } catch (IOException | RuntimeException e) {
+                    log.warn("操作日志检查点失败: {}", e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * 读取检查点及之后的日志段，重建未完成的操作
+     *
+     * @return 最后一个日志段的编号
+     */
+    private long replay() throws IOException {
+        long fromSegment = 0;
+        Path checkpointFile = dir.resolve(CHECKPOINT_FILE);
+        if (Files.isRegularFile(checkpointFile)) {
+            Checkpoint checkpoint = objectMapper.readValue(checkpointFile.toFile(), Checkpoint.class);
+            fromSegment = checkpoint.segment();
+            nextOpId = checkpoint.nextOpId();
+            for (JournaledOperation op : checkpoint.pending()) {
+                pending.put(op.getOpId(), op);
+            }
+        }
+        long lastSegment = fromSegment;
+        long records = 0;
+        for (Map.Entry<Long, Path> entry : listSegments().entrySet()) {
+            lastSegment = Math.max(lastSegment, entry.getKey());
+            if (entry.getKey() >= fromSegment) {
+                records += replaySegment(entry.getValue());
+            }
+        }
+        log.info("操作日志已回放 {} 条记录", records);
+        return lastSegment;
+    }
+
+    private long replaySegment(Path file) throws IOException {
+        long records = 0;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            CRC32C crc = new CRC32C();
+            while (in.remaining() >= HEADER_SIZE) {
+                int length = in.getInt();
+                int checksum = in.getInt();
+                if (length <= 0 || length > in.remaining()) {
+                    break;
+                }
+                ByteBuffer payload = in.slice(in.position(), length);
+                crc.reset();
+                crc.update(payload.duplicate());
+                if ((int) crc.getValue() != checksum) {
+                    // 崩溃时未写完的尾部
+                    log.warn("操作日志段 {} 在偏移 {} 处校验失败，忽略之后的记录", file.getFileName(), in.position());
+                    break;
+                }
+                in.position(in.position() + length);
+                applyRecord(payload);
+                records++;
+            }
+        }
+        return records;
+    }
+
+    private void applyRecord(ByteBuffer payload) {
+        long opId = payload.getLong();
+        byte kind = payload.get();
+        long timestamp = payload.getLong();
+        String type = getShortString(payload);
+        String vmName = getShortString(payload);
+        nextOpId = Math.max(nextOpId, opId + 1);
+        if (kind == INTENT) {
+            OperationType opType;
+            try {
+                opType = OperationType.valueOf(type);
+            } catch (IllegalArgumentException e) {
+                log.warn("操作日志中有未知的操作类型 {}，忽略", type);
+                return;
+            }
+            pending.put(opId, JournaledOperation.builder()
+                    .opId(opId).type(opType).vmName(vmName).startedAt(timestamp).build());
+        } else {
+            pending.remove(opId);
+        }
+    }
+
+    private Map<Long, Path> listSegments() throws IOException {
+        Map<Long, Path> segments = new TreeMap<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                try {
+                    segments.put(Long.parseLong(name.substring(SEGMENT_PREFIX.length(),
+                            name.length() - SEGMENT_SUFFIX.length())), file);
+                } catch (NumberFormatException e) {
+                    log.debug("忽略无法识别的日志文件: {}", name);
+                }
+            }
+        }
+        return segments;
+    }
+
+    /**
+     * 更新恢复处理结果，供状态接口展示
+     */
+    void recordRecovery(JournaledOperation op, String outcome, String detail) {
+        synchronized (recovered) {
+            op.setOutcome(outcome);
+            op.setDetail(detail);
+        }
+    }
+}
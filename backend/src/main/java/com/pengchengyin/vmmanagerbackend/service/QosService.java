@@ -0,0 +1,289 @@
+package com.pengchengyin.vmmanagerbackend.service;
+
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.libvirt.LibvirtException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.pengchengyin.vmmanagerbackend.config.QosConfig;
+import com.pengchengyin.vmmanagerbackend.model.QosEvent;
+import com.pengchengyin.vmmanagerbackend.model.QosLimits;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 磁盘与网络限速服务
+ * 静态限速写入虚拟机持久化配置；自适应限速周期性读取 {@link HostDiskLatencyService} 采样的宿主机磁盘平均延迟，
+ * 延迟超过阈值时对磁盘I/O最多的虚拟机临时限速（只作用于本次运行），仍未缓解时继续收紧，
+ * 延迟持续回落后逐台恢复为静态限速。
+ */
+@Slf4j
+@Service
+public class QosService {
+
+    @Autowired
+    private QosConfig qosConfig;
+
+    @Autowired
+    private HypervisorBackend hypervisor;
+
+    @Autowired
+    private VirtualMachineService vmService;
+
+    @Autowired
+    private HostDiskLatencyService latencyService;
+
+    private final Map<String, HypervisorBackend.UsageSample> vmSamples = new HashMap<>();
+    private final Map<String, Throttle> throttles = new ConcurrentHashMap<>();
+    private final Deque<QosEvent> events = new ArrayDeque<>();
+
+    private final AtomicLong cycles = new AtomicLong();
+    private final AtomicLong throttleCount = new AtomicLong();
+    private final AtomicLong releaseCount = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private long calmSince;
+
+    private record Rate(long bytesSec, long iopsSec) {
+    }
+
+    /**
+     * 查询虚拟机的静态限速及当前的自适应限速
+     */
+    public Map<String, Object> getQos(String name) throws LibvirtException {
+        Map<String, Object> qos = new LinkedHashMap<>();
+        qos.put("limits", vmService.getQos(name));
+        Throttle throttle = throttles.get(name);
+        qos.put("adaptive", throttle == null ? null : throttle.toMap());
+        return qos;
+    }
+
+    /**
+     * 设置静态限速；该虚拟机的自适应限速随之解除，之后仍过载时重新限速
+     */
+    public QosLimits setQos(String name, QosLimits limits) throws LibvirtException {
+        QosLimits applied = vmService.setQos(name, limits);
+        throttles.remove(name);
+        return applied;
+    }
+
+    /**
+     * 自适应控制周期
+     */
+    @Scheduled(fixedDelayString = "${qos.interval-ms:5000}")
+    public void run() {
+        if (!qosConfig.isAdaptiveEnabled()) {
+            return;
+        }
+        try {
+            runCycle();
+        } catch (LibvirtException | RuntimeException e) {
+            log.warn("自适应限速周期执行失败: {}", e.getMessage());
+        }
+    }
+
+    private synchronized void runCycle() throws LibvirtException {
+        cycles.incrementAndGet();
+        double latency = latencyService.getHostLatencyMs();
+        Map<String, Rate> rates = sampleVmRates();
+        // 已关闭的虚拟机临时限速随之失效
+        throttles.keySet().retainAll(rates.keySet());
+        if (latency < 0) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        if (latency > qosConfig.getLatencyThresholdMs()) {
+            calmSince = 0;
+            throttleTopConsumers(rates, latency);
+        } else if (latency < qosConfig.getRecoverBelowMs() && !throttles.isEmpty()) {
+            if (calmSince == 0) {
+                calmSince = now;
+            } else if (now - calmSince >= qosConfig.getReleaseAfterSeconds() * 1000) {
+                releaseOldest(latency);
+                calmSince = now;
+            }
+        } else {
+            calmSince = 0;
+        }
+    }
+
+    /**
+     * 对磁盘I/O最多的虚拟机限速；已限速的虚拟机再按比例收紧
+     */
+    private void throttleTopConsumers(Map<String, Rate> rates, double latency) {
+        List<Map.Entry<String, Rate>> top = rates.entrySet().stream()
+                .filter(e -> e.getValue().bytesSec() >= qosConfig.getMinBytesSec()
+                        || e.getValue().iopsSec() >= qosConfig.getMinIopsSec())
+                .sorted(Comparator.comparingLong((Map.Entry<String, Rate> e) -> e.getValue().bytesSec()).reversed())
+                .limit(qosConfig.getTopConsumers())
+                .toList();
+        String reason = String.format("宿主机磁盘延迟 %.1fms 超过阈值 %.1fms", latency, qosConfig.getLatencyThresholdMs());
+        for (Map.Entry<String, Rate> entry : top) {
+            String name = entry.getKey();
+            Rate rate = entry.getValue();
+            Throttle current = throttles.get(name);
+            long baseBytes = current == null ? rate.bytesSec() : current.limitBytesSec;
+            long baseIops = current == null ? rate.iopsSec() : current.limitIopsSec;
+            long limitBytes = Math.max(qosConfig.getMinBytesSec(), (long) (baseBytes * qosConfig.getThrottleRatio()));
+            long limitIops = Math.max(qosConfig.getMinIopsSec(), (long) (baseIops * qosConfig.getThrottleRatio()));
+            if (current != null && limitBytes >= current.limitBytesSec && limitIops >= current.limitIopsSec) {
+                // 已达下限
+                continue;
+            }
+            try {
+                QosLimits configured = vmService.getQos(name);
+                limitBytes = tighter(limitBytes, configured.getTotalBytesSec());
+                limitIops = tighter(limitIops, configured.getTotalIopsSec());
+                hypervisor.setIoTune(name, new HypervisorBackend.IoTune(limitBytes, limitIops, null, null), false);
+                throttles.put(name, new Throttle(limitBytes, limitIops, rate,
+                        current == null ? System.currentTimeMillis() : current.since));
+                throttleCount.incrementAndGet();
+                record(event(name, current == null ? "THROTTLE" : "TIGHTEN", latency, rate, limitBytes, limitIops, reason));
+            } catch (LibvirtException | RuntimeException e) {
+                failures.incrementAndGet();
+                record(event(name, "FAILED", latency, rate, 0, 0, "限速失败: " + e.getMessage()));
+            }
+        }
+    }
+
+    /**
+     * 恢复最早被限速的虚拟机为静态限速
+     */
+    private void releaseOldest(double latency) {
+        throttles.entrySet().stream()
+                .min(Comparator.comparingLong(e -> e.getValue().since))
+                .ifPresent(entry -> {
+                    String name = entry.getKey();
+                    Throttle throttle = entry.getValue();
+                    try {
+                        QosLimits configured = vmService.getQos(name);
+                        long bytes = configured.getTotalBytesSec() == null ? 0 : configured.getTotalBytesSec();
+                        long iops = configured.getTotalIopsSec() == null ? 0 : configured.getTotalIopsSec();
+                        hypervisor.setIoTune(name, new HypervisorBackend.IoTune(bytes, iops, null, null), false);
+                        releaseCount.incrementAndGet();
+                        record(event(name, "RELEASE", latency, throttle.observed, bytes, iops,
+                                String.format("宿主机磁盘延迟已回落到 %.1fms，恢复静态限速", latency)));
+                    } catch (LibvirtException | RuntimeException e) {
+                        failures.incrementAndGet();
+                        record(event(name, "FAILED", latency, throttle.observed, 0, 0, "解除限速失败: " + e.getMessage()));
+                    }
+                    throttles.remove(name);
+                });
+    }
+
+    /**
+     * 采样运行中虚拟机的磁盘I/O速率
+     */
+    private Map<String, Rate> sampleVmRates() throws LibvirtException {
+        Map<String, Rate> rates = new HashMap<>();
+        List<String> active = hypervisor.listActiveDomains();
+        for (String name : active) {
+            try {
+                HypervisorBackend.UsageSample sample = hypervisor.sampleUsage(name);
+                HypervisorBackend.UsageSample previous = vmSamples.put(name, sample);
+                long wallNs = previous == null ? 0 : sample.sampledAt() - previous.sampledAt();
+                if (wallNs <= 0 || sample.diskBytes() < previous.diskBytes()) {
+                    rates.put(name, new Rate(0, 0));
+                    continue;
+                }
+                rates.put(name, new Rate(
+                        (long) ((sample.diskBytes() - previous.diskBytes()) * 1_000_000_000.0 / wallNs),
+                        (long) ((sample.diskOps() - previous.diskOps()) * 1_000_000_000.0 / wallNs)));
+            } catch (LibvirtException | RuntimeException e) {
+                log.debug("采样虚拟机 {} 磁盘I/O失败: {}", name, e.getMessage());
+            }
+        }
+        vmSamples.keySet().retainAll(active);
+        return rates;
+    }
+
+    private static long tighter(long limit, Long configured) {
+        return configured != null && configured > 0 ? Math.min(limit, configured) : limit;
+    }
+
+    private QosEvent event(String name, String action, double latency, Rate observed, long limitBytes, long limitIops,
+                           String reason) {
+        return QosEvent.builder()
+                .vmName(name)
+                .action(action)
+                .hostLatencyMs(latency)
+                .observedBytesSec(observed.bytesSec())
+                .observedIopsSec(observed.iopsSec())
+                .limitBytesSec(limitBytes)
+                .limitIopsSec(limitIops)
+                .reason(reason)
+                .build();
+    }
+
+    private void record(QosEvent event) {
+        event.setTimestamp(System.currentTimeMillis());
+        log.info("自适应限速: {} {} {}B/s {}IOPS，{}", event.getVmName(), event.getAction(),
+                event.getLimitBytesSec(), event.getLimitIopsSec(), event.getReason());
+        synchronized (events) {
+            events.addFirst(event);
+            while (events.size() > qosConfig.getEventHistory()) {
+                events.removeLast();
+            }
+        }
+    }
+
+    /**
+     * 最近的调整记录（新的在前）
+     */
+    public List<QosEvent> getEvents(int limit) {
+        synchronized (events) {
+            return events.stream().limit(limit).toList();
+        }
+    }
+
+    /**
+     * 自适应限速指标、各设备延迟与当前限速的虚拟机
+     */
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("adaptiveEnabled", qosConfig.isAdaptiveEnabled());
+        metrics.put("latencyAvailable", latencyService.isAvailable());
+        metrics.put("hostLatencyMs", latencyService.getHostLatencyMs());
+        metrics.put("deviceLatencyMs", latencyService.getDeviceLatencies());
+        metrics.put("cycles", cycles.get());
+        metrics.put("throttles", throttleCount.get());
+        metrics.put("releases", releaseCount.get());
+        metrics.put("failures", failures.get());
+        Map<String, Object> throttled = new LinkedHashMap<>();
+        throttles.forEach((name, t) -> throttled.put(name, t.toMap()));
+        metrics.put("throttled", throttled);
+        return metrics;
+    }
+
+    private static class Throttle {
+        final long limitBytesSec;
+        final long limitIopsSec;
+        final Rate observed;
+        final long since;
+
+        Throttle(long limitBytesSec, long limitIopsSec, Rate observed, long since) {
+            this.limitBytesSec = limitBytesSec;
+            this.limitIopsSec = limitIopsSec;
+            this.observed = observed;
+            this.since = since;
+        }
+
+        Map<String, Object> toMap() {
+            return Map.of(
+                    "limitBytesSec", limitBytesSec,
+                    "limitIopsSec", limitIopsSec,
+                    "observedBytesSec", observed.bytesSec(),
+                    "observedIopsSec", observed.iopsSec(),
+                    "since", since);
+        }
+    }
+}
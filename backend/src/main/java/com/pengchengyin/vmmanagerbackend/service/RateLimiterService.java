@@ -0,0 +1,96 @@
+package com.pengchengyin.vmmanagerbackend.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.pengchengyin.vmmanagerbackend.config.RateLimitConfig;
+
+/**
+ * 按客户端的令牌桶限流服务
+ * 令牌桶用GCRA（理论到达时间）实现：每个桶只有一个AtomicLong，取令牌是一次CAS，不加锁。
+ * 读请求与变更请求使用各自独立的桶。
+ */
+@Service
+public class RateLimiterService {
+
+    @Autowired
+    private RateLimitConfig rateLimitConfig;
+
+    private final Map<String, ClientBuckets> clients = new ConcurrentHashMap<>();
+    private final AtomicLong allowed = new AtomicLong();
+    private final AtomicLong rejectedReads = new AtomicLong();
+    private final AtomicLong rejectedWrites = new AtomicLong();
+
+    /**
+     * 尝试为请求取一个令牌
+     *
+     * @return 0表示允许；大于0表示被拒绝，值为建议的重试等待时间（纳秒）
+     */
+    public long tryAcquire(String clientId, boolean write) {
+        ClientBuckets buckets = clients.computeIfAbsent(clientId, k -> new ClientBuckets());
+        long waitNanos = write
+                ? take(buckets.write, rateLimitConfig.getWriteRatePerSecond(), rateLimitConfig.getWriteBurst())
+                : take(buckets.read, rateLimitConfig.getReadRatePerSecond(), rateLimitConfig.getReadBurst());
+        if (waitNanos == 0) {
+            allowed.incrementAndGet();
+        } else if (write) {
+            rejectedWrites.incrementAndGet();
+        } else {
+            rejectedReads.incrementAndGet();
+        }
+        return waitNanos;
+    }
+
+    /**
+     * GCRA：tat为桶完全回满的时刻；每取一个令牌tat后移一个发放间隔，超过桶容量对应的时间即拒绝
+     */
+    private static long take(AtomicLong tat, double ratePerSecond, int burst) {
+        long interval = (long) (TimeUnit.SECONDS.toNanos(1) / ratePerSecond);
+        long tolerance = interval * Math.max(1, burst);
+        while (true) {
+            long now = System.nanoTime();
+            long current = tat.get();
+            long next = Math.max(current, now) + interval;
+            long allowAt = next - tolerance;
+            if (allowAt > now) {
+                return allowAt - now;
+            }
+            if (tat.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * 回收长时间空闲（桶已回满）的客户端
+     */
+    @Scheduled(fixedDelay = 60000)
+    public void evictIdle() {
+        long idle = TimeUnit.SECONDS.toNanos(rateLimitConfig.getIdleEvictSeconds());
+        long now = System.nanoTime();
+        clients.values().removeIf(b -> now - b.read.get() > idle && now - b.write.get() > idle);
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", rateLimitConfig.isEnabled());
+        stats.put("clients", clients.size());
+        stats.put("allowed", allowed.get());
+        stats.put("rejectedReads", rejectedReads.get());
+        stats.put("rejectedWrites", rejectedWrites.get());
+        return stats;
+    }
+
+    private static class ClientBuckets {
+        // 初始为很早的时刻，新客户端拥有满桶
+        final AtomicLong read = new AtomicLong(System.nanoTime() - TimeUnit.DAYS.toNanos(1));
+        final AtomicLong write = new AtomicLong(System.nanoTime() - TimeUnit.DAYS.toNanos(1));
+    }
+}
@@ -0,0 +1,416 @@
+package com.pengchengyin.vmmanagerbackend.service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.libvirt.LibvirtException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.pengchengyin.vmmanagerbackend.config.ReconcilerConfig;
+import com.pengchengyin.vmmanagerbackend.model.DesiredState;
+import com.pengchengyin.vmmanagerbackend.model.ReconcileReport;
+import com.pengchengyin.vmmanagerbackend.model.ReconcileResult;
+import com.pengchengyin.vmmanagerbackend.model.VmSpec;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 声明式调和服务
+ * 保存提交的期望状态，对比实际虚拟机清单后以有限并发执行最少的 define/start/stop/undefine 操作。
+ * 每台虚拟机的规格哈希写入domain元数据并记录在本地索引中，规格未变的虚拟机只比较哈希，不读取XML。
+ * 期望状态和索引都持久化到磁盘，服务重启后继续调和；重复调和同一期望状态不会产生额外操作。
+ */
+@Slf4j
+@Service
+public class ReconcilerService {
+
+    static final String METADATA_NAMESPACE = "https://github.com/pengchengyin/vm-manager/reconciler";
+    private static final Pattern SPEC_HASH_PATTERN = Pattern.compile("<vmm:spec\\s[^>]*hash=['\"]([0-9a-f]{64})['\"]");
+    private static final String DESIRED_FILE = "desired.json";
+    private static final String APPLIED_FILE = "applied.json";
+
+    /**
+     * 计算规格哈希用的序列化器：属性按字母排序，保证同一规格得到同一哈希
+     */
+    private static final ObjectMapper CANONICAL = JsonMapper.builder()
+            .enable(MapperFeature.SORT_PROPERTIES_ALPHABETICALLY)
+            .enable(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS)
+            .build();
+
+    @Autowired
+    private HypervisorBackend hypervisor;
+
+    @Autowired
+    private VirtualMachineService vmService;
+
+    @Autowired
+    private ReconcilerConfig reconcilerConfig;
+
+    @Autowired
+    private SupervisorService supervisorService;
+
+    @Autowired
+    private DrainService drainService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * 虚拟机名称 -> 最近一次成功应用的规格哈希
+     */
+    private final Map<String, String> applied = new ConcurrentHashMap<>();
+    private final AtomicBoolean pending = new AtomicBoolean();
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    private volatile DesiredState desired;
+    private volatile ReconcileReport lastReport;
+    private ExecutorService loop;
+    private ExecutorService workers;
+
+    @PostConstruct
+    public void init() {
+        loop = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "reconciler");
+            t.setDaemon(true);
+            return t;
+        });
+        AtomicInteger seq = new AtomicInteger();
+        workers = Executors.newFixedThreadPool(Math.max(1, reconcilerConfig.getMaxConcurrency()), r -> {
+            Thread t = new Thread(r, "reconciler-" + seq.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+
+        Path dir = Paths.get(reconcilerConfig.getStateDir());
+        try {
+            Path desiredFile = dir.resolve(DESIRED_FILE);
+            if (Files.isRegularFile(desiredFile)) {
+                desired = objectMapper.readValue(desiredFile.toFile(), DesiredState.class);
+                log.info("已恢复期望状态: 版本 {}，{} 台虚拟机", desired.getGeneration(), desired.getVms().size());
+            }
+            Path appliedFile = dir.resolve(APPLIED_FILE);
+            if (Files.isRegularFile(appliedFile)) {
+                applied.putAll(objectMapper.readValue(appliedFile.toFile(), new TypeReference<Map<String, String>>() {}));
+            }
+        } catch (IOException e) {
+            log.warn("读取调和器状态失败，将在下一轮调和中重建: {}", e.getMessage());
+        }
+        if (desired != null) {
+            trigger();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        loop.shutdownNow();
+        workers.shutdownNow();
+    }
+
+    /**
+     * 提交新的期望状态，持久化后异步调和
+     *
+     * @return 分配的版本号
+     */
+    public long submit(DesiredState state) throws IOException {
+        Set<String> names = new HashSet<>();
+        for (VmSpec vm : state.getVms()) {
+            if (!names.add(vm.getSpec().getName())) {
+                throw new IllegalArgumentException("虚拟机名称重复: " + vm.getSpec().getName());
+            }
+        }
+        synchronized (this) {
+            DesiredState current = desired;
+            state.setGeneration(current == null ? 1 : current.getGeneration() + 1);
+            state.setSubmittedAt(System.currentTimeMillis());
+            writeAtomically(DESIRED_FILE, state);
+            desired = state;
+        }
+        log.info("已提交期望状态: 版本 {}，{} 台虚拟机", state.getGeneration(), state.getVms().size());
+        trigger();
+        return state.getGeneration();
+    }
+
+    /**
+     * 请求一次调和；已有一次在排队时合并为一次
+     */
+    public void trigger() {
+        if (pending.compareAndSet(false, true)) {
+            loop.execute(() -> {
+                pending.set(false);
+                try {
+                    reconcile();
+                } catch (LibvirtException | RuntimeException e) {
+                    log.warn("调和失败: {}", e.getMessage());
+                }
+            });
+        }
+    }
+
+    /**
+     * 周期性调和，纠正期望状态之外的修改（例如手工关机）
+     */
+    @Scheduled(fixedDelayString = "${reconciler.interval-ms:60000}")
+    public void periodic() {
+        if (reconcilerConfig.isEnabled() && desired != null) {
+            trigger();
+        }
+    }
+
+    public DesiredState getDesiredState() {
+        return desired;
+    }
+
+    /**
+     * 调和器状态：当前期望版本、是否正在调和及最近一次报告
+     */
+    public Map<String, Object> getStatus() {
+        DesiredState current = desired;
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("generation", current == null ? 0 : current.getGeneration());
+        status.put("vmCount", current == null ? 0 : current.getVms().size());
+        status.put("reconciling", running.get());
+        status.put("managedCount", applied.size());
+        status.put("lastReport", lastReport);
+        return status;
+    }
+
+    private void reconcile() throws LibvirtException {
+        DesiredState target = desired;
+        if (target == null) {
+            return;
+        }
+        running.set(true);
+        try {
+            lastReport = reconcile(target);
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private ReconcileReport reconcile(DesiredState target) throws LibvirtException {
+        long startedAt = System.currentTimeMillis();
+
+        // 一次列出全部虚拟机及其运行状态，之后只对需要变更的虚拟机发起调用
+        Set<String> active = new HashSet<>(hypervisor.listActiveDomains());
+        Set<String> existing = new HashSet<>(active);
+        existing.addAll(hypervisor.listInactiveDomains());
+
+        List<Callable<ReconcileResult>> tasks = new ArrayList<>();
+        Set<String> wanted = new HashSet<>();
+        int unchanged = 0;
+        for (VmSpec vm : target.getVms()) {
+            String name = vm.getSpec().getName();
+            wanted.add(name);
+            boolean exists = existing.contains(name);
+            boolean isActive = active.contains(name);
+            if (vm.getState() == VmSpec.PowerState.ABSENT) {
+                if (exists) {
+                    tasks.add(() -> apply(vm, null, true, isActive));
+                } else {
+                    unchanged++;
+                }
+                continue;
+            }
+            String hash = specHash(vm);
+            boolean powerMatches = (vm.getState() == VmSpec.PowerState.RUNNING) == isActive;
+            if (exists && hash.equals(applied.get(name)) && powerMatches) {
+                unchanged++;
+                continue;
+            }
+            tasks.add(() -> apply(vm, hash, exists, isActive));
+        }
+        if (target.isPrune()) {
+            for (String name : applied.keySet()) {
+                if (!wanted.contains(name) && existing.contains(name)) {
+                    boolean isActive = active.contains(name);
+                    tasks.add(() -> undefine(name, isActive));
+                }
+            }
+        }
+
+        List<ReconcileResult> results = new ArrayList<>();
+        Map<String, Integer> actionCounts = new TreeMap<>();
+        int failed = 0;
+        try {
+            for (Future<ReconcileResult> future : workers.invokeAll(tasks)) {
+                ReconcileResult result = future.get();
+                if (!result.isSuccess()) {
+                    failed++;
+                }
+                if (result.getActions().isEmpty() && result.isSuccess()) {
+                    // 索引缺失但元数据中的哈希一致，仅补录索引
+                    unchanged++;
+                    continue;
+                }
+                result.getActions().forEach(a -> actionCounts.merge(a, 1, Integer::sum));
+                results.add(result);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("调和被中断", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("调和任务异常", e.getCause());
+        }
+
+        if (!tasks.isEmpty()) {
+            try {
+                writeAtomically(APPLIED_FILE, new HashMap<>(applied));
+            } catch (IOException e) {
+                log.warn("保存调和索引失败: {}", e.getMessage());
+            }
+        }
+
+        ReconcileReport report = ReconcileReport.builder()
+                .generation(target.getGeneration())
+                .startedAt(startedAt)
+                .durationMs(System.currentTimeMillis() - startedAt)
+                .total(target.getVms().size())
+                .unchanged(unchanged)
+                .changed(results.size() - failed)
+                .failed(failed)
+                .actionCounts(actionCounts)
+                .results(results)
+                .build();
+        if (!results.isEmpty()) {
+            log.info("调和完成: 版本 {}，{} 台未变化，{} 台已变更，{} 台失败，耗时 {}ms", report.getGeneration(),
+                    report.getUnchanged(), report.getChanged(), report.getFailed(), report.getDurationMs());
+        }
+        return report;
+    }
+
+    /**
+     * 让单台虚拟机收敛到期望状态；同一虚拟机的操作串行执行
+     */
+    private ReconcileResult apply(VmSpec vm, String hash, boolean exists, boolean isActive) {
+        String name = vm.getSpec().getName();
+        if (vm.getState() == VmSpec.PowerState.ABSENT) {
+            return undefine(name, isActive);
+        }
+        long start = System.currentTimeMillis();
+        List<String> actions = new ArrayList<>();
+        try {
+            if (!exists) {
+                vmService.defineVm(vm.getSpec(), null, metadataXml(hash));
+                actions.add("DEFINE");
+            } else if (!hash.equals(applied.get(name))) {
+                HypervisorBackend.DomainSnapshot domain = hypervisor.getDomain(name);
+                // 索引中没有记录（例如上次调和中途重启），以元数据中的哈希为准
+                if (!hash.equals(readSpecHash(domain))) {
+                    vmService.defineVm(vm.getSpec(), domain.uuid(), metadataXml(hash));
+                    actions.add("REDEFINE");
+                }
+            }
+            applied.put(name, hash);
+
+            boolean wantRunning = vm.getState() == VmSpec.PowerState.RUNNING;
+            // 因空闲被守护服务保存的虚拟机仍视为运行中，访问时再恢复；宿主机排空保存的虚拟机由恢复流程启动
+            if (wantRunning && !isActive && !supervisorService.isParked(name) && !drainService.isHeld(name)) {
+                vmService.startVm(name);
+                actions.add("START");
+            } else if (!wantRunning && isActive) {
+                if (reconcilerConfig.isForceStop()) {
+                    vmService.forceShutdownVm(name);
+                } else {
+                    vmService.shutdownVm(name);
+                }
+                actions.add("STOP");
+            }
+            return result(name, actions, start, null);
+        } catch (LibvirtException | RuntimeException e) {
+            log.warn("调和虚拟机 {} 失败: {}", name, e.getMessage());
+            return result(name, actions, start, e.getMessage());
+        }
+    }
+
+    private ReconcileResult undefine(String name, boolean isActive) {
+        long start = System.currentTimeMillis();
+        try {
+            vmService.destroyVm(name);
+            applied.remove(name);
+            return result(name, List.of("UNDEFINE"), start, null);
+        } catch (LibvirtException | RuntimeException e) {
+            log.warn("删除虚拟机 {} 失败: {}", name, e.getMessage());
+            return result(name, List.of(), start, e.getMessage());
+        }
+    }
+
+    private ReconcileResult result(String name, List<String> actions, long start, String error) {
+        return ReconcileResult.builder()
+                .name(name)
+                .actions(actions)
+                .success(error == null)
+                .error(error)
+                .durationMs(System.currentTimeMillis() - start)
+                .build();
+    }
+
+    private String readSpecHash(HypervisorBackend.DomainSnapshot domain) {
+        if (domain.xml() == null) {
+            return null;
+        }
+        Matcher m = SPEC_HASH_PATTERN.matcher(domain.xml());
+        return m.find() ? m.group(1) : null;
+    }
+
+    private String metadataXml(String hash) {
+        return "<vmm:spec xmlns:vmm='" + METADATA_NAMESPACE + "' hash='" + hash + "'/>";
+    }
+
+    /**
+     * 规格哈希：规格按属性排序序列化后的SHA-256，不包含电源状态
+     */
+    static String specHash(VmSpec vm) {
+        try {
+            byte[] canonical = CANONICAL.writeValueAsBytes(vm.getSpec());
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(canonical));
+        } catch (JsonProcessingException | NoSuchAlgorithmException e) {
+            throw new IllegalStateException("计算规格哈希失败", e);
+        }
+    }
+
+    /**
+     * 先写临时文件再原子替换，避免重启时读到写了一半的文件
+     */
+    private void writeAtomically(String fileName, Object value) throws IOException {
+        Path dir = Paths.get(reconcilerConfig.getStateDir());
+        Files.createDirectories(dir);
+        Path tmp = dir.resolve(fileName + ".tmp");
+        Files.write(tmp, objectMapper.writeValueAsString(value).getBytes(StandardCharsets.UTF_8));
+        Files.move(tmp, dir.resolve(fileName), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
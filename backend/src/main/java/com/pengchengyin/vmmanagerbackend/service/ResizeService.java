@@ -0,0 +1,159 @@
+package com.pengchengyin.vmmanagerbackend.service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.libvirt.LibvirtException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import com.pengchengyin.vmmanagerbackend.config.ResizeConfig;
+import com.pengchengyin.vmmanagerbackend.model.ResizeRequest;
+import com.pengchengyin.vmmanagerbackend.model.ResizeResult;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 虚拟机资源在线调整服务
+ * 能在线生效的调整立即生效；需要重启才能生效的调整按请求计划重启：
+ * 先优雅关机，超时后强制关闭，再启动虚拟机。同一虚拟机只保留最后一次计划。
+ */
+@Slf4j
+@Service
+public class ResizeService {
+
+    private static final long STOP_POLL_MS = 1000;
+
+    @Autowired
+    private ResizeConfig resizeConfig;
+
+    @Autowired
+    private HypervisorBackend hypervisor;
+
+    @Autowired
+    private VirtualMachineService vmService;
+
+    private final Map<String, PendingRestart> pending = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService scheduler;
+
+    private record PendingRestart(long at, ScheduledFuture<?> future) {
+    }
+
+    @PostConstruct
+    public void init() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "vm-resize");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @PreDestroy
+    public void stop() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * 查询虚拟机的vCPU与内存配置及已计划的重启
+     */
+    public ResizeResult getResources(String name) throws LibvirtException {
+        return withPending(vmService.getResources(name));
+    }
+
+    /**
+     * 调整虚拟机的vCPU与内存，需要重启且请求允许时计划重启
+     */
+    public ResizeResult resize(String name, ResizeRequest request) throws LibvirtException {
+        ResizeResult result = vmService.resizeVm(name, request);
+        if (result.isRestartRequired() && request.isAllowRestart()) {
+            long at = request.getRestartAt() != null ? request.getRestartAt() : System.currentTimeMillis();
+            scheduleRestart(name, at);
+            result.getDetails().add("已计划重启虚拟机");
+        }
+        return withPending(result);
+    }
+
+    /**
+     * 取消计划的重启
+     *
+     * @return 是否存在计划的重启
+     */
+    public boolean cancelRestart(String name) {
+        PendingRestart restart = pending.remove(name);
+        if (restart == null) {
+            return false;
+        }
+        restart.future().cancel(false);
+        log.info("已取消虚拟机 {} 的计划重启", name);
+        return true;
+    }
+
+    private void scheduleRestart(String name, long at) {
+        long delay = Math.max(0, at - System.currentTimeMillis());
+        PendingRestart restart = new PendingRestart(at,
+                scheduler.schedule(() -> restart(name, at), delay, TimeUnit.MILLISECONDS));
+        PendingRestart previous = pending.put(name, restart);
+        if (previous != null) {
+            previous.future().cancel(false);
+        }
+        log.info("虚拟机 {} 计划在 {}ms 后重启以应用资源调整", name, delay);
+    }
+
+    private void restart(String name, long at) {
+        // 只移除本次计划，执行期间重新提交的计划保留
+        pending.computeIfPresent(name, (k, v) -> v.at() == at ? null : v);
+        try {
+            HypervisorBackend.DomainSnapshot domain = hypervisor.findDomain(name);
+            if (domain == null) {
+                log.info("虚拟机 {} 已不存在，取消计划重启", name);
+                return;
+            }
+            if (!domain.active()) {
+                // 计划期间已被关机，新配置在下次启动时生效，不替用户启动
+                log.info("虚拟机 {} 未运行，取消计划重启", name);
+                return;
+            }
+            vmService.shutdownVm(name);
+            if (!awaitStopped(name)) {
+                log.warn("虚拟机 {} 在 {} 秒内未关闭，强制关闭", name, resizeConfig.getRestartTimeoutSeconds());
+                vmService.forceShutdownVm(name);
+            }
+            vmService.startVm(name);
+            log.info("虚拟机 {} 已重启，资源调整生效", name);
+        } catch (LibvirtException | RuntimeException e) {
+            log.error("虚拟机 {} 计划重启失败: {}", name, e.getMessage());
+        }
+    }
+
+    private boolean awaitStopped(String name) throws LibvirtException {
+        long deadline = System.currentTimeMillis() + resizeConfig.getRestartTimeoutSeconds() * 1000L;
+        while (System.currentTimeMillis() < deadline) {
+            HypervisorBackend.DomainSnapshot domain = hypervisor.findDomain(name);
+            if (domain == null || !domain.active()) {
+                return true;
+            }
+            try {
+                Thread.sleep(STOP_POLL_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("等待虚拟机关闭时被中断", e);
+            }
+        }
+        return false;
+    }
+
+    private ResizeResult withPending(ResizeResult result) {
+        PendingRestart restart = pending.get(result.getName());
+        if (restart != null) {
+            result.setRestartScheduledAt(restart.at());
+        }
+        return result;
+    }
+}
@@ -0,0 +1,947 @@
+package com.pengchengyin.vmmanagerbackend.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import com.pengchengyin.vmmanagerbackend.config.HypervisorConfig;
+import com.pengchengyin.vmmanagerbackend.model.VmStatus;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 进程内模拟的Hypervisor后端
+ * 启动时生成指定数量的虚拟机，每次调用按配置的分布休眠模拟RPC延迟，按概率注入故障，
+ * 并发调用数受限于模拟的libvirtd工作线程数；状态变化会发出生命周期事件。
+ * 宿主机按配置的NUMA拓扑模拟，存储池中为每台虚拟机的磁盘生成一个存储卷；存储卷只记录大小不保存数据，
+ * 上传只计量字节数，下载返回全零。状态只保存在内存中，进程重启后重新生成。
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(prefix = "hypervisor", name = "backend", havingValue = "simulated")
+public class SimulatedHypervisorBackend extends AbstractHypervisorBackend {
+
+    private static final Pattern NAME_PATTERN = Pattern.compile("<name>([^<]+)</name>");
+    private static final Pattern UUID_PATTERN = Pattern.compile("<uuid>([^<]+)</uuid>");
+    private static final Pattern MEMORY_PATTERN = Pattern.compile("<memory(?:\\s+unit=['\"](\\w+)['\"])?[^>]*>(\\d+)</memory>");
+    private static final Pattern CURRENT_MEMORY_PATTERN = Pattern.compile("<currentMemory(?:\\s+unit=['\"](\\w+)['\"])?[^>]*>(\\d+)</currentMemory>");
+    private static final Pattern VCPU_PATTERN = Pattern.compile("<vcpu[^>]*>(\\d+)</vcpu>");
+    private static final Pattern VCPU_CURRENT_PATTERN = Pattern.compile("<vcpu[^>]*\\scurrent=['\"](\\d+)['\"]");
+    private static final Pattern NODESET_PATTERN = Pattern.compile(
+            "<numatune>.*?<memory[^>]*nodeset=['\"]([^'\"]+)['\"]", Pattern.DOTALL);
+    private static final Pattern VOLUME_CAPACITY_PATTERN = Pattern.compile("<capacity[^>]*>(\\d+)</capacity>");
+    private static final Pattern VOLUME_ALLOCATION_PATTERN = Pattern.compile("<allocation[^>]*>(\\d+)</allocation>");
+    private static final Pattern VOLUME_FORMAT_PATTERN = Pattern.compile("<format\\s+type=['\"]([^'\"]+)['\"]");
+    private static final Pattern VOLUME_BACKING_PATTERN = Pattern.compile(
+            "<backingStore>.*?<path>([^<]+)</path>", Pattern.DOTALL);
+
+    /**
+     * 模拟运行中虚拟机的平均CPU占用率
+     */
+    private static final double CPU_UTILIZATION = 0.25;
+
+    private static final long GIB = 1024L * 1024 * 1024;
+
+    @Autowired
+    private HypervisorConfig hypervisorConfig;
+
+    private final Map<String, SimDomain> domains = new ConcurrentHashMap<>();
+    /**
+     * 模拟存储池中的存储卷（卷名 -> 卷）
+     */
+    private final Map<String, SimVolume> volumes = new ConcurrentHashMap<>();
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong injectedFailures = new AtomicLong();
+    private Semaphore workers;
+    private ScheduledExecutorService scheduler;
+
+    private static class SimDomain {
+        final String name;
+        volatile String uuid;
+        volatile String xml;
+        volatile VmStatus status = VmStatus.SHUTOFF;
+        volatile boolean persistent = true;
+        volatile long maxMemoryKiB;
+        volatile long memoryKiB;
+        volatile int vcpus;
+        volatile int maxVcpus;
+        volatile long cpuTimeNs;
+        volatile long runningSince;
+        /**
+         * 存在托管保存的状态，下次启动时恢复
+         */
+        volatile boolean saved;
+
+        SimDomain(String name) {
+            this.name = name;
+        }
+
+        boolean isActive() {
+            return status == VmStatus.RUNNING || status == VmStatus.PAUSED || status == VmStatus.BLOCKED;
+        }
+    }
+
+    private static class SimVolume {
+        final String name;
+        final String path;
+        final String format;
+        final String backing;
+        volatile long capacity;
+        volatile long allocation;
+
+        SimVolume(String name, String path, String format, String backing, long capacity, long allocation) {
+            this.name = name;
+            this.path = path;
+            this.format = format;
+            this.backing = backing;
+            this.capacity = capacity;
+            this.allocation = allocation;
+        }
+    }
+
+    @PostConstruct
+    public void init() {
+        HypervisorConfig.Simulated sim = hypervisorConfig.getSimulated();
+        workers = sim.getMaxConcurrentCalls() > 0 ? new Semaphore(sim.getMaxConcurrentCalls(), true) : null;
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "hypervisor-sim");
+            t.setDaemon(true);
+            return t;
+        });
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < sim.getDomainCount(); i++) {
+            String name = String.format("sim-%05d", i);
+            SimDomain d = new SimDomain(name);
+            applyXml(d, seedXml(name, UUID.randomUUID().toString(), 1 + random.nextInt(8), 1024L << random.nextInt(5)));
+            if (random.nextDouble() < sim.getRunningRatio()) {
+                markRunning(d);
+            }
+            domains.put(name, d);
+            String volume = name + ".qcow2";
+            volumes.put(volume, new SimVolume(volume, volumePath(volume), "qcow2", null, 20 * GIB,
+                    (1 + random.nextInt(8)) * GIB / 2));
+        }
+
+        if (sim.getCrashesPerMinute() > 0) {
+            long periodMs = Math.max(1, (long) (60000 / sim.getCrashesPerMinute()));
+            scheduler.scheduleAtFixedRate(this::crashRandomDomain, periodMs, periodMs, TimeUnit.MILLISECONDS);
+        }
+        log.info("模拟Hypervisor后端已启动: {} 台虚拟机，延迟分布 {} {}ms，故障率 {}",
+                sim.getDomainCount(), sim.getLatencyDistribution(), sim.getLatencyMs(), sim.getFailureRate());
+    }
+
+    @PreDestroy
+    public void shutdownScheduler() {
+        scheduler.shutdownNow();
+    }
+
+    @Override
+    public String getType() {
+        return "simulated";
+    }
+
+    @Override
+    public Map<String, Object> describe() {
+        HypervisorConfig.Simulated sim = hypervisorConfig.getSimulated();
+        Map<String, Object> details = new LinkedHashMap<>();
+        details.put("backend", getType());
+        details.put("domains", domains.size());
+        details.put("activeDomains", domains.values().stream().filter(SimDomain::isActive).count());
+        details.put("calls", calls.get());
+        details.put("injectedFailures", injectedFailures.get());
+        details.put("inFlightLimit", sim.getMaxConcurrentCalls());
+        details.put("waitingCalls", workers == null ? 0 : workers.getQueueLength());
+        details.put("latencyDistribution", sim.getLatencyDistribution());
+        details.put("latencyMs", sim.getLatencyMs());
+        details.put("failureRate", sim.getFailureRate());
+        return details;
+    }
+
+    @Override
+    public List<String> listActiveDomains() {
+        return call("list", () -> names(true));
+    }
+
+    @Override
+    public List<String> listInactiveDomains() {
+        return call("list", () -> names(false));
+    }
+
+    private List<String> names(boolean active) {
+        List<String> names = new ArrayList<>();
+        for (SimDomain d : domains.values()) {
+            if (d.isActive() == active) {
+                names.add(d.name);
+            }
+        }
+        return names;
+    }
+
+    @Override
+    public DomainSnapshot getDomain(String name) {
+        return call("get", () -> snapshot(require(name)));
+    }
+
+    @Override
+    public DomainSnapshot findDomain(String name) {
+        return call("get", () -> {
+            SimDomain d = domains.get(name);
+            return d == null ? null : snapshot(d);
+        });
+    }
+
+    @Override
+    public DomainSnapshot getDomainByUuid(String uuid) {
+        return call("get", () -> domains.values().stream()
+                .filter(d -> uuid.equalsIgnoreCase(d.uuid))
+                .findFirst()
+                .map(this::snapshot)
+                .orElseThrow(() -> new HypervisorException("Domain not found: no domain with matching uuid '" + uuid + "'")));
+    }
+
+    @Override
+    public String findDefinitionXml(String name) {
+        return call("get", () -> {
+            SimDomain d = domains.get(name);
+            return d == null ? null : d.xml;
+        });
+    }
+
+    @Override
+    public DomainSnapshot defineDomain(String xml) {
+        return call("define", () -> {
+            String name = match(NAME_PATTERN, xml);
+            if (name == null) {
+                throw new HypervisorException("XML error: missing domain name");
+            }
+            SimDomain d = domains.computeIfAbsent(name, SimDomain::new);
+            synchronized (d) {
+                String uuid = match(UUID_PATTERN, xml);
+                if (d.uuid != null && uuid != null && !d.uuid.equalsIgnoreCase(uuid)) {
+                    throw new HypervisorException("operation failed: domain '" + name + "' already exists with uuid " + d.uuid);
+                }
+                applyXml(d, xml);
+                d.persistent = true;
+            }
+            emit(name, LifecycleEventType.DEFINED);
+            return snapshot(d);
+        });
+    }
+
+    @Override
+    public void undefine(String name) {
+        call("undefine", () -> {
+            SimDomain d = require(name);
+            synchronized (d) {
+                if (d.isActive()) {
+                    // 与libvirt一致：运行中的虚拟机取消定义后变为临时虚拟机，关闭时消失
+                    d.persistent = false;
+                } else {
+                    domains.remove(name);
+                }
+            }
+            emit(name, LifecycleEventType.UNDEFINED);
+            return null;
+        });
+    }
+
+    @Override
+    public void start(String name) {
+        transition("start", name, d -> {
+            if (d.isActive()) {
+                throw new HypervisorException("Requested operation is not valid: domain is already running");
+            }
+            markRunning(d);
+            return LifecycleEventType.STARTED;
+        });
+    }
+
+    @Override
+    public void shutdown(String name) {
+        transition("shutdown", name, d -> {
+            requireActive(d);
+            long delay = hypervisorConfig.getSimulated().getShutdownDelayMs();
+            scheduler.schedule(() -> {
+                boolean stopped;
+                synchronized (d) {
+                    stopped = d.isActive();
+                    if (stopped) {
+                        markStopped(d);
+                    }
+                }
+                if (stopped) {
+                    emit(d.name, LifecycleEventType.STOPPED);
+                }
+            }, delay, TimeUnit.MILLISECONDS);
+            return LifecycleEventType.SHUTDOWN;
+        });
+    }
+
+    @Override
+    public void destroy(String name) {
+        transition("destroy", name, d -> {
+            requireActive(d);
+            markStopped(d);
+            return LifecycleEventType.STOPPED;
+        });
+    }
+
+    @Override
+    public void reboot(String name) {
+        transition("reboot", name, d -> {
+            requireActive(d);
+            d.cpuTimeNs = cpuTime(d);
+            d.runningSince = System.nanoTime();
+            d.status = VmStatus.RUNNING;
+            return LifecycleEventType.REBOOTED;
+        });
+    }
+
+    @Override
+    public void suspend(String name) {
+        transition("suspend", name, d -> {
+            requireActive(d);
+            d.cpuTimeNs = cpuTime(d);
+            d.status = VmStatus.PAUSED;
+            return LifecycleEventType.SUSPENDED;
+        });
+    }
+
+    @Override
+    public void resume(String name) {
+        transition("resume", name, d -> {
+            if (d.status != VmStatus.PAUSED) {
+                throw new HypervisorException("Requested operation is not valid: domain is not paused");
+            }
+            d.runningSince = System.nanoTime();
+            d.status = VmStatus.RUNNING;
+            return LifecycleEventType.RESUMED;
+        });
+    }
+
+    @Override
+    public void managedSave(String name) {
+        transition("managedSave", name, d -> {
+            requireActive(d);
+            d.cpuTimeNs = cpuTime(d);
+            d.status = VmStatus.SHUTOFF;
+            d.saved = true;
+            return LifecycleEventType.SAVED;
+        });
+    }
+
+    @Override
+    public boolean hasManagedSave(String name) {
+        return call("get", () -> require(name).saved);
+    }
+
+    @Override
+    public UsageSample sampleUsage(String name) {
+        return call("sampleUsage", () -> {
+            SimDomain d = require(name);
+            // 模拟虚拟机按固定CPU利用率运行，不产生I/O
+            return new UsageSample(cpuTime(d), d.vcpus, 0, 0, 0, System.nanoTime());
+        });
+    }
+
+    @Override
+    public void setIoTune(String name, IoTune tune, boolean persistent) {
+        call("setIoTune", () -> {
+            SimDomain d = require(name);
+            if (!persistent && !d.isActive()) {
+                throw new IllegalStateException("虚拟机未运行，临时限速无法生效");
+            }
+            // 模拟虚拟机不产生I/O，限速只校验虚拟机存在
+            return null;
+        });
+    }
+
+    @Override
+    public void setVcpus(String name, int count, boolean live, boolean config) {
+        call("setVcpus", () -> {
+            SimDomain d = require(name);
+            synchronized (d) {
+                requireChange(d, live, config);
+                // 运行状态受启动时的上限约束，持久化配置受配置中的上限约束
+                int configMax = Integer.parseInt(match(VCPU_PATTERN, d.xml));
+                int max = live ? (config ? Math.min(d.maxVcpus, configMax) : d.maxVcpus) : configMax;
+                if (count > max) {
+                    throw new HypervisorException("invalid argument: requested vcpus is greater than max allowable vcpus for the domain: "
+                            + count + " > " + max);
+                }
+                if (config) {
+                    d.xml = setVcpuElement(d.xml, count, configMax);
+                }
+                if (live || !d.isActive()) {
+                    d.vcpus = count;
+                }
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public void setMaxVcpus(String name, int max) {
+        call("setVcpus", () -> {
+            SimDomain d = require(name);
+            synchronized (d) {
+                String current = match(VCPU_CURRENT_PATTERN, d.xml);
+                int configured = current != null ? Integer.parseInt(current) : d.maxVcpus;
+                d.xml = setVcpuElement(d.xml, Math.min(configured, max), max);
+                if (!d.isActive()) {
+                    applyXml(d, d.xml);
+                }
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public void setMemory(String name, long memoryKiB, boolean live, boolean config) {
+        call("setMemory", () -> {
+            SimDomain d = require(name);
+            synchronized (d) {
+                requireChange(d, live, config);
+                long configMaxKiB = memoryKiB(MEMORY_PATTERN, d.xml, d.maxMemoryKiB);
+                long maxKiB = live ? (config ? Math.min(d.maxMemoryKiB, configMaxKiB) : d.maxMemoryKiB) : configMaxKiB;
+                if (memoryKiB > maxKiB) {
+                    throw new HypervisorException("invalid argument: cannot set memory higher than max memory");
+                }
+                if (config) {
+                    d.xml = replaceElement(d.xml, "currentMemory", memoryKiB);
+                }
+                if (live || !d.isActive()) {
+                    d.memoryKiB = memoryKiB;
+                }
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public void setMaxMemory(String name, long maxMemoryKiB) {
+        call("setMemory", () -> {
+            SimDomain d = require(name);
+            synchronized (d) {
+                d.xml = replaceElement(d.xml, "memory", maxMemoryKiB);
+                if (memoryKiB(CURRENT_MEMORY_PATTERN, d.xml, maxMemoryKiB) > maxMemoryKiB) {
+                    d.xml = replaceElement(d.xml, "currentMemory", maxMemoryKiB);
+                }
+                if (!d.isActive()) {
+                    applyXml(d, d.xml);
+                }
+            }
+            return null;
+        });
+    }
+
+    private void requireChange(SimDomain d, boolean live, boolean config) {
+        if (!live && !config) {
+            throw new IllegalArgumentException("至少需要作用于运行状态或持久化配置之一");
+        }
+        if (live) {
+            requireActive(d);
+        }
+    }
+
+    @Override
+    public String guestAgentCommand(String name, String command, int timeoutSeconds) {
+        return call("agent", () -> {
+            requireActive(require(name));
+            return "{\"return\":{}}";
+        });
+    }
+
+    @Override
+    public void pinVcpu(String name, int vcpu, Collection<Integer> cpus) {
+        call("pinVcpu", () -> {
+            SimDomain d = require(name);
+            requireActive(d);
+            HypervisorConfig.Simulated sim = hypervisorConfig.getSimulated();
+            int hostCpus = sim.getNumaNodes() * sim.getCpusPerNode();
+            if (vcpu >= d.vcpus || cpus.isEmpty() || cpus.stream().anyMatch(cpu -> cpu < 0 || cpu >= hostCpus)) {
+                throw new HypervisorException("invalid argument: invalid vcpu " + vcpu + " or cpumap " + cpus);
+            }
+            // 模拟虚拟机不占用真实CPU，绑定只做校验
+            return null;
+        });
+    }
+
+    @Override
+    public BalloonStats memoryStats(String name) {
+        return call("get", () -> {
+            SimDomain d = require(name);
+            requireActive(d);
+            // 每台虚拟机的空闲内存比例固定在10%~60%之间，气球调整后按新的当前内存计算
+            double unusedRatio = 0.1 + Math.floorMod(name.hashCode(), 50) / 100.0;
+            return new BalloonStats((long) (d.memoryKiB * unusedRatio), d.memoryKiB, d.memoryKiB, 0, 0);
+        });
+    }
+
+    @Override
+    public List<DomainResources> listDomainResources() {
+        return call("list", () -> domains.values().stream()
+                .map(d -> new DomainResources(d.name, d.isActive(), d.maxMemoryKiB, d.memoryKiB, d.vcpus))
+                .toList());
+    }
+
+    @Override
+    public HostSnapshot getHostInfo() {
+        return call("host", () -> {
+            HypervisorConfig.Simulated sim = hypervisorConfig.getSimulated();
+            long memoryKiB = sim.getNumaNodes() * sim.getMemoryGbPerNode() * 1024 * 1024;
+            long free = 0;
+            for (long cell : cellsFreeMemory()) {
+                free += cell;
+            }
+            int cores = Math.max(1, sim.getCpusPerNode() / 2);
+            return new HostSnapshot("sim-host", "simulated", 0, 0, "x86_64", sim.getNumaNodes() * sim.getCpusPerNode(),
+                    2600, sim.getNumaNodes(), 1, cores, sim.getCpusPerNode() / cores, memoryKiB, free);
+        });
+    }
+
+    @Override
+    public String getCapabilities() {
+        return call("host", () -> {
+            HypervisorConfig.Simulated sim = hypervisorConfig.getSimulated();
+            int perNode = sim.getCpusPerNode();
+            int half = Math.max(1, perNode / 2);
+            StringBuilder xml = new StringBuilder("<capabilities>\n  <host>\n    <topology>\n")
+                    .append("      <cells num='").append(sim.getNumaNodes()).append("'>\n");
+            for (int node = 0; node < sim.getNumaNodes(); node++) {
+                xml.append("        <cell id='").append(node).append("'>\n")
+                        .append("          <memory unit='KiB'>").append(sim.getMemoryGbPerNode() * 1024 * 1024).append("</memory>\n")
+                        .append("          <pages unit='KiB' size='2048'>0</pages>\n")
+                        .append("          <cpus num='").append(perNode).append("'>\n");
+                int base = node * perNode;
+                for (int i = 0; i < perNode; i++) {
+                    // 与Linux的编号方式一致：节点内前一半是各核心的第一个线程，后一半是第二个线程
+                    int core = i % half;
+                    String siblings = perNode > half ? (base + core) + "," + (base + core + half) : String.valueOf(base + i);
+                    xml.append("            <cpu id='").append(base + i).append("' socket_id='").append(node)
+                            .append("' core_id='").append(core).append("' siblings='").append(siblings).append("'/>\n");
+                }
+                xml.append("          </cpus>\n        </cell>\n");
+            }
+            return xml.append("      </cells>\n    </topology>\n  </host>\n</capabilities>\n").toString();
+        });
+    }
+
+    @Override
+    public long[] getCellsFreeMemory(int cells) {
+        return call("host", () -> {
+            long[] free = cellsFreeMemory();
+            long[] result = new long[Math.min(cells, free.length)];
+            System.arraycopy(free, 0, result, 0, result.length);
+            return result;
+        });
+    }
+
+    /**
+     * 各节点空闲内存：有numatune的虚拟机按当前内存均摊到其节点上，其余均摊到所有节点上
+     */
+    private long[] cellsFreeMemory() {
+        HypervisorConfig.Simulated sim = hypervisorConfig.getSimulated();
+        int nodes = Math.max(1, sim.getNumaNodes());
+        long[] free = new long[nodes];
+        Arrays.fill(free, sim.getMemoryGbPerNode() * GIB);
+        for (SimDomain d : domains.values()) {
+            if (!d.isActive()) {
+                continue;
+            }
+            long bytes = d.memoryKiB * 1024;
+            Set<Integer> nodeset = NumaPlacementService.parseCpuset(match(NODESET_PATTERN, d.xml));
+            nodeset.removeIf(node -> node >= nodes);
+            if (nodeset.isEmpty()) {
+                for (int node = 0; node < nodes; node++) {
+                    free[node] -= bytes / nodes;
+                }
+            } else {
+                for (int node : nodeset) {
+                    free[node] -= bytes / nodeset.size();
+                }
+            }
+        }
+        for (int node = 0; node < nodes; node++) {
+            free[node] = Math.max(0, free[node]);
+        }
+        return free;
+    }
+
+    @Override
+    public List<PoolSnapshot> listStoragePools() {
+        return call("pool", () -> List.of(poolSnapshot()));
+    }
+
+    @Override
+    public PoolSnapshot getStoragePool(String pool) {
+        return call("pool", () -> {
+            requirePool(pool);
+            return poolSnapshot();
+        });
+    }
+
+    private PoolSnapshot poolSnapshot() {
+        HypervisorConfig.Simulated sim = hypervisorConfig.getSimulated();
+        long capacity = sim.getStoragePoolCapacityGb() * GIB;
+        long allocation = 0;
+        for (SimVolume v : volumes.values()) {
+            allocation += v.allocation;
+        }
+        return new PoolSnapshot(sim.getStoragePool(), "VIR_STORAGE_POOL_RUNNING", true, capacity, allocation,
+                Math.max(0, capacity - allocation));
+    }
+
+    @Override
+    public List<VolumeSnapshot> listVolumes(String pool) {
+        return call("volume", () -> {
+            requirePool(pool);
+            return volumes.values().stream().map(this::volumeSnapshot).toList();
+        });
+    }
+
+    @Override
+    public VolumeSnapshot getVolume(String pool, String volume) {
+        return call("volume", () -> {
+            requirePool(pool);
+            return volumeSnapshot(requireVolume(volume));
+        });
+    }
+
+    @Override
+    public VolumeSnapshot getVolumeByPath(String path) {
+        return call("volume", () -> volumes.values().stream()
+                .filter(v -> v.path.equals(path))
+                .findFirst()
+                .map(this::volumeSnapshot)
+                .orElseThrow(() -> new HypervisorException("Storage volume not found: no storage vol with matching path '" + path + "'")));
+    }
+
+    @Override
+    public VolumeSnapshot createVolume(String pool, String xml, boolean preallocateMetadata) {
+        return call("volume", () -> {
+            requirePool(pool);
+            return volumeSnapshot(addVolume(xml, -1));
+        });
+    }
+
+    @Override
+    public VolumeSnapshot copyVolume(String pool, String xml, String sourceVolume) {
+        return call("volume", () -> {
+            requirePool(pool);
+            SimVolume source = requireVolume(sourceVolume);
+            return volumeSnapshot(addVolume(xml, source.allocation));
+        });
+    }
+
+    private SimVolume addVolume(String xml, long allocation) {
+        String name = match(NAME_PATTERN, xml);
+        String capacity = match(VOLUME_CAPACITY_PATTERN, xml);
+        if (name == null || capacity == null) {
+            throw new HypervisorException("XML error: missing volume name or capacity");
+        }
+        String format = match(VOLUME_FORMAT_PATTERN, xml);
+        String initial = match(VOLUME_ALLOCATION_PATTERN, xml);
+        SimVolume volume = new SimVolume(name, volumePath(name), format != null ? format : "raw",
+                match(VOLUME_BACKING_PATTERN, xml), Long.parseLong(capacity),
+                allocation >= 0 ? allocation : initial != null ? Long.parseLong(initial) : 0);
+        if (volumes.putIfAbsent(name, volume) != null) {
+            throw new HypervisorException("storage volume name '" + name + "' already in use.");
+        }
+        return volume;
+    }
+
+    @Override
+    public void resizeVolume(String pool, String volume, long capacity) {
+        call("volume", () -> {
+            requirePool(pool);
+            requireVolume(volume).capacity = capacity;
+            return null;
+        });
+    }
+
+    @Override
+    public void deleteVolume(String pool, String volume) {
+        call("volume", () -> {
+            requirePool(pool);
+            if (volumes.remove(volume) == null) {
+                throw volumeNotFound(volume);
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public void uploadVolume(String pool, String volume, InputStream in, long length, int chunkSize) throws IOException {
+        SimVolume target = call("stream", () -> {
+            requirePool(pool);
+            return requireVolume(volume);
+        });
+        byte[] chunk = new byte[chunkSize];
+        long remaining = length;
+        while (remaining > 0) {
+            int n = in.read(chunk, 0, (int) Math.min(chunk.length, remaining));
+            if (n < 0) {
+                throw new IOException("上传数据提前结束，还差 " + remaining + " 字节");
+            }
+            remaining -= n;
+        }
+        target.allocation = length;
+    }
+
+    @Override
+    public void downloadVolume(String path, long offset, long length, WritableByteChannel target, int chunkSize)
+            throws IOException {
+        getVolumeByPath(path);
+        ByteBuffer zeros = ByteBuffer.allocateDirect(chunkSize);
+        long remaining = length;
+        while (remaining > 0) {
+            zeros.clear();
+            if (zeros.capacity() > remaining) {
+                zeros.limit((int) remaining);
+            }
+            remaining -= zeros.remaining();
+            while (zeros.hasRemaining()) {
+                target.write(zeros);
+            }
+        }
+    }
+
+    private void requirePool(String pool) {
+        if (!hypervisorConfig.getSimulated().getStoragePool().equals(pool)) {
+            throw new HypervisorException("Storage pool not found: no storage pool with matching name '" + pool + "'");
+        }
+    }
+
+    private SimVolume requireVolume(String volume) {
+        SimVolume v = volumes.get(volume);
+        if (v == null) {
+            throw volumeNotFound(volume);
+        }
+        return v;
+    }
+
+    private static HypervisorException volumeNotFound(String volume) {
+        return new HypervisorException("Storage volume not found: no storage vol with matching name '" + volume + "'");
+    }
+
+    private VolumeSnapshot volumeSnapshot(SimVolume v) {
+        return new VolumeSnapshot(hypervisorConfig.getSimulated().getStoragePool(), v.name, v.path, "VIR_STORAGE_VOL_FILE",
+                v.format, v.capacity, v.allocation, v.allocation, v.backing);
+    }
+
+    private String volumePath(String volume) {
+        return hypervisorConfig.getSimulated().getStoragePoolPath() + "/" + volume;
+    }
+
+    private void transition(String operation, String name, Function<SimDomain, LifecycleEventType> change) {
+        call(operation, () -> {
+            SimDomain d = require(name);
+            LifecycleEventType event;
+            synchronized (d) {
+                event = change.apply(d);
+            }
+            emit(name, event);
+            return null;
+        });
+    }
+
+    private void crashRandomDomain() {
+        List<SimDomain> running = domains.values().stream().filter(d -> d.status == VmStatus.RUNNING).toList();
+        if (running.isEmpty()) {
+            return;
+        }
+        SimDomain d = running.get(ThreadLocalRandom.current().nextInt(running.size()));
+        synchronized (d) {
+            if (d.status != VmStatus.RUNNING) {
+                return;
+            }
+            markStopped(d);
+        }
+        log.debug("模拟虚拟机崩溃: {}", d.name);
+        emit(d.name, LifecycleEventType.CRASHED);
+    }
+
+    /**
+     * 模拟一次RPC：受工作线程数限制，按分布休眠，按概率失败
+     */
+    private <T> T call(String operation, Supplier<T> body) {
+        calls.incrementAndGet();
+        HypervisorConfig.Simulated sim = hypervisorConfig.getSimulated();
+        if (workers != null) {
+            workers.acquireUninterruptibly();
+        }
+        try {
+            long latencyNanos = sampleLatencyNanos(sim);
+            if (latencyNanos > 0) {
+                LockSupport.parkNanos(latencyNanos);
+            }
+            if (sim.getFailureRate() > 0
+                    && (sim.getFailureOperations().isEmpty() || sim.getFailureOperations().contains(operation))
+                    && ThreadLocalRandom.current().nextDouble() < sim.getFailureRate()) {
+                injectedFailures.incrementAndGet();
+                throw new HypervisorException("模拟故障: " + operation + " 调用失败");
+            }
+            return body.get();
+        } finally {
+            if (workers != null) {
+                workers.release();
+            }
+        }
+    }
+
+    private long sampleLatencyNanos(HypervisorConfig.Simulated sim) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        double base = sim.getLatencyMs();
+        double ms = switch (sim.getLatencyDistribution()) {
+            case FIXED -> base;
+            case UNIFORM -> base - sim.getJitterMs() + random.nextDouble() * 2 * sim.getJitterMs();
+            case EXPONENTIAL -> -base * Math.log(1 - random.nextDouble());
+            case LOGNORMAL -> base * Math.exp(sim.getSigma() * random.nextGaussian());
+        };
+        return (long) (Math.max(0, ms) * 1_000_000);
+    }
+
+    private SimDomain require(String name) {
+        SimDomain d = domains.get(name);
+        if (d == null) {
+            throw new HypervisorException("Domain not found: no domain with matching name '" + name + "'");
+        }
+        return d;
+    }
+
+    private void requireActive(SimDomain d) {
+        if (!d.isActive()) {
+            throw new HypervisorException("Requested operation is not valid: domain is not running");
+        }
+    }
+
+    private void markRunning(SimDomain d) {
+        d.saved = false;
+        d.runningSince = System.nanoTime();
+        d.status = VmStatus.RUNNING;
+    }
+
+    private void markStopped(SimDomain d) {
+        d.cpuTimeNs = 0;
+        d.saved = false;
+        d.status = VmStatus.SHUTOFF;
+        if (!d.persistent) {
+            domains.remove(d.name);
+        } else {
+            // 与libvirt一致：关闭后恢复为持久化配置（只写入配置的vCPU/内存调整在此时生效）
+            applyXml(d, d.xml);
+        }
+    }
+
+    private long cpuTime(SimDomain d) {
+        if (d.status != VmStatus.RUNNING) {
+            return d.cpuTimeNs;
+        }
+        return d.cpuTimeNs + (long) ((System.nanoTime() - d.runningSince) * d.vcpus * CPU_UTILIZATION);
+    }
+
+    private DomainSnapshot snapshot(SimDomain d) {
+        return new DomainSnapshot(d.name, d.uuid, d.status, d.maxMemoryKiB, d.memoryKiB, d.vcpus,
+                cpuTime(d), d.isActive(), d.persistent, d.xml);
+    }
+
+    private void applyXml(SimDomain d, String xml) {
+        String uuid = match(UUID_PATTERN, xml);
+        if (uuid == null) {
+            uuid = d.uuid != null ? d.uuid : UUID.randomUUID().toString();
+            xml = xml.replaceFirst("</name>", "</name>\n  <uuid>" + uuid + "</uuid>");
+        }
+        d.uuid = uuid;
+        d.xml = xml;
+        d.maxMemoryKiB = memoryKiB(MEMORY_PATTERN, xml, 1024 * 1024);
+        d.memoryKiB = memoryKiB(CURRENT_MEMORY_PATTERN, xml, d.maxMemoryKiB);
+        String vcpu = match(VCPU_PATTERN, xml);
+        d.maxVcpus = vcpu != null ? Integer.parseInt(vcpu) : 1;
+        String current = match(VCPU_CURRENT_PATTERN, xml);
+        d.vcpus = current != null ? Integer.parseInt(current) : d.maxVcpus;
+    }
+
+    private static String setVcpuElement(String xml, int current, int max) {
+        String element = current < max
+                ? "<vcpu placement='static' current='" + current + "'>" + max + "</vcpu>"
+                : "<vcpu placement='static'>" + max + "</vcpu>";
+        return VCPU_PATTERN.matcher(xml).replaceFirst(Matcher.quoteReplacement(element));
+    }
+
+    private static String replaceElement(String xml, String element, long kiB) {
+        Pattern pattern = element.equals("memory") ? MEMORY_PATTERN : CURRENT_MEMORY_PATTERN;
+        String replacement = "<" + element + " unit='KiB'>" + kiB + "</" + element + ">";
+        return pattern.matcher(xml).replaceFirst(Matcher.quoteReplacement(replacement));
+    }
+
+    private static long memoryKiB(Pattern pattern, String xml, long defaultKiB) {
+        Matcher m = pattern.matcher(xml);
+        if (!m.find()) {
+            return defaultKiB;
+        }
+        long value = Long.parseLong(m.group(2));
+        String unit = m.group(1) == null ? "KiB" : m.group(1);
+        return switch (unit) {
+            case "b", "bytes" -> value / 1024;
+            case "M", "MiB" -> value * 1024;
+            case "G", "GiB" -> value * 1024 * 1024;
+            default -> value;
+        };
+    }
+
+    private static String match(Pattern pattern, String xml) {
+        Matcher m = pattern.matcher(xml);
+        return m.find() ? m.group(1).trim() : null;
+    }
+
+    private String seedXml(String name, String uuid, int vcpus, long memoryMiB) {
+        String diskPath = volumePath(name + ".qcow2");
+        return "<domain type='test'>\n"
+                + "  <name>" + name + "</name>\n"
+                + "  <uuid>" + uuid + "</uuid>\n"
+                + "  <memory unit='KiB'>" + memoryMiB * 1024 + "</memory>\n"
+                + "  <currentMemory unit='KiB'>" + memoryMiB * 1024 + "</currentMemory>\n"
+                + "  <vcpu placement='static'>" + vcpus + "</vcpu>\n"
+                + "  <devices>\n"
+                + "    <disk type='file' device='disk'>\n"
+                + "      <source file='" + diskPath + "'/>\n"
+                + "      <target dev='vda' bus='virtio'/>\n"
+                + "    </disk>\n"
+                + "    <interface type='network'>\n"
+                + "      <source network='default'/>\n"
+                + "      <target dev='vnet-" + name + "'/>\n"
+                + "    </interface>\n"
+                + "    <graphics type='vnc' port='-1' autoport='yes' listen='127.0.0.1'/>\n"
+                + "  </devices>\n"
+                + "</domain>\n";
+    }
+}
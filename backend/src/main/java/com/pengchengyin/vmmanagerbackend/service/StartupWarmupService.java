@@ -0,0 +1,86 @@
+package com.pengchengyin.vmmanagerbackend.service;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pengchengyin.vmmanagerbackend.config.StartupConfig;
+import com.pengchengyin.vmmanagerbackend.model.VmInfo;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 启动预热服务
+ * 在ApplicationStartedEvent中同步执行，完成后应用才发布ApplicationReadyEvent并进入就绪状态，
+ * 首个请求不再承担libvirt连接建立、JNA本地库加载和模板读取的开销。
+ */
+@Slf4j
+@Service
+public class StartupWarmupService {
+
+    @Autowired
+    private StartupConfig startupConfig;
+
+    @Autowired
+    private HypervisorBackend hypervisor;
+
+    @Autowired
+    private VirtualMachineService vmService;
+
+    @Autowired
+    private HostMonitorService hostMonitorService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final Map<String, Long> timings = new LinkedHashMap<>();
+
+    @EventListener(ApplicationStartedEvent.class)
+    public void warmup() {
+        if (!startupConfig.isWarmup()) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        try {
+            step("template", vmService::loadTemplate);
+            // 首次连接会加载JNA与libvirt本地库
+            step("connection", hypervisor::describe);
+            step("inventory", () -> {
+                List<VmInfo> vms = vmService.listAllVms();
+                // 同时预热响应序列化路径
+                objectMapper.writeValueAsBytes(vms);
+            });
+            step("host", hostMonitorService::getHostInfo);
+            log.info("启动预热完成，耗时 {}ms: {}", System.currentTimeMillis() - start, timings);
+        } catch (Exception e) {
+            if (startupConfig.isFailOnWarmupError()) {
+                throw new IllegalStateException("启动预热失败: " + e.getMessage(), e);
+            }
+            log.warn("启动预热失败，将在首个请求时重试: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 各预热步骤耗时（毫秒）
+     */
+    public Map<String, Long> getTimings() {
+        return timings;
+    }
+
+    private void step(String name, WarmupStep step) throws Exception {
+        long start = System.nanoTime();
+        step.run();
+        timings.put(name, (System.nanoTime() - start) / 1_000_000);
+    }
+
+    @FunctionalInterface
+    private interface WarmupStep {
+        void run() throws Exception;
+    }
+}
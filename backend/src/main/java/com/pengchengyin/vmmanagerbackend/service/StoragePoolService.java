@@ -0,0 +1,397 @@
+package com.pengchengyin.vmmanagerbackend.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+import org.libvirt.LibvirtException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.pengchengyin.vmmanagerbackend.config.StorageConfig;
+import com.pengchengyin.vmmanagerbackend.model.CreateVolumeRequest;
+import com.pengchengyin.vmmanagerbackend.model.StoragePoolSummary;
+import com.pengchengyin.vmmanagerbackend.model.StorageVolumeInfo;
+import com.pengchengyin.vmmanagerbackend.model.VolumeJob;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 存储池与存储卷管理服务
+ * 存储池容量在后台定时刷新并缓存；存储卷创建以异步任务执行，默认不预分配空间；
+ * 上传ISO或基础镜像时通过Hypervisor后端的卷数据流边接收边写入，不落本地临时文件。
+ */
+@Slf4j
+@Service
+public class StoragePoolService {
+
+    private static final Pattern VOLUME_NAME_PATTERN = Pattern.compile("[A-Za-z0-9._-]+");
+    private static final Pattern FORMAT_NAME_PATTERN = Pattern.compile("[a-z0-9]+");
+
+    @Autowired
+    private StorageConfig storageConfig;
+
+    @Autowired
+    private HypervisorBackend hypervisor;
+
+    private final Map<String, StoragePoolSummary> poolCache = new ConcurrentHashMap<>();
+    private volatile long poolsRefreshedAt;
+
+    private final Map<String, VolumeJob> jobs = new ConcurrentHashMap<>();
+    private final Map<String, VolumeJob> finishedJobs = new LinkedHashMap<>();
+    private ExecutorService jobExecutor;
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger seq = new AtomicInteger();
+        jobExecutor = Executors.newFixedThreadPool(Math.max(1, storageConfig.getJobThreads()), r -> {
+            Thread t = new Thread(r, "volume-job-" + seq.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        jobExecutor.shutdownNow();
+    }
+
+    /**
+     * 获取存储池列表（读取缓存，缓存过期或 refresh=true 时重新查询）
+     */
+    public List<StoragePoolSummary> listPools(boolean refresh) throws LibvirtException {
+        if (refresh || System.currentTimeMillis() - poolsRefreshedAt > storageConfig.getCapacityRefreshMs()) {
+            refreshPools();
+        }
+        return new ArrayList<>(poolCache.values());
+    }
+
+    /**
+     * 定时刷新存储池容量缓存
+     */
+    @Scheduled(fixedDelayString = "${storage.capacity-refresh-ms:30000}")
+    public void scheduledRefresh() {
+        try {
+            refreshPools();
+        } catch (LibvirtException | RuntimeException e) {
+            log.warn("刷新存储池容量失败: {}", e.getMessage());
+        }
+    }
+
+    private synchronized void refreshPools() throws LibvirtException {
+        Map<String, StoragePoolSummary> fresh = new LinkedHashMap<>();
+        for (HypervisorBackend.PoolSnapshot pool : hypervisor.listStoragePools()) {
+            fresh.put(pool.name(), summarize(pool));
+        }
+        poolCache.keySet().retainAll(fresh.keySet());
+        poolCache.putAll(fresh);
+        poolsRefreshedAt = System.currentTimeMillis();
+    }
+
+    /**
+     * 卷变更后只刷新对应存储池的缓存
+     */
+    private void refreshPool(String poolName) {
+        try {
+            poolCache.put(poolName, summarize(hypervisor.getStoragePool(poolName)));
+        } catch (LibvirtException | RuntimeException e) {
+            log.debug("刷新存储池 {} 容量失败: {}", poolName, e.getMessage());
+        }
+    }
+
+    private StoragePoolSummary summarize(HypervisorBackend.PoolSnapshot pool) {
+        return StoragePoolSummary.builder()
+                .name(pool.name())
+                .state(pool.state())
+                .capacity(pool.capacity())
+                .allocation(pool.allocation())
+                .available(pool.available())
+                .build();
+    }
+
+    /**
+     * 获取存储池中的存储卷列表
+     */
+    public List<StorageVolumeInfo> listVolumes(String poolName) throws LibvirtException {
+        List<StorageVolumeInfo> volumes = new ArrayList<>();
+        for (HypervisorBackend.VolumeSnapshot vol : hypervisor.listVolumes(poolName)) {
+            volumes.add(toVolumeInfo(vol));
+        }
+        return volumes;
+    }
+
+    /**
+     * 获取存储卷信息
+     */
+    public StorageVolumeInfo getVolume(String poolName, String volumeName) throws LibvirtException {
+        return toVolumeInfo(hypervisor.getVolume(poolName, volumeName));
+    }
+
+    /**
+     * 获取存储卷路径，供创建虚拟机时引用
+     */
+    public String getVolumePath(String poolName, String volumeName) throws LibvirtException {
+        return hypervisor.getVolume(poolName, volumeName).path();
+    }
+
+    /**
+     * 提交存储卷创建任务
+     * 参数校验（存储池存在、卷名不冲突、基础镜像存在）同步完成，实际创建在后台线程执行。
+     */
+    public VolumeJob submitCreate(String poolName, CreateVolumeRequest request) throws LibvirtException {
+        hypervisor.getStoragePool(poolName);
+        if (volumeExists(poolName, request.getName())) {
+            throw new IllegalStateException("存储卷已存在: " + request.getName());
+        }
+        String xml = buildVolumeXml(poolName, request);
+        boolean preallocateMetadata = request.getPreallocation() == CreateVolumeRequest.Preallocation.METADATA;
+
+        VolumeJob job = VolumeJob.builder()
+                .id(UUID.randomUUID().toString())
+                .pool(poolName)
+                .volume(request.getName())
+                .status(VolumeJob.Status.PENDING)
+                .submittedAt(System.currentTimeMillis())
+                .build();
+        jobs.put(job.getId(), job);
+        jobExecutor.execute(() -> runCreate(job, xml, preallocateMetadata));
+        return job;
+    }
+
+    private void runCreate(VolumeJob job, String xml, boolean preallocateMetadata) {
+        job.setStartedAt(System.currentTimeMillis());
+        job.setStatus(VolumeJob.Status.RUNNING);
+        try {
+            job.setResult(toVolumeInfo(hypervisor.createVolume(job.getPool(), xml, preallocateMetadata)));
+            job.setStatus(VolumeJob.Status.SUCCEEDED);
+            log.info("存储卷创建成功: {}/{}，耗时 {}ms", job.getPool(), job.getVolume(),
+                    System.currentTimeMillis() - job.getStartedAt());
+        } catch (LibvirtException | RuntimeException e) {
+            log.error("存储卷创建失败: {}/{}: {}", job.getPool(), job.getVolume(), e.getMessage(), e);
+            job.setError(e.getMessage());
+            job.setStatus(VolumeJob.Status.FAILED);
+        } finally {
+            job.setFinishedAt(System.currentTimeMillis());
+            refreshPool(job.getPool());
+            retire(job);
+        }
+    }
+
+    private String buildVolumeXml(String poolName, CreateVolumeRequest request) throws LibvirtException {
+        long capacity = request.getCapacityMB() * 1024L * 1024L;
+        long allocation = request.getPreallocation() == CreateVolumeRequest.Preallocation.FULL ? capacity : 0;
+        StringBuilder xml = new StringBuilder()
+                .append("<volume>\n")
+                .append("  <name>").append(request.getName()).append("</name>\n")
+                .append("  <capacity unit='bytes'>").append(capacity).append("</capacity>\n")
+                .append("  <allocation unit='bytes'>").append(allocation).append("</allocation>\n")
+                .append("  <target>\n")
+                .append("    <format type='").append(request.getFormat()).append("'/>\n")
+                .append("  </target>\n");
+        if (request.getBackingVolume() != null && !request.getBackingVolume().isEmpty()) {
+            HypervisorBackend.VolumeSnapshot backing = hypervisor.getVolume(poolName, request.getBackingVolume());
+            xml.append("  <backingStore>\n")
+                    .append("    <path>").append(backing.path()).append("</path>\n")
+                    .append("    <format type='").append(backing.format()).append("'/>\n")
+                    .append("  </backingStore>\n");
+        }
+        return xml.append("</volume>\n").toString();
+    }
+
+    /**
+     * 按路径查找存储卷，路径不属于任何存储池时抛出异常
+     */
+    public VolumeRef resolveVolume(String path) throws LibvirtException {
+        HypervisorBackend.VolumeSnapshot vol = hypervisor.getVolumeByPath(path);
+        return new VolumeRef(vol.pool(), vol.name(), vol.path(), vol.format(), vol.capacity(), vol.allocation());
+    }
+
+    /**
+     * 创建以base为后备文件的qcow2覆盖卷（只写元数据，与base大小无关），返回新卷
+     */
+    public VolumeRef createOverlay(VolumeRef base, String volumeName) throws LibvirtException {
+        String xml = "<volume>\n"
+                + "  <name>" + volumeName + "</name>\n"
+                + "  <capacity unit='bytes'>" + base.capacity() + "</capacity>\n"
+                + "  <allocation unit='bytes'>0</allocation>\n"
+                + "  <target>\n"
+                + "    <format type='qcow2'/>\n"
+                + "  </target>\n"
+                + "  <backingStore>\n"
+                + "    <path>" + base.path() + "</path>\n"
+                + "    <format type='" + base.format() + "'/>\n"
+                + "  </backingStore>\n"
+                + "</volume>\n";
+        HypervisorBackend.VolumeSnapshot vol = hypervisor.createVolume(base.pool(), xml, false);
+        refreshPool(base.pool());
+        return new VolumeRef(base.pool(), volumeName, vol.path(), "qcow2", base.capacity(), 0);
+    }
+
+    /**
+     * 在同一存储池中完整复制存储卷（阻塞直到复制完成），复制进度可通过 {@link #getAllocation} 观察
+     */
+    public VolumeRef copyVolume(VolumeRef source, String volumeName) throws LibvirtException {
+        String xml = "<volume>\n"
+                + "  <name>" + volumeName + "</name>\n"
+                + "  <capacity unit='bytes'>" + source.capacity() + "</capacity>\n"
+                + "  <allocation unit='bytes'>0</allocation>\n"
+                + "  <target>\n"
+                + "    <format type='" + source.format() + "'/>\n"
+                + "  </target>\n"
+                + "</volume>\n";
+        HypervisorBackend.VolumeSnapshot vol = hypervisor.copyVolume(source.pool(), xml, source.volume());
+        refreshPool(source.pool());
+        return new VolumeRef(source.pool(), volumeName, vol.path(), source.format(), source.capacity(), vol.allocation());
+    }
+
+    /**
+     * 存储卷已分配的字节数，卷不存在时返回-1
+     */
+    public long getAllocation(String poolName, String volumeName) {
+        try {
+            return hypervisor.getVolume(poolName, volumeName).allocation();
+        } catch (LibvirtException | RuntimeException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * 存储卷的位置与大小
+     *
+     * @param capacity   容量（字节）
+     * @param allocation 已分配（字节）
+     */
+    public record VolumeRef(String pool, String volume, String path, String format, long capacity, long allocation) {
+    }
+
+    /**
+     * 调整存储卷容量（只能扩大）
+     */
+    public StorageVolumeInfo resizeVolume(String poolName, String volumeName, long capacityMB) throws LibvirtException {
+        long capacity = capacityMB * 1024L * 1024L;
+        if (capacity < hypervisor.getVolume(poolName, volumeName).capacity()) {
+            throw new IllegalArgumentException("不支持缩小存储卷");
+        }
+        hypervisor.resizeVolume(poolName, volumeName, capacity);
+        refreshPool(poolName);
+        log.info("存储卷容量已调整: {}/{} -> {}MB", poolName, volumeName, capacityMB);
+        return toVolumeInfo(hypervisor.getVolume(poolName, volumeName));
+    }
+
+    /**
+     * 删除存储卷
+     */
+    public void deleteVolume(String poolName, String volumeName) throws LibvirtException {
+        hypervisor.deleteVolume(poolName, volumeName);
+        refreshPool(poolName);
+        log.info("存储卷已删除: {}/{}", poolName, volumeName);
+    }
+
+    /**
+     * 上传ISO或基础镜像
+     * 先创建与上传长度相同的卷，再通过卷数据流写入；失败时删除未完成的卷。
+     */
+    public StorageVolumeInfo uploadVolume(String poolName, String volumeName, String format, long length, InputStream in)
+            throws LibvirtException, IOException {
+        if (!VOLUME_NAME_PATTERN.matcher(volumeName).matches()) {
+            throw new IllegalArgumentException("存储卷名称只能包含字母、数字、点、下划线和短横线");
+        }
+        if (!FORMAT_NAME_PATTERN.matcher(format).matches()) {
+            throw new IllegalArgumentException("无效的镜像格式: " + format);
+        }
+        hypervisor.getStoragePool(poolName);
+        if (volumeExists(poolName, volumeName)) {
+            throw new IllegalStateException("存储卷已存在: " + volumeName);
+        }
+        String xml = "<volume>\n"
+                + "  <name>" + volumeName + "</name>\n"
+                + "  <capacity unit='bytes'>" + length + "</capacity>\n"
+                + "  <allocation unit='bytes'>0</allocation>\n"
+                + "  <target>\n"
+                + "    <format type='" + format + "'/>\n"
+                + "  </target>\n"
+                + "</volume>\n";
+        hypervisor.createVolume(poolName, xml, false);
+        boolean completed = false;
+        long start = System.currentTimeMillis();
+        try {
+            hypervisor.uploadVolume(poolName, volumeName, in, length, storageConfig.getUploadChunkSize());
+            completed = true;
+            log.info("镜像上传完成: {}/{}，{} 字节，耗时 {}ms", poolName, volumeName, length, System.currentTimeMillis() - start);
+        } finally {
+            if (!completed) {
+                try {
+                    hypervisor.deleteVolume(poolName, volumeName);
+                } catch (LibvirtException | RuntimeException e) {
+                    log.warn("删除未完成的上传卷 {}/{} 失败: {}", poolName, volumeName, e.getMessage());
+                }
+            }
+            refreshPool(poolName);
+        }
+        return toVolumeInfo(hypervisor.getVolume(poolName, volumeName));
+    }
+
+    public VolumeJob getJob(String id) {
+        VolumeJob job = jobs.get(id);
+        if (job != null) {
+            return job;
+        }
+        synchronized (finishedJobs) {
+            return finishedJobs.get(id);
+        }
+    }
+
+    public List<VolumeJob> listJobs() {
+        List<VolumeJob> result = new ArrayList<>(jobs.values());
+        synchronized (finishedJobs) {
+            result.addAll(finishedJobs.values());
+        }
+        return result;
+    }
+
+    /**
+     * 已完成的任务移入有界的历史记录
+     */
+    private void retire(VolumeJob job) {
+        synchronized (finishedJobs) {
+            finishedJobs.put(job.getId(), job);
+            jobs.remove(job.getId());
+            while (finishedJobs.size() > storageConfig.getJobHistory()) {
+                finishedJobs.remove(finishedJobs.keySet().iterator().next());
+            }
+        }
+    }
+
+    private boolean volumeExists(String poolName, String volumeName) {
+        try {
+            hypervisor.getVolume(poolName, volumeName);
+            return true;
+        } catch (LibvirtException | RuntimeException e) {
+            return false;
+        }
+    }
+
+    private StorageVolumeInfo toVolumeInfo(HypervisorBackend.VolumeSnapshot vol) {
+        return StorageVolumeInfo.builder()
+                .name(vol.name())
+                .pool(vol.pool())
+                .path(vol.path())
+                .type(vol.type())
+                .format(vol.format())
+                .capacity(vol.capacity())
+                .allocation(vol.allocation())
+                .build();
+    }
+}
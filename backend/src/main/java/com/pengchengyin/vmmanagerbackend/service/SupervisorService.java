@@ -0,0 +1,562 @@
+package com.pengchengyin.vmmanagerbackend.service;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.libvirt.LibvirtException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import com.pengchengyin.vmmanagerbackend.config.SupervisorConfig;
+import com.pengchengyin.vmmanagerbackend.model.SupervisorEvent;
+import com.pengchengyin.vmmanagerbackend.model.SupervisorPolicy;
+import com.pengchengyin.vmmanagerbackend.model.VmStatus;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 虚拟机守护服务
+ * 崩溃的虚拟机按指数退避自动重启，窗口内重启次数过多时判定为崩溃循环并停止重启；
+ * 按CPU与I/O采样判断空闲，空闲超过策略时间后托管保存或暂停，下次通过API或VNC访问时自动恢复。
+ * 是否重启只看后端的生命周期事件：只有CRASHED（客户机崩溃、QEMU异常退出）触发重启，
+ * 客户机内部关机、强制关闭、保存等停止都视为有意关闭。
+ * 周期性比对运行中/已关闭的虚拟机清单只用于同步状态，不会触发重启；
+ * libvirt事件订阅不可用时无法发现崩溃。
+ * 所有检查、事件处理和重启都在单个守护线程上执行，恢复在请求线程上执行，按虚拟机加锁。
+ */
+@Slf4j
+@Service
+public class SupervisorService {
+
+    /**
+     * 虚拟机在守护服务中的状态
+     */
+    public enum Phase {
+        RUNNING,
+        PAUSED,
+        STOPPED,
+        RESTART_PENDING,
+        CRASH_LOOP,
+        /**
+         * 因空闲被保存或暂停，等待访问时恢复
+         */
+        PARKED
+    }
+
+    @Autowired
+    private SupervisorConfig supervisorConfig;
+
+    @Autowired
+    private HypervisorBackend hypervisor;
+
+    @Autowired
+    private VirtualMachineService vmService;
+
+    private final Map<String, SupervisorPolicy> policies = new ConcurrentHashMap<>();
+    private final Map<String, VmState> states = new ConcurrentHashMap<>();
+    private final Deque<SupervisorEvent> events = new ArrayDeque<>();
+
+    private final AtomicLong cycles = new AtomicLong();
+    private final AtomicLong restarts = new AtomicLong();
+    private final AtomicLong restartFailures = new AtomicLong();
+    private final AtomicLong crashLoops = new AtomicLong();
+    private final AtomicLong idleSaves = new AtomicLong();
+    private final AtomicLong idleSuspends = new AtomicLong();
+    private final AtomicLong wakes = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+
+    private ScheduledExecutorService scheduler;
+
+    @PostConstruct
+    public void init() {
+        policies.putAll(supervisorConfig.getVms());
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "vm-supervisor");
+            t.setDaemon(true);
+            return t;
+        });
+        hypervisor.addLifecycleListener(event -> {
+            if (supervisorConfig.isEnabled()) {
+                scheduler.execute(() -> onEvent(event));
+            }
+        });
+        long interval = supervisorConfig.getIntervalMs();
+        scheduler.scheduleWithFixedDelay(this::run, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        scheduler.shutdownNow();
+    }
+
+    public boolean isEnabled() {
+        return supervisorConfig.isEnabled();
+    }
+
+    /**
+     * 检查周期
+     */
+    private void run() {
+        if (!supervisorConfig.isEnabled()) {
+            return;
+        }
+        try {
+            runCycle();
+        } catch (LibvirtException | RuntimeException e) {
+            log.warn("虚拟机守护检查失败: {}", e.getMessage());
+        }
+    }
+
+    private void runCycle() throws LibvirtException {
+        cycles.incrementAndGet();
+        long now = System.currentTimeMillis();
+        List<String> active = hypervisor.listActiveDomains();
+        List<String> inactive = hypervisor.listInactiveDomains();
+        Set<String> seen = new HashSet<>(active);
+        seen.addAll(inactive);
+
+        for (String name : active) {
+            VmState st = states.computeIfAbsent(name, k -> new VmState());
+            synchronized (st) {
+                if (!st.observedActive) {
+                    st.observedActive = true;
+                    if (st.phase == Phase.STOPPED || st.phase == Phase.CRASH_LOOP) {
+                        // 绕过本服务启动（例如virsh），视为期望运行
+                        st.phase = Phase.RUNNING;
+                        st.wantRunning = true;
+                        st.startedAt = now;
+                    } else if (st.phase == Phase.PARKED && st.parkedAction == SupervisorPolicy.IdleAction.SAVE) {
+                        st.startedAt = now;
+                        markRunning(st);
+                    }
+                }
+                if (st.phase == Phase.RUNNING && !st.restartTimes.isEmpty()
+                        && now - st.startedAt >= supervisorConfig.getStableAfterSeconds() * 1000) {
+                    st.restartTimes.clear();
+                    log.info("虚拟机 {} 已稳定运行，重启计数清零", name);
+                }
+            }
+            SupervisorPolicy policy = policyFor(name);
+            if (st.phase == Phase.RUNNING && policy.getIdleAfterMinutes() != null) {
+                try {
+                    checkIdle(name, st, policy, now);
+                } catch (LibvirtException | RuntimeException e) {
+                    log.debug("采样虚拟机 {} 资源使用失败: {}", name, e.getMessage());
+                }
+            }
+        }
+
+        for (String name : inactive) {
+            VmState st = states.computeIfAbsent(name, k -> new VmState());
+            synchronized (st) {
+                if (!st.observedActive) {
+                    continue;
+                }
+                st.observedActive = false;
+                st.lastSample = null;
+                // 停止原因以生命周期事件为准，这里不改变wantRunning，随后到达的崩溃事件仍会触发重启
+                if (st.phase == Phase.RUNNING || st.phase == Phase.PAUSED) {
+                    st.phase = Phase.STOPPED;
+                }
+            }
+        }
+        states.keySet().retainAll(seen);
+    }
+
+    /**
+     * 处理本服务及其他组件执行的生命周期操作（在守护线程上执行）
+     */
+    private void onEvent(HypervisorBackend.LifecycleEvent event) {
+        String name = event.name();
+        if (event.type() == HypervisorBackend.LifecycleEventType.UNDEFINED) {
+            VmState removed = states.remove(name);
+            if (removed != null && removed.pending != null) {
+                removed.pending.cancel(false);
+            }
+            return;
+        }
+        VmState st = states.computeIfAbsent(name, k -> new VmState());
+        synchronized (st) {
+            switch (event.type()) {
+                case STARTED, REBOOTED -> {
+                    if (event.type() == HypervisorBackend.LifecycleEventType.STARTED) {
+                        st.startedAt = event.timestamp();
+                    }
+                    markRunning(st);
+                }
+                case RESUMED -> markRunning(st);
+                case SUSPENDED -> {
+                    if (st.phase != Phase.PARKED) {
+                        st.phase = Phase.PAUSED;
+                    }
+                }
+                case SHUTDOWN, STOPPED -> {
+                    if (st.expectSelfStop > 0) {
+                        // 重启前强制关闭崩溃状态的虚拟机
+                        st.expectSelfStop--;
+                        return;
+                    }
+                    st.wantRunning = false;
+                    cancelPending(st);
+                    st.phase = Phase.STOPPED;
+                }
+                case SAVED -> {
+                    if (st.phase != Phase.PARKED) {
+                        st.wantRunning = false;
+                        st.phase = Phase.STOPPED;
+                    }
+                }
+                case CRASHED -> {
+                    st.observedActive = false;
+                    st.lastSample = null;
+                    if (st.phase == Phase.RUNNING || st.phase == Phase.PAUSED
+                            || (st.phase == Phase.STOPPED && st.wantRunning)) {
+                        handleStop(name, st, "虚拟机崩溃");
+                    }
+                }
+                default -> {
+                }
+            }
+        }
+    }
+
+    private void markRunning(VmState st) {
+        cancelPending(st);
+        st.phase = Phase.RUNNING;
+        st.wantRunning = true;
+        st.observedActive = true;
+        st.parkedAction = null;
+        st.idleSince = 0;
+        st.lastSample = null;
+    }
+
+    /**
+     * 虚拟机非预期停止：按退避安排重启，或判定为崩溃循环（调用方持有st锁）
+     */
+    private void handleStop(String name, VmState st, String reason) {
+        if (!policyFor(name).isAutoRestart()) {
+            st.phase = Phase.STOPPED;
+            record(event(name, "STOPPED", st, reason + "，策略未开启自动重启"));
+            return;
+        }
+        long now = System.currentTimeMillis();
+        long windowMs = supervisorConfig.getCrashLoopWindowSeconds() * 1000;
+        while (!st.restartTimes.isEmpty() && now - st.restartTimes.peekFirst() > windowMs) {
+            st.restartTimes.pollFirst();
+        }
+        if (st.restartTimes.size() >= supervisorConfig.getCrashLoopMaxRestarts()) {
+            st.phase = Phase.CRASH_LOOP;
+            crashLoops.incrementAndGet();
+            record(event(name, "CRASH_LOOP", st, String.format("%s，%d秒内已重启%d次，停止自动重启",
+                    reason, supervisorConfig.getCrashLoopWindowSeconds(), st.restartTimes.size())));
+            return;
+        }
+        long delay = Math.min(supervisorConfig.getBackoffMaxMs(),
+                supervisorConfig.getBackoffBaseMs() << Math.min(st.restartTimes.size(), 30));
+        st.phase = Phase.RESTART_PENDING;
+        st.nextRestartAt = now + delay;
+        st.pending = scheduler.schedule(() -> restart(name, reason), delay, TimeUnit.MILLISECONDS);
+        log.info("虚拟机 {} {}，{}ms后重启", name, reason, delay);
+    }
+
+    private void restart(String name, String reason) {
+        VmState st = states.get(name);
+        if (st == null) {
+            return;
+        }
+        synchronized (st) {
+            if (st.phase != Phase.RESTART_PENDING) {
+                return;
+            }
+            st.pending = null;
+            st.restartTimes.addLast(System.currentTimeMillis());
+            try {
+                HypervisorBackend.DomainSnapshot domain = hypervisor.findDomain(name);
+                if (domain == null) {
+                    states.remove(name);
+                    return;
+                }
+                if (domain.active() && domain.status() != VmStatus.CRASHED) {
+                    // 已经通过其他途径启动
+                    st.restartTimes.pollLast();
+                    markRunning(st);
+                    return;
+                }
+                if (domain.active()) {
+                    st.expectSelfStop++;
+                    vmService.forceShutdownVm(name);
+                }
+                vmService.startVm(name);
+                restarts.incrementAndGet();
+                st.startedAt = System.currentTimeMillis();
+                markRunning(st);
+                record(event(name, "RESTARTED", st, reason + "，已自动重启"));
+            } catch (LibvirtException | RuntimeException e) {
+                restartFailures.incrementAndGet();
+                record(event(name, "RESTART_FAILED", st, "自动重启失败: " + e.getMessage()));
+                handleStop(name, st, "重启失败");
+            }
+        }
+    }
+
+    /**
+     * 根据两次采样之间的CPU利用率与I/O速率判断空闲，超过策略时间后保存或暂停
+     */
+    private void checkIdle(String name, VmState st, SupervisorPolicy policy, long now) throws LibvirtException {
+        HypervisorBackend.UsageSample sample = hypervisor.sampleUsage(name);
+        synchronized (st) {
+            HypervisorBackend.UsageSample previous = st.lastSample;
+            st.lastSample = sample;
+            if (st.phase != Phase.RUNNING) {
+                return;
+            }
+            long wallNs = previous == null ? 0 : sample.sampledAt() - previous.sampledAt();
+            if (wallNs <= 0 || sample.cpuTimeNs() < previous.cpuTimeNs()) {
+                // 首次采样或期间重启过
+                return;
+            }
+            st.cpuRatio = (sample.cpuTimeNs() - previous.cpuTimeNs()) / ((double) wallNs * Math.max(1, sample.vcpus()));
+            long ioBytes = Math.max(0, sample.diskBytes() + sample.netBytes() - previous.diskBytes() - previous.netBytes());
+            st.ioBytesPerSecond = ioBytes * 1_000_000_000.0 / wallNs;
+            boolean idle = st.cpuRatio < supervisorConfig.getIdleCpuRatio()
+                    && st.ioBytesPerSecond < supervisorConfig.getIdleIoBytesPerSecond();
+            if (!idle) {
+                st.idleSince = 0;
+                return;
+            }
+            if (st.idleSince == 0) {
+                st.idleSince = now - wallNs / 1_000_000;
+            }
+            long idleMs = now - Math.max(st.idleSince, st.lastAccessAt);
+            if (idleMs >= policy.getIdleAfterMinutes() * 60_000L) {
+                park(name, st, policy.getIdleAction(), idleMs);
+            }
+        }
+    }
+
+    private void park(String name, VmState st, SupervisorPolicy.IdleAction action, long idleMs) {
+        String reason = String.format("空闲 %d 分钟（CPU %.1f%%，I/O %.0f B/s）",
+                idleMs / 60_000, st.cpuRatio * 100, st.ioBytesPerSecond);
+        st.phase = Phase.PARKED;
+        st.parkedAction = action;
+        try {
+            if (action == SupervisorPolicy.IdleAction.SAVE) {
+                vmService.saveVm(name);
+                st.observedActive = false;
+                idleSaves.incrementAndGet();
+                record(event(name, "IDLE_SAVED", st, reason + "，已托管保存"));
+            } else {
+                vmService.suspendVm(name);
+                idleSuspends.incrementAndGet();
+                record(event(name, "IDLE_SUSPENDED", st, reason + "，已暂停"));
+            }
+            st.lastSample = null;
+        } catch (LibvirtException | RuntimeException e) {
+            st.phase = Phase.RUNNING;
+            st.parkedAction = null;
+            st.idleSince = 0;
+            failures.incrementAndGet();
+            record(event(name, "FAILED", st, "空闲处理失败: " + e.getMessage()));
+        }
+    }
+
+    /**
+     * 访问虚拟机时调用：记录访问时间，因空闲被保存或暂停的虚拟机立即恢复
+     */
+    public void onAccess(String name) {
+        if (!supervisorConfig.isEnabled()) {
+            return;
+        }
+        VmState st = states.get(name);
+        if (st == null) {
+            return;
+        }
+        st.lastAccessAt = System.currentTimeMillis();
+        if (st.phase != Phase.PARKED) {
+            return;
+        }
+        synchronized (st) {
+            if (st.phase != Phase.PARKED) {
+                return;
+            }
+            SupervisorPolicy.IdleAction action = st.parkedAction;
+            try {
+                if (action == SupervisorPolicy.IdleAction.SAVE) {
+                    vmService.startVm(name);
+                    st.startedAt = System.currentTimeMillis();
+                } else {
+                    vmService.resumeVm(name);
+                }
+                markRunning(st);
+                wakes.incrementAndGet();
+                record(event(name, "WOKEN", st, action == SupervisorPolicy.IdleAction.SAVE ? "访问时从保存状态启动" : "访问时恢复运行"));
+            } catch (LibvirtException | RuntimeException e) {
+                // 不阻断请求，由后续操作自行报告虚拟机状态
+                failures.incrementAndGet();
+                record(event(name, "FAILED", st, "访问时恢复失败: " + e.getMessage()));
+            }
+        }
+    }
+
+    /**
+     * 是否因空闲被保存或暂停（期望状态调和不应将其启动）
+     */
+    public boolean isParked(String name) {
+        VmState st = states.get(name);
+        return st != null && st.phase == Phase.PARKED;
+    }
+
+    /**
+     * 清除崩溃循环状态与重启计数，处于崩溃循环的虚拟机立即重新安排重启
+     *
+     * @return 虚拟机是否在守护服务的跟踪中
+     */
+    public boolean resetCrashLoop(String name) {
+        VmState st = states.get(name);
+        if (st == null) {
+            return false;
+        }
+        synchronized (st) {
+            st.restartTimes.clear();
+            if (st.phase == Phase.CRASH_LOOP) {
+                scheduler.execute(() -> {
+                    synchronized (st) {
+                        if (st.phase == Phase.CRASH_LOOP) {
+                            handleStop(name, st, "崩溃循环已手动重置");
+                        }
+                    }
+                });
+            }
+        }
+        log.info("虚拟机 {} 的崩溃循环状态已重置", name);
+        return true;
+    }
+
+    private void cancelPending(VmState st) {
+        if (st.pending != null) {
+            st.pending.cancel(false);
+            st.pending = null;
+        }
+        st.nextRestartAt = 0;
+    }
+
+    private SupervisorPolicy policyFor(String name) {
+        return policies.getOrDefault(name, supervisorConfig.getDefaults());
+    }
+
+    private SupervisorEvent event(String name, String action, VmState st, String reason) {
+        return SupervisorEvent.builder()
+                .vmName(name)
+                .action(action)
+                .restarts(st.restartTimes.size())
+                .reason(reason)
+                .build();
+    }
+
+    private void record(SupervisorEvent event) {
+        event.setTimestamp(System.currentTimeMillis());
+        log.info("虚拟机守护: {} {}，{}", event.getVmName(), event.getAction(), event.getReason());
+        synchronized (events) {
+            events.addFirst(event);
+            while (events.size() > supervisorConfig.getEventHistory()) {
+                events.removeLast();
+            }
+        }
+    }
+
+    /**
+     * 最近的守护动作记录（新的在前）
+     */
+    public List<SupervisorEvent> getEvents(int limit) {
+        synchronized (events) {
+            return events.stream().limit(limit).toList();
+        }
+    }
+
+    /**
+     * 守护指标与非运行中或有重启记录的虚拟机状态
+     */
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("enabled", supervisorConfig.isEnabled());
+        metrics.put("cycles", cycles.get());
+        metrics.put("restarts", restarts.get());
+        metrics.put("restartFailures", restartFailures.get());
+        metrics.put("crashLoops", crashLoops.get());
+        metrics.put("idleSaves", idleSaves.get());
+        metrics.put("idleSuspends", idleSuspends.get());
+        metrics.put("wakes", wakes.get());
+        metrics.put("failures", failures.get());
+        Map<String, Object> phases = new LinkedHashMap<>();
+        for (Phase phase : Phase.values()) {
+            phases.put(phase.name(), states.values().stream().filter(s -> s.phase == phase).count());
+        }
+        metrics.put("phases", phases);
+        Map<String, Object> vms = new LinkedHashMap<>();
+        states.forEach((name, s) -> {
+            if (s.phase == Phase.RUNNING && s.restartTimes.isEmpty() && s.idleSince == 0) {
+                return;
+            }
+            Map<String, Object> vm = new LinkedHashMap<>();
+            vm.put("phase", s.phase);
+            vm.put("restarts", s.restartTimes.size());
+            vm.put("nextRestartAt", s.nextRestartAt);
+            vm.put("idleSince", s.idleSince);
+            vm.put("parkedAction", s.parkedAction);
+            vm.put("cpuRatio", s.cpuRatio);
+            vm.put("ioBytesPerSecond", s.ioBytesPerSecond);
+            vms.put(name, vm);
+        });
+        metrics.put("vms", vms);
+        return metrics;
+    }
+
+    public Map<String, SupervisorPolicy> getPolicies() {
+        return policies;
+    }
+
+    public void setPolicy(String name, SupervisorPolicy policy) {
+        policies.put(name, policy);
+        log.info("虚拟机 {} 的守护策略已更新: {}", name, policy);
+    }
+
+    public void removePolicy(String name) {
+        policies.remove(name);
+    }
+
+    private static class VmState {
+        volatile Phase phase = Phase.STOPPED;
+        /**
+         * 最近一次有意的操作是否要求运行
+         */
+        volatile boolean wantRunning;
+        /**
+         * 上一次检查时是否处于运行中
+         */
+        volatile boolean observedActive;
+        volatile long startedAt;
+        volatile long lastAccessAt;
+        volatile long idleSince;
+        volatile long nextRestartAt;
+        volatile double cpuRatio;
+        volatile double ioBytesPerSecond;
+        volatile SupervisorPolicy.IdleAction parkedAction;
+        volatile HypervisorBackend.UsageSample lastSample;
+        int expectSelfStop;
+        ScheduledFuture<?> pending;
+        final Deque<Long> restartTimes = new ArrayDeque<>();
+    }
+}
@@ -0,0 +1,119 @@
+package com.pengchengyin.vmmanagerbackend.service;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 最小化的 ustar 归档格式工具
+ * 只支持普通文件条目，超过 8GiB 的文件大小使用 GNU base-256 编码
+ */
+final class TarFormat {
+
+    static final int BLOCK = 512;
+
+    private static final long MAX_OCTAL_SIZE = 077777777777L;
+
+    private TarFormat() {
+    }
+
+    /**
+     * 生成普通文件条目的头部块，内容只依赖名称和大小，保证断点续传时布局一致
+     */
+    static byte[] header(String name, long size) {
+        byte[] h = new byte[BLOCK];
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        System.arraycopy(nameBytes, 0, h, 0, Math.min(nameBytes.length, 99));
+        writeOctal(h, 100, 8, 0644);
+        writeOctal(h, 108, 8, 0);
+        writeOctal(h, 116, 8, 0);
+        if (size <= MAX_OCTAL_SIZE) {
+            writeOctal(h, 124, 12, size);
+        } else {
+            h[124] = (byte) 0x80;
+            long v = size;
+            for (int i = 135; i > 124; i--) {
+                h[i] = (byte) (v & 0xff);
+                v >>>= 8;
+            }
+        }
+        writeOctal(h, 136, 12, 0);
+        h[156] = '0';
+        System.arraycopy("ustar\0".getBytes(StandardCharsets.US_ASCII), 0, h, 257, 6);
+        h[263] = '0';
+        h[264] = '0';
+
+        for (int i = 148; i < 156; i++) {
+            h[i] = ' ';
+        }
+        long sum = 0;
+        for (byte b : h) {
+            sum += b & 0xff;
+        }
+        writeOctal(h, 148, 7, sum);
+        h[155] = ' ';
+        return h;
+    }
+
+    /**
+     * 条目数据之后需要补齐的字节数
+     */
+    static long padding(long size) {
+        long rem = size % BLOCK;
+        return rem == 0 ? 0 : BLOCK - rem;
+    }
+
+    static String parseName(byte[] h) {
+        int len = 0;
+        while (len < 100 && h[len] != 0) {
+            len++;
+        }
+        return new String(h, 0, len, StandardCharsets.UTF_8);
+    }
+
+    static long parseSize(byte[] h) {
+        if ((h[124] & 0x80) != 0) {
+            long v = 0;
+            for (int i = 125; i < 136; i++) {
+                v = (v << 8) | (h[i] & 0xff);
+            }
+            return v;
+        }
+        long v = 0;
+        for (int i = 124; i < 136; i++) {
+            byte b = h[i];
+            if (b == 0 || b == ' ') {
+                if (v != 0) {
+                    break;
+                }
+                continue;
+            }
+            if (b < '0' || b > '7') {
+                throw new IllegalArgumentException("无效的归档条目大小");
+            }
+            v = (v << 3) + (b - '0');
+        }
+        return v;
+    }
+
+    static boolean isRegularFile(byte[] h) {
+        return h[156] == '0' || h[156] == 0;
+    }
+
+    static boolean isZeroBlock(byte[] h) {
+        for (byte b : h) {
+            if (b != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void writeOctal(byte[] h, int offset, int length, long value) {
+        String s = Long.toOctalString(value);
+        int digits = length - 1;
+        int pad = digits - s.length();
+        for (int i = 0; i < digits; i++) {
+            h[offset + i] = (byte) (i < pad ? '0' : s.charAt(i - pad));
+        }
+        h[offset + digits] = 0;
+    }
+}
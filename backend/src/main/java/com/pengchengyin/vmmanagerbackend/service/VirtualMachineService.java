@@ -4,17 +4,27 @@ import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Stream;
 
-import org.libvirt.Connect;
-import org.libvirt.Domain;
-import org.libvirt.DomainInfo;
 import org.libvirt.LibvirtException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.stereotype.Service;
 import org.springframework.util.FileCopyUtils;
 
+import com.pengchengyin.vmmanagerbackend.config.LibvirtConfig;
+import com.pengchengyin.vmmanagerbackend.config.NumaPlacementConfig;
+import com.pengchengyin.vmmanagerbackend.config.ResizeConfig;
+import com.pengchengyin.vmmanagerbackend.model.BatchAction;
+import com.pengchengyin.vmmanagerbackend.model.BatchActionResult;
 import com.pengchengyin.vmmanagerbackend.model.CreateVmRequest;
+import com.pengchengyin.vmmanagerbackend.model.OperationType;
+import com.pengchengyin.vmmanagerbackend.model.PlacementDecision;
+import com.pengchengyin.vmmanagerbackend.model.QosLimits;
+import com.pengchengyin.vmmanagerbackend.model.ResizeRequest;
+import com.pengchengyin.vmmanagerbackend.model.ResizeResult;
 import com.pengchengyin.vmmanagerbackend.model.VmInfo;
 import com.pengchengyin.vmmanagerbackend.model.VmStatus;
 
@@ -28,222 +38,608 @@ import lombok.extern.slf4j.Slf4j;
 public class VirtualMachineService {
 
     @Autowired
-    private LibvirtConnectionService connectionService;
+    private HypervisorBackend hypervisor;
+
+    @Autowired
+    private LibvirtConfig libvirtConfig;
+
+    @Autowired
+    private NumaPlacementService placementService;
+
+    @Autowired
+    private NumaPlacementConfig placementConfig;
+
+    @Autowired
+    private ConsoleLogService consoleLogService;
+
+    @Autowired
+    private OperationJournal journal;
+
+    @Autowired
+    private StoragePoolService storagePoolService;
+
+    @Autowired
+    private LibvirtProfiler profiler;
+
+    @Autowired
+    private VmLabelIndex labelIndex;
+
+    @Autowired
+    private ResizeConfig resizeConfig;
+
+    private volatile String vmTemplate;
 
     /**
      * 获取所有虚拟机列表
      */
     public List<VmInfo> listAllVms() throws LibvirtException {
-        Connect connect = connectionService.getConnection();
         List<VmInfo> vmList = new ArrayList<>();
 
-        // 获取所有域（虚拟机）
-        int[] domainIds = connect.listDomains();
-        for (int id : domainIds) {
-            Domain domain = connect.domainLookupByID(id);
-            vmList.add(convertToVmInfo(domain));
+        // 获取所有运行中的域（虚拟机）
+        for (String name : hypervisor.listActiveDomains()) {
+            vmList.add(convertToVmInfo(hypervisor.getDomain(name)));
         }
 
         // 获取所有已定义的域（未运行的）
-        String[] definedDomains = connect.listDefinedDomains();
-        for (String name : definedDomains) {
-            Domain domain = connect.domainLookupByName(name);
-            vmList.add(convertToVmInfo(domain));
+        for (String name : hypervisor.listInactiveDomains()) {
+            vmList.add(convertToVmInfo(hypervisor.getDomain(name)));
         }
 
         return vmList;
     }
 
+    /**
+     * 按标签选择器获取虚拟机列表，选择器为空时返回全部
+     * 匹配的名称由标签索引直接给出，只查询命中的虚拟机。
+     */
+    public List<VmInfo> listVms(LabelSelector selector) throws LibvirtException {
+        if (selector.isEmpty()) {
+            return listAllVms();
+        }
+        List<VmInfo> vmList = new ArrayList<>();
+        for (String name : labelIndex.select(selector)) {
+            // 索引与实际清单之间可能有短暂差异，已删除的虚拟机直接跳过
+            HypervisorBackend.DomainSnapshot domain = hypervisor.findDomain(name);
+            if (domain != null) {
+                vmList.add(convertToVmInfo(domain));
+            }
+        }
+        return vmList;
+    }
+
+    /**
+     * 流式获取所有虚拟机
+     * 只在调用时列出域ID和名称，每个虚拟机的详细信息在消费到时才查询，不在内存中保留整个列表。
+     * 遍历期间被删除的虚拟机会被跳过；其他libvirt错误以IllegalStateException抛出。
+     */
+    public Stream<VmInfo> streamAllVms() throws LibvirtException {
+        List<String> active = hypervisor.listActiveDomains();
+        List<String> defined = hypervisor.listInactiveDomains();
+        return Stream.concat(active.stream(), defined.stream())
+                .map(this::lookupQuietly)
+                .filter(Objects::nonNull);
+    }
+
+    /**
+     * 按标签选择器流式获取虚拟机，选择器为空时返回全部
+     */
+    public Stream<VmInfo> streamVms(LabelSelector selector) throws LibvirtException {
+        if (selector.isEmpty()) {
+            return streamAllVms();
+        }
+        return labelIndex.select(selector).stream()
+                .map(this::lookupQuietly)
+                .filter(Objects::nonNull);
+    }
+
+    /**
+     * 按标签选择器批量执行生命周期操作，逐台执行，单台失败不影响其他虚拟机
+     */
+    public List<BatchActionResult> batchAction(LabelSelector selector, BatchAction action) {
+        List<BatchActionResult> results = new ArrayList<>();
+        for (String name : labelIndex.select(selector)) {
+            try {
+                switch (action) {
+                    case START -> startVm(name);
+                    case SHUTDOWN -> shutdownVm(name);
+                    case FORCE_SHUTDOWN -> forceShutdownVm(name);
+                    case REBOOT -> rebootVm(name);
+                    case SUSPEND -> suspendVm(name);
+                    case RESUME -> resumeVm(name);
+                }
+                results.add(BatchActionResult.builder().name(name).success(true).build());
+            } catch (LibvirtException | RuntimeException e) {
+                log.warn("批量操作 {} 失败: {}: {}", action, name, e.getMessage());
+                results.add(BatchActionResult.builder().name(name).success(false).error(e.getMessage()).build());
+            }
+        }
+        log.info("批量操作 {} 完成: 选择器={} 共{}台", action, selector, results.size());
+        return results;
+    }
+
+    /**
+     * 替换虚拟机的全部标签
+     * 标签写入持久化配置；运行中的虚拟机无需重启，查询结果中的标签来自索引。
+     */
+    public VmInfo setLabels(String name, Map<String, String> labels) throws LibvirtException {
+        VmLabels.validate(labels);
+        return journaled(OperationType.DEFINE, name, () -> {
+            // 虚拟机不存在时抛出not found
+            hypervisor.getDomain(name);
+            String xml = hypervisor.findDefinitionXml(name);
+            if (xml == null) {
+                throw new HypervisorException("Domain not found: no domain with matching name '" + name + "'");
+            }
+            hypervisor.defineDomain(VmLabels.replace(xml, labels));
+            labelIndex.put(name, labels);
+            log.info("虚拟机 {} 标签已更新: {}", name, labels);
+            return convertToVmInfo(hypervisor.getDomain(name));
+        });
+    }
+
+    /**
+     * 查询虚拟机的静态限速（持久化配置中的iotune/bandwidth）
+     */
+    public QosLimits getQos(String name) throws LibvirtException {
+        // 虚拟机不存在时抛出not found
+        hypervisor.getDomain(name);
+        return VmQos.parse(hypervisor.findDefinitionXml(name));
+    }
+
+    /**
+     * 设置虚拟机的静态限速：整体替换所有磁盘和网卡的限速，写入持久化配置，运行中的虚拟机立即生效
+     */
+    public QosLimits setQos(String name, QosLimits limits) throws LibvirtException {
+        return journaled(OperationType.DEFINE, name, () -> {
+            hypervisor.setIoTune(name, VmQos.toIoTune(limits), true);
+            log.info("虚拟机 {} 限速已更新: {}", name, limits);
+            return VmQos.parse(hypervisor.findDefinitionXml(name));
+        });
+    }
+
+    /**
+     * 查询虚拟机的vCPU与内存配置（持久化配置与运行状态）
+     */
+    public ResizeResult getResources(String name) throws LibvirtException {
+        return resources(hypervisor.getDomain(name), false, false, List.of());
+    }
+
+    /**
+     * 调整虚拟机的vCPU与内存
+     * 运行中的虚拟机在上限以内时同时在线调整并写入配置（vCPU热插拔、内存通过virtio气球）；
+     * 超出运行中的上限或在线调整失败（例如来宾不支持vCPU热拔出）时只写入配置，返回需要重启。
+     * 配置中的上限不足时先提高上限。
+     */
+    public ResizeResult resizeVm(String name, ResizeRequest request) throws LibvirtException {
+        return journaled(OperationType.RESIZE, name, () -> {
+            HypervisorBackend.DomainSnapshot domain = hypervisor.getDomain(name);
+            VmSizing config = VmSizing.parse(hypervisor.findDefinitionXml(name));
+            VmSizing live = domain.active() ? VmSizing.parse(domain.xml()) : null;
+            List<String> details = new ArrayList<>();
+            boolean liveApplied = false;
+            boolean restartRequired = false;
+
+            Integer cpuCount = request.getCpuCount();
+            if (cpuCount != null) {
+                if (cpuCount > config.maxVcpus()) {
+                    hypervisor.setMaxVcpus(name, cpuCount);
+                    details.add("vCPU上限已提高到 " + cpuCount);
+                }
+                if (live == null) {
+                    hypervisor.setVcpus(name, cpuCount, false, true);
+                    details.add("vCPU数量已写入配置: " + cpuCount);
+                } else if (cpuCount > live.maxVcpus()) {
+                    hypervisor.setVcpus(name, cpuCount, false, true);
+                    restartRequired = true;
+                    details.add("vCPU数量 " + cpuCount + " 超过运行中的上限 " + live.maxVcpus() + "，已写入配置，重启后生效");
+                } else if (cpuCount != domain.vcpus()) {
+                    try {
+                        hypervisor.setVcpus(name, cpuCount, true, true);
+                        liveApplied = true;
+                        details.add("vCPU已在线调整: " + domain.vcpus() + " -> " + cpuCount);
+                    } catch (LibvirtException | HypervisorException e) {
+                        hypervisor.setVcpus(name, cpuCount, false, true);
+                        restartRequired = true;
+                        details.add("vCPU在线调整失败（" + e.getMessage() + "），已写入配置，重启后生效");
+                    }
+                } else if (cpuCount != config.vcpus()) {
+                    hypervisor.setVcpus(name, cpuCount, false, true);
+                    details.add("vCPU数量已写入配置: " + cpuCount);
+                }
+            }
+
+            Integer memoryMB = request.getMemoryMB();
+            if (memoryMB != null) {
+                long memoryKiB = memoryMB * 1024L;
+                if (memoryKiB > config.maxMemoryKiB()) {
+                    hypervisor.setMaxMemory(name, memoryKiB);
+                    details.add("内存上限已提高到 " + memoryMB + "MB");
+                }
+                if (live == null) {
+                    hypervisor.setMemory(name, memoryKiB, false, true);
+                    details.add("内存大小已写入配置: " + memoryMB + "MB");
+                } else if (memoryKiB > domain.maxMemoryKiB()) {
+                    hypervisor.setMemory(name, memoryKiB, false, true);
+                    restartRequired = true;
+                    details.add("内存 " + memoryMB + "MB 超过运行中的上限 " + domain.maxMemoryKiB() / 1024 + "MB，已写入配置，重启后生效");
+                } else if (memoryKiB != domain.memoryKiB()) {
+                    try {
+                        hypervisor.setMemory(name, memoryKiB, true, true);
+                        liveApplied = true;
+                        details.add("内存已在线调整: " + domain.memoryKiB() / 1024 + "MB -> " + memoryMB + "MB");
+                    } catch (LibvirtException | HypervisorException e) {
+                        hypervisor.setMemory(name, memoryKiB, false, true);
+                        restartRequired = true;
+                        details.add("内存在线调整失败（" + e.getMessage() + "），已写入配置，重启后生效");
+                    }
+                } else if (memoryKiB != config.memoryKiB()) {
+                    hypervisor.setMemory(name, memoryKiB, false, true);
+                    details.add("内存大小已写入配置: " + memoryMB + "MB");
+                }
+            }
+
+            log.info("虚拟机 {} 资源已调整: {}", name, details);
+            return resources(hypervisor.getDomain(name), liveApplied, restartRequired, details);
+        });
+    }
+
+    private ResizeResult resources(HypervisorBackend.DomainSnapshot domain, boolean liveApplied, boolean restartRequired,
+                                   List<String> details) throws LibvirtException {
+        VmSizing config = VmSizing.parse(hypervisor.findDefinitionXml(domain.name()));
+        // 之前只写入配置的调整同样需要重启（运行中的内存可能被气球回收，只比较上限）
+        boolean pending = domain.active()
+                && (config.vcpus() != domain.vcpus() || config.memoryKiB() > domain.maxMemoryKiB());
+        return ResizeResult.builder()
+                .name(domain.name())
+                .cpuCount(config.vcpus())
+                .maxCpuCount(config.maxVcpus())
+                .memoryMB(config.memoryKiB() / 1024)
+                .maxMemoryMB(config.maxMemoryKiB() / 1024)
+                .liveCpuCount(domain.active() ? domain.vcpus() : null)
+                .liveMemoryMB(domain.active() ? domain.memoryKiB() / 1024 : null)
+                .liveApplied(liveApplied)
+                .restartRequired(restartRequired || pending)
+                .details(details)
+                .build();
+    }
+
+    private VmInfo lookupQuietly(String name) {
+        try {
+            HypervisorBackend.DomainSnapshot domain = hypervisor.findDomain(name);
+            return domain == null ? null : convertToVmInfo(domain);
+        } catch (LibvirtException e) {
+            throw new IllegalStateException(e.getMessage(), e);
+        }
+    }
+
     /**
      * 根据名称获取虚拟机信息
      */
     public VmInfo getVmByName(String name) throws LibvirtException {
-        Connect connect = connectionService.getConnection();
-        Domain domain = connect.domainLookupByName(name);
-        return convertToVmInfo(domain);
+        return convertToVmInfo(hypervisor.getDomain(name));
     }
 
     /**
      * 根据UUID获取虚拟机信息
      */
     public VmInfo getVmByUuid(String uuid) throws LibvirtException {
-        Connect connect = connectionService.getConnection();
-        Domain domain = connect.domainLookupByUUIDString(uuid);
-        return convertToVmInfo(domain);
+        return convertToVmInfo(hypervisor.getDomainByUuid(uuid));
     }
 
     /**
      * 创建虚拟机
      */
     public VmInfo createVm(CreateVmRequest request) throws LibvirtException {
-        Connect connect = connectionService.getConnection();
-
-        // 如果提供了XML配置文件路径，使用XML配置
-        if (request.getXmlConfigPath() != null && !request.getXmlConfigPath().isEmpty()) {
-            return createVmFromXml(connect, request);
-        } else {
-            // 使用参数创建
-            return createVmFromParams(connect, request);
-        }
+        return createVm(request, null);
+    }
+
+    /**
+     * 创建虚拟机
+     *
+     * @param uuid 指定虚拟机UUID，为空时随机生成
+     */
+    public VmInfo createVm(CreateVmRequest request, String uuid) throws LibvirtException {
+        return journaled(OperationType.CREATE, request.getName(), () -> {
+            // 如果提供了XML配置文件路径，使用XML配置
+            if (request.isFromXml()) {
+                return createVmFromXml(request, uuid);
+            } else {
+                // 使用参数创建
+                return createVmFromParams(request, uuid);
+            }
+        });
+    }
+
+    /**
+     * 按指定UUID和元数据定义虚拟机
+     * 同名同UUID的虚拟机已存在时只更新其持久化配置（运行中的虚拟机在下次启动后生效）
+     *
+     * @param uuid        为空时生成新的UUID
+     * @param metadataXml 写入 domain/metadata 的自定义元素（需带命名空间），可为空
+     */
+    public VmInfo defineVm(CreateVmRequest request, String uuid, String metadataXml) throws LibvirtException {
+        return journaled(OperationType.DEFINE, request.getName(), () -> {
+            HypervisorBackend.DomainSnapshot domain;
+            try {
+                domain = hypervisor.defineDomain(generateVmXml(request, uuid, metadataXml));
+            } finally {
+                placementService.release(request.getName());
+            }
+            indexLabels(domain, request);
+            log.info("虚拟机已定义: {}", request.getName());
+            return convertToVmInfo(domain);
+        });
+    }
+
+    /**
+     * 按完整的domain XML定义虚拟机（克隆等），标签取自XML中的metadata
+     */
+    public VmInfo defineVmXml(String name, String xml) throws LibvirtException {
+        return journaled(OperationType.DEFINE, name, () -> {
+            HypervisorBackend.DomainSnapshot domain = hypervisor.defineDomain(xml);
+            labelIndex.put(domain.name(), VmLabels.parse(xml));
+            log.info("虚拟机已定义: {}", domain.name());
+            return convertToVmInfo(domain);
+        });
     }
 
     /**
      * 从XML配置文件创建虚拟机
+     * XML中的名称必须与请求一致；XML未指定UUID时在根元素的name之后插入传入的UUID（幂等重试得到同一台虚拟机），都没有时由libvirt生成；标签取自XML中的metadata
      */
-    private VmInfo createVmFromXml(Connect connect, CreateVmRequest request) throws LibvirtException {
-        String xmlContent = generateVmXml(request);
-        Domain domain = connect.domainDefineXML(xmlContent);
-        log.info("虚拟机已定义: {}", request.getName());
+    private VmInfo createVmFromXml(CreateVmRequest request, String uuid) throws LibvirtException {
+        DomainXmlFile file = DomainXmlFile.read(request.getXmlConfigPath());
+        if (!file.name().equals(request.getName())) {
+            throw new IllegalArgumentException("XML中的虚拟机名称 " + file.name() + " 与请求的名称 " + request.getName() + " 不一致");
+        }
+        List<String> missing = file.missingDisks();
+        if (!missing.isEmpty()) {
+            throw new IllegalArgumentException("磁盘路径不存在: " + String.join(", ", missing));
+        }
+        String xmlContent = uuid != null ? file.withUuid(uuid) : file.xml();
+        HypervisorBackend.DomainSnapshot domain = hypervisor.defineDomain(xmlContent);
+        labelIndex.put(domain.name(), VmLabels.parse(xmlContent));
+        log.info("虚拟机已按XML配置文件定义: {} ({})", domain.name(), request.getXmlConfigPath());
         return convertToVmInfo(domain);
     }
 
     /**
      * 从参数创建虚拟机
      */
-    private VmInfo createVmFromParams(Connect connect, CreateVmRequest request) throws LibvirtException {
-        String xmlContent = generateVmXml(request);
-        Domain domain = connect.domainDefineXML(xmlContent);
+    private VmInfo createVmFromParams(CreateVmRequest request, String uuid) throws LibvirtException {
+        HypervisorBackend.DomainSnapshot domain;
+        try {
+            domain = hypervisor.defineDomain(generateVmXml(request, uuid, null));
+        } finally {
+            // 预留只覆盖从选择节点到定义完成之间的并发创建
+            placementService.release(request.getName());
+        }
+        indexLabels(domain, request);
         log.info("虚拟机已创建: {}", request.getName());
         return convertToVmInfo(domain);
     }
 
+    /**
+     * 定义后立即更新标签索引，随后的选择器查询即可命中（DEFINED事件会再次确认）
+     */
+    private void indexLabels(HypervisorBackend.DomainSnapshot domain, CreateVmRequest request) {
+        labelIndex.put(domain.name(), request.getLabels() == null ? Map.of() : request.getLabels());
+    }
+
+    /**
+     * 磁盘路径：优先使用请求中的路径，否则引用存储池中的存储卷
+     */
+    private String resolveDiskPath(CreateVmRequest request) throws LibvirtException {
+        if (request.getDiskImagePath() != null && !request.getDiskImagePath().isBlank()) {
+            return request.getDiskImagePath();
+        }
+        return storagePoolService.getVolumePath(request.getStoragePool(), request.getVolume());
+    }
+
     /**
      * 生成虚拟机XML配置
      */
-    private String generateVmXml(CreateVmRequest request) {
+    private String generateVmXml(CreateVmRequest request, String uuid, String metadataXml) throws LibvirtException {
         try {
             // 生成UUID
-            String uuid = java.util.UUID.randomUUID().toString();
-            
-            // 从模板文件读取XML内容
-            ClassPathResource resource = new ClassPathResource("templates/vm-template.xml");
-            String templateContent = new String(FileCopyUtils.copyToByteArray(resource.getInputStream()), StandardCharsets.UTF_8);
+            if (uuid == null || uuid.isEmpty()) {
+                uuid = java.util.UUID.randomUUID().toString();
+            }
+            String metadataContent = (metadataXml == null ? "" : metadataXml) + VmLabels.render(request.getLabels());
+            String metadata = metadataContent.isEmpty()
+                    ? "" : "<metadata>\n        " + metadataContent + "\n    </metadata>\n    ";
             
+            // 从模板文件读取XML内容（首次读取后缓存）
+            String templateContent = loadTemplate();
+
+            // vcpu/memory 写入上限，current/currentMemory 写入请求值，为在线调整预留余量；
+            // 独占绑定的vCPU和大页内存不预留（独占的CPU按上限占用，大页按上限预分配）
+            int maxVcpus = request.isDedicatedCpus() ? request.getCpuCount()
+                    : (int) VmSizing.headroom(request.getCpuCount(), resizeConfig.getVcpuHeadroomRatio(), resizeConfig.getMaxVcpus());
+            long maxMemoryMB = request.isHugepages() ? request.getMemoryMB()
+                    : VmSizing.headroom(request.getMemoryMB(), resizeConfig.getMemoryHeadroomRatio(), resizeConfig.getMaxMemoryMb());
+
+            // 根据宿主机NUMA拓扑生成 cputune/numatune 配置；按上限放置，在线调整后的vCPU和内存仍在所选节点内
+            String placementXml = "";
+            boolean numaPlacement = request.getNumaPlacement() != null
+                    ? request.getNumaPlacement() : placementConfig.isEnabled();
+            if (numaPlacement) {
+                PlacementDecision decision = placementService.place(request.getName(), maxVcpus,
+                        maxMemoryMB * 1024L * 1024L, request.isDedicatedCpus(), request.isHugepages());
+                placementXml = placementService.renderPlacementXml(decision, maxVcpus);
+            }
+            String currentVcpus = maxVcpus > request.getCpuCount() ? " current='" + request.getCpuCount() + "'" : "";
+
             // 使用参数替换模板中的占位符
             // 注意：模板中的第一个空字符串占位符是为了保持兼容性
             return String.format(templateContent, 
-                request.getName(), uuid,
-                request.getMemoryMB() * 1024, request.getMemoryMB() * 1024,
-                request.getCpuCount(), "", request.getDiskImagePath(), request.getNetworkName());
+                libvirtConfig.getDomainType(), request.getName(), uuid, metadata,
+                maxMemoryMB * 1024, request.getMemoryMB() * 1024L,
+                currentVcpus, maxVcpus, placementXml, "", resolveDiskPath(request), VmQos.renderIoTune(request.getQos()),
+                request.getNetworkName(), VmQos.renderBandwidth(request.getQos()),
+                consoleLogService.renderSerialLogXml(request.getName()));
         } catch (IOException e) {
             log.error("读取虚拟机XML模板失败: {}", e.getMessage(), e);
             throw new RuntimeException("无法读取虚拟机XML模板", e);
         }
     }
 
+    /**
+     * 读取虚拟机XML模板，只在首次调用时读取类路径资源
+     */
+    String loadTemplate() throws IOException {
+        String template = vmTemplate;
+        if (template == null) {
+            ClassPathResource resource = new ClassPathResource("templates/vm-template.xml");
+            template = new String(FileCopyUtils.copyToByteArray(resource.getInputStream()), StandardCharsets.UTF_8);
+            vmTemplate = template;
+        }
+        return template;
+    }
+
     /**
      * 销毁虚拟机（删除）
      */
     public void destroyVm(String name) throws LibvirtException {
-        Connect connect = connectionService.getConnection();
-        Domain domain = connect.domainLookupByName(name);
+        journaled(OperationType.DESTROY, name, () -> {
+            HypervisorBackend.DomainSnapshot domain = hypervisor.getDomain(name);
 
-        // 如果正在运行，先关闭
-        if (domain.isActive() == 1) {
-            domain.destroy();
-            log.info("虚拟机 {} 已强制关闭", name);
-        }
+            // 如果正在运行，先关闭
+            if (domain.active()) {
+                hypervisor.destroy(name);
+                log.info("虚拟机 {} 已强制关闭", name);
+            }
 
-        // 取消定义（删除）
-        domain.undefine();
-        log.info("虚拟机 {} 已删除", name);
+            // 取消定义（删除）
+            hypervisor.undefine(name);
+            labelIndex.remove(name);
+            log.info("虚拟机 {} 已删除", name);
+            return null;
+        });
     }
 
     /**
      * 启动虚拟机
      */
     public void startVm(String name) throws LibvirtException {
-        Connect connect = connectionService.getConnection();
-        Domain domain = connect.domainLookupByName(name);
-        domain.create();
-        log.info("虚拟机 {} 已启动", name);
+        journaled(OperationType.START, name, () -> {
+            hypervisor.start(name);
+            log.info("虚拟机 {} 已启动", name);
+            return null;
+        });
     }
 
     /**
      * 关闭虚拟机（优雅关闭）
      */
     public void shutdownVm(String name) throws LibvirtException {
-        Connect connect = connectionService.getConnection();
-        Domain domain = connect.domainLookupByName(name);
-        domain.shutdown();
-        log.info("虚拟机 {} 已发送关闭信号", name);
+        journaled(OperationType.SHUTDOWN, name, () -> {
+            hypervisor.shutdown(name);
+            log.info("虚拟机 {} 已发送关闭信号", name);
+            return null;
+        });
     }
 
     /**
      * 强制关闭虚拟机
      */
     public void forceShutdownVm(String name) throws LibvirtException {
-        Connect connect = connectionService.getConnection();
-        Domain domain = connect.domainLookupByName(name);
-        domain.destroy();
-        log.info("虚拟机 {} 已强制关闭", name);
+        journaled(OperationType.FORCE_SHUTDOWN, name, () -> {
+            hypervisor.destroy(name);
+            log.info("虚拟机 {} 已强制关闭", name);
+            return null;
+        });
     }
 
     /**
      * 重启虚拟机
      */
     public void rebootVm(String name) throws LibvirtException {
-        Connect connect = connectionService.getConnection();
-        Domain domain = connect.domainLookupByName(name);
-        domain.reboot(0);
-        log.info("虚拟机 {} 已重启", name);
+        journaled(OperationType.REBOOT, name, () -> {
+            hypervisor.reboot(name);
+            log.info("虚拟机 {} 已重启", name);
+            return null;
+        });
     }
 
     /**
      * 暂停虚拟机
      */
     public void suspendVm(String name) throws LibvirtException {
-        Connect connect = connectionService.getConnection();
-        Domain domain = connect.domainLookupByName(name);
-        domain.suspend();
-        log.info("虚拟机 {} 已暂停", name);
+        journaled(OperationType.SUSPEND, name, () -> {
+            hypervisor.suspend(name);
+            log.info("虚拟机 {} 已暂停", name);
+            return null;
+        });
     }
 
     /**
      * 恢复虚拟机
      */
     public void resumeVm(String name) throws LibvirtException {
-        Connect connect = connectionService.getConnection();
-        Domain domain = connect.domainLookupByName(name);
-        domain.resume();
-        log.info("虚拟机 {} 已恢复", name);
+        journaled(OperationType.RESUME, name, () -> {
+            hypervisor.resume(name);
+            log.info("虚拟机 {} 已恢复", name);
+            return null;
+        });
+    }
+
+    /**
+     * 托管保存虚拟机（内存状态写入磁盘后关闭，下次启动时恢复）
+     */
+    public void saveVm(String name) throws LibvirtException {
+        journaled(OperationType.SAVE, name, () -> {
+            hypervisor.managedSave(name);
+            log.info("虚拟机 {} 已托管保存", name);
+            return null;
+        });
     }
 
     /**
      * 获取虚拟机状态
      */
     public VmStatus getVmStatus(String name) throws LibvirtException {
-        Connect connect = connectionService.getConnection();
-        Domain domain = connect.domainLookupByName(name);
-        DomainInfo info = domain.getInfo();
-        return convertDomainStateToVmStatus(info.state);
+        return hypervisor.getDomain(name).status();
     }
 
     /**
      * 监控虚拟机状态（实时信息）
      */
     public VmInfo monitorVm(String name) throws LibvirtException {
-        Connect connect = connectionService.getConnection();
-        Domain domain = connect.domainLookupByName(name);
-        return convertToVmInfo(domain);
+        return convertToVmInfo(hypervisor.getDomain(name));
     }
 
     /**
-     * 将Domain对象转换为VmInfo
+     * 在操作日志中记录意图和结果后执行变更
      */
-    private VmInfo convertToVmInfo(Domain domain) throws LibvirtException {
-        DomainInfo info = domain.getInfo();
-        VmStatus status = convertDomainStateToVmStatus(info.state);
-
-        // 获取XML配置（一次性获取，供后续使用）
-        String xmlDesc = null;
+    private <T> T journaled(OperationType type, String name, LibvirtAction<T> action) throws LibvirtException {
+        long opId = journal.begin(type, name);
         try {
-            xmlDesc = domain.getXMLDesc(0);
-        } catch (Exception e) {
-            log.debug("获取XML配置失败: {}", e.getMessage());
+            T result = action.run();
+            journal.complete(opId);
+            return result;
+        } catch (LibvirtException | RuntimeException e) {
+            journal.fail(opId, e.getMessage());
+            throw e;
         }
+    }
+
+    @FunctionalInterface
+    private interface LibvirtAction<T> {
+        T run() throws LibvirtException;
+    }
+
+    /**
+     * 将虚拟机快照转换为VmInfo（各阶段分别发出JFR事件）
+     */
+    private VmInfo convertToVmInfo(HypervisorBackend.DomainSnapshot domain) {
+        VmStatus status = domain.status();
+
+        // XML配置（快照中已一次性获取，供后续使用）
+        String xmlDesc = domain.xml();
 
         // 获取网络接口
+        LibvirtProfiler.Stage stage = profiler.stage("interfaces", domain.name());
         List<String> interfaces = new ArrayList<>();
         if (xmlDesc != null) {
             try {
@@ -277,8 +673,10 @@ public class VirtualMachineService {
                 log.debug("解析网络接口失败: {}", e.getMessage());
             }
         }
+        stage.end();
 
         // 获取磁盘
+        stage = profiler.stage("disks", domain.name());
         List<String> disks = new ArrayList<>();
         if (xmlDesc != null) {
             try {
@@ -298,8 +696,10 @@ public class VirtualMachineService {
                 log.debug("解析磁盘信息失败: {}", e.getMessage());
             }
         }
+        stage.end();
 
         // 解析VNC信息
+        stage = profiler.stage("vnc", domain.name());
         String vncHost = null;
         Integer vncPort = null;
         if (xmlDesc != null) {
@@ -322,35 +722,40 @@ public class VirtualMachineService {
                 log.debug("解析VNC信息失败: {}", e.getMessage());
             }
         }
+        stage.end();
 
         // 计算CPU使用率（需要获取两次CPU时间差）
         double cpuUsage = 0.0;
         try {
-            if (info.state == DomainInfo.DomainState.VIR_DOMAIN_RUNNING) {
-                long cpuTime = info.cpuTime;
+            if (status == VmStatus.RUNNING) {
+                long cpuTime = domain.cpuTimeNs();
                 // 这里简化处理，实际需要计算时间差
-                cpuUsage = info.nrVirtCpu > 0 ? (cpuTime / 1000000.0) : 0.0;
+                cpuUsage = domain.vcpus() > 0 ? (cpuTime / 1000000.0) : 0.0;
             }
         } catch (Exception e) {
             log.debug("计算CPU使用率失败: {}", e.getMessage());
         }
 
-        return VmInfo.builder()
-                .name(domain.getName())
-                .uuid(domain.getUUIDString())
+        stage = profiler.stage("build", domain.name());
+        VmInfo vmInfo = VmInfo.builder()
+                .name(domain.name())
+                .uuid(domain.uuid())
                 .status(status)
                 .statusDescription(status.getDescription())
-                .maxMemory(info.maxMem * 1024) // 转换为字节
-                .currentMemory(info.memory * 1024) // 转换为字节
-                .cpuCount(info.nrVirtCpu)
+                .maxMemory(domain.maxMemoryKiB() * 1024) // 转换为字节
+                .currentMemory(domain.memoryKiB() * 1024) // 转换为字节
+                .cpuCount(domain.vcpus())
                 .cpuUsage(cpuUsage)
-                .runTime(info.nrVirtCpu > 0 ? info.cpuTime / 1000000000L : 0) // 转换为秒
-                .persistent(domain.isPersistent() == 1)
+                .runTime(domain.vcpus() > 0 ? domain.cpuTimeNs() / 1000000000L : 0) // 转换为秒
+                .persistent(domain.persistent())
                 .networkInterfaces(interfaces)
                 .disks(disks)
                 .vncHost(vncHost)
                 .vncPort(vncPort)
+                .labels(labelIndex.getLabels(domain.name()))
                 .build();
+        stage.end();
+        return vmInfo;
     }
 
     /**
@@ -358,43 +763,13 @@ public class VirtualMachineService {
      * 需要来宾系统安装并运行 qemu-guest-agent
      */
     public void changeGuestPassword(String name, String username, String password, boolean encrypted) throws LibvirtException {
-        Connect connect = connectionService.getConnection();
-        Domain domain = connect.domainLookupByName(name);
         // QGA 命令：guest-set-user-password
         String payload = String.format("{\"execute\":\"guest-set-user-password\",\"arguments\":{\"username\":\"%s\",\"password\":\"%s\",\"encrypted\":%s}}",
                 username.replace("\\", "\\\\").replace("\"", "\\\""),
                 password.replace("\\", "\\\\").replace("\"", "\\\""),
                 encrypted ? "true" : "false");
         // timeout: 10s, flags: 0
-        domain.qemuAgentCommand(payload, 10, 0);
-    }
-
-    /**
-     * 将DomainState枚举转换为VmStatus
-     */
-    private VmStatus convertDomainStateToVmStatus(DomainInfo.DomainState domainState) {
-        if (domainState == null) {
-            return VmStatus.NOSTATE;
-        }
-        
-        switch (domainState) {
-            case VIR_DOMAIN_NOSTATE:
-                return VmStatus.NOSTATE;
-            case VIR_DOMAIN_RUNNING:
-                return VmStatus.RUNNING;
-            case VIR_DOMAIN_BLOCKED:
-                return VmStatus.BLOCKED;
-            case VIR_DOMAIN_PAUSED:
-                return VmStatus.PAUSED;
-            case VIR_DOMAIN_SHUTDOWN:
-                return VmStatus.SHUTDOWN;
-            case VIR_DOMAIN_SHUTOFF:
-                return VmStatus.SHUTOFF;
-            case VIR_DOMAIN_CRASHED:
-                return VmStatus.CRASHED;
-            default:
-                return VmStatus.NOSTATE;
-        }
+        hypervisor.guestAgentCommand(name, payload, 10);
     }
 }
 
@@ -0,0 +1,24 @@
+package com.pengchengyin.vmmanagerbackend.service;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR事件：VmInfo转换中的一个阶段（XML解析等纯Java开销）
+ */
+@Name("com.pengchengyin.vmmanager.VmConversion")
+@Label("VmInfo Conversion")
+@Description("DomainSnapshot转换为VmInfo的一个阶段")
+@Category({"VM Manager", "conversion"})
+@StackTrace(false)
+public class VmConversionEvent extends jdk.jfr.Event {
+
+    @Label("Stage")
+    String stage;
+
+    @Label("Domain")
+    String domain;
+}
@@ -0,0 +1,270 @@
+package com.pengchengyin.vmmanagerbackend.service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.libvirt.LibvirtException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 虚拟机标签倒排索引
+ * 每台虚拟机分配一个稠密的整数编号，索引为 标签键 -> 标签值 -> 虚拟机编号位图；
+ * 选择器查询只做位图的与/与非运算，不读取任何domain XML。
+ * 索引由生命周期事件增量维护（DEFINED时读取持久化配置中的标签，UNDEFINED时移除），
+ * 并按 label-index.resync-interval-ms 全量重建，以发现绕过本服务的修改。
+ */
+@Slf4j
+@Service
+public class VmLabelIndex {
+
+    @Autowired
+    private HypervisorBackend hypervisor;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Integer> ids = new HashMap<>();
+    private final List<String> names = new ArrayList<>();
+    private final Deque<Integer> freeIds = new ArrayDeque<>();
+    private final BitSet all = new BitSet();
+    private final Map<String, Map<String, BitSet>> postings = new HashMap<>();
+    private final Map<String, Map<String, String>> labelsByName = new HashMap<>();
+    private volatile long lastResyncAt;
+
+    @PostConstruct
+    public void init() {
+        hypervisor.addLifecycleListener(event -> {
+            switch (event.type()) {
+                // 运行中的虚拟机取消定义后变为临时虚拟机，仍然保留在索引中直到下次重建
+                case DEFINED, UNDEFINED -> refresh(event.name());
+                default -> {
+                }
+            }
+        });
+    }
+
+    /**
+     * 全量重建：逐台读取持久化配置中的标签
+     */
+    @Scheduled(fixedDelayString = "${label-index.resync-interval-ms:300000}")
+    public void resync() {
+        try {
+            List<String> current = new ArrayList<>(hypervisor.listActiveDomains());
+            current.addAll(hypervisor.listInactiveDomains());
+            Map<String, Map<String, String>> fresh = new HashMap<>();
+            for (String name : current) {
+                Map<String, String> labels = readLabels(name);
+                if (labels != null) {
+                    fresh.put(name, labels);
+                }
+            }
+            lock.writeLock().lock();
+            try {
+                for (String name : new ArrayList<>(ids.keySet())) {
+                    if (!fresh.containsKey(name)) {
+                        removeLocked(name);
+                    }
+                }
+                fresh.forEach(this::putLocked);
+            } finally {
+                lock.writeLock().unlock();
+            }
+            lastResyncAt = System.currentTimeMillis();
+            log.debug("标签索引已重建: {}台虚拟机", fresh.size());
+        } catch (LibvirtException | RuntimeException e) {
+            log.warn("重建标签索引失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 重新读取一台虚拟机的标签；虚拟机已不存在时从索引中移除
+     */
+    public void refresh(String name) {
+        try {
+            Map<String, String> labels = readLabels(name);
+            if (labels == null) {
+                remove(name);
+            } else {
+                put(name, labels);
+            }
+        } catch (LibvirtException | RuntimeException e) {
+            log.warn("更新虚拟机标签索引失败: {}: {}", name, e.getMessage());
+        }
+    }
+
+    public void put(String name, Map<String, String> labels) {
+        lock.writeLock().lock();
+        try {
+            putLocked(name, labels);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(String name) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(name);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 按选择器查询虚拟机名称（按编号顺序）
+     */
+    public List<String> select(LabelSelector selector) {
+        lock.readLock().lock();
+        try {
+            BitSet result = (BitSet) all.clone();
+            for (LabelSelector.Requirement r : selector.requirements()) {
+                Map<String, BitSet> values = postings.getOrDefault(r.key(), Map.of());
+                BitSet matched = new BitSet();
+                if (r.operator() == LabelSelector.Operator.EXISTS || r.operator() == LabelSelector.Operator.NOT_EXISTS) {
+                    values.values().forEach(matched::or);
+                } else {
+                    for (String value : r.values()) {
+                        BitSet bits = values.get(value);
+                        if (bits != null) {
+                            matched.or(bits);
+                        }
+                    }
+                }
+                if (r.operator() == LabelSelector.Operator.IN || r.operator() == LabelSelector.Operator.EXISTS) {
+                    result.and(matched);
+                } else {
+                    result.andNot(matched);
+                }
+                if (result.isEmpty()) {
+                    break;
+                }
+            }
+            List<String> selected = new ArrayList<>(result.cardinality());
+            for (int id = result.nextSetBit(0); id >= 0; id = result.nextSetBit(id + 1)) {
+                selected.add(names.get(id));
+            }
+            return selected;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 虚拟机的标签，不在索引中时返回空Map
+     */
+    public Map<String, String> getLabels(String name) {
+        lock.readLock().lock();
+        try {
+            return labelsByName.getOrDefault(name, Map.of());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 各标签键、值对应的虚拟机数量
+     */
+    public Map<String, Map<String, Integer>> summary() {
+        lock.readLock().lock();
+        try {
+            Map<String, Map<String, Integer>> summary = new TreeMap<>();
+            postings.forEach((key, values) -> {
+                Map<String, Integer> counts = new TreeMap<>();
+                values.forEach((value, bits) -> counts.put(value, bits.cardinality()));
+                summary.put(key, counts);
+            });
+            return summary;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        lock.readLock().lock();
+        try {
+            stats.put("domains", ids.size());
+            stats.put("keys", postings.size());
+            stats.put("postings", postings.values().stream().mapToInt(Map::size).sum());
+        } finally {
+            lock.readLock().unlock();
+        }
+        stats.put("lastResyncAt", lastResyncAt);
+        return stats;
+    }
+
+    /**
+     * 读取持久化配置中的标签；虚拟机不存在时返回null
+     */
+    private Map<String, String> readLabels(String name) throws LibvirtException {
+        String xml = hypervisor.findDefinitionXml(name);
+        return xml == null ? null : Map.copyOf(VmLabels.parse(xml));
+    }
+
+    private void putLocked(String name, Map<String, String> labels) {
+        Integer id = ids.get(name);
+        if (id == null) {
+            id = freeIds.isEmpty() ? names.size() : freeIds.pop();
+            if (id == names.size()) {
+                names.add(name);
+            } else {
+                names.set(id, name);
+            }
+            ids.put(name, id);
+            all.set(id);
+        } else if (labels.equals(labelsByName.get(name))) {
+            return;
+        } else {
+            unindex(name, id);
+        }
+        final int slot = id;
+        labels.forEach((key, value) -> postings
+                .computeIfAbsent(key, k -> new HashMap<>())
+                .computeIfAbsent(value, v -> new BitSet())
+                .set(slot));
+        labelsByName.put(name, Map.copyOf(labels));
+    }
+
+    private void removeLocked(String name) {
+        Integer id = ids.remove(name);
+        if (id == null) {
+            return;
+        }
+        unindex(name, id);
+        labelsByName.remove(name);
+        all.clear(id);
+        names.set(id, null);
+        freeIds.push(id);
+    }
+
+    private void unindex(String name, int id) {
+        labelsByName.getOrDefault(name, Map.of()).forEach((key, value) -> {
+            Map<String, BitSet> values = postings.get(key);
+            if (values == null) {
+                return;
+            }
+            BitSet bits = values.get(value);
+            if (bits != null) {
+                bits.clear(id);
+                if (bits.isEmpty()) {
+                    values.remove(value);
+                }
+            }
+            if (values.isEmpty()) {
+                postings.remove(key);
+            }
+        });
+    }
+}
@@ -0,0 +1,133 @@
+package com.pengchengyin.vmmanagerbackend.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 虚拟机标签在domain XML中的存储格式
+ * 标签写在 domain/metadata 下独立命名空间的元素中：
+ * {@code <vml:labels xmlns:vml='...'><vml:label key='env' value='prod'/></vml:labels>}
+ * 键和值的字符集受限（不含引号、尖括号和&），写入时无需转义。
+ */
+public final class VmLabels {
+
+    public static final String NAMESPACE = "https://github.com/pengchengyin/vm-manager/labels";
+    private static final String PREFIX = "vml";
+
+    /**
+     * 键：可带 "前缀/"，各段以字母数字开头和结尾
+     */
+    private static final Pattern KEY_PATTERN = Pattern.compile(
+            "([a-z0-9]([-a-z0-9.]*[a-z0-9])?/)?[A-Za-z0-9]([-A-Za-z0-9_.]*[A-Za-z0-9])?");
+    private static final Pattern VALUE_PATTERN = Pattern.compile("([A-Za-z0-9]([-A-Za-z0-9_.]*[A-Za-z0-9])?)?");
+    private static final int MAX_KEY_LENGTH = 253;
+    private static final int MAX_VALUE_LENGTH = 63;
+
+    /**
+     * 匹配标签元素（任意前缀，按命名空间识别），group(1)为前缀，group(3)为元素内容
+     */
+    private static final Pattern ELEMENT_PATTERN = Pattern.compile(
+            "<([A-Za-z_][-\\w.]*):labels\\b[^>]*?xmlns:\\1=['\"]" + Pattern.quote(NAMESPACE) + "['\"][^>]*?(/>|>(.*?)</\\1:labels\\s*>)",
+            Pattern.DOTALL);
+    private static final Pattern KEY_ATTR = Pattern.compile("\\bkey=['\"]([^'\"]*)['\"]");
+    private static final Pattern VALUE_ATTR = Pattern.compile("\\bvalue=['\"]([^'\"]*)['\"]");
+
+    private VmLabels() {
+    }
+
+    /**
+     * 每台虚拟机的最大标签数
+     */
+    public static final int MAX_LABELS = 64;
+
+    /**
+     * 校验标签，不合法时抛出IllegalArgumentException
+     */
+    public static void validate(Map<String, String> labels) {
+        if (labels == null) {
+            return;
+        }
+        if (labels.size() > MAX_LABELS) {
+            throw new IllegalArgumentException("标签数量不能超过" + MAX_LABELS);
+        }
+        labels.forEach((key, value) -> {
+            if (key == null || !isValidKey(key)) {
+                throw new IllegalArgumentException("标签键不合法: " + key);
+            }
+            if (value == null || !isValidValue(value)) {
+                throw new IllegalArgumentException("标签值不合法: " + key + "=" + value);
+            }
+        });
+    }
+
+    public static boolean isValidKey(String key) {
+        return key.length() <= MAX_KEY_LENGTH && KEY_PATTERN.matcher(key).matches();
+    }
+
+    public static boolean isValidValue(String value) {
+        return value.length() <= MAX_VALUE_LENGTH && VALUE_PATTERN.matcher(value).matches();
+    }
+
+    /**
+     * 生成标签元素，没有标签时返回空字符串
+     */
+    public static String render(Map<String, String> labels) {
+        if (labels == null || labels.isEmpty()) {
+            return "";
+        }
+        StringBuilder xml = new StringBuilder("<" + PREFIX + ":labels xmlns:" + PREFIX + "='" + NAMESPACE + "'>");
+        new TreeMap<>(labels).forEach((key, value) -> xml.append("<").append(PREFIX).append(":label key='")
+                .append(key).append("' value='").append(value).append("'/>"));
+        return xml.append("</").append(PREFIX).append(":labels>").toString();
+    }
+
+    /**
+     * 从domain XML中读取标签，没有标签时返回空Map
+     */
+    public static Map<String, String> parse(String xml) {
+        Map<String, String> labels = new LinkedHashMap<>();
+        if (xml == null) {
+            return labels;
+        }
+        Matcher element = ELEMENT_PATTERN.matcher(xml);
+        if (!element.find() || element.group(3) == null) {
+            return labels;
+        }
+        Matcher tag = Pattern.compile("<" + Pattern.quote(element.group(1)) + ":label\\b[^>]*>").matcher(element.group(3));
+        while (tag.find()) {
+            Matcher key = KEY_ATTR.matcher(tag.group());
+            Matcher value = VALUE_ATTR.matcher(tag.group());
+            if (key.find()) {
+                labels.put(key.group(1), value.find() ? value.group(1) : "");
+            }
+        }
+        return labels;
+    }
+
+    /**
+     * 用新的标签替换domain XML中的标签元素，保留metadata中的其他元素
+     */
+    public static String replace(String xml, Map<String, String> labels) {
+        String element = render(labels);
+        Matcher existing = ELEMENT_PATTERN.matcher(xml);
+        if (existing.find()) {
+            return xml.substring(0, existing.start()) + element + xml.substring(existing.end());
+        }
+        if (element.isEmpty()) {
+            return xml;
+        }
+        Matcher metadata = Pattern.compile("<metadata\\s*(/)?>").matcher(xml);
+        if (metadata.find()) {
+            return metadata.group(1) != null
+                    ? xml.substring(0, metadata.start()) + "<metadata>" + element + "</metadata>" + xml.substring(metadata.end())
+                    : xml.substring(0, metadata.end()) + element + xml.substring(metadata.end());
+        }
+        // 没有metadata元素：插在uuid（或name）之后
+        String anchor = xml.contains("</uuid>") ? "</uuid>" : "</name>";
+        int at = xml.indexOf(anchor) + anchor.length();
+        return xml.substring(0, at) + "\n  <metadata>" + element + "</metadata>" + xml.substring(at);
+    }
+}
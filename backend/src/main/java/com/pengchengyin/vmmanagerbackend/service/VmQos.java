@@ -0,0 +1,103 @@
+package com.pengchengyin.vmmanagerbackend.service;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.pengchengyin.vmmanagerbackend.model.QosLimits;
+
+/**
+ * 虚拟机限速与domain XML之间的转换
+ * 磁盘限速对应 disk/iotune，网络限速对应 interface/bandwidth；读取时以第一块磁盘和第一块网卡的配置为准。
+ */
+public final class VmQos {
+
+    private static final Pattern IOTUNE_PATTERN = Pattern.compile("<disk[^>]*>.*?<iotune>(.*?)</iotune>.*?</disk>", Pattern.DOTALL);
+    private static final Pattern BANDWIDTH_PATTERN = Pattern.compile("<interface[^>]*>.*?<bandwidth>(.*?)</bandwidth>.*?</interface>", Pattern.DOTALL);
+    private static final Pattern TOTAL_BYTES_PATTERN = Pattern.compile("<total_bytes_sec>(\\d+)</total_bytes_sec>");
+    private static final Pattern TOTAL_IOPS_PATTERN = Pattern.compile("<total_iops_sec>(\\d+)</total_iops_sec>");
+    private static final Pattern INBOUND_PATTERN = Pattern.compile("<inbound[^>]*average=['\"](\\d+)['\"]");
+    private static final Pattern OUTBOUND_PATTERN = Pattern.compile("<outbound[^>]*average=['\"](\\d+)['\"]");
+
+    private VmQos() {
+    }
+
+    /**
+     * 渲染磁盘的 iotune 元素（用于模板），没有磁盘限速时返回空串
+     */
+    public static String renderIoTune(QosLimits limits) {
+        if (limits == null || (!positive(limits.getTotalBytesSec()) && !positive(limits.getTotalIopsSec()))) {
+            return "";
+        }
+        StringBuilder xml = new StringBuilder("<iotune>\n");
+        if (positive(limits.getTotalBytesSec())) {
+            xml.append("                <total_bytes_sec>").append(limits.getTotalBytesSec()).append("</total_bytes_sec>\n");
+        }
+        if (positive(limits.getTotalIopsSec())) {
+            xml.append("                <total_iops_sec>").append(limits.getTotalIopsSec()).append("</total_iops_sec>\n");
+        }
+        return xml.append("            </iotune>\n            ").toString();
+    }
+
+    /**
+     * 渲染网卡的 bandwidth 元素（用于模板），没有网络限速时返回空串
+     */
+    public static String renderBandwidth(QosLimits limits) {
+        if (limits == null || (!positive(limits.getInboundKBps()) && !positive(limits.getOutboundKBps()))) {
+            return "";
+        }
+        StringBuilder xml = new StringBuilder("<bandwidth>\n");
+        if (positive(limits.getInboundKBps())) {
+            xml.append("                <inbound average='").append(limits.getInboundKBps()).append("'/>\n");
+        }
+        if (positive(limits.getOutboundKBps())) {
+            xml.append("                <outbound average='").append(limits.getOutboundKBps()).append("'/>\n");
+        }
+        return xml.append("            </bandwidth>\n            ").toString();
+    }
+
+    /**
+     * 从domain XML读取限速，没有配置的项为null
+     */
+    public static QosLimits parse(String xml) {
+        QosLimits limits = new QosLimits();
+        if (xml == null) {
+            return limits;
+        }
+        Matcher iotune = IOTUNE_PATTERN.matcher(xml);
+        if (iotune.find()) {
+            limits.setTotalBytesSec(longValue(TOTAL_BYTES_PATTERN, iotune.group(1)));
+            limits.setTotalIopsSec(longValue(TOTAL_IOPS_PATTERN, iotune.group(1)));
+        }
+        Matcher bandwidth = BANDWIDTH_PATTERN.matcher(xml);
+        if (bandwidth.find()) {
+            Long inbound = longValue(INBOUND_PATTERN, bandwidth.group(1));
+            Long outbound = longValue(OUTBOUND_PATTERN, bandwidth.group(1));
+            limits.setInboundKBps(inbound == null ? null : inbound.intValue());
+            limits.setOutboundKBps(outbound == null ? null : outbound.intValue());
+        }
+        return limits;
+    }
+
+    /**
+     * 转换为后端限速参数：未指定的项按0（不限制）处理，即整体替换
+     */
+    public static HypervisorBackend.IoTune toIoTune(QosLimits limits) {
+        return new HypervisorBackend.IoTune(
+                orZero(limits.getTotalBytesSec()), orZero(limits.getTotalIopsSec()),
+                limits.getInboundKBps() == null ? 0 : limits.getInboundKBps(),
+                limits.getOutboundKBps() == null ? 0 : limits.getOutboundKBps());
+    }
+
+    private static Long longValue(Pattern pattern, String text) {
+        Matcher m = pattern.matcher(text);
+        return m.find() ? Long.parseLong(m.group(1)) : null;
+    }
+
+    private static long orZero(Long value) {
+        return value == null ? 0 : value;
+    }
+
+    private static boolean positive(Number value) {
+        return value != null && value.longValue() > 0;
+    }
+}
@@ -0,0 +1,58 @@
+package com.pengchengyin.vmmanagerbackend.service;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * domain XML中的vCPU与内存配置
+ * vcpu元素的值为上限，current属性为当前数量；memory为内存上限，currentMemory为当前内存。
+ *
+ * @param vcpus        当前vCPU数量
+ * @param maxVcpus     vCPU上限
+ * @param memoryKiB    当前内存（KiB）
+ * @param maxMemoryKiB 内存上限（KiB）
+ */
+public record VmSizing(int vcpus, int maxVcpus, long memoryKiB, long maxMemoryKiB) {
+
+    private static final Pattern VCPU_PATTERN = Pattern.compile("<vcpu[^>]*>(\\d+)</vcpu>");
+    private static final Pattern VCPU_CURRENT_PATTERN = Pattern.compile("<vcpu[^>]*\\scurrent=['\"](\\d+)['\"]");
+    private static final Pattern MEMORY_PATTERN = Pattern.compile("<memory(?:\\s+unit=['\"](\\w+)['\"])?[^>]*>(\\d+)</memory>");
+    private static final Pattern CURRENT_MEMORY_PATTERN = Pattern.compile("<currentMemory(?:\\s+unit=['\"](\\w+)['\"])?[^>]*>(\\d+)</currentMemory>");
+
+    /**
+     * 解析domain XML，缺少的元素按libvirt默认值处理（current缺省等于上限）
+     */
+    public static VmSizing parse(String xml) {
+        if (xml == null) {
+            throw new IllegalStateException("无法读取虚拟机配置");
+        }
+        Matcher vcpu = VCPU_PATTERN.matcher(xml);
+        int maxVcpus = vcpu.find() ? Integer.parseInt(vcpu.group(1)) : 1;
+        Matcher current = VCPU_CURRENT_PATTERN.matcher(xml);
+        int vcpus = current.find() ? Integer.parseInt(current.group(1)) : maxVcpus;
+        long maxMemoryKiB = kiB(MEMORY_PATTERN.matcher(xml), 0);
+        long memoryKiB = kiB(CURRENT_MEMORY_PATTERN.matcher(xml), maxMemoryKiB);
+        return new VmSizing(vcpus, maxVcpus, memoryKiB, maxMemoryKiB);
+    }
+
+    /**
+     * 新建虚拟机的上限：按倍数预留余量，不超过上限值，且不小于请求值
+     */
+    public static long headroom(long requested, double ratio, long cap) {
+        return Math.max(requested, Math.min(cap, (long) Math.ceil(requested * ratio)));
+    }
+
+    private static long kiB(Matcher m, long defaultKiB) {
+        if (!m.find()) {
+            return defaultKiB;
+        }
+        long value = Long.parseLong(m.group(2));
+        String unit = m.group(1) == null ? "KiB" : m.group(1);
+        return switch (unit) {
+            case "b", "bytes" -> value / 1024;
+            case "M", "MiB" -> value * 1024;
+            case "G", "GiB" -> value * 1024 * 1024;
+            default -> value;
+        };
+    }
+}
@@ -0,0 +1,603 @@
+package com.pengchengyin.vmmanagerbackend.service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.libvirt.LibvirtException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import com.pengchengyin.vmmanagerbackend.config.VmTransferConfig;
+import com.pengchengyin.vmmanagerbackend.model.VmInfo;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 虚拟机导入/导出服务
+ * 归档格式为 tar：第一个条目是 domain.xml，其后依次为 disks/{序号}-{文件名}，序号与磁盘的对应关系见 {@link ArchiveDisks}。
+ * 磁盘数据全程通过通道和直接缓冲区流式传输，不在堆中缓存镜像内容。
+ * 归档只包含每个磁盘的顶层镜像，带后备链的磁盘（如链接克隆的qcow2覆盖卷）拒绝导出。
+ */
+@Slf4j
+@Service
+public class VmTransferService {
+
+    static final String DOMAIN_XML_ENTRY = "domain.xml";
+    static final String DISK_ENTRY_PREFIX = "disks/";
+
+    private static final int SPARSE_BLOCK = 4096;
+    private static final int MAX_DOMAIN_XML_SIZE = 1024 * 1024;
+
+    @Autowired
+    private HypervisorBackend hypervisor;
+
+    @Autowired
+    private VirtualMachineService vmService;
+
+    @Autowired
+    private VmTransferConfig transferConfig;
+
+    private final Map<String, ImportSession> importSessions = new ConcurrentHashMap<>();
+
+    /**
+     * 生成导出计划：确定归档中每个条目的名称和大小，从而得到固定的归档总长度
+     */
+    public ExportPlan prepareExport(String name) throws LibvirtException {
+        if (hypervisor.getDomain(name).active()) {
+            throw new IllegalStateException("虚拟机 " + name + " 正在运行，请先关闭后再导出");
+        }
+
+        // 导出持久化配置而不是运行时配置
+        String definition = hypervisor.findDefinitionXml(name);
+        if (definition == null) {
+            throw new IllegalStateException("虚拟机 " + name + " 的持久化配置不存在");
+        }
+        byte[] xml = definition.getBytes(StandardCharsets.UTF_8);
+        List<ArchiveDisks.Disk> disks = ArchiveDisks.parse(definition).disks();
+
+        List<ArchiveEntry> entries = new ArrayList<>();
+        entries.add(ArchiveEntry.inMemory(DOMAIN_XML_ENTRY, xml));
+        // 实体标签：配置内容、各磁盘的条目名、大小和修改时间，任一变化时断点续传需要重新开始
+        MessageDigest digest = sha256();
+        digest.update(xml);
+
+        for (int i = 0; i < disks.size(); i++) {
+            ArchiveDisks.Disk disk = disks.get(i);
+            String diskPath = disk.path();
+            if (disk.backing() != null) {
+                throw backingChain(name, disk, disk.backing());
+            }
+            String entryName = DISK_ENTRY_PREFIX + i + "-" + Paths.get(diskPath).getFileName();
+            Path local = Paths.get(diskPath);
+            if (Files.isReadable(local)) {
+                try {
+                    if (ArchiveDisks.hasBackingFile(local)) {
+                        throw backingChain(name, disk, null);
+                    }
+                    entries.add(ArchiveEntry.localFile(entryName, local, Files.size(local)));
+                    digest.update((entryName + ":" + Files.size(local) + ":"
+                            + Files.getLastModifiedTime(local).toMillis()).getBytes(StandardCharsets.UTF_8));
+                } catch (IOException e) {
+                    throw new IllegalStateException("无法读取磁盘文件大小: " + diskPath, e);
+                }
+            } else {
+                // 磁盘不在本机（例如 qemu+ssh 远程连接），通过Hypervisor后端的存储卷流下载
+                HypervisorBackend.VolumeSnapshot vol = hypervisor.getVolumeByPath(diskPath);
+                if (vol.backing() != null) {
+                    throw backingChain(name, disk, vol.backing());
+                }
+                long length = vol.physical();
+                entries.add(ArchiveEntry.volume(entryName, diskPath, length));
+                // 远程存储卷取不到修改时间，按分配量近似
+                digest.update((entryName + ":" + length + ":" + vol.allocation()).getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        String etag = "\"" + HexFormat.of().formatHex(digest.digest(), 0, 16) + "\"";
+        return new ExportPlan(name, entries, etag);
+    }
+
+    /**
+     * 归档只携带顶层镜像，带后备链的磁盘导入后无法使用，需先合并为独立镜像
+     */
+    private static IllegalStateException backingChain(String name, ArchiveDisks.Disk disk, String backing) {
+        String device = disk.target() != null ? disk.target() : disk.path();
+        return new IllegalStateException("虚拟机 " + name + " 的磁盘 " + device + " 有后备链"
+                + (backing != null ? "（后备文件 " + backing + "）" : "")
+                + "，归档只包含顶层镜像；请先用 qemu-img convert 合并为独立镜像后再导出");
+    }
+
+    /**
+     * 从归档的指定偏移开始写出导出内容，用于支持 Range 断点续传
+     */
+    public void writeExport(ExportPlan plan, long offset, OutputStream out) throws IOException {
+        WritableByteChannel target = Channels.newChannel(out);
+        long pos = 0;
+        for (ArchiveEntry entry : plan.getEntries()) {
+            pos = writeBytes(TarFormat.header(entry.getName(), entry.getSize()), pos, offset, target);
+            long skip = Math.max(0, offset - pos);
+            if (skip < entry.getSize()) {
+                writeEntryData(entry, skip, target);
+            }
+            pos += entry.getSize();
+            pos = writeBytes(new byte[(int) TarFormat.padding(entry.getSize())], pos, offset, target);
+        }
+        writeBytes(new byte[TarFormat.BLOCK * 2], pos, offset, target);
+        log.info("虚拟机 {} 导出完成，起始偏移 {}，总长度 {}", plan.getVmName(), offset, plan.getTotalLength());
+    }
+
+    private long writeBytes(byte[] data, long pos, long offset, WritableByteChannel target) throws IOException {
+        long end = pos + data.length;
+        if (end > offset) {
+            int skip = (int) Math.max(0, offset - pos);
+            ByteBuffer buffer = ByteBuffer.wrap(data, skip, data.length - skip);
+            while (buffer.hasRemaining()) {
+                target.write(buffer);
+            }
+        }
+        return end;
+    }
+
+    private void writeEntryData(ArchiveEntry entry, long skip, WritableByteChannel target) throws IOException {
+        if (entry.getContent() != null) {
+            writeBytes(entry.getContent(), 0, skip, target);
+        } else if (entry.getFile() != null) {
+            try (FileChannel channel = FileChannel.open(entry.getFile(), StandardOpenOption.READ)) {
+                long position = skip;
+                while (position < entry.getSize()) {
+                    long n = channel.transferTo(position, entry.getSize() - position, target);
+                    if (n <= 0) {
+                        throw new IOException("磁盘文件在导出过程中被截断: " + entry.getFile());
+                    }
+                    position += n;
+                }
+            }
+        } else {
+            downloadVolume(entry, skip, target);
+        }
+    }
+
+    private void downloadVolume(ArchiveEntry entry, long skip, WritableByteChannel target) throws IOException {
+        try {
+            hypervisor.downloadVolume(entry.getVolumePath(), skip, entry.getSize() - skip, target,
+                    transferConfig.getChunkSize());
+        } catch (LibvirtException e) {
+            throw new IOException("下载存储卷失败: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 接收导入归档数据
+     * sessionId 不存在时以偏移0新建会话（为空则自动生成）；传输中断后携带同一 sessionId 和已接收偏移继续上传剩余部分
+     */
+    public ImportStatus importArchive(String sessionId, long offset, InputStream in) throws IOException, LibvirtException {
+        expireSessions();
+        String id = sessionId == null || sessionId.isEmpty() ? UUID.randomUUID().toString() : sessionId;
+        ImportSession session = importSessions.get(id);
+        if (session == null) {
+            if (offset != 0) {
+                throw new IllegalArgumentException("导入会话不存在或已过期: " + id);
+            }
+            session = importSessions.computeIfAbsent(id, ImportSession::new);
+        }
+
+        if (!session.lock.tryLock()) {
+            throw new IllegalStateException("导入会话正在接收数据: " + session.getId());
+        }
+        try {
+            if (offset != session.received) {
+                throw new IllegalStateException("偏移不匹配，期望从 " + session.received + " 继续上传");
+            }
+            ReadableByteChannel source = Channels.newChannel(in);
+            ByteBuffer buffer = ByteBuffer.allocateDirect(transferConfig.getChunkSize());
+            try {
+                while (session.phase != Phase.END && source.read(buffer) >= 0) {
+                    buffer.flip();
+                    consume(session, buffer);
+                    buffer.clear();
+                }
+            } catch (RuntimeException | LibvirtException e) {
+                // 归档内容本身有问题，续传也无法恢复，直接放弃会话
+                discardSession(session);
+                throw e;
+            } finally {
+                session.closeChannel();
+                session.lastActive = System.currentTimeMillis();
+            }
+
+            if (session.phase == Phase.END) {
+                VmInfo vm;
+                try {
+                    vm = defineImportedDomain(session);
+                } catch (RuntimeException | LibvirtException e) {
+                    discardSession(session);
+                    throw e;
+                }
+                importSessions.remove(session.getId());
+                return new ImportStatus(session.getId(), session.received, true, vm);
+            }
+            log.info("导入会话 {} 数据未结束，已接收 {} 字节，可续传", session.getId(), session.received);
+            return new ImportStatus(session.getId(), session.received, false, null);
+        } finally {
+            session.lock.unlock();
+        }
+    }
+
+    /**
+     * 查询导入会话进度，用于确定续传偏移
+     */
+    public ImportStatus getImportStatus(String sessionId) {
+        ImportSession session = importSessions.get(sessionId);
+        if (session == null) {
+            return null;
+        }
+        return new ImportStatus(session.getId(), session.received, false, null);
+    }
+
+    private void consume(ImportSession s, ByteBuffer buffer) throws IOException, LibvirtException {
+        while (buffer.hasRemaining()) {
+            switch (s.phase) {
+                case HEADER -> {
+                    int n = Math.min(buffer.remaining(), TarFormat.BLOCK - s.headerFill);
+                    buffer.get(s.header, s.headerFill, n);
+                    s.headerFill += n;
+                    s.received += n;
+                    if (s.headerFill == TarFormat.BLOCK) {
+                        s.headerFill = 0;
+                        onHeader(s);
+                    }
+                }
+                case DATA -> {
+                    int n = (int) Math.min(buffer.remaining(), s.entryRemaining);
+                    ByteBuffer slice = buffer.slice(buffer.position(), n);
+                    writeImportData(s, slice);
+                    buffer.position(buffer.position() + n);
+                    s.entryRemaining -= n;
+                    s.received += n;
+                    if (s.entryRemaining == 0) {
+                        finishEntry(s);
+                    }
+                }
+                case PADDING -> {
+                    int n = (int) Math.min(buffer.remaining(), s.paddingRemaining);
+                    buffer.position(buffer.position() + n);
+                    s.paddingRemaining -= n;
+                    s.received += n;
+                    if (s.paddingRemaining == 0) {
+                        s.phase = Phase.HEADER;
+                    }
+                }
+                case END -> {
+                    s.received += buffer.remaining();
+                    buffer.position(buffer.limit());
+                }
+            }
+        }
+    }
+
+    private void onHeader(ImportSession s) throws IOException, LibvirtException {
+        if (TarFormat.isZeroBlock(s.header)) {
+            if (++s.zeroBlocks == 2) {
+                s.phase = Phase.END;
+            }
+            return;
+        }
+        s.zeroBlocks = 0;
+        String entryName = TarFormat.parseName(s.header);
+        s.entrySize = TarFormat.parseSize(s.header);
+        s.entryRemaining = s.entrySize;
+        s.entryTarget = null;
+        s.entryIsXml = false;
+
+        if (!TarFormat.isRegularFile(s.header)) {
+            log.debug("忽略归档中的非普通文件条目: {}", entryName);
+        } else if (DOMAIN_XML_ENTRY.equals(entryName)) {
+            if (s.entrySize > MAX_DOMAIN_XML_SIZE) {
+                throw new IllegalArgumentException("domain.xml 过大");
+            }
+            s.entryIsXml = true;
+            s.domainXml = new ByteArrayOutputStream((int) s.entrySize);
+        } else if (entryName.startsWith(DISK_ENTRY_PREFIX)) {
+            if (s.domain == null) {
+                throw new IllegalArgumentException("domain.xml 必须是归档中的第一个条目");
+            }
+            if (s.disks.size() >= s.domain.disks().size()) {
+                throw new IllegalArgumentException("归档中的磁盘条目多于 domain.xml 引用的磁盘文件: " + entryName);
+            }
+            s.entryTarget = createImportTarget(entryName, s.disks.size());
+            s.disks.add(s.entryTarget);
+        } else {
+            log.debug("忽略归档中的未知条目: {}", entryName);
+        }
+
+        s.phase = Phase.DATA;
+        if (s.entryRemaining == 0) {
+            finishEntry(s);
+        }
+    }
+
+    /**
+     * 磁盘条目按导出时的序号依次出现，第index个条目对应domain.xml中的第index个磁盘文件
+     */
+    private Path createImportTarget(String entryName, int index) throws IOException {
+        String fileName = entryName.substring(DISK_ENTRY_PREFIX.length());
+        int dash = fileName.indexOf('-');
+        if (dash <= 0 || !fileName.substring(0, dash).equals(String.valueOf(index))) {
+            throw new IllegalArgumentException("磁盘条目 " + entryName + " 的序号不正确，期望 " + index);
+        }
+        fileName = fileName.substring(dash + 1);
+        Path dir = Paths.get(transferConfig.getImportDir());
+        Path target = dir.resolve(Paths.get(fileName).getFileName()).normalize();
+        if (!target.startsWith(dir.normalize())) {
+            throw new IllegalArgumentException("非法的磁盘条目名称: " + entryName);
+        }
+        Files.createDirectories(dir);
+        // 不覆盖已存在的镜像，避免误删宿主机上的磁盘
+        try {
+            Files.createFile(target);
+        } catch (FileAlreadyExistsException e) {
+            throw new IllegalStateException("目标磁盘文件已存在: " + target);
+        }
+        return target;
+    }
+
+    /**
+     * 写入磁盘条目数据：全零块直接跳过，保留目标文件中的空洞（稀疏文件）
+     */
+    private void writeImportData(ImportSession s, ByteBuffer data) throws IOException {
+        if (s.entryIsXml) {
+            byte[] bytes = new byte[data.remaining()];
+            data.get(bytes);
+            s.domainXml.write(bytes, 0, bytes.length);
+            return;
+        }
+        if (s.entryTarget == null) {
+            return;
+        }
+        FileChannel channel = s.openChannel();
+        long position = s.entrySize - s.entryRemaining;
+        int runStart = -1;
+        for (int off = 0; off < data.limit(); off += SPARSE_BLOCK) {
+            int end = Math.min(off + SPARSE_BLOCK, data.limit());
+            boolean zero = isZero(data, off, end);
+            if (!zero && runStart < 0) {
+                runStart = off;
+            } else if (zero && runStart >= 0) {
+                writeFully(channel, data.slice(runStart, off - runStart), position + runStart);
+                runStart = -1;
+            }
+        }
+        if (runStart >= 0) {
+            writeFully(channel, data.slice(runStart, data.limit() - runStart), position + runStart);
+        }
+    }
+
+    private void finishEntry(ImportSession s) throws IOException, LibvirtException {
+        if (s.entryIsXml) {
+            s.domain = ArchiveDisks.parse(s.domainXml.toString(StandardCharsets.UTF_8));
+            if (hypervisor.findDomain(s.domain.name()) != null) {
+                throw new IllegalStateException("虚拟机已存在: " + s.domain.name());
+            }
+            for (ArchiveDisks.Disk disk : s.domain.disks()) {
+                if (disk.backing() != null) {
+                    throw new IllegalArgumentException("domain.xml 中的磁盘 " + disk.path() + " 引用了后备文件 "
+                            + disk.backing() + "，归档中不包含后备链");
+                }
+            }
+        } else if (s.entryTarget != null && s.entrySize > 0) {
+            // 末尾是空洞时补齐文件长度
+            FileChannel channel = s.openChannel();
+            if (channel.size() < s.entrySize) {
+                writeFully(channel, ByteBuffer.allocate(1), s.entrySize - 1);
+            }
+        }
+        s.closeChannel();
+        s.paddingRemaining = TarFormat.padding(s.entrySize);
+        s.phase = s.paddingRemaining > 0 ? Phase.PADDING : Phase.HEADER;
+    }
+
+    private VmInfo defineImportedDomain(ImportSession s) throws LibvirtException {
+        if (s.domain == null) {
+            throw new IllegalArgumentException("归档中缺少 domain.xml");
+        }
+        // 将XML中的磁盘路径替换为导入后的路径，磁盘条目数必须与XML中的磁盘文件数一致
+        String xml = s.domain.withPaths(s.disks);
+        // 经Hypervisor后端定义：记录操作日志、更新标签索引并发出DEFINED事件
+        VmInfo vm = vmService.defineVmXml(s.domain.name(), xml);
+        log.info("虚拟机 {} 导入完成，共 {} 个磁盘", vm.getName(), s.disks.size());
+        return vm;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256不可用", e);
+        }
+    }
+
+    private void expireSessions() {
+        long deadline = System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(transferConfig.getSessionTtlMinutes());
+        importSessions.values().removeIf(s -> {
+            if (s.lastActive >= deadline || !s.lock.tryLock()) {
+                return false;
+            }
+            try {
+                deleteImportedDisks(s);
+                log.info("导入会话 {} 已过期，已清理未完成的磁盘文件", s.getId());
+            } finally {
+                s.lock.unlock();
+            }
+            return true;
+        });
+    }
+
+    private void discardSession(ImportSession s) {
+        importSessions.remove(s.getId());
+        deleteImportedDisks(s);
+    }
+
+    private void deleteImportedDisks(ImportSession s) {
+        try {
+            s.closeChannel();
+            for (Path disk : s.disks) {
+                Files.deleteIfExists(disk);
+            }
+        } catch (IOException e) {
+            log.warn("清理导入会话 {} 的磁盘文件失败: {}", s.getId(), e.getMessage());
+        }
+    }
+
+    private static boolean isZero(ByteBuffer data, int from, int to) {
+        int i = from;
+        for (; i + Long.BYTES <= to; i += Long.BYTES) {
+            if (data.getLong(i) != 0) {
+                return false;
+            }
+        }
+        for (; i < to; i++) {
+            if (data.get(i) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer data, long position) throws IOException {
+        while (data.hasRemaining()) {
+            position += channel.write(data, position);
+        }
+    }
+
+    private enum Phase {
+        HEADER, DATA, PADDING, END
+    }
+
+    /**
+     * 导入会话状态：tar 解析状态机可在任意字节处暂停，续传时从 received 偏移继续
+     */
+    private static class ImportSession {
+        @Getter
+        private final String id;
+        private final ReentrantLock lock = new ReentrantLock();
+        private final byte[] header = new byte[TarFormat.BLOCK];
+        private final List<Path> disks = new ArrayList<>();
+        private Phase phase = Phase.HEADER;
+        private long received;
+        private int headerFill;
+        private int zeroBlocks;
+        private long entrySize;
+        private long entryRemaining;
+        private long paddingRemaining;
+        private boolean entryIsXml;
+        private Path entryTarget;
+        private FileChannel channel;
+        private ByteArrayOutputStream domainXml;
+        private ArchiveDisks domain;
+        private volatile long lastActive = System.currentTimeMillis();
+
+        ImportSession(String id) {
+            this.id = id;
+        }
+
+        FileChannel openChannel() throws IOException {
+            if (channel == null) {
+                channel = FileChannel.open(entryTarget, StandardOpenOption.WRITE);
+            }
+            return channel;
+        }
+
+        void closeChannel() throws IOException {
+            if (channel != null) {
+                channel.close();
+                channel = null;
+            }
+        }
+    }
+
+    /**
+     * 导出计划
+     */
+    @Getter
+    public static class ExportPlan {
+        private final String vmName;
+        private final List<ArchiveEntry> entries;
+        private final long totalLength;
+        /**
+         * 强实体标签（带引号），用于 If-Range 判断续传的是否为同一份归档
+         */
+        private final String etag;
+
+        ExportPlan(String vmName, List<ArchiveEntry> entries, String etag) {
+            this.vmName = vmName;
+            this.entries = entries;
+            this.etag = etag;
+            long total = 0;
+            for (ArchiveEntry entry : entries) {
+                total += TarFormat.BLOCK + entry.getSize() + TarFormat.padding(entry.getSize());
+            }
+            this.totalLength = total + TarFormat.BLOCK * 2L;
+        }
+    }
+
+    /**
+     * 归档条目：内存数据、本地文件或libvirt存储卷三选一
+     */
+    @Getter
+    public static class ArchiveEntry {
+        private final String name;
+        private final long size;
+        private final byte[] content;
+        private final Path file;
+        private final String volumePath;
+
+        private ArchiveEntry(String name, long size, byte[] content, Path file, String volumePath) {
+            this.name = name;
+            this.size = size;
+            this.content = content;
+            this.file = file;
+            this.volumePath = volumePath;
+        }
+
+        static ArchiveEntry inMemory(String name, byte[] content) {
+            return new ArchiveEntry(name, content.length, content, null, null);
+        }
+
+        static ArchiveEntry localFile(String name, Path file, long size) {
+            return new ArchiveEntry(name, size, null, file, null);
+        }
+
+        static ArchiveEntry volume(String name, String volumePath, long size) {
+            return new ArchiveEntry(name, size, null, null, volumePath);
+        }
+    }
+
+    /**
+     * 导入结果/进度
+     */
+    public record ImportStatus(String sessionId, long received, boolean completed, VmInfo vm) {
+    }
+}
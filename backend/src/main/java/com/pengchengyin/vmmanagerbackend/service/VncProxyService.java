@@ -0,0 +1,455 @@
+package com.pengchengyin.vmmanagerbackend.service;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.libvirt.LibvirtException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.adapter.NativeWebSocketSession;
+
+import com.pengchengyin.vmmanagerbackend.config.LibvirtConfig;
+import com.pengchengyin.vmmanagerbackend.config.VncProxyConfig;
+import com.pengchengyin.vmmanagerbackend.model.VmInfo;
+import com.pengchengyin.vmmanagerbackend.model.VncSessionInfo;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * VNC WebSocket代理服务
+ * 所有会话的VNC端socket都注册在少量Selector线程上（非阻塞NIO），不为每个会话分配线程。
+ * VNC到客户端方向：每个会话一个直接缓冲区，读到数据后通过WebSocket异步发送，发送完成前暂停读取（背压），
+ * 发送完成后复用同一缓冲区，不产生逐帧的堆拷贝。
+ * 客户端到VNC方向：WebSocket负载直接写入socket，只有socket写满时才把剩余部分放入积压队列。
+ */
+@Slf4j
+@Service
+public class VncProxyService {
+
+    @Autowired
+    private VirtualMachineService vmService;
+
+    @Autowired
+    private VncProxyConfig proxyConfig;
+
+    @Autowired
+    private LibvirtConfig libvirtConfig;
+
+    @Autowired
+    private HypervisorBackend hypervisor;
+
+    private final Map<String, ProxySession> sessions = new ConcurrentHashMap<>();
+    private final List<SelectorLoop> loops = new ArrayList<>();
+    private final AtomicInteger nextLoop = new AtomicInteger();
+    private final AtomicLong totalSessions = new AtomicLong();
+
+    @PostConstruct
+    public void start() throws IOException {
+        if (!proxyConfig.isEnabled()) {
+            return;
+        }
+        if (!isEnabled()) {
+            log.info("{} 后端的虚拟机没有VNC图形端口，VNC代理不启动", hypervisor.getType());
+            return;
+        }
+        for (int i = 0; i < Math.max(1, proxyConfig.getSelectorThreads()); i++) {
+            SelectorLoop loop = new SelectorLoop(Selector.open());
+            Thread thread = new Thread(loop, "vnc-proxy-" + i);
+            thread.setDaemon(true);
+            loop.thread = thread;
+            thread.start();
+            loops.add(loop);
+        }
+        log.info("VNC代理已启动，Selector线程数: {}", loops.size());
+    }
+
+    @PreDestroy
+    public void stop() {
+        for (ProxySession session : sessions.values()) {
+            session.close("服务关闭");
+        }
+        for (SelectorLoop loop : loops) {
+            loop.shutdown();
+        }
+    }
+
+    /**
+     * VNC代理是否可用：只有libvirt后端的虚拟机有可连接的VNC端口
+     */
+    public boolean isEnabled() {
+        return proxyConfig.isEnabled() && "libvirt".equals(hypervisor.getType());
+    }
+
+    /**
+     * 各Selector线程距上次完成一轮循环的时间（毫秒），线程已退出时为-1
+     */
+    public Map<String, Long> getLoopLagMs() {
+        Map<String, Long> lags = new LinkedHashMap<>();
+        long now = System.currentTimeMillis();
+        for (SelectorLoop loop : loops) {
+            lags.put(loop.thread.getName(), loop.thread.isAlive() ? now - loop.lastLoopAt : -1);
+        }
+        return lags;
+    }
+
+    /**
+     * 根据虚拟机的graphics配置确定VNC目标地址
+     */
+    public InetSocketAddress resolveTarget(String vmName) throws LibvirtException {
+        if (!isEnabled()) {
+            throw new IllegalStateException("VNC代理未启用，或当前Hypervisor后端（" + hypervisor.getType() + "）不提供VNC控制台");
+        }
+        VmInfo vm = vmService.getVmByName(vmName);
+        if (vm.getVncPort() == null || vm.getVncPort() <= 0) {
+            throw new IllegalStateException("虚拟机 " + vmName + " 未运行或未配置VNC");
+        }
+        String host = vm.getVncHost();
+        if (host == null || host.isBlank() || "0.0.0.0".equals(host) || "::".equals(host)) {
+            host = proxyConfig.getDefaultHost();
+        }
+        if (host == null || host.isBlank()) {
+            // qemu+ssh://user@host/system 等远程连接时VNC监听在libvirt所在主机上
+            String uriHost = URI.create(libvirtConfig.getConnection().getUri()).getHost();
+            host = uriHost != null && !uriHost.isBlank() ? uriHost : "127.0.0.1";
+        }
+        return InetSocketAddress.createUnresolved(host, vm.getVncPort());
+    }
+
+    /**
+     * 为WebSocket会话建立到VNC端口的连接
+     */
+    public String open(WebSocketSession ws, String vmName, InetSocketAddress target) throws IOException {
+        jakarta.websocket.Session nativeSession =
+                ((NativeWebSocketSession) ws).getNativeSession(jakarta.websocket.Session.class);
+        if (nativeSession == null) {
+            throw new IllegalStateException("当前WebSocket容器不支持异步发送");
+        }
+        SocketChannel channel = SocketChannel.open();
+        channel.configureBlocking(false);
+        channel.socket().setTcpNoDelay(true);
+        channel.connect(new InetSocketAddress(target.getHostString(), target.getPort()));
+
+        SelectorLoop loop = loops.get(Math.floorMod(nextLoop.getAndIncrement(), loops.size()));
+        ProxySession session = new ProxySession(UUID.randomUUID().toString(), vmName, ws, nativeSession,
+                channel, target, loop);
+        sessions.put(session.id, session);
+        totalSessions.incrementAndGet();
+        loop.register(session);
+        log.info("VNC代理会话 {} 已建立: 虚拟机 {} -> {}", session.id, vmName, target);
+        return session.id;
+    }
+
+    /**
+     * 客户端数据写往VNC
+     */
+    public void toVnc(String sessionId, ByteBuffer payload) {
+        ProxySession session = sessions.get(sessionId);
+        if (session != null) {
+            session.writeToVnc(payload);
+        }
+    }
+
+    public void close(String sessionId, String reason) {
+        ProxySession session = sessions.get(sessionId);
+        if (session != null) {
+            session.close(reason);
+        }
+    }
+
+    /**
+     * 当前会话及带宽统计
+     */
+    public List<VncSessionInfo> listSessions() {
+        List<VncSessionInfo> result = new ArrayList<>();
+        for (ProxySession s : sessions.values()) {
+            result.add(s.toInfo());
+        }
+        return result;
+    }
+
+    public long getTotalSessions() {
+        return totalSessions.get();
+    }
+
+    /**
+     * 单个Selector线程，负责一组会话的连接、读取和积压写出
+     */
+    private class SelectorLoop implements Runnable {
+        private final Selector selector;
+        private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+        private final List<ProxySession> connecting = new ArrayList<>();
+        private volatile boolean running = true;
+        private volatile long lastLoopAt = System.currentTimeMillis();
+        private Thread thread;
+
+        SelectorLoop(Selector selector) {
+            this.selector = selector;
+        }
+
+        void execute(Runnable task) {
+            tasks.add(task);
+            selector.wakeup();
+        }
+
+        void register(ProxySession session) {
+            execute(() -> {
+                try {
+                    session.key = session.channel.register(selector, SelectionKey.OP_CONNECT, session);
+                    connecting.add(session);
+                } catch (IOException e) {
+                    session.close("注册VNC连接失败: " + e.getMessage());
+                }
+            });
+        }
+
+        void shutdown() {
+            running = false;
+            selector.wakeup();
+        }
+
+        @Override
+        public void run() {
+            while (running) {
+                try {
+                    selector.select(1000);
+                    Runnable task;
+                    while ((task = tasks.poll()) != null) {
+                        task.run();
+                    }
+                    for (SelectionKey key : selector.selectedKeys()) {
+                        ProxySession session = (ProxySession) key.attachment();
+                        if (!key.isValid()) {
+                            continue;
+                        }
+                        try {
+                            if (key.isConnectable()) {
+                                session.finishConnect();
+                            }
+                            if (key.isValid() && key.isReadable()) {
+                                session.readFromVnc();
+                            }
+                            if (key.isValid() && key.isWritable()) {
+                                session.flushPending();
+                            }
+                        } catch (IOException | RuntimeException e) {
+                            session.close("VNC连接异常: " + e.getMessage());
+                        }
+                    }
+                    selector.selectedKeys().clear();
+                    expireConnecting();
+                    lastLoopAt = System.currentTimeMillis();
+                } catch (IOException | RuntimeException e) {
+                    log.error("VNC代理Selector异常: {}", e.getMessage(), e);
+                }
+            }
+            try {
+                selector.close();
+            } catch (IOException e) {
+                log.debug("关闭Selector失败: {}", e.getMessage());
+            }
+        }
+
+        private void expireConnecting() {
+            long now = System.currentTimeMillis();
+            connecting.removeIf(s -> {
+                if (s.closed.get() || s.channel.isConnected()) {
+                    return true;
+                }
+                if (now - s.startedAt > proxyConfig.getConnectTimeoutMs()) {
+                    s.close("连接VNC超时");
+                    return true;
+                }
+                return false;
+            });
+        }
+    }
+
+    private class ProxySession {
+        private final String id;
+        private final String vmName;
+        private final WebSocketSession ws;
+        private final jakarta.websocket.Session nativeSession;
+        private final SocketChannel channel;
+        private final InetSocketAddress target;
+        private final SelectorLoop loop;
+        private final ByteBuffer readBuffer;
+        private final Deque<ByteBuffer> pending = new ArrayDeque<>();
+        private final AtomicBoolean closed = new AtomicBoolean();
+        private final AtomicLong bytesToClient = new AtomicLong();
+        private final AtomicLong bytesToVnc = new AtomicLong();
+        private final long startedAt = System.currentTimeMillis();
+        private long pendingBytes;
+        private SelectionKey key;
+
+        ProxySession(String id, String vmName, WebSocketSession ws, jakarta.websocket.Session nativeSession,
+                     SocketChannel channel, InetSocketAddress target, SelectorLoop loop) {
+            this.id = id;
+            this.vmName = vmName;
+            this.ws = ws;
+            this.nativeSession = nativeSession;
+            this.channel = channel;
+            this.target = target;
+            this.loop = loop;
+            this.readBuffer = ByteBuffer.allocateDirect(proxyConfig.getBufferSize());
+        }
+
+        void finishConnect() throws IOException {
+            if (channel.finishConnect()) {
+                int ops = SelectionKey.OP_READ;
+                synchronized (pending) {
+                    if (!pending.isEmpty()) {
+                        ops |= SelectionKey.OP_WRITE;
+                    }
+                }
+                key.interestOps(ops);
+            }
+        }
+
+        /**
+         * Selector线程：读取VNC数据并异步发给客户端，发送完成前不再读取
+         */
+        void readFromVnc() throws IOException {
+            int n = channel.read(readBuffer);
+            if (n < 0) {
+                close("VNC服务端关闭连接");
+                return;
+            }
+            if (n == 0) {
+                return;
+            }
+            readBuffer.flip();
+            key.interestOpsAnd(~SelectionKey.OP_READ);
+            bytesToClient.addAndGet(n);
+            nativeSession.getAsyncRemote().sendBinary(readBuffer, result -> {
+                if (!result.isOK()) {
+                    close("发送到客户端失败: " + result.getException());
+                    return;
+                }
+                loop.execute(() -> {
+                    readBuffer.clear();
+                    if (key.isValid()) {
+                        key.interestOpsOr(SelectionKey.OP_READ);
+                    }
+                });
+            });
+        }
+
+        /**
+         * WebSocket线程：直接写socket，写不完的部分进入积压队列由Selector线程写出
+         */
+        void writeToVnc(ByteBuffer payload) {
+            int size = payload.remaining();
+            synchronized (pending) {
+                try {
+                    if (pending.isEmpty() && channel.isConnected()) {
+                        while (payload.hasRemaining() && channel.write(payload) > 0) {
+                            // 继续写直到socket缓冲区满
+                        }
+                    }
+                } catch (IOException e) {
+                    close("写入VNC失败: " + e.getMessage());
+                    return;
+                }
+                bytesToVnc.addAndGet(size - payload.remaining());
+                if (!payload.hasRemaining()) {
+                    return;
+                }
+                pendingBytes += payload.remaining();
+                if (pendingBytes > proxyConfig.getMaxPendingBytes()) {
+                    close("VNC端积压数据超过上限");
+                    return;
+                }
+                ByteBuffer copy = ByteBuffer.allocate(payload.remaining());
+                copy.put(payload).flip();
+                pending.addLast(copy);
+            }
+            loop.execute(() -> {
+                if (key != null && key.isValid() && channel.isConnected()) {
+                    key.interestOpsOr(SelectionKey.OP_WRITE);
+                }
+            });
+        }
+
+        void flushPending() throws IOException {
+            synchronized (pending) {
+                while (!pending.isEmpty()) {
+                    ByteBuffer head = pending.peekFirst();
+                    int written = channel.write(head);
+                    pendingBytes -= written;
+                    bytesToVnc.addAndGet(written);
+                    if (head.hasRemaining()) {
+                        return;
+                    }
+                    pending.removeFirst();
+                }
+                key.interestOpsAnd(~SelectionKey.OP_WRITE);
+            }
+        }
+
+        void close(String reason) {
+            if (!closed.compareAndSet(false, true)) {
+                return;
+            }
+            sessions.remove(id);
+            if (key != null) {
+                key.cancel();
+            }
+            try {
+                channel.close();
+            } catch (IOException e) {
+                log.debug("关闭VNC连接失败: {}", e.getMessage());
+            }
+            if (ws.isOpen()) {
+                try {
+                    ws.close(CloseStatus.NORMAL.withReason(reason.length() > 100 ? reason.substring(0, 100) : reason));
+                } catch (IOException e) {
+                    log.debug("关闭WebSocket失败: {}", e.getMessage());
+                }
+            }
+            log.info("VNC代理会话 {} 已关闭（{}），发送客户端 {} 字节，发送VNC {} 字节",
+                    id, reason, bytesToClient.get(), bytesToVnc.get());
+        }
+
+        VncSessionInfo toInfo() {
+            long elapsed = Math.max(1, System.currentTimeMillis() - startedAt);
+            long sent = bytesToClient.get();
+            long backlog;
+            synchronized (pending) {
+                backlog = pendingBytes;
+            }
+            return VncSessionInfo.builder()
+                    .id(id)
+                    .vmName(vmName)
+                    .clientAddress(ws.getRemoteAddress() != null ? ws.getRemoteAddress().toString() : null)
+                    .target(target.getHostString() + ":" + target.getPort())
+                    .startedAt(startedAt)
+                    .bytesToClient(sent)
+                    .bytesToVnc(bytesToVnc.get())
+                    .clientBytesPerSecond(sent * 1000 / elapsed)
+                    .pendingBytes(backlog)
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,258 @@
+package com.pengchengyin.vmmanagerbackend.service;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.libvirt.LibvirtException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import com.pengchengyin.vmmanagerbackend.config.XmlImportConfig;
+import com.pengchengyin.vmmanagerbackend.model.XmlImportReport;
+import com.pengchengyin.vmmanagerbackend.model.XmlImportRequest;
+import com.pengchengyin.vmmanagerbackend.model.XmlImportResult;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * domain XML批量导入服务
+ * 并行解析和校验目录中的XML文件（格式、名称/UUID在文件之间及与已有虚拟机之间是否重复、磁盘路径是否存在），
+ * 再以有限并发定义校验通过的虚拟机。任一文件未通过校验不影响其他文件。
+ */
+@Slf4j
+@Service
+public class XmlImportService {
+
+    @Autowired
+    private XmlImportConfig importConfig;
+
+    @Autowired
+    private HypervisorBackend hypervisor;
+
+    @Autowired
+    private VirtualMachineService vmService;
+
+    private ExecutorService parsers;
+    private ExecutorService definers;
+
+    /**
+     * 单个文件的解析结果，file为null时errors中为解析失败的原因
+     */
+    private record Parsed(Path path, DomainXmlFile file, List<String> errors) {
+    }
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger parseSeq = new AtomicInteger();
+        parsers = Executors.newFixedThreadPool(Math.max(1, importConfig.getParseThreads()), r -> {
+            Thread t = new Thread(r, "xml-import-parse-" + parseSeq.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        AtomicInteger defineSeq = new AtomicInteger();
+        definers = Executors.newFixedThreadPool(Math.max(1, importConfig.getDefineConcurrency()), r -> {
+            Thread t = new Thread(r, "xml-import-define-" + defineSeq.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @PreDestroy
+    public void stop() {
+        parsers.shutdownNow();
+        definers.shutdownNow();
+    }
+
+    /**
+     * 导入目录中匹配的XML文件；预演模式只返回校验结果
+     */
+    public XmlImportReport importDirectory(XmlImportRequest request) throws LibvirtException {
+        long startedAt = System.currentTimeMillis();
+        List<Path> paths = listFiles(request);
+
+        List<Callable<Parsed>> parseTasks = new ArrayList<>();
+        for (Path path : paths) {
+            parseTasks.add(() -> parse(path));
+        }
+        List<Parsed> parsed = invokeAll(parsers, parseTasks);
+        checkConflicts(parsed);
+
+        List<XmlImportResult> results = new ArrayList<>();
+        List<Callable<XmlImportResult>> defineTasks = new ArrayList<>();
+        for (Parsed p : parsed) {
+            XmlImportResult result = XmlImportResult.builder()
+                    .file(p.path().getFileName().toString())
+                    .name(p.file() == null ? null : p.file().name())
+                    .uuid(p.file() == null ? null : p.file().uuid())
+                    .status(p.errors().isEmpty() ? XmlImportResult.Status.VALID : XmlImportResult.Status.INVALID)
+                    .errors(p.errors())
+                    .build();
+            results.add(result);
+            if (!request.isDryRun() && p.errors().isEmpty()) {
+                defineTasks.add(() -> define(p.file(), result));
+            }
+        }
+        invokeAll(definers, defineTasks);
+
+        XmlImportReport report = XmlImportReport.builder()
+                .directory(request.getDirectory())
+                .dryRun(request.isDryRun())
+                .total(results.size())
+                .valid((int) results.stream().filter(r -> r.getStatus() != XmlImportResult.Status.INVALID).count())
+                .invalid(count(results, XmlImportResult.Status.INVALID))
+                .defined(count(results, XmlImportResult.Status.DEFINED))
+                .failed(count(results, XmlImportResult.Status.FAILED))
+                .durationMs(System.currentTimeMillis() - startedAt)
+                .files(results)
+                .build();
+        log.info("批量导入XML{}完成: 目录={} 共{}个文件，校验通过{}，定义{}，失败{}，耗时{}ms",
+                request.isDryRun() ? "（预演）" : "", request.getDirectory(), report.getTotal(), report.getValid(),
+                report.getDefined(), report.getFailed(), report.getDurationMs());
+        return report;
+    }
+
+    private List<Path> listFiles(XmlImportRequest request) {
+        Path dir = Paths.get(request.getDirectory());
+        if (!dir.isAbsolute() || !Files.isDirectory(dir)) {
+            throw new IllegalArgumentException("目录不存在或不是绝对路径: " + request.getDirectory());
+        }
+        List<Path> paths = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, request.getPattern())) {
+            for (Path path : stream) {
+                if (Files.isRegularFile(path)) {
+                    paths.add(path);
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalArgumentException("无法读取目录 " + dir + ": " + e.getMessage());
+        }
+        if (paths.size() > importConfig.getMaxFiles()) {
+            throw new IllegalArgumentException("匹配的文件数量 " + paths.size() + " 超过上限 " + importConfig.getMaxFiles());
+        }
+        paths.sort(null);
+        return paths;
+    }
+
+    private Parsed parse(Path path) {
+        DomainXmlFile file;
+        try {
+            file = DomainXmlFile.read(path);
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            return new Parsed(path, null, new ArrayList<>(List.of(e.getMessage())));
+        }
+        List<String> errors = new ArrayList<>();
+        for (String missing : file.missingDisks()) {
+            errors.add("磁盘路径不存在: " + missing);
+        }
+        return new Parsed(path, file, errors);
+    }
+
+    /**
+     * 名称和UUID在文件之间不能重复，也不能与已有虚拟机重复（不覆盖已有虚拟机的定义）
+     */
+    private void checkConflicts(List<Parsed> parsed) throws LibvirtException {
+        Map<String, List<Parsed>> byName = new HashMap<>();
+        Map<String, List<Parsed>> byUuid = new HashMap<>();
+        for (Parsed p : parsed) {
+            if (p.file() == null) {
+                continue;
+            }
+            byName.computeIfAbsent(p.file().name(), k -> new ArrayList<>()).add(p);
+            if (p.file().uuid() != null) {
+                byUuid.computeIfAbsent(p.file().uuid().toLowerCase(), k -> new ArrayList<>()).add(p);
+            }
+        }
+        byName.forEach((name, group) -> markDuplicates(group, "名称 " + name));
+        byUuid.forEach((uuid, group) -> markDuplicates(group, "UUID " + uuid));
+
+        Set<String> existing = new HashSet<>(hypervisor.listActiveDomains());
+        existing.addAll(hypervisor.listInactiveDomains());
+        for (Parsed p : parsed) {
+            if (p.file() == null) {
+                continue;
+            }
+            if (existing.contains(p.file().name())) {
+                p.errors().add("虚拟机已存在: " + p.file().name());
+            }
+            if (p.file().uuid() != null) {
+                HypervisorBackend.DomainSnapshot owner = findByUuid(p.file().uuid());
+                if (owner != null) {
+                    p.errors().add("UUID已被虚拟机 " + owner.name() + " 使用");
+                }
+            }
+        }
+    }
+
+    private static void markDuplicates(List<Parsed> group, String what) {
+        if (group.size() < 2) {
+            return;
+        }
+        for (Parsed p : group) {
+            String others = group.stream()
+                    .filter(o -> o != p)
+                    .map(o -> o.path().getFileName().toString())
+                    .reduce((a, b) -> a + ", " + b)
+                    .orElse("");
+            p.errors().add(what + " 与 " + others + " 重复");
+        }
+    }
+
+    private HypervisorBackend.DomainSnapshot findByUuid(String uuid) throws LibvirtException {
+        try {
+            return hypervisor.getDomainByUuid(uuid);
+        } catch (LibvirtException | HypervisorException e) {
+            if (e.getMessage() != null && e.getMessage().contains("not found")) {
+                return null;
+            }
+            throw e;
+        }
+    }
+
+    private XmlImportResult define(DomainXmlFile file, XmlImportResult result) {
+        try {
+            vmService.defineVmXml(file.name(), file.xml());
+            result.setStatus(XmlImportResult.Status.DEFINED);
+        } catch (LibvirtException | RuntimeException e) {
+            log.warn("按XML文件 {} 定义虚拟机 {} 失败: {}", file.path(), file.name(), e.getMessage());
+            result.setStatus(XmlImportResult.Status.FAILED);
+            result.setErrors(List.of(e.getMessage()));
+        }
+        return result;
+    }
+
+    private static int count(List<XmlImportResult> results, XmlImportResult.Status status) {
+        return (int) results.stream().filter(r -> r.getStatus() == status).count();
+    }
+
+    private static <T> List<T> invokeAll(ExecutorService executor, List<Callable<T>> tasks) {
+        List<T> results = new ArrayList<>();
+        try {
+            for (Future<T> future : executor.invokeAll(tasks)) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("批量导入被中断", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("批量导入任务异常", e.getCause());
+        }
+        return results;
+    }
+}
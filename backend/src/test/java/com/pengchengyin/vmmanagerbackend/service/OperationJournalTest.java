@@ -0,0 +1,173 @@
+package com.pengchengyin.vmmanagerbackend.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pengchengyin.vmmanagerbackend.config.JournalConfig;
+import com.pengchengyin.vmmanagerbackend.model.JournaledOperation;
+import com.pengchengyin.vmmanagerbackend.model.OperationType;
+
+/**
+ * 操作日志的落盘与重启恢复：每个用例写入后关闭，再用新实例从同一目录恢复
+ */
+class OperationJournalTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void recoversOperationsWithoutResult() throws IOException {
+        OperationJournal journal = open();
+        long started = journal.begin(OperationType.START, "vm-a");
+        long shutdown = journal.begin(OperationType.SHUTDOWN, "vm-b");
+        long failed = journal.begin(OperationType.REBOOT, "vm-c");
+        journal.complete(shutdown);
+        journal.fail(failed, "boom");
+        journal.close();
+
+        OperationJournal reopened = open();
+        List<JournaledOperation> recovered = reopened.getRecovered();
+        assertEquals(List.of(started), opIds(recovered));
+        assertEquals(OperationType.START, recovered.get(0).getType());
+        assertEquals("vm-a", recovered.get(0).getVmName());
+        // 编号在重启后继续递增
+        assertTrue(reopened.begin(OperationType.START, "vm-d") > failed);
+        reopened.close();
+    }
+
+    @Test
+    void ignoresRecordWithBadChecksum() throws IOException {
+        OperationJournal journal = open();
+        long first = journal.begin(OperationType.START, "vm-a");
+        journal.begin(OperationType.START, "vm-b");
+        journal.close();
+
+        // 第二条记录写了一半：改动负载中的一个字节，校验和不再匹配
+        Path segment = onlySegment();
+        long second = secondRecordOffset(segment);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer b = ByteBuffer.allocate(1);
+            channel.read(b, second + 12);
+            b.put(0, (byte) (b.get(0) ^ 0xff)).rewind();
+            channel.write(b, second + 12);
+        }
+
+        OperationJournal reopened = open();
+        assertEquals(List.of(first), opIds(reopened.getRecovered()));
+        reopened.close();
+    }
+
+    @Test
+    void ignoresTruncatedTail() throws IOException {
+        OperationJournal journal = open();
+        long first = journal.begin(OperationType.START, "vm-a");
+        journal.begin(OperationType.START, "vm-b");
+        journal.close();
+
+        // 崩溃时文件只写到第二条记录的头部之后
+        Path segment = onlySegment();
+        long second = secondRecordOffset(segment);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.truncate(second + 8 + 4);
+        }
+
+        OperationJournal reopened = open();
+        assertEquals(List.of(first), opIds(reopened.getRecovered()));
+        reopened.close();
+
+        // 恢复时已把未完成的操作写入检查点，新段从空开始；这次截断在头部中间
+        OperationJournal again = open();
+        long third = again.begin(OperationType.START, "vm-c");
+        again.begin(OperationType.START, "vm-d");
+        again.close();
+        segment = onlySegment();
+        second = secondRecordOffset(segment);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.truncate(second + 3);
+        }
+        OperationJournal last = open();
+        assertEquals(List.of(first, third), opIds(last.getRecovered()));
+        last.close();
+    }
+
+    @Test
+    void recoversFromCheckpointAndLaterSegments() throws IOException {
+        OperationJournal journal = open();
+        long a = journal.begin(OperationType.START, "vm-a");
+        long b = journal.begin(OperationType.START, "vm-b");
+        long c = journal.begin(OperationType.START, "vm-c");
+        journal.complete(b);
+        journal.checkpoint();
+        // 检查点之后完成检查点中的操作，并开始新的操作
+        journal.complete(c);
+        long d = journal.begin(OperationType.SHUTDOWN, "vm-d");
+        journal.close();
+
+        // 检查点之前的段已删除，不留临时文件
+        assertEquals(1, segments().size());
+        assertTrue(Files.isRegularFile(dir.resolve("checkpoint.json")));
+        assertFalse(Files.exists(dir.resolve("checkpoint.json.tmp")));
+
+        // 写了一半的临时检查点文件不影响恢复
+        Files.write(dir.resolve("checkpoint.json.tmp"), "{\"segment\":".getBytes(StandardCharsets.UTF_8));
+
+        OperationJournal reopened = open();
+        assertEquals(List.of(a, d), opIds(reopened.getRecovered()));
+        assertTrue(reopened.begin(OperationType.START, "vm-e") > d);
+        reopened.close();
+    }
+
+    private OperationJournal open() throws IOException {
+        JournalConfig config = new JournalConfig();
+        config.setDir(dir.toString());
+        config.setSegmentSizeMb(1);
+        OperationJournal journal = new OperationJournal();
+        ReflectionTestUtils.setField(journal, "journalConfig", config);
+        ReflectionTestUtils.setField(journal, "objectMapper", new ObjectMapper());
+        journal.init();
+        return journal;
+    }
+
+    private static List<Long> opIds(List<JournaledOperation> ops) {
+        return ops.stream().map(JournaledOperation::getOpId).toList();
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(f -> f.getFileName().toString().startsWith("journal-")).sorted().toList();
+        }
+    }
+
+    private Path onlySegment() throws IOException {
+        List<Path> segments = segments();
+        assertEquals(1, segments.size());
+        return segments.get(0);
+    }
+
+    /**
+     * 第二条记录的起始偏移：[int 长度][int CRC32C][负载]
+     */
+    private static long secondRecordOffset(Path segment) throws IOException {
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(4);
+            channel.read(header, 0);
+            return 8 + header.getInt(0);
+        }
+    }
+}
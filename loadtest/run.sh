@@ -0,0 +1,50 @@
+#!/usr/bin/env bash
+# 压测/长稳测试：在libvirt test驱动上启动后端，运行压测工具，结束后停止后端。
+#
+# 用法：
+#   loadtest/run.sh [压测参数...]
+#   loadtest/run.sh --scenario dashboard --concurrency 64 --duration 5m --report base.json
+#   loadtest/run.sh --scenario mixed --report new.json --baseline base.json
+#   loadtest/run.sh --mode soak --duration 4h --soak-interval 60s --report soak.json
+#
+# 环境变量：
+#   LIBVIRT_URI   默认 test:///default，避免压测依赖真实宿主机
+#   PORT          后端端口，默认 8080
+#   JAVA_OPTS     后端JVM参数，默认 -Xmx512m（长稳测试用固定堆更容易看出泄漏）
+#   BACKEND_JAR   后端jar路径，默认 backend/target 下的jar
+set -euo pipefail
+
+PORT=${PORT:-8080}
+export LIBVIRT_URI=${LIBVIRT_URI:-test:///default}
+export LIBVIRT_DOMAIN_TYPE=${LIBVIRT_DOMAIN_TYPE:-test}
+export HOST_MONITOR_ENABLED=${HOST_MONITOR_ENABLED:-false}
+JAVA_OPTS=${JAVA_OPTS:--Xmx512m}
+WORK=$(mktemp -d)
+
+cd "$(dirname "$0")/.."
+BACKEND_JAR=${BACKEND_JAR:-$(ls backend/target/vm-manager-backend-*.jar | grep -v plain | head -n 1)}
+LOADTEST_JAR=loadtest/target/vm-manager-loadtest-1.0.0.jar
+if [ ! -f "$LOADTEST_JAR" ]; then
+    (cd loadtest && mvn -B -q package)
+fi
+
+# 状态目录放到临时目录；关闭限流避免压测流量被429拒绝；暴露metrics端点供长稳测试采样
+# shellcheck disable=SC2086
+java $JAVA_OPTS -jar "$BACKEND_JAR" --server.port="$PORT" \
+    --journal.dir="$WORK/journal" --reconciler.state-dir="$WORK/reconciler" \
+    --idempotency.store-dir="$WORK/idempotency" --console-log.ring-dir="$WORK/console" \
+    --rate-limit.enabled=false \
+    --management.endpoints.web.exposure.include=health,info,metrics \
+    --logging.level.root=WARN --logging.level.com.pengchengyin.vmmanagerbackend=WARN \
+    >"$WORK/backend.log" 2>&1 &
+pid=$!
+trap 'kill "$pid" 2>/dev/null; wait "$pid" 2>/dev/null; rm -rf "$WORK"' EXIT
+
+until curl -sf -o /dev/null "http://localhost:$PORT/actuator/health/readiness"; do
+    if ! kill -0 "$pid" 2>/dev/null; then
+        echo "后端启动失败，日志：" >&2; cat "$WORK/backend.log" >&2; exit 1
+    fi
+    sleep 0.2
+done
+
+java -jar "$LOADTEST_JAR" --base-url "http://localhost:$PORT" "$@"
@@ -0,0 +1,154 @@
+package com.pengchengyin.vmmanagerloadtest;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * 后端REST API的最小客户端
+ * 每个请求都计时并写入 {@link LatencyStats}；响应体完整读取后才停止计时，与真实前端的感知延迟一致。
+ */
+public class ApiClient {
+
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+    private final URI baseUrl;
+    private final HttpClient http;
+    private final ObjectMapper mapper;
+    private final LatencyStats stats;
+
+    public ApiClient(URI baseUrl, ObjectMapper mapper, LatencyStats stats) {
+        this.baseUrl = baseUrl;
+        this.mapper = mapper;
+        this.stats = stats;
+        this.http = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+    }
+
+    public int list() {
+        return timed(Operation.LIST, get("/v1/vms"));
+    }
+
+    public int status(String name) {
+        return timed(Operation.STATUS, get("/v1/vms/" + name + "/status"));
+    }
+
+    public int monitor(String name) {
+        return timed(Operation.MONITOR, get("/v1/vms/" + name + "/monitor"));
+    }
+
+    public int start(String name) {
+        return timed(Operation.START, post("/v1/vms/" + name + "/start", null));
+    }
+
+    public int forceShutdown(String name) {
+        return timed(Operation.FORCE_SHUTDOWN, post("/v1/vms/" + name + "/force-shutdown", null));
+    }
+
+    public int create(String name) {
+        return timed(Operation.CREATE, post("/v1/vms", createBody(name)));
+    }
+
+    public int delete(String name) {
+        return timed(Operation.DELETE, request("/v1/vms/" + name).DELETE().build());
+    }
+
+    /**
+     * 不计时的请求，用于准备数据和清理
+     */
+    public int untimed(String method, String path, Object body) {
+        HttpRequest.BodyPublisher publisher = body == null
+                ? HttpRequest.BodyPublishers.noBody()
+                : HttpRequest.BodyPublishers.ofString(toJson(body));
+        try {
+            return http.send(request(path).method(method, publisher).build(),
+                    HttpResponse.BodyHandlers.discarding()).statusCode();
+        } catch (IOException e) {
+            return LatencyStats.IO_ERROR;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return LatencyStats.IO_ERROR;
+        }
+    }
+
+    /**
+     * 读取一个JSON响应，失败返回null
+     */
+    public JsonNode getJson(String path) {
+        try {
+            HttpResponse<byte[]> response = http.send(get(path), HttpResponse.BodyHandlers.ofByteArray());
+            if (response.statusCode() != 200) {
+                return null;
+            }
+            return mapper.readTree(response.body());
+        } catch (IOException e) {
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    public Map<String, Object> createBody(String name) {
+        return Map.of(
+                "name", name,
+                "memoryMB", 512,
+                "cpuCount", 1,
+                "diskImagePath", "/var/lib/libvirt/images/" + name + ".qcow2");
+    }
+
+    private int timed(Operation op, HttpRequest request) {
+        long start = System.nanoTime();
+        int status;
+        try {
+            status = http.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+        } catch (IOException e) {
+            status = LatencyStats.IO_ERROR;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return LatencyStats.IO_ERROR;
+        }
+        stats.record(op, System.nanoTime() - start, status);
+        return status;
+    }
+
+    private HttpRequest get(String path) {
+        return request(path).GET().build();
+    }
+
+    private HttpRequest post(String path, Object body) {
+        HttpRequest.BodyPublisher publisher = body == null
+                ? HttpRequest.BodyPublishers.noBody()
+                : HttpRequest.BodyPublishers.ofString(toJson(body));
+        return request(path)
+                // 变更请求带幂等键，与前端行为一致
+                .header("Idempotency-Key", UUID.randomUUID().toString())
+                .POST(publisher)
+                .build();
+    }
+
+    private HttpRequest.Builder request(String path) {
+        return HttpRequest.newBuilder(baseUrl.resolve(path))
+                .timeout(REQUEST_TIMEOUT)
+                .header("Content-Type", "application/json")
+                .header("Accept", "application/json");
+    }
+
+    private String toJson(Object body) {
+        try {
+            return mapper.writeValueAsString(body);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("请求体序列化失败", e);
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.pengchengyin.vmmanagerloadtest;
+
+import java.io.FileNotFoundException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramLogWriter;
+import org.HdrHistogram.Recorder;
+
+/**
+ * 按请求类型统计延迟与状态码
+ * 工作线程只写Recorder（无锁），主线程按间隔取出区间直方图：预热期丢弃，统计期累加到总直方图并写入.hlog日志，
+ * 日志可用HdrHistogram自带的HistogramLogProcessor离线分析。
+ * 延迟单位为微秒；工作线程是闭环的（收到响应才发下一个请求），服务端变慢时请求速率随之下降，
+ * 因此延迟数字应结合吞吐一起比较。
+ */
+public class LatencyStats {
+
+    /**
+     * 可记录的最大延迟：60秒
+     */
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.SECONDS.toMicros(60);
+    private static final int SIGNIFICANT_DIGITS = 3;
+
+    /**
+     * 网络错误或超时使用的伪状态码
+     */
+    public static final int IO_ERROR = -1;
+
+    private final Map<Operation, Recorder> recorders = new EnumMap<>(Operation.class);
+    private final Map<Operation, Histogram> intervals = new EnumMap<>(Operation.class);
+    private final Map<Operation, Histogram> totals = new EnumMap<>(Operation.class);
+    private final Map<Operation, Map<Integer, LongAdder>> statusCodes = new EnumMap<>(Operation.class);
+    private final HistogramLogWriter logWriter;
+    private final PrintStream logStream;
+    private final long startMillis = System.currentTimeMillis();
+    private volatile boolean measuring;
+    private long measureStartNanos;
+    private long measureEndNanos;
+
+    public LatencyStats(Path histogramLog) throws FileNotFoundException {
+        for (Operation op : Operation.values()) {
+            recorders.put(op, new Recorder(HIGHEST_TRACKABLE_MICROS, SIGNIFICANT_DIGITS));
+            totals.put(op, new Histogram(HIGHEST_TRACKABLE_MICROS, SIGNIFICANT_DIGITS));
+            statusCodes.put(op, new ConcurrentHashMap<>());
+        }
+        logStream = new PrintStream(histogramLog.toFile());
+        logWriter = new HistogramLogWriter(logStream);
+        logWriter.outputLogFormatVersion();
+        logWriter.outputStartTime(startMillis);
+        logWriter.setBaseTime(startMillis);
+        logWriter.outputLegend();
+    }
+
+    /**
+     * 工作线程调用：记录一次请求
+     */
+    public void record(Operation op, long elapsedNanos, int status) {
+        long micros = Math.min(TimeUnit.NANOSECONDS.toMicros(elapsedNanos), HIGHEST_TRACKABLE_MICROS);
+        recorders.get(op).recordValue(micros);
+        if (measuring) {
+            statusCodes.get(op).computeIfAbsent(status, k -> new LongAdder()).increment();
+        }
+    }
+
+    /**
+     * 预热结束，开始计入报告
+     */
+    public void beginMeasurement() {
+        // 丢弃预热期的数据
+        tick();
+        measureStartNanos = System.nanoTime();
+        measuring = true;
+    }
+
+    /**
+     * 统计结束：把最后一个区间计入后停止累加
+     */
+    public void endMeasurement() {
+        measureEndNanos = System.nanoTime();
+        tick();
+        measuring = false;
+    }
+
+    /**
+     * 主线程按间隔调用：取出区间直方图，统计期内累加并写日志
+     *
+     * @return 本区间各类型的直方图（只读使用）
+     */
+    public Map<Operation, Histogram> tick() {
+        for (Operation op : Operation.values()) {
+            Histogram interval = recorders.get(op).getIntervalHistogram(intervals.get(op));
+            intervals.put(op, interval);
+            if (measuring && interval.getTotalCount() > 0) {
+                totals.get(op).add(interval);
+                interval.setTag(op.name());
+                logWriter.outputIntervalHistogram(interval);
+            }
+        }
+        return intervals;
+    }
+
+    public Histogram total(Operation op) {
+        return totals.get(op);
+    }
+
+    /**
+     * 统计期内各状态码的次数（按状态码排序）
+     */
+    public Map<Integer, Long> statusCodes(Operation op) {
+        Map<Integer, Long> result = new TreeMap<>();
+        statusCodes.get(op).forEach((code, count) -> result.put(code, count.sum()));
+        return result;
+    }
+
+    public double measuredSeconds() {
+        long end = measureEndNanos != 0 ? measureEndNanos : System.nanoTime();
+        return (end - measureStartNanos) / 1e9;
+    }
+
+    public boolean isMeasuring() {
+        return measuring;
+    }
+
+    public void close() {
+        logStream.close();
+    }
+}
@@ -0,0 +1,247 @@
+package com.pengchengyin.vmmanagerloadtest;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.HdrHistogram.Histogram;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * vm-manager后端压测入口
+ * 先创建一批测试虚拟机（一半处于运行状态），再由若干虚拟线程按场景权重循环发请求；
+ * 预热结束后开始统计，结束时输出JSON报告和.hlog直方图日志，并可与之前的报告比较。
+ * 长稳模式下同时定时采样服务端的堆、线程数和打开的文件句柄（含libvirt连接与TCP连接）。
+ *
+ * 退出码：0 正常；1 运行失败；2 相对基线出现回退或长稳测试发现疑似泄漏。
+ */
+public class LoadTestMain {
+
+    private static final String VM_PREFIX = "lt-";
+
+    /**
+     * 启停循环使用的虚拟机：同一时刻只属于一个工作线程，保证状态转换合法
+     */
+    private record PowerSlot(String name, boolean running) {
+    }
+
+    private final LoadTestOptions options;
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final LatencyStats stats;
+    private final ApiClient client;
+    private final List<String> vmNames = new ArrayList<>();
+    private final BlockingQueue<PowerSlot> powerSlots = new LinkedBlockingQueue<>();
+    private final AtomicBoolean running = new AtomicBoolean(true);
+    private final AtomicLong tempVmSeq = new AtomicLong();
+
+    LoadTestMain(LoadTestOptions options) throws Exception {
+        this.options = options;
+        this.stats = new LatencyStats(histogramLogPath(options.report));
+        this.client = new ApiClient(options.baseUrl, mapper, stats);
+    }
+
+    public static void main(String[] args) {
+        int exitCode;
+        try {
+            exitCode = new LoadTestMain(LoadTestOptions.parse(args)).run();
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            LoadTestOptions.usage();
+            exitCode = 1;
+        } catch (Exception e) {
+            System.err.println("压测失败: " + e);
+            exitCode = 1;
+        }
+        System.exit(exitCode);
+    }
+
+    int run() throws Exception {
+        if (client.getJson("/v1/vms") == null) {
+            throw new IllegalStateException("后端不可用: " + options.baseUrl);
+        }
+        System.out.printf("场景=%s 模式=%s 并发=%d 预热=%ds 时长=%ds 虚拟机=%d%n",
+                options.scenario, options.mode, options.concurrency,
+                options.warmup.toSeconds(), options.duration.toSeconds(), options.vms);
+        seedVms();
+
+        SoakMonitor soak = options.mode == LoadTestOptions.Mode.SOAK ? new SoakMonitor(client) : null;
+        ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor();
+        for (int i = 0; i < options.concurrency; i++) {
+            workers.submit(this::workerLoop);
+        }
+
+        try {
+            drive(options.warmup, false, soak);
+            stats.beginMeasurement();
+            drive(options.duration, true, soak);
+            stats.endMeasurement();
+        } finally {
+            running.set(false);
+            workers.shutdown();
+            workers.awaitTermination(1, TimeUnit.MINUTES);
+            stats.close();
+        }
+        if (soak != null) {
+            soak.sample();
+        }
+
+        Report report = new Report(mapper);
+        JsonNode result = report.build(options, stats, soak);
+        report.write(result, options.report);
+        report.printSummary(result);
+        System.out.println("\n报告: " + options.report + "  直方图日志: " + histogramLogPath(options.report));
+
+        List<String> problems = new ArrayList<>();
+        if (options.baseline != null) {
+            problems.addAll(report.compare(result, report.read(options.baseline), options.maxRegressionPercent));
+        }
+        if (soak != null) {
+            problems.addAll(soak.leakSuspects());
+        }
+        if (!options.keepVms) {
+            cleanupVms();
+        }
+        if (!problems.isEmpty()) {
+            System.out.println("\n发现问题:");
+            problems.forEach(p -> System.out.println("  - " + p));
+            return 2;
+        }
+        return 0;
+    }
+
+    /**
+     * 运行一个阶段，按间隔输出进度；长稳模式下同时采样服务端指标
+     */
+    private void drive(Duration phase, boolean measured, SoakMonitor soak) throws InterruptedException {
+        long end = System.nanoTime() + phase.toNanos();
+        long interval = options.reportInterval.toNanos();
+        long nextSample = System.nanoTime();
+        while (System.nanoTime() < end) {
+            long sleep = Math.min(interval, end - System.nanoTime());
+            TimeUnit.NANOSECONDS.sleep(Math.max(0, sleep));
+            if (soak != null && System.nanoTime() >= nextSample) {
+                soak.sample();
+                nextSample = System.nanoTime() + options.soakSampleInterval.toNanos();
+            }
+            if (System.nanoTime() < end) {
+                printProgress(stats.tick(), sleep, measured);
+            }
+        }
+    }
+
+    private void printProgress(Map<Operation, Histogram> interval, long intervalNanos, boolean measured) {
+        StringBuilder line = new StringBuilder(measured ? "[统计] " : "[预热] ");
+        long total = 0;
+        for (Map.Entry<Operation, Histogram> e : interval.entrySet()) {
+            Histogram h = e.getValue();
+            if (h.getTotalCount() == 0) {
+                continue;
+            }
+            total += h.getTotalCount();
+            line.append(String.format("%s p99=%.1fms ", e.getKey(), h.getValueAtPercentile(99) / 1000.0));
+        }
+        line.append(String.format("| %.0f 请求/s", total / (intervalNanos / 1e9)));
+        System.out.println(line);
+    }
+
+    private void workerLoop() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (running.get()) {
+            try {
+                switch (options.scenario.next()) {
+                    case LIST -> client.list();
+                    case STATUS -> client.status(vmNames.get(random.nextInt(vmNames.size())));
+                    case MONITOR -> client.monitor(vmNames.get(random.nextInt(vmNames.size())));
+                    case POWER_CYCLE -> powerCycle();
+                    case CREATE_DELETE -> createDelete();
+                }
+            } catch (InterruptedException e) {
+                return;
+            } catch (RuntimeException e) {
+                System.err.println("工作线程异常: " + e);
+            }
+        }
+    }
+
+    /**
+     * 启停一次：运行中的先强制关机再启动，已关机的先启动再强制关机，结束后状态不变
+     */
+    private void powerCycle() throws InterruptedException {
+        PowerSlot slot = powerSlots.poll(1, TimeUnit.SECONDS);
+        if (slot == null) {
+            return;
+        }
+        try {
+            if (slot.running()) {
+                client.forceShutdown(slot.name());
+                client.start(slot.name());
+            } else {
+                client.start(slot.name());
+                client.forceShutdown(slot.name());
+            }
+        } finally {
+            powerSlots.put(slot);
+        }
+    }
+
+    private void createDelete() {
+        String name = VM_PREFIX + "tmp-" + ProcessHandle.current().pid() + "-" + tempVmSeq.incrementAndGet();
+        if (client.create(name) / 100 == 2) {
+            client.delete(name);
+        }
+    }
+
+    private void seedVms() throws InterruptedException {
+        System.out.printf("创建 %d 台测试虚拟机...%n", options.vms);
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < options.vms; i++) {
+            names.add(String.format("%s%04d", VM_PREFIX, i));
+        }
+        try (ExecutorService pool = Executors.newFixedThreadPool(Math.min(8, options.vms))) {
+            for (int i = 0; i < names.size(); i++) {
+                String name = names.get(i);
+                boolean start = i % 2 == 0;
+                pool.submit(() -> {
+                    // 上次运行残留的同名虚拟机直接复用
+                    client.untimed("POST", "/v1/vms", client.createBody(name));
+                    client.untimed("POST", "/v1/vms/" + name + "/force-shutdown", null);
+                    if (start) {
+                        client.untimed("POST", "/v1/vms/" + name + "/start", null);
+                    }
+                });
+            }
+        }
+        for (int i = 0; i < names.size(); i++) {
+            vmNames.add(names.get(i));
+            powerSlots.put(new PowerSlot(names.get(i), i % 2 == 0));
+        }
+    }
+
+    private void cleanupVms() throws InterruptedException {
+        try (ExecutorService pool = Executors.newFixedThreadPool(Math.min(8, vmNames.size()))) {
+            for (String name : vmNames) {
+                pool.submit(() -> {
+                    client.untimed("POST", "/v1/vms/" + name + "/force-shutdown", null);
+                    client.untimed("DELETE", "/v1/vms/" + name, null);
+                });
+            }
+        }
+    }
+
+    private static Path histogramLogPath(Path report) {
+        String file = report.getFileName().toString().replaceAll("\\.json$", "");
+        return report.resolveSibling(file + ".hlog");
+    }
+}
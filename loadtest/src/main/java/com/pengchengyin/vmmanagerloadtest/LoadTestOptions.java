@@ -0,0 +1,110 @@
+package com.pengchengyin.vmmanagerloadtest;
+
+import java.net.URI;
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * 压测命令行参数
+ */
+public class LoadTestOptions {
+
+    /**
+     * 运行模式：load为定时长压测，soak为长稳测试（额外采样服务端堆、线程、文件句柄）
+     */
+    public enum Mode {
+        LOAD,
+        SOAK
+    }
+
+    URI baseUrl = URI.create("http://localhost:8080");
+    Mode mode = Mode.LOAD;
+    Scenario scenario = Scenario.MIXED;
+    int concurrency = 32;
+    Duration duration = Duration.ofMinutes(2);
+    Duration warmup = Duration.ofSeconds(20);
+    Duration reportInterval = Duration.ofSeconds(10);
+    Duration soakSampleInterval = Duration.ofSeconds(60);
+    int vms = 50;
+    String label = "unnamed";
+    Path report = Path.of("loadtest-report.json");
+    Path baseline;
+    double maxRegressionPercent = 10.0;
+    boolean keepVms;
+
+    static LoadTestOptions parse(String[] args) {
+        LoadTestOptions options = new LoadTestOptions();
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if ("--help".equals(arg) || "-h".equals(arg)) {
+                usage();
+                System.exit(0);
+            }
+            if ("--keep-vms".equals(arg)) {
+                options.keepVms = true;
+                continue;
+            }
+            if (i + 1 >= args.length) {
+                throw new IllegalArgumentException("参数缺少取值: " + arg);
+            }
+            String value = args[++i];
+            switch (arg) {
+                case "--base-url" -> options.baseUrl = URI.create(value.replaceAll("/+$", ""));
+                case "--mode" -> options.mode = Mode.valueOf(value.toUpperCase());
+                case "--scenario" -> options.scenario = Scenario.valueOf(value.toUpperCase());
+                case "--concurrency" -> options.concurrency = Integer.parseInt(value);
+                case "--duration" -> options.duration = parseDuration(value);
+                case "--warmup" -> options.warmup = parseDuration(value);
+                case "--report-interval" -> options.reportInterval = parseDuration(value);
+                case "--soak-interval" -> options.soakSampleInterval = parseDuration(value);
+                case "--vms" -> options.vms = Integer.parseInt(value);
+                case "--label" -> options.label = value;
+                case "--report" -> options.report = Path.of(value);
+                case "--baseline" -> options.baseline = Path.of(value);
+                case "--max-regression" -> options.maxRegressionPercent = Double.parseDouble(value);
+                default -> throw new IllegalArgumentException("未知参数: " + arg);
+            }
+        }
+        if (options.concurrency < 1 || options.vms < 1) {
+            throw new IllegalArgumentException("--concurrency 与 --vms 必须大于0");
+        }
+        return options;
+    }
+
+    /**
+     * 解析 90s、15m、4h 形式的时长，纯数字按秒处理
+     */
+    static Duration parseDuration(String value) {
+        String v = value.trim().toLowerCase();
+        char unit = v.charAt(v.length() - 1);
+        if (Character.isDigit(unit)) {
+            return Duration.ofSeconds(Long.parseLong(v));
+        }
+        long amount = Long.parseLong(v.substring(0, v.length() - 1));
+        return switch (unit) {
+            case 's' -> Duration.ofSeconds(amount);
+            case 'm' -> Duration.ofMinutes(amount);
+            case 'h' -> Duration.ofHours(amount);
+            default -> throw new IllegalArgumentException("无法解析的时长: " + value);
+        };
+    }
+
+    static void usage() {
+        System.out.println("""
+                用法: java -jar vm-manager-loadtest.jar [参数]
+                  --base-url URL          后端地址，默认 http://localhost:8080
+                  --mode load|soak        压测或长稳测试，默认 load
+                  --scenario NAME         dashboard|lifecycle|polling|mixed，默认 mixed
+                  --concurrency N         并发工作线程数，默认 32
+                  --duration T            统计时长（不含预热），如 120s、30m、4h，默认 2m
+                  --warmup T              预热时长，不计入报告，默认 20s
+                  --report-interval T     控制台进度与直方图日志的输出间隔，默认 10s
+                  --soak-interval T       长稳模式下服务端指标采样间隔，默认 60s
+                  --vms N                 预先创建的测试虚拟机数量，默认 50
+                  --label TEXT            报告中记录的版本标签
+                  --report FILE           JSON报告输出路径（同目录另写 .hlog 直方图日志）
+                  --baseline FILE         与之前的报告比较，超过阈值时退出码为2
+                  --max-regression PCT    吞吐下降或p99上升的容忍百分比，默认 10
+                  --keep-vms              结束后保留测试虚拟机""");
+    }
+}
@@ -0,0 +1,24 @@
+package com.pengchengyin.vmmanagerloadtest;
+
+/**
+ * 被单独计时的请求类型
+ */
+public enum Operation {
+    LIST("GET /v1/vms"),
+    STATUS("GET /v1/vms/{name}/status"),
+    MONITOR("GET /v1/vms/{name}/monitor"),
+    START("POST /v1/vms/{name}/start"),
+    FORCE_SHUTDOWN("POST /v1/vms/{name}/force-shutdown"),
+    CREATE("POST /v1/vms"),
+    DELETE("DELETE /v1/vms/{name}");
+
+    private final String endpoint;
+
+    Operation(String endpoint) {
+        this.endpoint = endpoint;
+    }
+
+    public String getEndpoint() {
+        return endpoint;
+    }
+}
@@ -0,0 +1,179 @@
+package com.pengchengyin.vmmanagerloadtest;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.HdrHistogram.Histogram;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * 压测报告：生成可跨版本比较的JSON基线，并与之前的基线对比
+ */
+public class Report {
+
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+
+    private final ObjectMapper mapper;
+
+    public Report(ObjectMapper mapper) {
+        this.mapper = mapper;
+    }
+
+    public ObjectNode build(LoadTestOptions options, LatencyStats stats, SoakMonitor soak) {
+        ObjectNode root = mapper.createObjectNode();
+        root.put("label", options.label);
+        root.put("finishedAt", Instant.now().toString());
+        root.put("mode", options.mode.name().toLowerCase());
+        root.put("scenario", options.scenario.name().toLowerCase());
+        root.put("concurrency", options.concurrency);
+        root.put("vms", options.vms);
+        root.put("measuredSeconds", round(stats.measuredSeconds()));
+
+        double seconds = stats.measuredSeconds();
+        long totalCount = 0;
+        long totalErrors = 0;
+        Histogram all = null;
+        ObjectNode operations = root.putObject("operations");
+        for (Operation op : Operation.values()) {
+            Histogram h = stats.total(op);
+            if (h.getTotalCount() == 0) {
+                continue;
+            }
+            if (all == null) {
+                all = h.copy();
+            } else {
+                all.add(h);
+            }
+            Map<Integer, Long> codes = stats.statusCodes(op);
+            long errors = errors(codes);
+            totalCount += h.getTotalCount();
+            totalErrors += errors;
+
+            ObjectNode node = operations.putObject(op.name());
+            node.put("endpoint", op.getEndpoint());
+            writeLatency(node, h, seconds, errors);
+            ObjectNode codeNode = node.putObject("statusCodes");
+            codes.forEach((code, count) -> codeNode.put(code == LatencyStats.IO_ERROR ? "io_error" : code.toString(), count));
+        }
+        if (all != null) {
+            ObjectNode total = root.putObject("total");
+            writeLatency(total, all, seconds, totalErrors);
+            total.put("count", totalCount);
+        }
+
+        if (soak != null) {
+            ObjectNode soakNode = root.putObject("soak");
+            ObjectNode slopes = soakNode.putObject("slopePerHour");
+            soak.slopesPerHour().forEach((metric, slope) -> slopes.put(metric.name(), round(slope)));
+            soakNode.putPOJO("leakSuspects", soak.leakSuspects());
+            ArrayNode samples = soakNode.putArray("samples");
+            for (SoakMonitor.Sample s : soak.getSamples()) {
+                ObjectNode sampleNode = samples.addObject();
+                sampleNode.put("elapsedSeconds", s.elapsedMillis() / 1000);
+                s.values().forEach((metric, value) -> sampleNode.put(metric.name(), round(value)));
+            }
+        }
+        return root;
+    }
+
+    /**
+     * 与基线比较，返回回退项说明；吞吐下降或p99上升超过阈值、错误率上升超过1个百分点都视为回退
+     */
+    public List<String> compare(JsonNode current, JsonNode baseline, double maxRegressionPercent) {
+        List<String> regressions = new ArrayList<>();
+        System.out.printf("%n与基线比较（%s -> %s）:%n", baseline.path("label").asText(), current.path("label").asText());
+        System.out.printf("%-16s %14s %14s %14s%n", "请求", "吞吐变化", "p99变化", "错误率变化");
+        Iterator<String> names = current.path("operations").fieldNames();
+        while (names.hasNext()) {
+            String name = names.next();
+            JsonNode cur = current.path("operations").path(name);
+            JsonNode base = baseline.path("operations").path(name);
+            if (base.isMissingNode()) {
+                continue;
+            }
+            double throughput = change(base.path("throughput").asDouble(), cur.path("throughput").asDouble());
+            double p99 = change(base.path("p99Ms").asDouble(), cur.path("p99Ms").asDouble());
+            double errorRate = (cur.path("errorRate").asDouble() - base.path("errorRate").asDouble()) * 100;
+            System.out.printf("%-16s %+13.1f%% %+13.1f%% %+13.2fpp%n", name, throughput, p99, errorRate);
+            if (-throughput > maxRegressionPercent) {
+                regressions.add(String.format("%s 吞吐下降 %.1f%%", name, -throughput));
+            }
+            if (p99 > maxRegressionPercent) {
+                regressions.add(String.format("%s p99上升 %.1f%%", name, p99));
+            }
+            if (errorRate > 1.0) {
+                regressions.add(String.format("%s 错误率上升 %.2f个百分点", name, errorRate));
+            }
+        }
+        return regressions;
+    }
+
+    public void printSummary(JsonNode report) {
+        System.out.printf("%n%-16s %10s %10s %9s %9s %9s %9s %9s %8s%n",
+                "请求", "次数", "吞吐/s", "p50ms", "p90ms", "p99ms", "p999ms", "maxms", "错误率");
+        report.path("operations").properties().forEach(e -> printRow(e.getKey(), e.getValue()));
+        if (report.has("total")) {
+            printRow("TOTAL", report.path("total"));
+        }
+        JsonNode soak = report.path("soak");
+        if (!soak.isMissingNode()) {
+            System.out.println("\n长稳测试资源趋势（每小时增长）: " + soak.path("slopePerHour"));
+            System.out.println("疑似泄漏: " + soak.path("leakSuspects"));
+        }
+    }
+
+    public JsonNode read(Path path) throws IOException {
+        return mapper.readTree(path.toFile());
+    }
+
+    public void write(JsonNode report, Path path) throws IOException {
+        mapper.writerWithDefaultPrettyPrinter().writeValue(path.toFile(), report);
+    }
+
+    private void printRow(String name, JsonNode n) {
+        System.out.printf("%-16s %10d %10.1f %9.2f %9.2f %9.2f %9.2f %9.2f %7.2f%%%n",
+                name, n.path("count").asLong(), n.path("throughput").asDouble(),
+                n.path("p50Ms").asDouble(), n.path("p90Ms").asDouble(), n.path("p99Ms").asDouble(),
+                n.path("p999Ms").asDouble(), n.path("maxMs").asDouble(), n.path("errorRate").asDouble() * 100);
+    }
+
+    private static void writeLatency(ObjectNode node, Histogram h, double seconds, long errors) {
+        node.put("count", h.getTotalCount());
+        node.put("throughput", round(seconds > 0 ? h.getTotalCount() / seconds : 0));
+        node.put("errors", errors);
+        node.put("errorRate", round(h.getTotalCount() > 0 ? errors / (double) h.getTotalCount() : 0));
+        node.put("meanMs", round(h.getMean() / 1000));
+        for (double p : PERCENTILES) {
+            String key = "p" + (p == 99.9 ? "999" : String.valueOf((int) p)) + "Ms";
+            node.put(key, round(h.getValueAtPercentile(p) / 1000.0));
+        }
+        node.put("maxMs", round(h.getMaxValue() / 1000.0));
+    }
+
+    /**
+     * 非2xx（含网络错误）计为错误
+     */
+    private static long errors(Map<Integer, Long> codes) {
+        return codes.entrySet().stream()
+                .filter(e -> e.getKey() < 200 || e.getKey() >= 300)
+                .mapToLong(Map.Entry::getValue)
+                .sum();
+    }
+
+    private static double change(double base, double current) {
+        return base == 0 ? 0 : (current - base) / base * 100;
+    }
+
+    private static double round(double v) {
+        return Math.round(v * 1000) / 1000.0;
+    }
+}
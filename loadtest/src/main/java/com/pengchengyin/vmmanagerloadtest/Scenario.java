@@ -0,0 +1,67 @@
+package com.pengchengyin.vmmanagerloadtest;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 工作负载场景：每个场景是一组按权重随机选择的动作
+ */
+public enum Scenario {
+
+    /**
+     * 监控大盘：以全量列表为主，辅以单台监控数据
+     */
+    DASHBOARD(Map.of(Action.LIST, 60, Action.MONITOR, 25, Action.STATUS, 15)),
+
+    /**
+     * 生命周期突发：批量启停与创建删除
+     */
+    LIFECYCLE(Map.of(Action.POWER_CYCLE, 70, Action.CREATE_DELETE, 30)),
+
+    /**
+     * 状态轮询：前端定时刷新单台状态
+     */
+    POLLING(Map.of(Action.STATUS, 85, Action.MONITOR, 10, Action.LIST, 5)),
+
+    /**
+     * 混合负载
+     */
+    MIXED(Map.of(Action.LIST, 25, Action.STATUS, 40, Action.MONITOR, 15,
+            Action.POWER_CYCLE, 15, Action.CREATE_DELETE, 5));
+
+    /**
+     * 工作线程每轮执行的动作；一个动作可能包含多个被分别计时的请求
+     */
+    public enum Action {
+        LIST,
+        STATUS,
+        MONITOR,
+        POWER_CYCLE,
+        CREATE_DELETE
+    }
+
+    private final Action[] actions;
+    private final int[] cumulative;
+
+    Scenario(Map<Action, Integer> weights) {
+        Map<Action, Integer> ordered = new EnumMap<>(weights);
+        actions = ordered.keySet().toArray(new Action[0]);
+        cumulative = new int[actions.length];
+        int sum = 0;
+        for (int i = 0; i < actions.length; i++) {
+            sum += ordered.get(actions[i]);
+            cumulative[i] = sum;
+        }
+    }
+
+    public Action next() {
+        int r = ThreadLocalRandom.current().nextInt(cumulative[cumulative.length - 1]);
+        for (int i = 0; i < cumulative.length; i++) {
+            if (r < cumulative[i]) {
+                return actions[i];
+            }
+        }
+        return actions[actions.length - 1];
+    }
+}
@@ -0,0 +1,120 @@
+package com.pengchengyin.vmmanagerloadtest;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * 长稳测试的服务端资源采样
+ * 定时读取后端的actuator指标（需要暴露metrics端点），结束时对每项指标做最小二乘线性拟合，
+ * 以每小时增长量判断是否存在泄漏。前10%的采样视为预热，不参与拟合。
+ */
+public class SoakMonitor {
+
+    /**
+     * 采样的指标：名称、actuator查询路径、每小时增长的告警阈值
+     */
+    enum Metric {
+        HEAP_USED_MB("/actuator/metrics/jvm.memory.used?tag=area:heap", 1.0 / (1024 * 1024), 0),
+        LIVE_DATA_MB("/actuator/metrics/jvm.gc.live.data.size", 1.0 / (1024 * 1024), 32),
+        THREADS("/actuator/metrics/jvm.threads.live", 1, 5),
+        OPEN_FILES("/actuator/metrics/process.files.open", 1, 10);
+
+        final String path;
+        final double scale;
+        /**
+         * 每小时增长超过该值视为疑似泄漏；0表示只记录不判断（堆使用量随GC周期波动，以GC后存活数据为准）
+         */
+        final double maxSlopePerHour;
+
+        Metric(String path, double scale, double maxSlopePerHour) {
+            this.path = path;
+            this.scale = scale;
+            this.maxSlopePerHour = maxSlopePerHour;
+        }
+    }
+
+    record Sample(long elapsedMillis, Map<Metric, Double> values) {
+    }
+
+    private final ApiClient client;
+    private final long startNanos = System.nanoTime();
+    private final List<Sample> samples = new ArrayList<>();
+
+    public SoakMonitor(ApiClient client) {
+        this.client = client;
+    }
+
+    public synchronized Sample sample() {
+        Map<Metric, Double> values = new LinkedHashMap<>();
+        for (Metric metric : Metric.values()) {
+            JsonNode node = client.getJson(metric.path);
+            JsonNode measurements = node == null ? null : node.path("measurements");
+            if (measurements != null && measurements.size() > 0) {
+                values.put(metric, measurements.get(0).path("value").asDouble() * metric.scale);
+            }
+        }
+        Sample sample = new Sample((System.nanoTime() - startNanos) / 1_000_000, values);
+        samples.add(sample);
+        return sample;
+    }
+
+    public synchronized List<Sample> getSamples() {
+        return List.copyOf(samples);
+    }
+
+    /**
+     * 各指标每小时的增长量（最小二乘斜率），采样不足时为空
+     */
+    public synchronized Map<Metric, Double> slopesPerHour() {
+        Map<Metric, Double> slopes = new LinkedHashMap<>();
+        List<Sample> steady = samples.subList(samples.size() / 10, samples.size());
+        for (Metric metric : Metric.values()) {
+            List<double[]> points = new ArrayList<>();
+            for (Sample s : steady) {
+                Double v = s.values().get(metric);
+                if (v != null) {
+                    points.add(new double[]{s.elapsedMillis() / 3_600_000.0, v});
+                }
+            }
+            if (points.size() >= 3) {
+                slopes.put(metric, slope(points));
+            }
+        }
+        return slopes;
+    }
+
+    /**
+     * 超过阈值的指标说明，为空表示未发现泄漏迹象
+     */
+    public List<String> leakSuspects() {
+        List<String> suspects = new ArrayList<>();
+        slopesPerHour().forEach((metric, slope) -> {
+            if (metric.maxSlopePerHour > 0 && slope > metric.maxSlopePerHour) {
+                suspects.add(String.format("%s 每小时增长 %.2f（阈值 %.2f）", metric, slope, metric.maxSlopePerHour));
+            }
+        });
+        return suspects;
+    }
+
+    private static double slope(List<double[]> points) {
+        double meanX = 0;
+        double meanY = 0;
+        for (double[] p : points) {
+            meanX += p[0];
+            meanY += p[1];
+        }
+        meanX /= points.size();
+        meanY /= points.size();
+        double num = 0;
+        double den = 0;
+        for (double[] p : points) {
+            num += (p[0] - meanX) * (p[1] - meanY);
+            den += (p[0] - meanX) * (p[0] - meanX);
+        }
+        return den == 0 ? 0 : num / den;
+    }
+}